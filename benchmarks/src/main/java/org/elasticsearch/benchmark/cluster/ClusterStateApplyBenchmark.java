@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.cluster;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.benchmark.routing.allocation.Allocators;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.decider.ThrottlingAllocationDecider;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes a data node to apply a published cluster state diff that only carries a mapping update of a single
+ * index, depending on the number of indices in the cluster. This covers reading and applying the diff, building the routing nodes
+ * view and finding the local shards whose index changed, which is what the indices cluster state service does on every update.
+ */
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class ClusterStateApplyBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"100", "1000", "5000", "20000"})
+    public int numIndices = 100;
+
+    @Param({"10"})
+    public int numNodes = 10;
+
+    private NamedWriteableRegistry namedWriteableRegistry;
+
+    private DiscoveryNode localNode;
+
+    private ClusterState previousClusterState;
+
+    private BytesReference mappingUpdateDiff;
+
+    @Setup
+    public void setUp() throws Exception {
+        namedWriteableRegistry = new NamedWriteableRegistry(ClusterModule.getNamedWriteables());
+        AllocationService strategy = Allocators.createAllocationService(Settings.builder()
+            // allocate all primaries in a single round
+            .put(ThrottlingAllocationDecider.CLUSTER_ROUTING_ALLOCATION_NODE_INITIAL_PRIMARIES_RECOVERIES_SETTING.getKey(), numIndices)
+            .build());
+
+        MetaData.Builder mb = MetaData.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            mb.put(IndexMetaData.builder("test_" + i)
+                .settings(Settings.builder().put("index.version.created", Version.CURRENT))
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+            );
+        }
+        MetaData metaData = mb.build();
+        RoutingTable.Builder rb = RoutingTable.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            rb.addAsNew(metaData.index("test_" + i));
+        }
+        DiscoveryNodes.Builder nb = DiscoveryNodes.builder();
+        for (int i = 1; i <= numNodes; i++) {
+            nb.add(Allocators.newNode("node" + i, Collections.emptyMap()));
+        }
+        nb.localNodeId("node1").masterNodeId("node1");
+        ClusterState clusterState = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .metaData(metaData).routingTable(rb.build()).nodes(nb).build();
+        clusterState = strategy.reroute(clusterState, "reroute");
+        clusterState = strategy.applyStartedShards(clusterState,
+            clusterState.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING));
+        localNode = clusterState.nodes().getLocalNode();
+        previousClusterState = clusterState;
+        // the data node built these when it applied the previous cluster state
+        previousClusterState.getRoutingNodes();
+
+        IndexMetaData updated = clusterState.metaData().index("test_1");
+        ClusterState mappingUpdate = ClusterState.builder(clusterState).incrementVersion()
+            .metaData(MetaData.builder(clusterState.metaData()).put(IndexMetaData.builder(updated)
+                .putMapping("type", "{\"type\":{\"properties\":{\"field\":{\"type\":\"keyword\"}}}}")
+                .version(updated.getVersion() + 1)))
+            .build();
+        BytesStreamOutput out = new BytesStreamOutput();
+        mappingUpdate.diff(previousClusterState).writeTo(out);
+        mappingUpdateDiff = out.bytes();
+    }
+
+    @Benchmark
+    public int applyMappingUpdate() throws IOException {
+        StreamInput in = new NamedWriteableAwareStreamInput(mappingUpdateDiff.streamInput(), namedWriteableRegistry);
+        ClusterState clusterState = ClusterState.readDiffFrom(in, localNode).apply(previousClusterState);
+        ClusterChangedEvent event = new ClusterChangedEvent("benchmark", clusterState, previousClusterState);
+        RoutingNode localRoutingNode = clusterState.getRoutingNodes().node(localNode.getId());
+        int changedShards = 0;
+        for (ShardRouting shardRouting : localRoutingNode) {
+            IndexMetaData indexMetaData = clusterState.metaData().getIndexSafe(shardRouting.index());
+            if (event.indexRoutingTableChanged(shardRouting.getIndexName())
+                || ClusterChangedEvent.indexMetaDataChanged(previousClusterState.metaData().getIndexSafe(shardRouting.index()),
+                indexMetaData)) {
+                changedShards++;
+            }
+        }
+        return changedShards;
+    }
+}
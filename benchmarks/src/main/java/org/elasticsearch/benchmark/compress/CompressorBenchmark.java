@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.compress;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and the compression ratio of the available compressors on the serialized form of bulk requests and search
+ * responses, as they are sent over the transport layer. The {@link Sizes} counters report the number of uncompressed and compressed bytes
+ * that were processed, their quotient is the compression ratio.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CompressorBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"deflate", "lz4"})
+    public String scheme = "deflate";
+
+    @Param({"bulk", "search"})
+    public String payload = "bulk";
+
+    @Param({"1000"})
+    public int numDocs = 1000;
+
+    private Compressor compressor;
+
+    private BytesReference uncompressed;
+
+    private BytesReference compressed;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        compressor = CompressorFactory.compressor(scheme);
+        // a fixed seed so that all compressors see the same bytes
+        Random random = new Random(42);
+        switch (payload) {
+            case "bulk":
+                uncompressed = bulkRequest(random, numDocs);
+                break;
+            case "search":
+                uncompressed = searchResponse(random, numDocs);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown payload [" + payload + "]");
+        }
+        compressed = compress(uncompressed);
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public BytesReference compress(Sizes sizes) throws IOException {
+        BytesReference bytes = compress(uncompressed);
+        sizes.uncompressedBytes += uncompressed.length();
+        sizes.compressedBytes += bytes.length();
+        return bytes;
+    }
+
+    @Benchmark
+    public long decompress(Sizes sizes) throws IOException {
+        long read = 0;
+        try (StreamInput in = compressor.streamInput(compressed.streamInput())) {
+            int len;
+            while ((len = in.read(buffer, 0, buffer.length)) != -1) {
+                read += len;
+            }
+        }
+        sizes.uncompressedBytes += read;
+        sizes.compressedBytes += compressed.length();
+        return read;
+    }
+
+    private BytesReference compress(BytesReference bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput(bytes.length());
+        try (StreamOutput compressedOut = compressor.streamOutput(out)) {
+            bytes.writeTo(compressedOut);
+        }
+        return out.bytes();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long uncompressedBytes;
+        public long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            uncompressedBytes = 0;
+            compressedBytes = 0;
+        }
+    }
+
+    private static BytesReference bulkRequest(Random random, int numDocs) throws IOException {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < numDocs; i++) {
+            request.add(new IndexRequest("logs-2017.04.01", "doc", Integer.toString(i)).source(logDocument(random, i)));
+        }
+        return serialize(request::writeTo);
+    }
+
+    private static BytesReference searchResponse(Random random, int numDocs) throws IOException {
+        SearchHit[] hits = new SearchHit[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            hits[i] = new SearchHit(i, Integer.toString(i), new Text("doc"), Collections.emptyMap());
+            hits[i].score(1.0f);
+            hits[i].sourceRef(logDocument(random, i).bytes());
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new SearchHits(hits, numDocs * 10L, 1.0f), null, null, null,
+            false, null, 1);
+        SearchResponse response = new SearchResponse(internalResponse, null, 5, 5, 12, ShardSearchFailure.EMPTY_ARRAY);
+        return serialize(response::writeTo);
+    }
+
+    /**
+     * An access log entry, the kind of document that dominates our bulk traffic.
+     */
+    private static XContentBuilder logDocument(Random random, int i) throws IOException {
+        String[] methods = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+        String[] paths = {"/", "/index.html", "/api/v1/orders", "/api/v1/users", "/static/app.js", "/static/style.css", "/search"};
+        String[] agents = {
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/57.0.2987.133 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_12_4) AppleWebKit/603.1.30 (KHTML, like Gecko) Version/10.1 Safari/603.1.30",
+            "Mozilla/5.0 (X11; Linux x86_64; rv:52.0) Gecko/20100101 Firefox/52.0",
+            "curl/7.51.0"
+        };
+        int[] statuses = {200, 200, 200, 200, 201, 304, 404, 500};
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        builder.field("@timestamp", 1491004800000L + i * 37L + random.nextInt(37));
+        builder.field("client_ip", (random.nextInt(223) + 1) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+            + random.nextInt(256));
+        builder.field("method", methods[random.nextInt(methods.length)]);
+        builder.field("path", paths[random.nextInt(paths.length)] + (random.nextBoolean() ? "" : "?id=" + random.nextInt(100000)));
+        builder.field("status", statuses[random.nextInt(statuses.length)]);
+        builder.field("bytes", random.nextInt(50000));
+        builder.field("response_time_ms", random.nextDouble() * 1000);
+        builder.field("user_agent", agents[random.nextInt(agents.length)]);
+        builder.startObject("geo");
+        builder.field("country_iso_code", random.nextBoolean() ? "US" : "DE");
+        builder.array("location", random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    private static BytesReference serialize(CheckedConsumer<StreamOutput, IOException> writer) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        writer.accept(out);
+        return out.bytes();
+    }
+}
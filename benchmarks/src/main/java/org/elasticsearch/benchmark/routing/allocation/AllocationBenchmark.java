@@ -27,6 +27,7 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator;
 import org.elasticsearch.common.settings.Settings;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -110,10 +111,14 @@ public class AllocationBenchmark {
     })
     public String indicesShardsReplicasNodes = "10|1|0|1";
 
+    @Param({"false", "true"})
+    public boolean incrementalBalance = false;
+
     public int numTags = 2;
 
     private AllocationService strategy;
     private ClusterState initialClusterState;
+    private ClusterState balancedClusterState;
 
     @Setup
     public void setUp() throws Exception {
@@ -126,6 +131,7 @@ public class AllocationBenchmark {
 
         strategy = Allocators.createAllocationService(Settings.builder()
                 .put("cluster.routing.allocation.awareness.attributes", "tag")
+                .put(BalancedShardsAllocator.INCREMENTAL_BALANCE_SETTING.getKey(), incrementalBalance)
                 .build());
 
         MetaData.Builder mb = MetaData.builder();
@@ -149,6 +155,14 @@ public class AllocationBenchmark {
         initialClusterState = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
             .metaData(metaData).routingTable(routingTable).nodes
                 (nb).build();
+
+        ClusterState clusterState = measureAllocation();
+        while (clusterState.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING).isEmpty() == false) {
+            clusterState = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes()
+                    .shardsWithState(ShardRoutingState.INITIALIZING));
+            clusterState = strategy.reroute(clusterState, "reroute");
+        }
+        balancedClusterState = clusterState;
     }
 
     private int toInt(String v) {
@@ -165,4 +179,14 @@ public class AllocationBenchmark {
         }
         return clusterState;
     }
+
+    /**
+     * Measures a reroute of a fully allocated and balanced cluster, like the ones triggered by cluster info updates or by shard
+     * state changes that don't affect the balance. With incremental balancing the allocator skips the indices that it found
+     * to be balanced before.
+     */
+    @Benchmark
+    public ClusterState measureRerouteBalanced() {
+        return strategy.reroute(balancedClusterState, "reroute");
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates an update heavy workload on the version map of a single shard: several indexing threads look up and put the versions of
+ * random uids while a refresh thread swaps the maps whenever enough operations were added. Run with <code>-prof gc</code> to compare the
+ * allocation rates of the implementations.
+ * <p>
+ * This benchmark lives in the package of the engine because the version maps are package private.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class LiveVersionMapBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"heap", "paged"})
+    public String type = "heap";
+
+    @Param({"1000000"})
+    public int numIds = 1000000;
+
+    @Param({"100000"})
+    public int opsPerRefresh = 100000;
+
+    private LiveVersionMap map;
+
+    private Term[] uids;
+
+    private AtomicLong ops;
+
+    private long lastRefresh;
+
+    @Setup
+    public void setUp() {
+        switch (type) {
+            case "heap":
+                map = new LiveVersionMap();
+                break;
+            case "paged":
+                map = new PagedLiveVersionMap(new BigArrays(Settings.EMPTY, null));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown version map type [" + type + "]");
+        }
+        Random random = new Random(42);
+        uids = new Term[numIds];
+        for (int i = 0; i < numIds; i++) {
+            // auto generated ids are 20 characters long
+            byte[] id = new byte[20];
+            for (int j = 0; j < id.length; j++) {
+                id[j] = (byte) ('a' + random.nextInt(26));
+            }
+            uids[i] = new Term("_uid", new BytesRef(id));
+        }
+        ops = new AtomicLong();
+        lastRefresh = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        map.clear();
+    }
+
+    @Benchmark
+    @Group("upsert")
+    @GroupThreads(4)
+    public VersionValue index() {
+        // the engine holds the lock of the uid, which we don't need since no other thread updates the same uid concurrently often
+        Term uid = uids[ThreadLocalRandom.current().nextInt(uids.length)];
+        VersionValue current = map.getUnderLock(uid);
+        VersionValue next = new VersionValue(current == null ? 1 : current.getVersion() + 1);
+        map.putUnderLock(uid.bytes(), next);
+        ops.incrementAndGet();
+        return current;
+    }
+
+    @Benchmark
+    @Group("upsert")
+    @GroupThreads(1)
+    public long refresh() throws IOException {
+        final long currentOps = ops.get();
+        if (currentOps - lastRefresh >= opsPerRefresh) {
+            map.beforeRefresh();
+            map.afterRefresh(true);
+            lastRefresh = currentOps;
+        } else {
+            Thread.yield();
+        }
+        return map.ramBytesUsed();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.translog;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.seqno.SequenceNumbersService;
+import org.elasticsearch.index.shard.ShardId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a large translog the way a peer recovery or a snapshot of the translog does, once reading the operations through a heap
+ * buffer and once parsing them from a memory mapping of the translog files. The translog is written once per trial to a temporary
+ * directory, with the default settings about 4GB of operations. Run with <code>-prof gc</code> to compare the allocation rates.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class TranslogReplayBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"false", "true"})
+    public boolean mmap = false;
+
+    @Param({"4000000"})
+    public int numOperations = 4000000;
+
+    @Param({"1024"})
+    public int sourceSize = 1024;
+
+    private Path translogPath;
+
+    private Translog translog;
+
+    @Setup
+    public void setUp() throws IOException {
+        translogPath = Files.createTempDirectory("translog-replay");
+        Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_READS_SETTING.getKey(), mmap)
+            .build();
+        IndexSettings indexSettings = new IndexSettings(IndexMetaData.builder("index").settings(settings).build(), Settings.EMPTY);
+        TranslogConfig config = new TranslogConfig(new ShardId(indexSettings.getIndex(), 0), translogPath, indexSettings,
+            BigArrays.NON_RECYCLING_INSTANCE);
+        translog = new Translog(config, null, () -> SequenceNumbersService.UNASSIGNED_SEQ_NO);
+        Random random = new Random(42);
+        byte[] source = new byte[sourceSize];
+        for (int i = 0; i < numOperations; i++) {
+            random.nextBytes(source);
+            translog.add(new Translog.Index("type", Integer.toString(i), source));
+            if (translog.shouldRollGeneration()) {
+                // only immutable generations are mapped
+                translog.rollGeneration();
+            }
+        }
+        translog.rollGeneration();
+        translog.sync();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        translog.close();
+        IOUtils.rm(translogPath);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        long checksum = 0;
+        Translog.Snapshot snapshot = translog.newSnapshot();
+        Translog.Operation operation;
+        while ((operation = snapshot.next()) != null) {
+            checksum += operation.estimateSize();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.LongHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares computing the hourly buckets of a {@code date_histogram} under a {@code match_all} query by reading and rounding the
+ * doc values of every document with counting them from the points of the field, see {@link PointRangeCounter}. The index is a
+ * time series of one document every {@link #intervalMillis} milliseconds on average and is written once per trial to a temporary
+ * directory, which takes a while for the largest document count.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class PointRangeCounterBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    private static final String FIELD = "@timestamp";
+
+    @Param({"1000000", "10000000", "100000000"})
+    public int numDocs = 1000000;
+
+    @Param({"30"})
+    public int intervalMillis = 30;
+
+    private Path indexPath;
+
+    private Directory directory;
+
+    private DirectoryReader reader;
+
+    private Rounding rounding;
+
+    @Setup
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("point-range-counter");
+        directory = FSDirectory.open(indexPath);
+        IndexWriterConfig config = new IndexWriterConfig().setRAMBufferSizeMB(256);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            Random random = new Random(42);
+            long timestamp = 1483228800000L; // 2017-01-01T00:00:00Z
+            Document document = new Document();
+            for (int i = 0; i < numDocs; i++) {
+                timestamp += random.nextInt(2 * intervalMillis);
+                document.add(new LongPoint(FIELD, timestamp));
+                document.add(new SortedNumericDocValuesField(FIELD, timestamp));
+                writer.addDocument(document);
+                document.clear();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        rounding = Rounding.builder(DateTimeUnit.HOUR_OF_DAY).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.close(reader, directory);
+        IOUtils.rm(indexPath);
+    }
+
+    @Benchmark
+    public long collectDocValues() throws IOException {
+        LongHash bucketOrds = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE);
+        LongArray counts = BigArrays.NON_RECYCLING_INSTANCE.newLongArray(1);
+        for (LeafReaderContext ctx : reader.leaves()) {
+            SortedNumericDocValues values = DocValues.getSortedNumeric(ctx.reader(), FIELD);
+            for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                values.setDocument(doc);
+                for (int i = 0; i < values.count(); i++) {
+                    counts = increment(bucketOrds, counts, rounding.round(values.valueAt(i)), 1);
+                }
+            }
+        }
+        return bucketOrds.size();
+    }
+
+    @Benchmark
+    public long countPoints() throws IOException {
+        PointRangeCounter counter = new PointRangeCounter(FIELD, Long.MIN_VALUE, Long.MAX_VALUE);
+        LongHash bucketOrds = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE);
+        LongArray counts = BigArrays.NON_RECYCLING_INSTANCE.newLongArray(1);
+        for (LeafReaderContext ctx : reader.leaves()) {
+            PointValues points = counter.pointValues(ctx);
+            long max = counter.max(points);
+            for (long key = rounding.round(counter.min(points)); key <= max; ) {
+                long next = rounding.nextRoundingValue(key);
+                int count = counter.count(points, key, next - 1);
+                if (count > 0) {
+                    counts = increment(bucketOrds, counts, key, count);
+                }
+                key = next;
+            }
+        }
+        return bucketOrds.size();
+    }
+
+    private static LongArray increment(LongHash bucketOrds, LongArray counts, long key, int count) {
+        long bucketOrd = bucketOrds.add(key);
+        if (bucketOrd < 0) {
+            bucketOrd = -1 - bucketOrd;
+        }
+        counts = BigArrays.NON_RECYCLING_INSTANCE.grow(counts, bucketOrd + 1);
+        counts.increment(bucketOrd, count);
+        return counts;
+    }
+}
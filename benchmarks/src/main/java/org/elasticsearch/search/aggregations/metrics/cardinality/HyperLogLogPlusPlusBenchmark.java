@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting hashes into a {@link HyperLogLogPlusPlus} counter, serializing the {@link InternalCardinality} that a shard
+ * returns for it and reducing the results of {@link #numShards} shards as they are read from the wire. Serialization and reduction
+ * can use the compact format or the format of nodes that do not support it yet, see {@link LinearCountingHashes}.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class HyperLogLogPlusPlusBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"10", "1000", "100000"})
+    public int cardinality = 1000;
+
+    @Param({"14"})
+    public int precision = HyperLogLogPlusPlus.DEFAULT_PRECISION;
+
+    @Param({"100"})
+    public int numShards = 100;
+
+    @Param({"true", "false"})
+    public boolean compact = true;
+
+    private long[] hashes;
+
+    private InternalCardinality shardResult;
+
+    private List<InternalAggregation> receivedResults;
+
+    private NamedWriteableRegistry namedWriteableRegistry;
+
+    private Version version;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        hashes = new long[cardinality];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+        }
+        version = compact ? Version.CURRENT : Version.V_5_4_0_UNRELEASED;
+        namedWriteableRegistry = new NamedWriteableRegistry(Collections.singletonList(
+                new NamedWriteableRegistry.Entry(DocValueFormat.class, DocValueFormat.RAW.getWriteableName(), in -> DocValueFormat.RAW)));
+        shardResult = buildShardResult(hashes);
+
+        // every shard sees about half of the values
+        receivedResults = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            long[] shardHashes = new long[cardinality / 2 + 1];
+            for (int i = 0; i < shardHashes.length; i++) {
+                shardHashes[i] = hashes[random.nextInt(hashes.length)];
+            }
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.setVersion(version);
+                buildShardResult(shardHashes).writeTo(out);
+                try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), namedWriteableRegistry)) {
+                    in.setVersion(version);
+                    receivedResults.add(new InternalCardinality(in));
+                }
+            }
+        }
+    }
+
+    private InternalCardinality buildShardResult(long[] hashes) {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (long hash : hashes) {
+            counts.collect(0, hash);
+        }
+        // same as the cardinality aggregator
+        LinearCountingHashes linearCountingHashes = compact ? counts.linearCountingHashes(0) : null;
+        if (linearCountingHashes != null) {
+            return new InternalCardinality("cardinality", null, linearCountingHashes, Collections.emptyList(), null);
+        }
+        return new InternalCardinality("cardinality", counts, Collections.emptyList(), null);
+    }
+
+    @Benchmark
+    public long collect() {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (long hash : hashes) {
+            counts.collect(0, hash);
+        }
+        return counts.cardinality(0);
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            shardResult.writeTo(out);
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public double merge() {
+        InternalAggregation.ReduceContext reduceContext = new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE,
+                null, true);
+        InternalCardinality reduced = (InternalCardinality) receivedResults.get(0).doReduce(receivedResults, reduceContext);
+        return reduced.value();
+    }
+}
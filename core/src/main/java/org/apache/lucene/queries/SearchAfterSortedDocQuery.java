@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.lucene.queries;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafFieldComparator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link Query} that only matches documents that are greater than the provided {@link FieldDoc}.
+ * This works only if the index is sorted according to the given search {@link Sort}: within each
+ * segment the first competitive document is found with a binary search and every document that
+ * follows it matches.
+ */
+public final class SearchAfterSortedDocQuery extends Query {
+
+    private final Sort sort;
+    private final FieldDoc after;
+
+    /**
+     * @param sort The sort of the search, it must be a prefix of the index sort.
+     * @param after The last document returned by the previous search.
+     */
+    public SearchAfterSortedDocQuery(Sort sort, FieldDoc after) {
+        if (sort.getSort().length != after.fields.length) {
+            throw new IllegalArgumentException("after doc has " + after.fields.length + " value(s) but sort has "
+                + sort.getSort().length + ".");
+        }
+        this.sort = Objects.requireNonNull(sort);
+        this.after = after;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, boolean needsScores) throws IOException {
+        return new ConstantScoreWeight(this) {
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                final int maxDoc = context.reader().maxDoc();
+                final int firstDoc = searchAfterDoc(context);
+                if (firstDoc >= maxDoc) {
+                    return null;
+                }
+                final DocIdSetIterator disi = new DocIdSetIterator() {
+
+                    int doc = -1;
+
+                    @Override
+                    public int docID() {
+                        return doc;
+                    }
+
+                    @Override
+                    public int nextDoc() throws IOException {
+                        return advance(doc + 1);
+                    }
+
+                    @Override
+                    public int advance(int target) throws IOException {
+                        assert target > doc;
+                        doc = Math.max(target, firstDoc);
+                        if (doc >= maxDoc) {
+                            doc = NO_MORE_DOCS;
+                        }
+                        return doc;
+                    }
+
+                    @Override
+                    public long cost() {
+                        return maxDoc - firstDoc;
+                    }
+
+                };
+                return new ConstantScoreScorer(this, score(), disi);
+            }
+        };
+    }
+
+    /**
+     * Returns the first document of the segment that sorts after the {@link FieldDoc}, or
+     * <code>maxDoc</code> if all documents of the segment sort before it.
+     */
+    private int searchAfterDoc(LeafReaderContext context) throws IOException {
+        final SortField[] sortFields = sort.getSort();
+        final LeafFieldComparator[] comparators = new LeafFieldComparator[sortFields.length];
+        final int[] reverseMuls = new int[sortFields.length];
+        for (int i = 0; i < sortFields.length; i++) {
+            @SuppressWarnings("unchecked")
+            FieldComparator<Object> comparator = (FieldComparator<Object>) sortFields[i].getComparator(1, i);
+            comparator.setTopValue(after.fields[i]);
+            comparators[i] = comparator.getLeafComparator(context);
+            reverseMuls[i] = sortFields[i].getReverse() ? -1 : 1;
+        }
+        // documents are sorted so the documents that sort after the FieldDoc are all at the end of the segment
+        int low = 0;
+        int high = context.reader().maxDoc();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (isAfter(comparators, reverseMuls, context.docBase, mid)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean isAfter(LeafFieldComparator[] comparators, int[] reverseMuls, int docBase, int doc) throws IOException {
+        for (int i = 0; i < comparators.length; i++) {
+            final int cmp = reverseMuls[i] * comparators[i].compareTop(doc);
+            if (cmp != 0) {
+                return cmp < 0;
+            }
+        }
+        // tie-break on the global doc id
+        return docBase + doc > after.doc;
+    }
+
+    @Override
+    public String toString(String field) {
+        return "SearchAfterSortedDocQuery(sort=" + sort + ", afterDoc=" + after.toString() + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) &&
+            equalsTo(getClass().cast(other));
+    }
+
+    private boolean equalsTo(SearchAfterSortedDocQuery other) {
+        return sort.equals(other.sort) &&
+            after.doc == other.after.doc &&
+            Arrays.equals(after.fields, other.after.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), sort, after.doc, Arrays.hashCode(after.fields));
+    }
+}
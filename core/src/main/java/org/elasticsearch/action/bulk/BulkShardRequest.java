@@ -111,6 +111,12 @@ public class BulkShardRequest extends ReplicatedWriteRequest<BulkShardRequest> {
         return "requests[" + items.length + "], index[" + index + "]";
     }
 
+    @Override
+    public boolean canReferenceMessageBytes() {
+        // the sources of the items are copied into the translog and the index before the shard responds
+        return true;
+    }
+
     @Override
     public void onRetry() {
         for (BulkItemRequest item : items) {
@@ -126,6 +126,10 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         int shardIndex = -1;
         for (final ShardIterator shardIt : shardsIts) {
             shardIndex++;
+            if (shardIt instanceof SearchShardIterator && ((SearchShardIterator) shardIt).skip()) {
+                skipShard(shardIndex, shardIt);
+                continue;
+            }
             final ShardRouting shard = shardIt.nextOrNull();
             if (shard != null) {
                 performPhaseOnShard(shardIndex, shardIt, shard);
@@ -173,7 +177,18 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
         // increment all the "future" shards to update the total ops since we some may work and some may not...
         // and when that happens, we break on total ops, so we must maintain them
-        final int xTotalOps = totalOps.addAndGet(shardIt.remaining() + 1);
+        successfulShardExecution(shardIt.remaining() + 1);
+    }
+
+    private void skipShard(int shardIndex, ShardIterator shardIt) {
+        assert shardIt.remaining() == shardIt.size() && shardIt.size() > 0 : "skipped shards must be untouched and non-empty";
+        onShardSkipped(shardIndex);
+        // none of the copies of a skipped shard have been tried, all of them count towards the total ops
+        successfulShardExecution(shardIt.remaining());
+    }
+
+    private void successfulShardExecution(int remainingOpsOnIterator) {
+        final int xTotalOps = totalOps.addAndGet(remainingOpsOnIterator);
         if (xTotalOps == expectedTotalOps) {
             onPhaseDone();
         } else if (xTotalOps > expectedTotalOps) {
@@ -207,6 +222,13 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
      */
     abstract void onShardSuccess(FirstResult result);
 
+    /**
+     * Executed once for every shard that is skipped because the can match pre-filter phase determined that it can't match
+     * any documents. Skipped shards are accounted for as successful.
+     * @param shardIndex the internal index for this shard
+     */
+    abstract void onShardSkipped(int shardIndex);
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
@@ -248,6 +270,14 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
             results.set(result.getShardIndex(), result);
         }
 
+        /**
+         * Consumes a single shard failure. This is invoked for every failed attempt to execute the phase on a copy of the shard,
+         * before the next copy is tried.
+         * @param shardIndex the internal index of the shard that failed
+         */
+        void consumeShardFailure(int shardIndex) {
+        }
+
         /**
          * Returns <code>true</code> iff a result if present for the given shard ID.
          */
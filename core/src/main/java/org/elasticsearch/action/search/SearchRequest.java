@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.IndicesRequest;
@@ -68,10 +69,14 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
 
     private Boolean requestCache;
 
+    private Boolean concurrentSegmentSearch;
+
     private Scroll scroll;
 
     private int batchedReduceSize = 512;
 
+    private int preFilterShardSize = 128;
+
     private String[] types = Strings.EMPTY_ARRAY;
 
     public static final IndicesOptions DEFAULT_INDICES_OPTIONS = IndicesOptions.strictExpandOpenAndForbidClosed();
@@ -276,6 +281,19 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         return this.requestCache;
     }
 
+    /**
+     * Sets if the segments of each shard should be searched concurrently in slices. By default (not set, or null), this is
+     * decided by the index level setting.
+     */
+    public SearchRequest concurrentSegmentSearch(Boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+        return this;
+    }
+
+    public Boolean concurrentSegmentSearch() {
+        return this.concurrentSegmentSearch;
+    }
+
     /**
      * Sets the number of shard results that should be reduced at once on the coordinating node. This value should be used as a protection
      * mechanism to reduce the memory overhead per search request if the potential number of shards in the request can be large.
@@ -295,6 +313,27 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         return batchedReduceSize;
     }
 
+    /**
+     * Sets a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the number of shards
+     * the search request expands to exceeds the threshold. This filter roundtrip can limit the number of shards significantly if for
+     * instance a shard can not match any documents based on it's rewrite method ie. if date filters are mandatory to match but the shard
+     * bounds and the query are disjoint. The default is <tt>128</tt>
+     */
+    public void setPreFilterShardSize(int preFilterShardSize) {
+        if (preFilterShardSize < 1) {
+            throw new IllegalArgumentException("preFilterShardSize must be >= 1");
+        }
+        this.preFilterShardSize = preFilterShardSize;
+    }
+
+    /**
+     * Returns a threshold that enforces a pre-filter roundtrip to pre-filter search shards based on query rewriting if the number of
+     * shards the search request expands to exceeds the threshold.
+     */
+    public int getPreFilterShardSize() {
+        return preFilterShardSize;
+    }
+
     /**
      * @return true if the request only has suggest
      */
@@ -342,6 +381,10 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         indicesOptions = IndicesOptions.readIndicesOptions(in);
         requestCache = in.readOptionalBoolean();
         batchedReduceSize = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            preFilterShardSize = in.readVInt();
+            concurrentSegmentSearch = in.readOptionalBoolean();
+        }
     }
 
     @Override
@@ -360,6 +403,10 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
         out.writeVInt(batchedReduceSize);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVInt(preFilterShardSize);
+            out.writeOptionalBoolean(concurrentSegmentSearch);
+        }
     }
 
     @Override
@@ -377,6 +424,7 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
                 Objects.equals(preference, that.preference) &&
                 Objects.equals(source, that.source) &&
                 Objects.equals(requestCache, that.requestCache)  &&
+                Objects.equals(concurrentSegmentSearch, that.concurrentSegmentSearch) &&
                 Objects.equals(scroll, that.scroll) &&
                 Arrays.equals(types, that.types) &&
                 Objects.equals(indicesOptions, that.indicesOptions);
@@ -385,7 +433,7 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
     @Override
     public int hashCode() {
         return Objects.hash(searchType, Arrays.hashCode(indices), routing, preference, source, requestCache,
-                scroll, Arrays.hashCode(types), indicesOptions);
+                concurrentSegmentSearch, scroll, Arrays.hashCode(types), indicesOptions);
     }
 
     @Override
@@ -398,6 +446,7 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
                 ", routing='" + routing + '\'' +
                 ", preference='" + preference + '\'' +
                 ", requestCache=" + requestCache +
+                ", concurrentSegmentSearch=" + concurrentSegmentSearch +
                 ", scroll=" + scroll +
                 ", source=" + source + '}';
     }
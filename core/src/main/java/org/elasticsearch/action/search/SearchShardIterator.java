@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.index.shard.ShardId;
+
+/**
+ * A {@link ShardIterator} that can be marked as skipped. Shards of a skipped iterator are not searched at all but
+ * are accounted for as successful, this is used once the can match pre-filter phase determined that the shard can't
+ * match any documents.
+ */
+final class SearchShardIterator implements ShardIterator {
+
+    private final ShardIterator delegate;
+    private final boolean skip;
+
+    SearchShardIterator(ShardIterator delegate, boolean skip) {
+        this.delegate = delegate;
+        this.skip = skip;
+    }
+
+    /**
+     * Returns <code>true</code> if the search execution should skip this shard since it can not match any documents given the query.
+     */
+    boolean skip() {
+        return skip;
+    }
+
+    @Override
+    public ShardId shardId() {
+        return delegate.shardId();
+    }
+
+    @Override
+    public void reset() {
+        delegate.reset();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int sizeActive() {
+        return delegate.sizeActive();
+    }
+
+    @Override
+    public ShardRouting nextOrNull() {
+        return delegate.nextOrNull();
+    }
+
+    @Override
+    public int remaining() {
+        return delegate.remaining();
+    }
+
+    @Override
+    public Iterable<ShardRouting> asUnordered() {
+        return delegate.asUnordered();
+    }
+
+    @Override
+    public int compareTo(ShardIterator o) {
+        return shardId().compareTo(o.shardId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof ShardIterator == false) {
+            return false;
+        }
+        return shardId().equals(((ShardIterator) o).shardId());
+    }
+
+    @Override
+    public int hashCode() {
+        return shardId().hashCode();
+    }
+}
@@ -26,11 +26,14 @@ import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -56,6 +59,8 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Supplier;
 
 /**
@@ -73,15 +78,25 @@ public class SearchTransportService extends AbstractLifecycleComponent {
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_ACTION_NAME = "indices:data/read/search[phase/query+fetch]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
+    public static final String QUERY_CAN_MATCH_NAME = "indices:data/read/search[can_match]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
 
     private final TransportService transportService;
     private final RemoteClusterService remoteClusterService;
     private final boolean connectToRemote;
+    @Nullable
+    private final ResponseCollectorService responseCollectorService;
+    private final Map<String, Long> clientConnections = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
     public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService) {
+        this(settings, clusterSettings, transportService, null);
+    }
+
+    public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService,
+                                  @Nullable ResponseCollectorService responseCollectorService) {
         super(settings);
+        this.responseCollectorService = responseCollectorService;
         this.connectToRemote = RemoteClusterService.ENABLE_REMOTE_CLUSTERS.get(settings);
         this.transportService = transportService;
         this.remoteClusterService = new RemoteClusterService(settings, transportService);
@@ -117,6 +132,18 @@ public class SearchTransportService extends AbstractLifecycleComponent {
             new ActionListenerResponseHandler<>(listener, () -> TransportResponse.Empty.INSTANCE));
     }
 
+    public void sendCanMatch(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task, final
+                            ActionListener<CanMatchResponse> listener) {
+        if (connection.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            transportService.sendChildRequest(connection, QUERY_CAN_MATCH_NAME, request, task,
+                TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, CanMatchResponse::new));
+        } else {
+            // this might look weird but if we are in a mixed cluster and the node we are talking to doesn't support the
+            // can_match phase we just return true and let the query phase decide
+            listener.onResponse(new CanMatchResponse(true));
+        }
+    }
+
     public void sendExecuteDfs(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
                                final SearchActionListener<DfsSearchResult> listener) {
         transportService.sendChildRequest(connection, DFS_ACTION_NAME, request, task,
@@ -129,20 +156,69 @@ public class SearchTransportService extends AbstractLifecycleComponent {
         // this used to be the QUERY_AND_FETCH which doesn't exists anymore.
         final boolean fetchDocuments = request.numberOfShards() == 1;
         Supplier<SearchPhaseResult> supplier = fetchDocuments ? QueryFetchSearchResult::new : QuerySearchResult::new;
+        final ActionListener<SearchPhaseResult> handler = responseWrapper(listener, connection);
         if (connection.getVersion().onOrBefore(Version.V_5_3_0_UNRELEASED) && fetchDocuments) {
             // TODO this BWC layer can be removed once this is back-ported to 5.3
             transportService.sendChildRequest(connection, QUERY_FETCH_ACTION_NAME, request, task,
-                new ActionListenerResponseHandler<>(listener, supplier));
+                new ActionListenerResponseHandler<>(handler, supplier));
         } else {
             transportService.sendChildRequest(connection, QUERY_ACTION_NAME, request, task,
-                new ActionListenerResponseHandler<>(listener, supplier));
+                new ActionListenerResponseHandler<>(handler, supplier));
         }
     }
 
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+            new ActionListenerResponseHandler<>(responseWrapper(listener, connection), QuerySearchResult::new));
+    }
+
+    /**
+     * Wraps the listener of a query phase request so that the number of in-flight requests per node is tracked and the
+     * response time, queue size and service time of the target node are fed into the {@link ResponseCollectorService}.
+     */
+    private <T extends SearchPhaseResult> ActionListener<T> responseWrapper(ActionListener<T> listener,
+                                                                            Transport.Connection connection) {
+        if (responseCollectorService == null) {
+            return listener;
+        }
+        final String nodeId = connection.getNode().getId();
+        final long startNanos = System.nanoTime();
+        clientConnections.compute(nodeId, (id, conns) -> conns == null ? 1 : conns + 1);
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                decrementOutstanding();
+                final QuerySearchResult queryResult = response.queryResult();
+                if (queryResult != null && queryResult.serviceTimeEWMA() >= 0) {
+                    responseCollectorService.addNodeStatistics(nodeId, Math.max(0, queryResult.nodeQueueSize()),
+                        System.nanoTime() - startNanos, queryResult.serviceTimeEWMA());
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                decrementOutstanding();
+                listener.onFailure(e);
+            }
+
+            private void decrementOutstanding() {
+                clientConnections.compute(nodeId, (id, conns) -> conns == null || conns <= 1 ? null : conns - 1);
+            }
+        };
+    }
+
+    /**
+     * Returns a snapshot of the number of query phase requests currently in flight from this node, keyed by target node id.
+     */
+    public Map<String, Long> getPendingSearchRequests() {
+        return new HashMap<>(clientConnections);
+    }
+
+    @Nullable
+    public ResponseCollectorService getResponseCollectorService() {
+        return responseCollectorService;
     }
 
     public void sendExecuteScrollQuery(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
@@ -281,6 +357,36 @@ public class SearchTransportService extends AbstractLifecycleComponent {
         }
     }
 
+    public static final class CanMatchResponse extends SearchPhaseResult {
+        private boolean canMatch;
+
+        public CanMatchResponse() {
+        }
+
+        public CanMatchResponse(boolean canMatch) {
+            this.canMatch = canMatch;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            canMatch = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(canMatch);
+        }
+
+        /**
+         * Returns <code>false</code> iff the shard can't possibly match any document for the search request.
+         */
+        public boolean canMatch() {
+            return canMatch;
+        }
+    }
+
     public static void registerRequestHandler(TransportService transportService, SearchService searchService) {
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
             new TaskAwareTransportRequestHandler<ScrollFreeContextRequest>() {
@@ -396,6 +502,16 @@ public class SearchTransportService extends AbstractLifecycleComponent {
                 }
             });
         TransportActionProxy.registerProxyAction(transportService, FETCH_ID_ACTION_NAME, FetchSearchResult::new);
+
+        transportService.registerRequestHandler(QUERY_CAN_MATCH_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
+            new TaskAwareTransportRequestHandler<ShardSearchTransportRequest>() {
+                @Override
+                public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel, Task task) throws Exception {
+                    boolean canMatch = searchService.canMatch(request);
+                    channel.sendResponse(new CanMatchResponse(canMatch));
+                }
+            });
+        TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NAME, CanMatchResponse::new);
     }
 
     Transport.Connection getConnection(DiscoveryNode node) {
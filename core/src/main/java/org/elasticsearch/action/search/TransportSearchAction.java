@@ -44,6 +44,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportService;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -226,7 +227,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             concreteIndices[i] = indices[i].getName();
         }
         GroupShardsIterator localShardsIterator = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap,
-            searchRequest.preference());
+            searchRequest.preference(), searchTransportService.getResponseCollectorService(),
+            searchTransportService.getPendingSearchRequests());
         GroupShardsIterator shardIterators = mergeShardsIterators(localShardsIterator, remoteShardIterators);
 
         failIfOverShardCountLimit(clusterService, shardIterators.size());
@@ -264,8 +266,16 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             return connection;
         };
 
+        boolean preFilterSearchShards = shouldPreFilterSearchShards(searchRequest, shardIterators);
         searchAsyncAction(task, searchRequest, shardIterators, timeProvider, connectionLookup, clusterState.version(),
-            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, listener).start();
+            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, listener, preFilterSearchShards).start();
+    }
+
+    private static boolean shouldPreFilterSearchShards(SearchRequest searchRequest, GroupShardsIterator shardIterators) {
+        SearchSourceBuilder source = searchRequest.source();
+        return searchRequest.searchType() == QUERY_THEN_FETCH && // we can't do this for DFS it needs to fan out to all shards all the time
+            SearchService.canRewriteToMatchNone(source) &&
+            searchRequest.getPreFilterShardSize() < shardIterators.size();
     }
 
     private static GroupShardsIterator mergeShardsIterators(GroupShardsIterator localShardsIterator,
@@ -292,8 +302,22 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                                                         SearchTimeProvider timeProvider, Function<String, Transport.Connection> connectionLookup,
                                                         long clusterStateVersion, Map<String, AliasFilter> aliasFilter,
                                                         Map<String, Float> concreteIndexBoosts,
-                                                        ActionListener<SearchResponse> listener) {
+                                                        ActionListener<SearchResponse> listener, boolean preFilter) {
         Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (preFilter) {
+            return new CanMatchPreFilterSearchPhase(logger, searchTransportService, connectionLookup,
+                aliasFilter, concreteIndexBoosts, executor, searchRequest, listener, shardIterators,
+                timeProvider, clusterStateVersion, task, (iter) -> {
+                AbstractSearchAsyncAction action = searchAsyncAction(task, searchRequest, iter, timeProvider, connectionLookup,
+                    clusterStateVersion, aliasFilter, concreteIndexBoosts, listener, false);
+                return new SearchPhase(action.getName()) {
+                    @Override
+                    public void run() throws IOException {
+                        action.start();
+                    }
+                };
+            });
+        }
         AbstractSearchAsyncAction searchAsyncAction;
         switch(searchRequest.searchType()) {
             case DFS_QUERY_THEN_FETCH:
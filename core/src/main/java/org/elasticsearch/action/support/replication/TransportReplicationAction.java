@@ -1119,6 +1119,11 @@ public abstract class TransportReplicationAction<
             return "[" + request.getDescription() + "] for aID [" + targetAllocationID + "]";
         }
 
+        @Override
+        public boolean canReferenceMessageBytes() {
+            return request.canReferenceMessageBytes();
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             targetAllocationID = in.readString();
@@ -528,6 +528,8 @@ public class ClusterState implements ToXContent, Diffable<ClusterState> {
         private ClusterBlocks blocks = ClusterBlocks.EMPTY_CLUSTER_BLOCK;
         private final ImmutableOpenMap.Builder<String, Custom> customs;
         private boolean fromDiff;
+        // the state this builder is based on, if any, to share the routing nodes with if neither the routing table nor the nodes changed
+        private ClusterState previous;
 
 
         public Builder(ClusterState state) {
@@ -540,6 +542,7 @@ public class ClusterState implements ToXContent, Diffable<ClusterState> {
             this.blocks = state.blocks();
             this.customs = ImmutableOpenMap.builder(state.customs());
             this.fromDiff = false;
+            this.previous = state;
         }
 
         public Builder(ClusterName clusterName) {
@@ -623,7 +626,13 @@ public class ClusterState implements ToXContent, Diffable<ClusterState> {
             if (UNKNOWN_UUID.equals(uuid)) {
                 uuid = UUIDs.randomBase64UUID();
             }
-            return new ClusterState(clusterName, version, uuid, metaData, routingTable, nodes, blocks, customs.build(), fromDiff);
+            ClusterState clusterState =
+                new ClusterState(clusterName, version, uuid, metaData, routingTable, nodes, blocks, customs.build(), fromDiff);
+            if (previous != null && previous.routingTable == routingTable && previous.nodes == nodes) {
+                // the (read only) routing nodes are derived from the routing table and the data nodes only
+                clusterState.routingNodes = previous.routingNodes;
+            }
+            return clusterState;
         }
 
         public static byte[] toBytes(ClusterState state) throws IOException {
@@ -768,6 +777,7 @@ public class ClusterState implements ToXContent, Diffable<ClusterState> {
             builder.blocks(blocks.apply(state.blocks));
             builder.customs(customs.apply(state.customs));
             builder.fromDiff(true);
+            builder.previous = state;
             return builder.build();
         }
 
@@ -431,6 +431,13 @@ public final class DiffableUtils {
             return upserts;
         }
 
+        /**
+         * Returns <code>true</code> iff applying this diff leaves the map unchanged.
+         */
+        public boolean isEmpty() {
+            return deletes.isEmpty() && diffs.isEmpty() && upserts.isEmpty();
+        }
+
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             out.writeVInt(deletes.size());
@@ -21,6 +21,7 @@ package org.elasticsearch.cluster.routing;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -28,11 +29,14 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -255,6 +259,91 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the adaptive replica selection rank of the
+     * nodes holding the active copies. Copies on nodes we do not have statistics for yet come first so that they get
+     * sampled, ties are broken randomly and initializing shards are the last to iterate through.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(@Nullable ResponseCollectorService collector,
+                                                          @Nullable Map<String, Long> nodeSearchCounts) {
+        final int seed = shuffler.nextSeed();
+        if (allInitializingShards.isEmpty()) {
+            return new PlainShardIterator(shardId,
+                rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, @Nullable ResponseCollectorService collector,
+                                                               @Nullable Map<String, Long> nodeSearchCounts) {
+        if (collector == null || nodeSearchCounts == null || shards.size() <= 1) {
+            return shards;
+        }
+        // retrieve and rank the statistics of each node only once
+        final Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>(shards.size());
+        final Map<String, Double> nodeRanks = new HashMap<>(shards.size());
+        for (ShardRouting shard : shards) {
+            final String nodeId = shard.currentNodeId();
+            if (nodeStats.containsKey(nodeId) == false) {
+                collector.getNodeStatistics(nodeId).ifPresent(stats -> {
+                    nodeStats.put(nodeId, stats);
+                    nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 1L)));
+                });
+            }
+        }
+        final List<ShardRouting> sortedShards = new ArrayList<>(shards);
+        // the sort is stable, so copies with equal ranks keep the random order of the shuffle
+        sortedShards.sort(new NodeRankComparator(nodeRanks));
+        final String selectedNodeId = sortedShards.get(0).currentNodeId();
+        // account for the request we are about to send, so that the other shards of the same search are spread out
+        nodeSearchCounts.merge(selectedNodeId, 1L, Long::sum);
+        adjustStats(collector, nodeStats, selectedNodeId);
+        return sortedShards;
+    }
+
+    /**
+     * Moves the statistics of the nodes that were not selected half-way towards the statistics of the selected node.
+     * Nodes are only ranked with the responses we get from them, without this a node that was slow once would never
+     * be selected again and its statistics would never recover.
+     */
+    private static void adjustStats(ResponseCollectorService collector,
+                                    Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats, String selectedNodeId) {
+        final ResponseCollectorService.ComputedNodeStats selected = nodeStats.get(selectedNodeId);
+        if (selected == null) {
+            return;
+        }
+        for (ResponseCollectorService.ComputedNodeStats stats : nodeStats.values()) {
+            if (stats.nodeId.equals(selectedNodeId) == false) {
+                collector.addNodeStatistics(stats.nodeId,
+                    (stats.queueSize + selected.queueSize) / 2,
+                    (long) ((stats.responseTime + selected.responseTime) / 2),
+                    (long) ((stats.serviceTime + selected.serviceTime) / 2));
+            }
+        }
+    }
+
+    private static class NodeRankComparator implements Comparator<ShardRouting> {
+        private final Map<String, Double> nodeRanks;
+
+        NodeRankComparator(Map<String, Double> nodeRanks) {
+            this.nodeRanks = nodeRanks;
+        }
+
+        @Override
+        public int compare(ShardRouting s1, ShardRouting s2) {
+            final Double rank1 = nodeRanks.get(s1.currentNodeId());
+            final Double rank2 = nodeRanks.get(s2.currentNodeId());
+            if (rank1 == null || rank2 == null) {
+                // nodes without statistics come first
+                return rank1 == null ? (rank2 == null ? 0 : -1) : 1;
+            }
+            return Double.compare(rank1, rank2);
+        }
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
@@ -376,7 +376,7 @@ public class RoutingTable implements Iterable<IndexRoutingTable>, Diffable<Routi
 
         private final long version;
 
-        private final Diff<ImmutableOpenMap<String, IndexRoutingTable>> indicesRouting;
+        private final DiffableUtils.MapDiff<String, IndexRoutingTable, ImmutableOpenMap<String, IndexRoutingTable>> indicesRouting;
 
         RoutingTableDiff(RoutingTable before, RoutingTable after) {
             version = after.version;
@@ -391,6 +391,10 @@ public class RoutingTable implements Iterable<IndexRoutingTable>, Diffable<Routi
 
         @Override
         public RoutingTable apply(RoutingTable part) {
+            if (version == part.version && indicesRouting.isEmpty()) {
+                // keep the instance so that appliers can tell by reference equality that the routing table didn't change
+                return part;
+            }
             return new RoutingTable(version, indicesRouting.apply(part.indicesRouting));
         }
 
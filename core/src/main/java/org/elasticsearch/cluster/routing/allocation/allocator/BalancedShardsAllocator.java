@@ -19,12 +19,16 @@
 
 package org.elasticsearch.cluster.routing.allocation.allocator;
 
+import com.carrotsearch.hppc.IntArrayList;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.DiskUsage;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -40,6 +44,8 @@ import org.elasticsearch.cluster.routing.allocation.decider.AllocationDeciders;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision;
 import org.elasticsearch.cluster.routing.allocation.decider.Decision.Type;
 import org.elasticsearch.cluster.routing.allocation.decider.DiskThresholdDecider;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -51,6 +57,7 @@ import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.gateway.PriorityComparator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -73,6 +80,8 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
  * of {@link org.elasticsearch.cluster.routing.ShardRouting}s per index allocated on a specific node</li>
  * <li><code>cluster.routing.allocation.balance.threshold</code> - A <b>threshold</b> to set the minimal optimization
  * value of operations that should be performed</li>
+ * <li><code>cluster.routing.allocation.balance.incremental</code> - Whether indices that were found to be balanced
+ * by the previous reroute are skipped if neither their shards nor the cluster wide inputs of the weight function changed</li>
  * </ul>
  * <p>
  * These parameters are combined in a {@link WeightFunction} that allows calculation of node weights which
@@ -87,9 +96,14 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     public static final Setting<Float> THRESHOLD_SETTING =
         Setting.floatSetting("cluster.routing.allocation.balance.threshold", 1.0f, 0.0f,
             Property.Dynamic, Property.NodeScope);
+    public static final Setting<Boolean> INCREMENTAL_BALANCE_SETTING =
+        Setting.boolSetting("cluster.routing.allocation.balance.incremental", false, Property.Dynamic, Property.NodeScope);
 
     private volatile WeightFunction weightFunction;
     private volatile float threshold;
+    private volatile boolean incrementalBalance;
+    // the indices the last reroute found to be balanced, only maintained if incremental balancing is enabled
+    private volatile BalancedIndices balancedIndices;
 
     public BalancedShardsAllocator(Settings settings) {
         this(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
@@ -100,8 +114,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         super(settings);
         setWeightFunction(INDEX_BALANCE_FACTOR_SETTING.get(settings), SHARD_BALANCE_FACTOR_SETTING.get(settings));
         setThreshold(THRESHOLD_SETTING.get(settings));
+        setIncrementalBalance(INCREMENTAL_BALANCE_SETTING.get(settings));
         clusterSettings.addSettingsUpdateConsumer(INDEX_BALANCE_FACTOR_SETTING, SHARD_BALANCE_FACTOR_SETTING, this::setWeightFunction);
         clusterSettings.addSettingsUpdateConsumer(THRESHOLD_SETTING, this::setThreshold);
+        clusterSettings.addSettingsUpdateConsumer(INCREMENTAL_BALANCE_SETTING, this::setIncrementalBalance);
     }
 
     private void setWeightFunction(float indexBalance, float shardBalanceFactor) {
@@ -112,6 +128,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         this.threshold = threshold;
     }
 
+    private void setIncrementalBalance(boolean incrementalBalance) {
+        this.incrementalBalance = incrementalBalance;
+        this.balancedIndices = null;
+    }
+
     @Override
     public void allocate(RoutingAllocation allocation) {
         if (allocation.routingNodes().size() == 0) {
@@ -121,7 +142,11 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         final Balancer balancer = new Balancer(logger, allocation, weightFunction, threshold);
         balancer.allocateUnassigned();
         balancer.moveShards();
-        balancer.balance();
+        if (incrementalBalance) {
+            balancedIndices = balancer.balanceIncrementally(balancedIndices);
+        } else {
+            balancer.balance();
+        }
     }
 
     @Override
@@ -162,6 +187,13 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         return weightFunction.shardBalance;
     }
 
+    /**
+     * Returns <code>true</code> iff indices that were balanced by the previous reroute are skipped if they didn't change.
+     */
+    public boolean isIncrementalBalance() {
+        return incrementalBalance;
+    }
+
 
     /**
      * This class is the primary weight function used to create balanced over nodes and shards in the cluster.
@@ -238,6 +270,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private final MetaData metaData;
         private final float avgShardsPerNode;
         private final NodeSorter sorter;
+        // number of shards that were moved on the model while balancing, including throttled relocations
+        private int modelRelocations = 0;
 
         public Balancer(Logger logger, RoutingAllocation allocation, WeightFunction weight, float threshold) {
             this.logger = logger;
@@ -303,9 +337,59 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
         /**
          * Balances the nodes on the cluster model according to the weight function.
-         * The actual balancing is delegated to {@link #balanceByWeights()}
+         * The actual balancing is delegated to {@link #balanceByWeights(String[], Set)}
          */
         private void balance() {
+            if (canBalance()) {
+                balanceByWeights(allocation.routingTable().indicesRouting().keys().toArray(String.class), null);
+            }
+        }
+
+        /**
+         * Balances the nodes like {@link #balance()} but skips the indices that the given previous result found to be balanced if
+         * neither the shards of these indices nor any of the cluster wide inputs of the weight function changed since. If a shard
+         * is moved while balancing the remaining indices, the weights of all indices change and all skipped indices are balanced
+         * as well.
+         *
+         * @param previouslyBalanced the result of the previous call, or <code>null</code> to balance all indices
+         * @return the indices that are known to be balanced afterwards, to be passed to the next call
+         */
+        @Nullable
+        BalancedIndices balanceIncrementally(@Nullable BalancedIndices previouslyBalanced) {
+            if (canBalance() == false) {
+                // nothing changes on the model, the fingerprint will tell whether the previous result can be reused next time
+                return previouslyBalanced;
+            }
+            final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
+            final BalanceFingerprint fingerprint = new BalanceFingerprint(this, indices);
+            final Set<String> balanced = new HashSet<>();
+            if (previouslyBalanced == null || previouslyBalanced.fingerprint.sameClusterWideInputs(fingerprint) == false) {
+                balanceByWeights(indices, balanced);
+                return modelRelocations == 0 ? new BalancedIndices(fingerprint, balanced) : null;
+            }
+            final List<String> changed = new ArrayList<>();
+            final List<String> unchanged = new ArrayList<>();
+            for (String index : indices) {
+                if (previouslyBalanced.isBalanced(index, fingerprint.indices.get(index))) {
+                    unchanged.add(index);
+                } else {
+                    changed.add(index);
+                }
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("balancing [{}] changed indices, skipping [{}] balanced indices", changed.size(), unchanged.size());
+            }
+            balanceByWeights(changed.toArray(new String[changed.size()]), balanced);
+            if (modelRelocations == 0) {
+                balanced.addAll(unchanged);
+                return new BalancedIndices(fingerprint, balanced);
+            }
+            // the weights of the nodes changed, fall back to balancing all indices
+            balanceByWeights(unchanged.toArray(new String[unchanged.size()]), null);
+            return null;
+        }
+
+        private boolean canBalance() {
             if (logger.isTraceEnabled()) {
                 logger.trace("Start balancing cluster");
             }
@@ -318,17 +402,17 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                  * Therefore we only do a rebalance if we have fetched all information.
                  */
                 logger.debug("skipping rebalance due to in-flight shard/store fetches");
-                return;
+                return false;
             }
             if (allocation.deciders().canRebalance(allocation).type() != Type.YES) {
                 logger.trace("skipping rebalance as it is disabled");
-                return;
+                return false;
             }
             if (nodes.size() < 2) { /* skip if we only have one node */
                 logger.trace("skipping rebalance as single node only");
-                return;
+                return false;
             }
-            balanceByWeights();
+            return true;
         }
 
         /**
@@ -451,7 +535,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
 
-            buildWeightOrderedIndices();
+            buildWeightOrderedIndices(allocation.routingTable().indicesRouting().keys().toArray(String.class));
             Map<DiscoveryNode, Float> nodes = new HashMap<>(modelNodes.length);
             float currentNodeWeight = 0.0f;
             for (int i = 0; i < modelNodes.length; i++) {
@@ -479,12 +563,16 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          * the threshold is set to <tt>1.0</tt> to enforce gaining relocation
          * only, or in other words relocations that move the weight delta closer
          * to <tt>0.0</tt>
+         *
+         * @param indices  the indices to balance
+         * @param balanced if not <code>null</code>, the indices that are found to be balanced before any shard is moved are added
+         *                 to this set
          */
-        private void balanceByWeights() {
+        private void balanceByWeights(String[] indices, @Nullable Set<String> balanced) {
             final AllocationDeciders deciders = allocation.deciders();
             final ModelNode[] modelNodes = sorter.modelNodes;
             final float[] weights = sorter.weights;
-            for (String index : buildWeightOrderedIndices()) {
+            for (String index : buildWeightOrderedIndices(indices)) {
                 IndexMetaData indexMetaData = metaData.index(index);
 
                 // find nodes that have a shard of this index or where shards of this index are allowed to be allocated to,
@@ -502,12 +590,14 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 }
 
                 if (relevantNodes < 2) {
+                    recordBalanced(index, balanced);
                     continue;
                 }
 
                 sorter.reset(index, 0, relevantNodes);
                 int lowIdx = 0;
                 int highIdx = relevantNodes - 1;
+                boolean firstRound = true;
                 while (true) {
                     final ModelNode minNode = modelNodes[lowIdx];
                     final ModelNode maxNode = modelNodes[highIdx];
@@ -534,6 +624,10 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                                 logger.trace("Stop balancing index [{}]  min_node [{}] weight: [{}]  max_node [{}] weight: [{}]  delta: [{}]",
                                         index, maxNode.getNodeId(), weights[highIdx], minNode.getNodeId(), weights[lowIdx], delta);
                             }
+                            if (firstRound) {
+                                // balanced by weights only, independent of the per shard decisions
+                                recordBalanced(index, balanced);
+                            }
                             break;
                         }
                         if (logger.isTraceEnabled()) {
@@ -556,6 +650,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                             continue;
                         }
                     }
+                    firstRound = false;
                     if (lowIdx < highIdx - 1) {
                         /* Shrinking the window from MIN to MAX
                          * we can't move from any shard from the min node lets move on to the next node
@@ -589,8 +684,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
          * average. To re-balance we need to move shards back eventually likely
          * to the nodes we relocated them from.
          */
-        private String[] buildWeightOrderedIndices() {
-            final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
+        private String[] buildWeightOrderedIndices(final String[] indices) {
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
                 sorter.reset(indices[i]);
@@ -629,6 +723,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return indices;
         }
 
+        private void recordBalanced(String index, @Nullable Set<String> balanced) {
+            if (balanced != null && modelRelocations == 0) {
+                balanced.add(index);
+            }
+        }
+
         /**
          * Move started shards that can not be allocated to a node anymore
          *
@@ -1023,6 +1123,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
                 if (candidate != null) {
                     /* allocate on the model even if not throttled */
+                    modelRelocations++;
                     maxNode.removeShard(candidate);
                     long shardSize = allocation.clusterInfo().getShardSize(candidate, ShardRouting.UNAVAILABLE_EXPECTED_SHARD_SIZE);
 
@@ -1047,6 +1148,134 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
     }
 
+    /**
+     * The indices a {@link Balancer} found to be balanced, together with the fingerprint of the model they were balanced on.
+     */
+    static final class BalancedIndices {
+        private final BalanceFingerprint fingerprint;
+        private final Set<String> balanced;
+
+        BalancedIndices(BalanceFingerprint fingerprint, Set<String> balanced) {
+            this.fingerprint = fingerprint;
+            this.balanced = balanced;
+        }
+
+        /**
+         * Returns <code>true</code> iff the given index was balanced and its shards are still allocated the same way.
+         */
+        boolean isBalanced(String index, IndexFingerprint indexFingerprint) {
+            return balanced.contains(index) && indexFingerprint.equals(fingerprint.indices.get(index));
+        }
+    }
+
+    /**
+     * Captures everything the decision whether an index is balanced by weights depends on: the cluster wide inputs of the weight
+     * function, the number of shards per node and the number of shards of each index per node. The only allocation decisions
+     * that are taken into account while deciding this are the index level decisions per node, which depend on the index settings,
+     * the nodes and the cluster settings.
+     */
+    static final class BalanceFingerprint {
+        private final WeightFunction weightFunction;
+        private final float threshold;
+        private final AllocationDeciders deciders;
+        private final DiscoveryNodes discoveryNodes;
+        private final Settings persistentSettings;
+        private final Settings transientSettings;
+        private final ImmutableOpenMap<String, DiskUsage> leastAvailableDiskUsages;
+        private final ImmutableOpenMap<String, DiskUsage> mostAvailableDiskUsages;
+        private final float avgShardsPerNode;
+        private final String[] nodeIds;
+        private final int[] nodeShards;
+        private final Map<String, IndexFingerprint> indices;
+
+        BalanceFingerprint(Balancer balancer, String[] indexNames) {
+            final RoutingAllocation allocation = balancer.allocation;
+            this.weightFunction = balancer.weight;
+            this.threshold = balancer.threshold;
+            this.deciders = allocation.deciders();
+            this.discoveryNodes = allocation.nodes();
+            this.persistentSettings = allocation.metaData().persistentSettings();
+            this.transientSettings = allocation.metaData().transientSettings();
+            final ClusterInfo clusterInfo = allocation.clusterInfo();
+            this.leastAvailableDiskUsages = clusterInfo.getNodeLeastAvailableDiskUsages();
+            this.mostAvailableDiskUsages = clusterInfo.getNodeMostAvailableDiskUsages();
+            this.avgShardsPerNode = balancer.avgShardsPerNode;
+
+            final ModelNode[] modelNodes = balancer.nodesArray();
+            Arrays.sort(modelNodes, Comparator.comparing(ModelNode::getNodeId));
+            nodeIds = new String[modelNodes.length];
+            nodeShards = new int[modelNodes.length];
+            final Map<String, IntArrayList> shardsPerNode = new HashMap<>();
+            for (int i = 0; i < modelNodes.length; i++) {
+                nodeIds[i] = modelNodes[i].getNodeId();
+                nodeShards[i] = modelNodes[i].numShards();
+                for (ModelIndex index : modelNodes[i]) {
+                    IntArrayList nodeOrdsAndShards = shardsPerNode.computeIfAbsent(index.getIndexId(), k -> new IntArrayList(4));
+                    nodeOrdsAndShards.add(i, index.numShards());
+                }
+            }
+            indices = new HashMap<>(indexNames.length);
+            for (String index : indexNames) {
+                final IndexMetaData indexMetaData = balancer.metaData.index(index);
+                final IntArrayList nodeOrdsAndShards = shardsPerNode.get(index);
+                indices.put(index, new IndexFingerprint(indexMetaData.getSettings(), indexMetaData.getTotalNumberOfShards(),
+                    nodeOrdsAndShards == null ? new IntArrayList(0) : nodeOrdsAndShards));
+            }
+        }
+
+        /**
+         * Returns <code>true</code> iff all inputs of the weight function that are not specific to a single index are the same.
+         */
+        boolean sameClusterWideInputs(BalanceFingerprint other) {
+            return weightFunction == other.weightFunction
+                && threshold == other.threshold
+                && deciders == other.deciders
+                && discoveryNodes == other.discoveryNodes
+                && persistentSettings == other.persistentSettings
+                && transientSettings == other.transientSettings
+                && leastAvailableDiskUsages == other.leastAvailableDiskUsages
+                && mostAvailableDiskUsages == other.mostAvailableDiskUsages
+                && avgShardsPerNode == other.avgShardsPerNode
+                && Arrays.equals(nodeIds, other.nodeIds)
+                && Arrays.equals(nodeShards, other.nodeShards);
+        }
+    }
+
+    /**
+     * The inputs of the weight function that are specific to a single index.
+     */
+    static final class IndexFingerprint {
+        private final Settings settings;
+        private final int totalNumberOfShards;
+        // pairs of node ordinal and number of shards of the index on that node
+        private final IntArrayList nodeOrdsAndShards;
+
+        IndexFingerprint(Settings settings, int totalNumberOfShards, IntArrayList nodeOrdsAndShards) {
+            this.settings = settings;
+            this.totalNumberOfShards = totalNumberOfShards;
+            this.nodeOrdsAndShards = nodeOrdsAndShards;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            IndexFingerprint that = (IndexFingerprint) o;
+            return settings == that.settings
+                && totalNumberOfShards == that.totalNumberOfShards
+                && nodeOrdsAndShards.equals(that.nodeOrdsAndShards);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(settings) + totalNumberOfShards) + nodeOrdsAndShards.hashCode();
+        }
+    }
+
     static class ModelNode implements Iterable<ModelIndex> {
         private final Map<String, ModelIndex> indices = new HashMap<>();
         private int numShards = 0;
@@ -55,10 +55,12 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.PrioritizedEsThreadPoolExecutor;
 import org.elasticsearch.common.util.concurrent.PrioritizedRunnable;
@@ -70,6 +72,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -84,13 +87,15 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
 
@@ -100,7 +105,15 @@ public class ClusterService extends AbstractLifecycleComponent {
             Setting.positiveTimeSetting("cluster.service.slow_task_logging_threshold", TimeValue.timeValueSeconds(30),
                     Property.Dynamic, Property.NodeScope);
 
+    public static final Setting<TimeValue> CLUSTER_SERVICE_LISTENER_TIME_BUDGET_SETTING =
+            Setting.positiveTimeSetting("cluster.service.listener_time_budget", TimeValue.timeValueSeconds(10),
+                    Property.Dynamic, Property.NodeScope);
+
+    public static final Setting<Integer> CLUSTER_SERVICE_ASYNC_LISTENER_QUEUE_SIZE_SETTING =
+            Setting.intSetting("cluster.service.async_listener_queue_size", 100, 1, Property.NodeScope);
+
     public static final String UPDATE_THREAD_NAME = "clusterService#updateTask";
+    public static final String LISTENER_NOTIFICATION_THREAD_NAME = "clusterService#listenerNotification";
     private final ThreadPool threadPool;
     private final ClusterName clusterName;
     private final Supplier<DiscoveryNode> localNodeSupplier;
@@ -113,8 +126,12 @@ public class ClusterService extends AbstractLifecycleComponent {
 
     private TimeValue slowTaskLoggingThreshold;
 
+    private volatile TimeValue listenerTimeBudget;
+
     private volatile PrioritizedEsThreadPoolExecutor threadPoolExecutor;
 
+    private volatile EsThreadPoolExecutor listenerNotificationExecutor;
+
     /**
      * Those 3 state listeners are changing infrequently - CopyOnWriteArrayList is just fine
      */
@@ -128,6 +145,13 @@ public class ClusterService extends AbstractLifecycleComponent {
     private final Collection<ClusterStateListener> clusterStateListeners = new CopyOnWriteArrayList<>();
     private final Collection<TimeoutClusterStateListener> timeoutClusterStateListeners =
         Collections.newSetFromMap(new ConcurrentHashMap<TimeoutClusterStateListener, Boolean>());
+    private final Collection<ClusterStateListener> asyncClusterStateListeners = new CopyOnWriteArrayList<>();
+    private final Map<ClusterStateListener, ListenerTimings> listenerTimings = ConcurrentCollections.newConcurrentMap();
+
+    /**
+     * Bounds the number of cluster states that wait for the async listeners to be notified
+     */
+    private final Semaphore pendingAsyncNotifications;
 
     private final LocalNodeMasterListeners localNodeMasterListeners;
 
@@ -157,6 +181,12 @@ public class ClusterService extends AbstractLifecycleComponent {
 
         this.slowTaskLoggingThreshold = CLUSTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING.get(settings);
 
+        this.clusterSettings.addSettingsUpdateConsumer(CLUSTER_SERVICE_LISTENER_TIME_BUDGET_SETTING, this::setListenerTimeBudget);
+
+        this.listenerTimeBudget = CLUSTER_SERVICE_LISTENER_TIME_BUDGET_SETTING.get(settings);
+
+        this.pendingAsyncNotifications = new Semaphore(CLUSTER_SERVICE_ASYNC_LISTENER_QUEUE_SIZE_SETTING.get(settings));
+
         localNodeMasterListeners = new LocalNodeMasterListeners(threadPool);
 
         initialBlocks = ClusterBlocks.builder();
@@ -166,6 +196,10 @@ public class ClusterService extends AbstractLifecycleComponent {
         this.slowTaskLoggingThreshold = slowTaskLoggingThreshold;
     }
 
+    private void setListenerTimeBudget(TimeValue listenerTimeBudget) {
+        this.listenerTimeBudget = listenerTimeBudget;
+    }
+
     public synchronized void setClusterStatePublisher(BiConsumer<ClusterChangedEvent, Discovery.AckListener> publisher) {
         clusterStatePublisher = publisher;
     }
@@ -221,6 +255,9 @@ public class ClusterService extends AbstractLifecycleComponent {
         });
         this.threadPoolExecutor = EsExecutors.newSinglePrioritizing(UPDATE_THREAD_NAME, daemonThreadFactory(settings, UPDATE_THREAD_NAME),
                 threadPool.getThreadContext());
+        // a single thread so that async listeners see the cluster states in the order they were applied
+        this.listenerNotificationExecutor = EsExecutors.newFixed(LISTENER_NOTIFICATION_THREAD_NAME, 1, -1,
+                daemonThreadFactory(settings, LISTENER_NOTIFICATION_THREAD_NAME), threadPool.getThreadContext());
     }
 
     @Override
@@ -235,6 +272,7 @@ public class ClusterService extends AbstractLifecycleComponent {
             }
         }
         ThreadPool.terminate(threadPoolExecutor, 10, TimeUnit.SECONDS);
+        ThreadPool.terminate(listenerNotificationExecutor, 10, TimeUnit.SECONDS);
         // close timeout listeners that did not have an ongoing timeout
         timeoutClusterStateListeners.forEach(TimeoutClusterStateListener::onClose);
         removeListener(localNodeMasterListeners);
@@ -304,11 +342,55 @@ public class ClusterService extends AbstractLifecycleComponent {
         clusterStateListeners.add(listener);
     }
 
+    /**
+     * Add a listener for updated cluster states whose notifications are timed and reported by {@link #listenerStats()} under the
+     * given name. The name must not be used by another listener.
+     */
+    public void addListener(String name, ClusterStateListener listener) {
+        addListenerTimings(name, listener, false);
+        clusterStateListeners.add(listener);
+    }
+
+    /**
+     * Add a listener for updated cluster states that is notified on a separate thread, after the cluster state was applied and
+     * the listeners added with {@link #addListener(ClusterStateListener)} were notified. This is meant for listeners that are
+     * slow and that nothing waits on, so that they don't delay the application of the following cluster states. Async listeners
+     * see the cluster states in the order they were applied. If they fall behind by more than
+     * {@link #CLUSTER_SERVICE_ASYNC_LISTENER_QUEUE_SIZE_SETTING} cluster states the cluster state update thread waits for them.
+     * The notifications are timed and reported by {@link #listenerStats()} under the given name, which must not be used by
+     * another listener.
+     */
+    public void addAsyncListener(String name, ClusterStateListener listener) {
+        addListenerTimings(name, listener, true);
+        asyncClusterStateListeners.add(listener);
+    }
+
+    private synchronized void addListenerTimings(String name, ClusterStateListener listener, boolean async) {
+        Objects.requireNonNull(name, "name must not be null");
+        if (listenerTimings.values().stream().anyMatch(timings -> timings.name.equals(name))) {
+            throw new IllegalArgumentException("a cluster state listener named [" + name + "] is already registered");
+        }
+        listenerTimings.put(listener, new ListenerTimings(name, async));
+    }
+
     /**
      * Removes a listener for updated cluster states.
      */
     public void removeListener(ClusterStateListener listener) {
         clusterStateListeners.remove(listener);
+        asyncClusterStateListeners.remove(listener);
+        listenerTimings.remove(listener);
+    }
+
+    /**
+     * Returns the timings of the notifications of the listeners that were added with a name, see
+     * {@link #addListener(String, ClusterStateListener)} and {@link #addAsyncListener(String, ClusterStateListener)}.
+     */
+    public List<ClusterStateListenerStats> listenerStats() {
+        return listenerTimings.values().stream()
+            .map(ListenerTimings::stats)
+            .sorted(Comparator.comparing(ClusterStateListenerStats::getName))
+            .collect(Collectors.toList());
     }
 
     /**
@@ -818,14 +900,18 @@ public class ClusterService extends AbstractLifecycleComponent {
 
         updateState(css -> newClusterState);
 
-        Stream.concat(clusterStateListeners.stream(), timeoutClusterStateListeners.stream()).forEach(listener -> {
+        for (ClusterStateListener listener : clusterStateListeners) {
+            callClusterStateListener(listener, clusterChangedEvent);
+        }
+        for (TimeoutClusterStateListener listener : timeoutClusterStateListeners) {
             try {
                 logger.trace("calling [{}] with change to version [{}]", listener, newClusterState.version());
                 listener.clusterChanged(clusterChangedEvent);
             } catch (Exception ex) {
                 logger.warn("failed to notify ClusterStateListener", ex);
             }
-        });
+        }
+        notifyAsyncListeners(clusterChangedEvent);
 
         //manual ack only from the master at the end of the publish
         if (newClusterState.nodes().isLocalNodeElectedMaster()) {
@@ -865,6 +951,97 @@ public class ClusterService extends AbstractLifecycleComponent {
         }
     }
 
+    private void callClusterStateListener(ClusterStateListener listener, ClusterChangedEvent clusterChangedEvent) {
+        final long startTimeNS = currentTimeInNanos();
+        try {
+            logger.trace("calling [{}] with change to version [{}]", listener, clusterChangedEvent.state().version());
+            listener.clusterChanged(clusterChangedEvent);
+        } catch (Exception ex) {
+            logger.warn("failed to notify ClusterStateListener", ex);
+        }
+        final long tookInMillis = Math.max(0, TimeValue.nsecToMSec(currentTimeInNanos() - startTimeNS));
+        final TimeValue budget = listenerTimeBudget;
+        final boolean overBudget = tookInMillis > budget.millis();
+        final ListenerTimings timings = listenerTimings.get(listener);
+        if (timings != null) {
+            timings.onNotified(tookInMillis, overBudget);
+        }
+        if (overBudget) {
+            logger.warn("cluster state listener [{}] took [{}] to process cluster state version [{}], which is above the budget of [{}]",
+                timings != null ? timings.name : listener, TimeValue.timeValueMillis(tookInMillis), clusterChangedEvent.state().version(),
+                budget);
+        }
+    }
+
+    private void notifyAsyncListeners(ClusterChangedEvent clusterChangedEvent) {
+        if (asyncClusterStateListeners.isEmpty()) {
+            return;
+        }
+        try {
+            pendingAsyncNotifications.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.debug("interrupted while waiting to notify async listeners of cluster state version [{}]",
+                clusterChangedEvent.state().version());
+            return;
+        }
+        listenerNotificationExecutor.execute(new AbstractRunnable() {
+            @Override
+            protected void doRun() throws Exception {
+                for (ClusterStateListener listener : asyncClusterStateListeners) {
+                    callClusterStateListener(listener, clusterChangedEvent);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn(
+                    (Supplier<?>) () -> new ParameterizedMessage(
+                        "failed to notify async listeners of cluster state version [{}]", clusterChangedEvent.state().version()),
+                    e);
+            }
+
+            @Override
+            public void onRejection(Exception e) {
+                logger.debug("not notifying async listeners of cluster state version [{}], node is shutting down",
+                    clusterChangedEvent.state().version());
+            }
+
+            @Override
+            public void onAfter() {
+                pendingAsyncNotifications.release();
+            }
+        });
+    }
+
+    private static class ListenerTimings {
+        private final String name;
+        private final boolean async;
+        private final LongAdder notifications = new LongAdder();
+        private final LongAdder totalTimeInMillis = new LongAdder();
+        private final AtomicLong maxTimeInMillis = new AtomicLong();
+        private final LongAdder overBudget = new LongAdder();
+
+        ListenerTimings(String name, boolean async) {
+            this.name = name;
+            this.async = async;
+        }
+
+        void onNotified(long tookInMillis, boolean exceededBudget) {
+            notifications.increment();
+            totalTimeInMillis.add(tookInMillis);
+            maxTimeInMillis.accumulateAndGet(tookInMillis, Math::max);
+            if (exceededBudget) {
+                overBudget.increment();
+            }
+        }
+
+        ClusterStateListenerStats stats() {
+            return new ClusterStateListenerStats(name, async, notifications.sum(), totalTimeInMillis.sum(), maxTimeInMillis.get(),
+                overBudget.sum());
+        }
+    }
+
     /**
      * Represents a set of tasks to be processed together with their executor
      */
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Timings of the notifications of a single {@link org.elasticsearch.cluster.ClusterStateListener} that was registered with a name,
+ * see {@link ClusterService#listenerStats()}. Reported by the nodes stats API as part of the discovery stats.
+ */
+public class ClusterStateListenerStats implements Writeable, ToXContent {
+
+    private final String name;
+    private final boolean async;
+    private final long notifications;
+    private final long totalTimeInMillis;
+    private final long maxTimeInMillis;
+    private final long overBudget;
+
+    public ClusterStateListenerStats(String name, boolean async, long notifications, long totalTimeInMillis, long maxTimeInMillis,
+                                     long overBudget) {
+        assert totalTimeInMillis >= 0 : "got a negative totalTimeInMillis [" + totalTimeInMillis + "]";
+        assert maxTimeInMillis >= 0 : "got a negative maxTimeInMillis [" + maxTimeInMillis + "]";
+        this.name = name;
+        this.async = async;
+        this.notifications = notifications;
+        this.totalTimeInMillis = totalTimeInMillis;
+        this.maxTimeInMillis = maxTimeInMillis;
+        this.overBudget = overBudget;
+    }
+
+    public ClusterStateListenerStats(StreamInput in) throws IOException {
+        name = in.readString();
+        async = in.readBoolean();
+        notifications = in.readVLong();
+        totalTimeInMillis = in.readVLong();
+        maxTimeInMillis = in.readVLong();
+        overBudget = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeBoolean(async);
+        out.writeVLong(notifications);
+        out.writeVLong(totalTimeInMillis);
+        out.writeVLong(maxTimeInMillis);
+        out.writeVLong(overBudget);
+    }
+
+    /**
+     * The name the listener was registered with.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the listener is notified on the listener notification thread rather than the cluster state update thread.
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * The number of cluster states the listener was notified of.
+     */
+    public long getNotifications() {
+        return notifications;
+    }
+
+    public long getTotalTimeInMillis() {
+        return totalTimeInMillis;
+    }
+
+    public TimeValue getTotalTime() {
+        return new TimeValue(getTotalTimeInMillis());
+    }
+
+    public long getMaxTimeInMillis() {
+        return maxTimeInMillis;
+    }
+
+    public TimeValue getMaxTime() {
+        return new TimeValue(getMaxTimeInMillis());
+    }
+
+    /**
+     * The number of notifications that took longer than {@link ClusterService#CLUSTER_SERVICE_LISTENER_TIME_BUDGET_SETTING}.
+     */
+    public long getOverBudget() {
+        return overBudget;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        builder.field(Fields.ASYNC, async);
+        builder.field(Fields.NOTIFICATIONS, notifications);
+        builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, totalTimeInMillis);
+        builder.timeValueField(Fields.MAX_TIME_IN_MILLIS, Fields.MAX_TIME, maxTimeInMillis);
+        builder.field(Fields.OVER_BUDGET, overBudget);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String ASYNC = "async";
+        static final String NOTIFICATIONS = "notifications";
+        static final String TOTAL_TIME = "total_time";
+        static final String TOTAL_TIME_IN_MILLIS = "total_time_in_millis";
+        static final String MAX_TIME = "max_time";
+        static final String MAX_TIME_IN_MILLIS = "max_time_in_millis";
+        static final String OVER_BUDGET = "over_budget";
+    }
+}
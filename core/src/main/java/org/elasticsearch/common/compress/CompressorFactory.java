@@ -19,20 +19,74 @@
 
 package org.elasticsearch.common.compress;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class CompressorFactory {
 
-    public static final Compressor COMPRESSOR = new DeflateCompressor();
+    public static final Compressor DEFLATE = new DeflateCompressor();
+
+    public static final Compressor LZ4 = new LZ4Compressor();
+
+    /** The default compressor, also used for data that is persisted in the cluster state such as mappings */
+    public static final Compressor COMPRESSOR = DEFLATE;
+
+    /**
+     * All known compressors by the name of their compression scheme. Compressed bytes are detected by their header so any
+     * compressor registered here can be read back, no matter which one was used to write them.
+     */
+    private static final Map<String, Compressor> COMPRESSORS;
+
+    static {
+        Map<String, Compressor> compressors = new LinkedHashMap<>();
+        compressors.put("deflate", DEFLATE);
+        compressors.put("lz4", LZ4);
+        COMPRESSORS = Collections.unmodifiableMap(compressors);
+    }
+
+    /**
+     * Returns the compressor for the given compression scheme name.
+     *
+     * @throws IllegalArgumentException if there is no compressor with this name
+     */
+    public static Compressor compressor(String scheme) {
+        Compressor compressor = COMPRESSORS.get(scheme);
+        if (compressor == null) {
+            throw new IllegalArgumentException("unknown compression scheme [" + scheme + "], must be one of " + COMPRESSORS.keySet());
+        }
+        return compressor;
+    }
+
+    /**
+     * Creates a setting that selects a compressor by the name of its compression scheme, defaulting to {@code deflate}.
+     */
+    public static Setting<Compressor> compressorSetting(String key, Property... properties) {
+        return new Setting<>(key, "deflate", CompressorFactory::compressor, properties);
+    }
+
+    /**
+     * Returns the given compressor if a node of the given version is able to decompress its output, or {@link #DEFLATE} otherwise.
+     */
+    public static Compressor compressor(Compressor compressor, Version version) {
+        if (compressor != DEFLATE && version.before(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            return DEFLATE;
+        }
+        return compressor;
+    }
 
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
@@ -40,13 +94,15 @@ public class CompressorFactory {
 
     @Nullable
     public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
+        for (Compressor compressor : COMPRESSORS.values()) {
+            if (compressor.isCompressed(bytes)) {
                 // bytes should be either detected as compressed or as xcontent,
                 // if we have bytes that can be either detected as compressed or
                 // as a xcontent, we have a problem
                 assert XContentFactory.xContentType(bytes) == null;
-                return COMPRESSOR;
+                return compressor;
             }
+        }
 
         XContentType contentType = XContentFactory.xContentType(bytes);
         if (contentType == null) {
@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the <a href="https://github.com/lz4/lz4/blob/master/doc/lz4_Block_format.md">LZ4 block format</a>.
+ * Compression uses a single hash table of recent positions and greedily emits the first match it finds, which trades some ratio
+ * for speed. Blocks are limited to 64KB so that every offset fits into the two bytes the format reserves for it.
+ */
+final class LZ4 {
+
+    /** the maximum number of bytes in a block, as well as the maximum distance of a match */
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    static final int HASH_TABLE_SIZE = 1 << 12;
+
+    private static final int HASH_LOG = 12;
+    private static final int MIN_MATCH = 4;
+    // the last 5 bytes of a block are always literals and the last match must start at least 12 bytes before the end
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+    // how fast the search accelerates on incompressible data, lower values skip ahead sooner
+    private static final int SKIP_STRENGTH = 6;
+
+    private LZ4() {}
+
+    /**
+     * Returns the maximum number of bytes that compressing {@code length} bytes can take.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code src[srcOff:srcOff+srcLen]} into {@code dest} starting at {@code destOff}, which must have room for at least
+     * {@link #maxCompressedLength(int)} bytes, and returns the number of compressed bytes. The hash table must have
+     * {@link #HASH_TABLE_SIZE} entries, its content is overwritten.
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int[] hashTable) {
+        assert srcLen <= MAX_BLOCK_SIZE : "block too large: " + srcLen;
+        assert hashTable.length == HASH_TABLE_SIZE;
+        final int srcEnd = srcOff + srcLen;
+        int dOff = destOff;
+        int anchor = srcOff;
+        if (srcLen > MF_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            final int limit = srcEnd - MF_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            int off = srcOff;
+            int searchCount = 1 << SKIP_STRENGTH;
+            while (off < limit) {
+                final int value = readInt(src, off);
+                final int hash = hash(value);
+                int ref = hashTable[hash];
+                hashTable[hash] = off;
+                if (ref < 0 || off - ref >= MAX_BLOCK_SIZE || readInt(src, ref) != value) {
+                    off += searchCount++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+                searchCount = 1 << SKIP_STRENGTH;
+                // extend the match backwards into the pending literals
+                while (off > anchor && ref > srcOff && src[off - 1] == src[ref - 1]) {
+                    off--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (off + matchLength < matchLimit && src[off + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                dOff = writeSequence(src, anchor, off - anchor, off - ref, matchLength, dest, dOff);
+                off += matchLength;
+                anchor = off;
+            }
+        }
+        return writeLastLiterals(src, anchor, srcEnd - anchor, dest, dOff) - destOff;
+    }
+
+    /**
+     * Decompresses the block {@code src[srcOff:srcOff+srcLen]} into {@code dest} starting at {@code destOff}. The block must
+     * decompress to exactly {@code destLen} bytes.
+     *
+     * @throws IOException if the block is corrupted
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        while (true) {
+            if (sOff >= srcEnd) {
+                throw corrupted(sOff - srcOff);
+            }
+            final int token = src[sOff++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int len;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupted(sOff - srcOff);
+                    }
+                    len = src[sOff++] & 0xFF;
+                    literalLength += len;
+                } while (len == 0xFF);
+            }
+            if (literalLength > srcEnd - sOff || literalLength > destEnd - dOff) {
+                throw corrupted(sOff - srcOff);
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLength);
+            sOff += literalLength;
+            dOff += literalLength;
+            if (sOff == srcEnd) {
+                // the last sequence only has literals
+                break;
+            }
+
+            if (srcEnd - sOff < 2) {
+                throw corrupted(sOff - srcOff);
+            }
+            final int offset = (src[sOff] & 0xFF) | ((src[sOff + 1] & 0xFF) << 8);
+            sOff += 2;
+            if (offset == 0 || offset > dOff - destOff) {
+                throw corrupted(sOff - srcOff);
+            }
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int len;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupted(sOff - srcOff);
+                    }
+                    len = src[sOff++] & 0xFF;
+                    matchLength += len;
+                } while (len == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destEnd - dOff) {
+                throw corrupted(sOff - srcOff);
+            }
+            final int ref = dOff - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dest, ref, dest, dOff, matchLength);
+            } else {
+                // overlapping copy, this repeats the last offset bytes
+                for (int i = 0; i < matchLength; i++) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLength;
+        }
+        if (dOff != destEnd) {
+            throw new IOException("Corrupted LZ4 block: expected [" + destLen + "] decompressed bytes but got [" + (dOff - destOff) + "]");
+        }
+    }
+
+    private static IOException corrupted(int position) {
+        return new IOException("Corrupted LZ4 block at position [" + position + "]");
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLength, int matchOffset, int matchLength,
+                                     byte[] dest, int dOff) {
+        final int tokenOff = dOff++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLength);
+        dOff += literalLength;
+
+        dest[dOff++] = (byte) matchOffset;
+        dest[dOff++] = (byte) (matchOffset >>> 8);
+
+        final int encodedMatchLength = matchLength - MIN_MATCH;
+        if (encodedMatchLength >= ML_MASK) {
+            token |= ML_MASK;
+            dOff = writeLength(encodedMatchLength - ML_MASK, dest, dOff);
+        } else {
+            token |= encodedMatchLength;
+        }
+        dest[tokenOff] = (byte) token;
+        return dOff;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalOff, int literalLength, byte[] dest, int dOff) {
+        if (literalLength >= RUN_MASK) {
+            dest[dOff++] = (byte) (RUN_MASK << 4);
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[dOff++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLength);
+        return dOff + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private static int readInt(byte[] bytes, int off) {
+        return ((bytes[off] & 0xFF) << 24) | ((bytes[off + 1] & 0xFF) << 16) | ((bytes[off + 2] & 0xFF) << 8) | (bytes[off + 3] & 0xFF);
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
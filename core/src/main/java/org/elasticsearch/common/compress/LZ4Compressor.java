@@ -0,0 +1,318 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm. LZ4 compresses less than DEFLATE but is several times
+ * faster, which makes it a better fit for latency sensitive traffic such as transport messages.
+ * <p>
+ * The stream is made of blocks of up to 64KB, each of them prefixed with its decompressed and compressed length. Blocks that don't
+ * compress are stored as is and an empty block marks the end of the stream.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams, see DeflateCompressor
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+
+    // the buffers are large enough to be worth reusing, the in-use flag protects against nested streams on the same thread
+    private static final ThreadLocal<Buffers> INPUT_BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    private static final ThreadLocal<Buffers> OUTPUT_BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new InputStreamStreamInput(new LZ4BlockInputStream(in, Buffers.acquire(INPUT_BUFFERS)));
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new OutputStreamStreamOutput(new LZ4BlockOutputStream(out, Buffers.acquire(OUTPUT_BUFFERS)));
+    }
+
+    private static final class Buffers {
+        final byte[] uncompressed = new byte[LZ4.MAX_BLOCK_SIZE];
+        final byte[] compressed = new byte[LZ4.maxCompressedLength(LZ4.MAX_BLOCK_SIZE)];
+        final int[] hashTable = new int[LZ4.HASH_TABLE_SIZE];
+        boolean inUse;
+
+        static Buffers acquire(ThreadLocal<Buffers> threadLocal) {
+            Buffers buffers = threadLocal.get();
+            if (buffers.inUse) {
+                buffers = new Buffers();
+            }
+            buffers.inUse = true;
+            return buffers;
+        }
+
+        void release() {
+            inUse = false;
+        }
+    }
+
+    private static final class LZ4BlockOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final Buffers buffers;
+        private final byte[] header = new byte[8];
+        private int count;
+        private boolean closed;
+
+        LZ4BlockOutputStream(OutputStream out, Buffers buffers) {
+            this.out = out;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (count == buffers.uncompressed.length) {
+                writeBlock();
+            }
+            buffers.uncompressed[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (count == buffers.uncompressed.length) {
+                    writeBlock();
+                }
+                final int toCopy = Math.min(len, buffers.uncompressed.length - count);
+                System.arraycopy(b, off, buffers.uncompressed, count, toCopy);
+                count += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            if (count > 0) {
+                writeBlock();
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                try {
+                    if (count > 0) {
+                        writeBlock();
+                    }
+                    // end of stream marker
+                    writeBlockHeader(0, 0);
+                    out.write(header, 0, header.length);
+                    out.close();
+                } finally {
+                    buffers.release();
+                }
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            final int compressedLength = LZ4.compress(buffers.uncompressed, 0, count, buffers.compressed, 0, buffers.hashTable);
+            if (compressedLength < count) {
+                writeBlockHeader(count, compressedLength);
+                out.write(header, 0, header.length);
+                out.write(buffers.compressed, 0, compressedLength);
+            } else {
+                // store incompressible blocks as is, the reader recognizes them by their equal lengths
+                writeBlockHeader(count, count);
+                out.write(header, 0, header.length);
+                out.write(buffers.uncompressed, 0, count);
+            }
+            count = 0;
+        }
+
+        private void writeBlockHeader(int uncompressedLength, int compressedLength) {
+            writeInt(uncompressedLength, header, 0);
+            writeInt(compressedLength, header, 4);
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is already closed");
+            }
+        }
+    }
+
+    private static final class LZ4BlockInputStream extends InputStream {
+
+        private final InputStream in;
+        private final Buffers buffers;
+        private final byte[] header = new byte[8];
+        private int position;
+        private int limit;
+        private boolean eof;
+        private boolean closed;
+
+        LZ4BlockInputStream(InputStream in, Buffers buffers) {
+            this.in = in;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            return buffers.uncompressed[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, limit - position);
+            System.arraycopy(buffers.uncompressed, position, b, off, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || ensureAvailable() == false) {
+                return 0;
+            }
+            final int toSkip = (int) Math.min(n, limit - position);
+            position += toSkip;
+            return toSkip;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                try {
+                    in.close();
+                } finally {
+                    buffers.release();
+                }
+            }
+        }
+
+        /** returns false if the end of the stream was reached, otherwise makes sure there are buffered bytes to read */
+        private boolean ensureAvailable() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is already closed");
+            }
+            while (position == limit) {
+                if (eof) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            readFully(header, header.length);
+            final int uncompressedLength = readInt(header, 0);
+            final int compressedLength = readInt(header, 4);
+            if (uncompressedLength < 0 || uncompressedLength > LZ4.MAX_BLOCK_SIZE
+                || compressedLength < 0 || compressedLength > uncompressedLength) {
+                throw new IOException("Corrupted LZ4 stream: invalid block lengths [" + uncompressedLength + "], ["
+                    + compressedLength + "]");
+            }
+            position = 0;
+            limit = uncompressedLength;
+            if (uncompressedLength == 0) {
+                eof = true;
+            } else if (compressedLength == uncompressedLength) {
+                readFully(buffers.uncompressed, uncompressedLength);
+            } else {
+                readFully(buffers.compressed, compressedLength);
+                LZ4.decompress(buffers.compressed, 0, compressedLength, buffers.uncompressed, 0, uncompressedLength);
+            }
+        }
+
+        private void readFully(byte[] b, int len) throws IOException {
+            int read = 0;
+            while (read < len) {
+                final int r = in.read(b, read, len - read);
+                if (r == -1) {
+                    throw new EOFException("Unexpected end of LZ4 stream");
+                }
+                read += r;
+            }
+        }
+    }
+
+    private static void writeInt(int value, byte[] bytes, int off) {
+        bytes[off] = (byte) (value >>> 24);
+        bytes[off + 1] = (byte) (value >>> 16);
+        bytes[off + 2] = (byte) (value >>> 8);
+        bytes[off + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int off) {
+        return ((bytes[off] & 0xFF) << 24) | ((bytes[off + 1] & 0xFF) << 16) | ((bytes[off + 2] & 0xFF) << 8) | (bytes[off + 3] & 0xFF);
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.common.io.stream;
 
+import org.elasticsearch.common.bytes.BytesReference;
+
 import java.io.IOException;
 
 /**
@@ -33,6 +35,12 @@ public class NamedWriteableAwareStreamInput extends FilterStreamInput {
         this.namedWriteableRegistry = namedWriteableRegistry;
     }
 
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        // don't copy if the wrapped stream can reference its underlying bytes
+        return delegate.readBytesReference(length);
+    }
+
     @Override
     public <C extends NamedWriteable> C readNamedWriteable(Class<C> categoryClass) throws IOException {
         String name = readString();
@@ -22,6 +22,8 @@ package org.elasticsearch.discovery;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -60,6 +62,12 @@ public class DiscoverySettings extends AbstractComponent {
             Property.Dynamic, Property.NodeScope);
     public static final Setting<Boolean> PUBLISH_DIFF_ENABLE_SETTING =
         Setting.boolSetting("discovery.zen.publish_diff.enable", true, Property.Dynamic, Property.NodeScope);
+    /**
+     * sets the compression scheme of published cluster states and diffs. nodes that can't read the configured scheme
+     * receive cluster states compressed with the default scheme instead
+     */
+    public static final Setting<Compressor> PUBLISH_COMPRESSION_SCHEME_SETTING =
+        CompressorFactory.compressorSetting("discovery.zen.publish.compression_scheme", Property.Dynamic, Property.NodeScope);
     public static final Setting<TimeValue> INITIAL_STATE_TIMEOUT_SETTING =
         Setting.positiveTimeSetting("discovery.initial_state_timeout", TimeValue.timeValueSeconds(30), Property.NodeScope);
 
@@ -68,17 +76,20 @@ public class DiscoverySettings extends AbstractComponent {
 
     private volatile TimeValue commitTimeout;
     private volatile boolean publishDiff;
+    private volatile Compressor publishCompressor;
 
     public DiscoverySettings(Settings settings, ClusterSettings clusterSettings) {
         super(settings);
         clusterSettings.addSettingsUpdateConsumer(NO_MASTER_BLOCK_SETTING, this::setNoMasterBlock);
         clusterSettings.addSettingsUpdateConsumer(PUBLISH_DIFF_ENABLE_SETTING, this::setPublishDiff);
+        clusterSettings.addSettingsUpdateConsumer(PUBLISH_COMPRESSION_SCHEME_SETTING, this::setPublishCompressor);
         clusterSettings.addSettingsUpdateConsumer(COMMIT_TIMEOUT_SETTING, this::setCommitTimeout);
         clusterSettings.addSettingsUpdateConsumer(PUBLISH_TIMEOUT_SETTING, this::setPublishTimeout);
         this.noMasterBlock = NO_MASTER_BLOCK_SETTING.get(settings);
         this.publishTimeout = PUBLISH_TIMEOUT_SETTING.get(settings);
         this.commitTimeout = COMMIT_TIMEOUT_SETTING.get(settings);
         this.publishDiff = PUBLISH_DIFF_ENABLE_SETTING.get(settings);
+        this.publishCompressor = PUBLISH_COMPRESSION_SCHEME_SETTING.get(settings);
     }
 
     /**
@@ -104,6 +115,10 @@ public class DiscoverySettings extends AbstractComponent {
         this.publishDiff = publishDiff;
     }
 
+    private void setPublishCompressor(Compressor publishCompressor) {
+        this.publishCompressor = publishCompressor;
+    }
+
     private void setPublishTimeout(TimeValue publishTimeout) {
         this.publishTimeout = publishTimeout;
     }
@@ -114,6 +129,13 @@ public class DiscoverySettings extends AbstractComponent {
 
     public boolean getPublishDiff() { return publishDiff;}
 
+    /**
+     * Returns the compressor for published cluster states
+     */
+    public Compressor getPublishCompressor() {
+        return publishCompressor;
+    }
+
     private static ClusterBlock parseNoMasterBlock(String value) {
         switch (value) {
             case "all":
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.discovery;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.service.ClusterStateListenerStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -28,23 +30,36 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.discovery.zen.PendingClusterStateStats;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class DiscoveryStats implements Writeable, ToXContent {
 
     @Nullable
     private final PendingClusterStateStats queueStats;
 
-    public DiscoveryStats(PendingClusterStateStats queueStats) {
+    private final List<ClusterStateListenerStats> listenerStats;
+
+    public DiscoveryStats(PendingClusterStateStats queueStats, List<ClusterStateListenerStats> listenerStats) {
         this.queueStats = queueStats;
+        this.listenerStats = listenerStats;
     }
 
     public DiscoveryStats(StreamInput in) throws IOException {
         queueStats = in.readOptionalWriteable(PendingClusterStateStats::new);
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            listenerStats = in.readList(ClusterStateListenerStats::new);
+        } else {
+            listenerStats = Collections.emptyList();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeOptionalWriteable(queueStats);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeList(listenerStats);
+        }
     }
 
     @Override
@@ -53,15 +68,30 @@ public class DiscoveryStats implements Writeable, ToXContent {
         if (queueStats != null ){
             queueStats.toXContent(builder, params);
         }
+        if (listenerStats.isEmpty() == false) {
+            builder.startObject(Fields.CLUSTER_STATE_LISTENERS);
+            for (ClusterStateListenerStats stats : listenerStats) {
+                stats.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
 
     static final class Fields {
         static final String DISCOVERY = "discovery";
+        static final String CLUSTER_STATE_LISTENERS = "cluster_state_listeners";
     }
 
     public PendingClusterStateStats getQueueStats() {
         return queueStats;
     }
+
+    /**
+     * The timings of the cluster state listeners that were registered with a name, sorted by name.
+     */
+    public List<ClusterStateListenerStats> getListenerStats() {
+        return listenerStats;
+    }
 }
@@ -30,17 +30,24 @@ import org.elasticsearch.cluster.Diff;
 import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.discovery.AckClusterStatePublishResponseHandler;
 import org.elasticsearch.discovery.BlockingClusterStatePublishResponseHandler;
 import org.elasticsearch.discovery.Discovery;
@@ -60,6 +67,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -87,6 +95,7 @@ public class PublishClusterStateAction extends AbstractComponent {
     private final NewPendingClusterStateListener newPendingClusterStatelistener;
     private final DiscoverySettings discoverySettings;
     private final ClusterName clusterName;
+    private final BigArrays bigArrays;
     private final PendingClusterStatesQueue pendingStatesQueue;
 
     public PublishClusterStateAction(
@@ -96,7 +105,8 @@ public class PublishClusterStateAction extends AbstractComponent {
             Supplier<ClusterState> clusterStateSupplier,
             NewPendingClusterStateListener listener,
             DiscoverySettings discoverySettings,
-            ClusterName clusterName) {
+            ClusterName clusterName,
+            BigArrays bigArrays) {
         super(settings);
         this.transportService = transportService;
         this.namedWriteableRegistry = namedWriteableRegistry;
@@ -104,6 +114,7 @@ public class PublishClusterStateAction extends AbstractComponent {
         this.newPendingClusterStatelistener = listener;
         this.discoverySettings = discoverySettings;
         this.clusterName = clusterName;
+        this.bigArrays = bigArrays;
         this.pendingStatesQueue = new PendingClusterStatesQueue(logger, settings.getAsInt(SETTINGS_MAX_PENDING_CLUSTER_STATES, 25));
         transportService.registerRequestHandler(SEND_ACTION_NAME, BytesTransportRequest::new, ThreadPool.Names.SAME, false, false,
             new SendClusterStateRequestHandler());
@@ -125,11 +136,21 @@ public class PublishClusterStateAction extends AbstractComponent {
      */
     public void publish(final ClusterChangedEvent clusterChangedEvent, final int minMasterNodes,
                         final Discovery.AckListener ackListener) throws Discovery.FailedToCommitClusterStateException {
+        final SerializedStates serializedStates = new SerializedStates(bigArrays, discoverySettings.getPublishCompressor());
+        try {
+            publish(clusterChangedEvent, minMasterNodes, ackListener, serializedStates);
+        } finally {
+            // nodes that didn't respond yet hold their own reference to the serialized states
+            serializedStates.decRef();
+        }
+    }
+
+    private void publish(final ClusterChangedEvent clusterChangedEvent, final int minMasterNodes,
+                         final Discovery.AckListener ackListener,
+                         final SerializedStates serializedStates) throws Discovery.FailedToCommitClusterStateException {
         final DiscoveryNodes nodes;
         final SendingController sendingController;
         final Set<DiscoveryNode> nodesToPublishTo;
-        final Map<Version, BytesReference> serializedStates;
-        final Map<Version, BytesReference> serializedDiffs;
         final boolean sendFullVersion;
         try {
             nodes = clusterChangedEvent.state().nodes();
@@ -142,15 +163,13 @@ public class PublishClusterStateAction extends AbstractComponent {
                 }
             }
             sendFullVersion = !discoverySettings.getPublishDiff() || clusterChangedEvent.previousState() == null;
-            serializedStates = new HashMap<>();
-            serializedDiffs = new HashMap<>();
 
             // we build these early as a best effort not to commit in the case of error.
             // sadly this is not water tight as it may that a failed diff based publishing to a node
             // will cause a full serialization based on an older version, which may fail after the
             // change has been committed.
             buildDiffAndSerializeStates(clusterChangedEvent.state(), clusterChangedEvent.previousState(),
-                    nodesToPublishTo, sendFullVersion, serializedStates, serializedDiffs);
+                    nodesToPublishTo, sendFullVersion, serializedStates);
 
             final BlockingClusterStatePublishResponseHandler publishResponseHandler =
                 new AckClusterStatePublishResponseHandler(nodesToPublishTo, ackListener);
@@ -161,7 +180,7 @@ public class PublishClusterStateAction extends AbstractComponent {
         }
 
         try {
-            innerPublish(clusterChangedEvent, nodesToPublishTo, sendingController, sendFullVersion, serializedStates, serializedDiffs);
+            innerPublish(clusterChangedEvent, nodesToPublishTo, sendingController, sendFullVersion, serializedStates);
         } catch (Discovery.FailedToCommitClusterStateException t) {
             throw t;
         } catch (Exception e) {
@@ -177,7 +196,7 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private void innerPublish(final ClusterChangedEvent clusterChangedEvent, final Set<DiscoveryNode> nodesToPublishTo,
                               final SendingController sendingController, final boolean sendFullVersion,
-                              final Map<Version, BytesReference> serializedStates, final Map<Version, BytesReference> serializedDiffs) {
+                              final SerializedStates serializedStates) {
 
         final ClusterState clusterState = clusterChangedEvent.state();
         final ClusterState previousState = clusterChangedEvent.previousState();
@@ -192,7 +211,7 @@ public class PublishClusterStateAction extends AbstractComponent {
             if (sendFullVersion || !previousState.nodes().nodeExists(node)) {
                 sendFullClusterState(clusterState, serializedStates, node, publishTimeout, sendingController);
             } else {
-                sendClusterStateDiff(clusterState, serializedDiffs, serializedStates, node, publishTimeout, sendingController);
+                sendClusterStateDiff(clusterState, serializedStates, node, publishTimeout, sendingController);
             }
         }
 
@@ -217,24 +236,19 @@ public class PublishClusterStateAction extends AbstractComponent {
     }
 
     private void buildDiffAndSerializeStates(ClusterState clusterState, ClusterState previousState, Set<DiscoveryNode> nodesToPublishTo,
-                                             boolean sendFullVersion, Map<Version, BytesReference> serializedStates,
-                                             Map<Version, BytesReference> serializedDiffs) {
+                                             boolean sendFullVersion, SerializedStates serializedStates) {
         Diff<ClusterState> diff = null;
         for (final DiscoveryNode node : nodesToPublishTo) {
             try {
                 if (sendFullVersion || !previousState.nodes().nodeExists(node)) {
                     // will send a full reference
-                    if (serializedStates.containsKey(node.getVersion()) == false) {
-                        serializedStates.put(node.getVersion(), serializeFullClusterState(clusterState, node.getVersion()));
-                    }
+                    serializedStates.getOrSerializeFullState(clusterState, node.getVersion());
                 } else {
                     // will send a diff
                     if (diff == null) {
                         diff = clusterState.diff(previousState);
                     }
-                    if (serializedDiffs.containsKey(node.getVersion()) == false) {
-                        serializedDiffs.put(node.getVersion(), serializeDiffClusterState(diff, node.getVersion()));
-                    }
+                    serializedStates.getOrSerializeDiff(diff, node.getVersion());
                 }
             } catch (IOException e) {
                 throw new ElasticsearchException("failed to serialize cluster_state for publishing to node {}", e, node);
@@ -242,28 +256,24 @@ public class PublishClusterStateAction extends AbstractComponent {
         }
     }
 
-    private void sendFullClusterState(ClusterState clusterState, Map<Version, BytesReference> serializedStates,
+    private void sendFullClusterState(ClusterState clusterState, SerializedStates serializedStates,
                                       DiscoveryNode node, TimeValue publishTimeout, SendingController sendingController) {
-        BytesReference bytes = serializedStates.get(node.getVersion());
-        if (bytes == null) {
-            try {
-                bytes = serializeFullClusterState(clusterState, node.getVersion());
-                serializedStates.put(node.getVersion(), bytes);
-            } catch (Exception e) {
-                logger.warn(
-                    (org.apache.logging.log4j.util.Supplier<?>) () ->
-                        new ParameterizedMessage("failed to serialize cluster_state before publishing it to node {}", node), e);
-                sendingController.onNodeSendFailed(node, e);
-                return;
-            }
+        final BytesReference bytes;
+        try {
+            bytes = serializedStates.getOrSerializeFullState(clusterState, node.getVersion());
+        } catch (Exception e) {
+            logger.warn(
+                (org.apache.logging.log4j.util.Supplier<?>) () ->
+                    new ParameterizedMessage("failed to serialize cluster_state before publishing it to node {}", node), e);
+            sendingController.onNodeSendFailed(node, e);
+            return;
         }
         sendClusterStateToNode(clusterState, bytes, node, publishTimeout, sendingController, false, serializedStates);
     }
 
-    private void sendClusterStateDiff(ClusterState clusterState,
-                                      Map<Version, BytesReference> serializedDiffs, Map<Version, BytesReference> serializedStates,
+    private void sendClusterStateDiff(ClusterState clusterState, SerializedStates serializedStates,
                                       DiscoveryNode node, TimeValue publishTimeout, SendingController sendingController) {
-        BytesReference bytes = serializedDiffs.get(node.getVersion());
+        BytesReference bytes = serializedStates.getDiff(node.getVersion());
         assert bytes != null : "failed to find serialized diff for node " + node + " of version [" + node.getVersion() + "]";
         sendClusterStateToNode(clusterState, bytes, node, publishTimeout, sendingController, true, serializedStates);
     }
@@ -272,7 +282,10 @@ public class PublishClusterStateAction extends AbstractComponent {
                                         final DiscoveryNode node,
                                         final TimeValue publishTimeout,
                                         final SendingController sendingController,
-                                        final boolean sendDiffs, final Map<Version, BytesReference> serializedStates) {
+                                        final boolean sendDiffs, final SerializedStates serializedStates) {
+        // the bytes are sent without being copied, keep them around until the node responded
+        serializedStates.incRef();
+        final Releasable releaseSerializedStates = Releasables.releaseOnce(serializedStates::decRef);
         try {
 
             // -> no need to put a timeout on the options here, because we want the response to eventually be received
@@ -287,6 +300,7 @@ public class PublishClusterStateAction extends AbstractComponent {
 
                         @Override
                         public void handleResponse(TransportResponse.Empty response) {
+                            releaseSerializedStates.close();
                             if (sendingController.getPublishingTimedOut()) {
                                 logger.debug("node {} responded for cluster state [{}] (took longer than [{}])", node,
                                     clusterState.version(), publishTimeout);
@@ -296,17 +310,24 @@ public class PublishClusterStateAction extends AbstractComponent {
 
                         @Override
                         public void handleException(TransportException exp) {
-                            if (sendDiffs && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
-                                logger.debug("resending full cluster state to node {} reason {}", node, exp.getDetailedMessage());
-                                sendFullClusterState(clusterState, serializedStates, node, publishTimeout, sendingController);
-                            } else {
-                                logger.debug((org.apache.logging.log4j.util.Supplier<?>) () ->
-                                    new ParameterizedMessage("failed to send cluster state to {}", node), exp);
-                                sendingController.onNodeSendFailed(node, exp);
+                            try {
+                                if (sendDiffs && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                                    logger.debug("resending full cluster state to node {} reason {}", node, exp.getDetailedMessage());
+                                    sendFullClusterState(clusterState, serializedStates, node, publishTimeout, sendingController);
+                                } else {
+                                    logger.debug((org.apache.logging.log4j.util.Supplier<?>) () ->
+                                        new ParameterizedMessage("failed to send cluster state to {}", node), exp);
+                                    sendingController.onNodeSendFailed(node, exp);
+                                }
+                            } finally {
+                                // released after resending so the serialized full state can't go away in between
+                                releaseSerializedStates.close();
                             }
                         }
                     });
         } catch (Exception e) {
+            // the request was not sent and the handler won't be notified
+            releaseSerializedStates.close();
             logger.warn(
                 (org.apache.logging.log4j.util.Supplier<?>) () ->
                     new ParameterizedMessage("error sending cluster state to {}", node), e);
@@ -352,23 +373,120 @@ public class PublishClusterStateAction extends AbstractComponent {
 
 
     public static BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion) throws IOException {
+        return serializeFullClusterState(clusterState, nodeVersion, CompressorFactory.COMPRESSOR);
+    }
+
+    /**
+     * Serializes the full cluster state with the given compressor, falling back to the default compressor if the
+     * node on the given version can't read it.
+     */
+    public static BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion,
+                                                           Compressor compressor) throws IOException {
         BytesStreamOutput bStream = new BytesStreamOutput();
-        try (StreamOutput stream = CompressorFactory.COMPRESSOR.streamOutput(bStream)) {
+        writeFullClusterState(clusterState, nodeVersion, compressor, bStream);
+        return bStream.bytes();
+    }
+
+    private static void writeFullClusterState(ClusterState clusterState, Version nodeVersion, Compressor compressor,
+                                              BytesStreamOutput bStream) throws IOException {
+        try (StreamOutput stream = CompressorFactory.compressor(compressor, nodeVersion).streamOutput(bStream)) {
             stream.setVersion(nodeVersion);
             stream.writeBoolean(true);
             clusterState.writeTo(stream);
         }
-        return bStream.bytes();
     }
 
     public static BytesReference serializeDiffClusterState(Diff diff, Version nodeVersion) throws IOException {
+        return serializeDiffClusterState(diff, nodeVersion, CompressorFactory.COMPRESSOR);
+    }
+
+    /**
+     * Serializes the cluster state diff with the given compressor, falling back to the default compressor if the
+     * node on the given version can't read it.
+     */
+    public static BytesReference serializeDiffClusterState(Diff diff, Version nodeVersion, Compressor compressor) throws IOException {
         BytesStreamOutput bStream = new BytesStreamOutput();
-        try (StreamOutput stream = CompressorFactory.COMPRESSOR.streamOutput(bStream)) {
+        writeDiffClusterState(diff, nodeVersion, compressor, bStream);
+        return bStream.bytes();
+    }
+
+    private static void writeDiffClusterState(Diff diff, Version nodeVersion, Compressor compressor,
+                                              BytesStreamOutput bStream) throws IOException {
+        try (StreamOutput stream = CompressorFactory.compressor(compressor, nodeVersion).streamOutput(bStream)) {
             stream.setVersion(nodeVersion);
             stream.writeBoolean(false);
             diff.writeTo(stream);
         }
-        return bStream.bytes();
+    }
+
+    /**
+     * The cluster states and diffs that are serialized for a single publication, one per node version. They are written to pages
+     * that are recycled through {@link BigArrays} instead of a new set of arrays per publication. The pages are sent to the nodes
+     * without being copied, every in flight send request holds a reference and the pages are released once the publication
+     * is done and all nodes responded.
+     */
+    static final class SerializedStates extends AbstractRefCounted {
+
+        private final BigArrays bigArrays;
+        private final Compressor compressor;
+        private final Map<Version, BytesReference> fullStates = new HashMap<>();
+        private final Map<Version, BytesReference> diffs = new HashMap<>();
+        private final List<Releasable> toRelease = new ArrayList<>();
+
+        SerializedStates(BigArrays bigArrays, Compressor compressor) {
+            super("serialized_cluster_states");
+            this.bigArrays = bigArrays;
+            this.compressor = compressor;
+        }
+
+        synchronized BytesReference getOrSerializeFullState(ClusterState clusterState, Version nodeVersion) throws IOException {
+            assert refCount() > 0 : "serialized states are already released";
+            BytesReference bytes = fullStates.get(nodeVersion);
+            if (bytes == null) {
+                final ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
+                bytes = track(bStream, () -> writeFullClusterState(clusterState, nodeVersion, compressor, bStream));
+                fullStates.put(nodeVersion, bytes);
+            }
+            return bytes;
+        }
+
+        synchronized BytesReference getOrSerializeDiff(Diff<ClusterState> diff, Version nodeVersion) throws IOException {
+            assert refCount() > 0 : "serialized states are already released";
+            BytesReference bytes = diffs.get(nodeVersion);
+            if (bytes == null) {
+                final ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
+                bytes = track(bStream, () -> writeDiffClusterState(diff, nodeVersion, compressor, bStream));
+                diffs.put(nodeVersion, bytes);
+            }
+            return bytes;
+        }
+
+        synchronized BytesReference getDiff(Version nodeVersion) {
+            return diffs.get(nodeVersion);
+        }
+
+        private BytesReference track(ReleasableBytesStreamOutput bStream, CheckedRunnable<IOException> writer) throws IOException {
+            boolean success = false;
+            try {
+                writer.run();
+                success = true;
+            } finally {
+                if (success == false) {
+                    bStream.bytes().close();
+                }
+            }
+            final ReleasablePagedBytesReference bytes = bStream.bytes();
+            toRelease.add(bytes);
+            return bytes;
+        }
+
+        @Override
+        protected synchronized void closeInternal() {
+            fullStates.clear();
+            diffs.clear();
+            Releasables.close(toRelease);
+            toRelease.clear();
+        }
     }
 
     private Object lastSeenClusterStateMutex = new Object();
@@ -51,6 +51,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.discovery.DiscoverySettings;
@@ -144,6 +145,16 @@ public class ZenDiscovery extends AbstractLifecycleComponent implements Discover
     public ZenDiscovery(Settings settings, ThreadPool threadPool, TransportService transportService,
                         NamedWriteableRegistry namedWriteableRegistry,
                         ClusterService clusterService, UnicastHostsProvider hostsProvider) {
+        this(settings, threadPool, transportService, namedWriteableRegistry, clusterService, hostsProvider,
+            BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    /**
+     * Creates a zen discovery that serializes the cluster states it publishes to pages recycled through the given big arrays.
+     */
+    public ZenDiscovery(Settings settings, ThreadPool threadPool, TransportService transportService,
+                        NamedWriteableRegistry namedWriteableRegistry,
+                        ClusterService clusterService, UnicastHostsProvider hostsProvider, BigArrays bigArrays) {
         super(settings);
         this.clusterService = clusterService;
         this.clusterName = clusterService.getClusterName();
@@ -200,7 +211,8 @@ public class ZenDiscovery extends AbstractLifecycleComponent implements Discover
                         clusterService::state,
                         new NewPendingClusterStateListener(),
                         discoverySettings,
-                        clusterService.getClusterName());
+                        clusterService.getClusterName(),
+                        bigArrays);
         this.membership = new MembershipAction(settings, transportService, new MembershipListener());
         this.joinThreadControl = new JoinThreadControl();
 
@@ -343,7 +355,7 @@ public class ZenDiscovery extends AbstractLifecycleComponent implements Discover
     @Override
     public DiscoveryStats stats() {
         PendingClusterStateStats queueStats = publishClusterState.pendingStatesQueue().stats();
-        return new DiscoveryStats(queueStats);
+        return new DiscoveryStats(queueStats, clusterService.listenerStats());
     }
 
     @Override
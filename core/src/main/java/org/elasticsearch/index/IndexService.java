@@ -62,6 +62,7 @@ import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogSyncScheduler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
@@ -105,6 +106,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     private final EngineFactory engineFactory;
     private final IndexWarmer warmer;
     private final Consumer<ShardId> globalCheckpointSyncer;
+    @Nullable
+    private final TranslogSyncScheduler translogSyncScheduler;
     private volatile Map<Integer, IndexShard> shards = emptyMap();
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final AtomicBoolean deleted = new AtomicBoolean(false);
@@ -139,11 +142,13 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                         MapperRegistry mapperRegistry,
                         IndicesFieldDataCache indicesFieldDataCache,
                         Consumer<ShardId> globalCheckpointSyncer,
+                        @Nullable TranslogSyncScheduler translogSyncScheduler,
                         List<SearchOperationListener> searchOperationListeners,
                         List<IndexingOperationListener> indexingOperationListeners) throws IOException {
         super(indexSettings);
         this.indexSettings = indexSettings;
         this.globalCheckpointSyncer = globalCheckpointSyncer;
+        this.translogSyncScheduler = translogSyncScheduler;
         this.xContentRegistry = xContentRegistry;
         this.similarityService = similarityService;
         this.mapperService = new MapperService(indexSettings, registry.build(indexSettings), xContentRegistry, similarityService,
@@ -352,7 +357,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                     new StoreCloseListener(shardId, () -> eventListener.onStoreClosed(shardId)));
             indexShard = new IndexShard(routing, this.indexSettings, path, store, indexCache, mapperService, similarityService,
                     indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays, engineWarmer,
-                    () -> globalCheckpointSyncer.accept(shardId),
+                    () -> globalCheckpointSyncer.accept(shardId), translogSyncScheduler,
                     searchOperationListeners, indexingOperationListeners);
             eventListener.indexShardStateChanged(indexShard, null, indexShard.state(), "shard created");
             eventListener.afterIndexShardCreated(indexShard);
@@ -90,6 +90,12 @@ public final class IndexSettings {
      */
     public static final Setting<Integer> MAX_RESULT_WINDOW_SETTING =
         Setting.intSetting("index.max_result_window", 10000, 1, Property.Dynamic, Property.IndexScope);
+    /**
+     * Index setting to search the segments of a shard concurrently on the search worker thread pool. This can be
+     * overridden per request. Requests that can't be searched concurrently fall back to a sequential search.
+     */
+    public static final Setting<Boolean> INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("index.search.concurrent_segment_search", false, Property.Dynamic, Property.IndexScope);
     /**
      * Index setting describing the maximum size of the rescore window. Defaults to {@link #MAX_RESULT_WINDOW_SETTING}
      * because they both do the same thing: control the size of the heap of hits.
@@ -130,6 +136,28 @@ public final class IndexSettings {
                     new ByteSizeValue(Long.MAX_VALUE, ByteSizeUnit.BYTES),
                     new Property[]{Property.Dynamic, Property.IndexScope});
 
+    /**
+     * The maximum total size of translog generations that are kept around after they have been committed to Lucene. Retained
+     * generations allow a recovering replica to catch up by replaying operations instead of copying segment files.
+     */
+    public static final Setting<ByteSizeValue> INDEX_TRANSLOG_RETENTION_SIZE_SETTING =
+        Setting.byteSizeSetting("index.translog.retention.size", new ByteSizeValue(512, ByteSizeUnit.MB), Property.Dynamic,
+            Property.IndexScope);
+
+    /**
+     * The maximum age of translog generations that are kept around after they have been committed to Lucene.
+     */
+    public static final Setting<TimeValue> INDEX_TRANSLOG_RETENTION_AGE_SETTING =
+        Setting.timeSetting("index.translog.retention.age", TimeValue.timeValueHours(12), TimeValue.timeValueMillis(0),
+            Property.Dynamic, Property.IndexScope);
+
+    /**
+     * Whether snapshots read the operations of immutable translog generations through a memory mapping of the generation's file
+     * instead of copying them through a heap buffer.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_MMAP_READS_SETTING =
+        Setting.boolSetting("index.translog.mmap_reads", false, Property.Dynamic, Property.IndexScope);
+
     public static final Setting<TimeValue> INDEX_SEQ_NO_CHECKPOINT_SYNC_INTERVAL =
         Setting.timeSetting("index.seq_no.checkpoint_sync_interval", new TimeValue(30, TimeUnit.SECONDS),
             new TimeValue(-1, TimeUnit.MILLISECONDS), Property.Dynamic, Property.IndexScope);
@@ -174,14 +202,19 @@ public final class IndexSettings {
     private final TimeValue globalCheckpointInterval;
     private volatile ByteSizeValue flushThresholdSize;
     private volatile ByteSizeValue generationThresholdSize;
+    private volatile ByteSizeValue translogRetentionSize;
+    private volatile TimeValue translogRetentionAge;
+    private volatile boolean translogMMapReads;
     private final MergeSchedulerConfig mergeSchedulerConfig;
     private final MergePolicyConfig mergePolicyConfig;
+    private final IndexSortConfig indexSortConfig;
     private final IndexScopedSettings scopedSettings;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private volatile boolean warmerEnabled;
     private volatile int maxResultWindow;
     private volatile int maxAdjacencyMatrixFilters;
     private volatile int maxRescoreWindow;
+    private volatile boolean concurrentSegmentSearch;
     private volatile boolean TTLPurgeDisabled;
     /**
      * The maximum number of refresh listeners allows on this shard.
@@ -268,16 +301,21 @@ public final class IndexSettings {
         globalCheckpointInterval = scopedSettings.get(INDEX_SEQ_NO_CHECKPOINT_SYNC_INTERVAL);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         generationThresholdSize = scopedSettings.get(INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING);
+        translogRetentionSize = scopedSettings.get(INDEX_TRANSLOG_RETENTION_SIZE_SETTING);
+        translogRetentionAge = scopedSettings.get(INDEX_TRANSLOG_RETENTION_AGE_SETTING);
+        translogMMapReads = scopedSettings.get(INDEX_TRANSLOG_MMAP_READS_SETTING);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
         gcDeletesInMillis = scopedSettings.get(INDEX_GC_DELETES_SETTING).getMillis();
         warmerEnabled = scopedSettings.get(INDEX_WARMER_ENABLED_SETTING);
         maxResultWindow = scopedSettings.get(MAX_RESULT_WINDOW_SETTING);
         maxAdjacencyMatrixFilters = scopedSettings.get(MAX_ADJACENCY_MATRIX_FILTERS_SETTING);
         maxRescoreWindow = scopedSettings.get(MAX_RESCORE_WINDOW_SETTING);
+        concurrentSegmentSearch = scopedSettings.get(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING);
         TTLPurgeDisabled = scopedSettings.get(INDEX_TTL_DISABLE_PURGE_SETTING);
         maxRefreshListeners = scopedSettings.get(MAX_REFRESH_LISTENERS_PER_SHARD);
         maxSlicesPerScroll = scopedSettings.get(MAX_SLICES_PER_SCROLL);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
+        this.indexSortConfig = new IndexSortConfig(this);
 
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING, mergePolicyConfig::setNoCFSRatio);
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_MERGE_POLICY_EXPUNGE_DELETES_ALLOWED_SETTING, mergePolicyConfig::setExpungeDeletesAllowed);
@@ -296,12 +334,16 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
         scopedSettings.addSettingsUpdateConsumer(MAX_ADJACENCY_MATRIX_FILTERS_SETTING, this::setMaxAdjacencyMatrixFilters);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESCORE_WINDOW_SETTING, this::setMaxRescoreWindow);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
         scopedSettings.addSettingsUpdateConsumer(INDEX_WARMER_ENABLED_SETTING, this::setEnableWarmer);
         scopedSettings.addSettingsUpdateConsumer(INDEX_GC_DELETES_SETTING, this::setGCDeletes);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING, this::setTranslogFlushThresholdSize);
         scopedSettings.addSettingsUpdateConsumer(
                 INDEX_TRANSLOG_GENERATION_THRESHOLD_SIZE_SETTING,
                 this::setGenerationThresholdSize);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_SIZE_SETTING, this::setTranslogRetentionSize);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RETENTION_AGE_SETTING, this::setTranslogRetentionAge);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_MMAP_READS_SETTING, this::setTranslogMMapReads);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
         scopedSettings.addSettingsUpdateConsumer(MAX_REFRESH_LISTENERS_PER_SHARD, this::setMaxRefreshListeners);
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
@@ -315,6 +357,18 @@ public final class IndexSettings {
         this.generationThresholdSize = generationThresholdSize;
     }
 
+    private void setTranslogRetentionSize(ByteSizeValue byteSizeValue) {
+        this.translogRetentionSize = byteSizeValue;
+    }
+
+    private void setTranslogRetentionAge(TimeValue age) {
+        this.translogRetentionAge = age;
+    }
+
+    private void setTranslogMMapReads(boolean translogMMapReads) {
+        this.translogMMapReads = translogMMapReads;
+    }
+
     private void setGCDeletes(TimeValue timeValue) {
         this.gcDeletesInMillis = timeValue.getMillis();
     }
@@ -484,11 +538,37 @@ public final class IndexSettings {
         return generationThresholdSize;
     }
 
+    /**
+     * Returns the maximum total size of committed translog generations that are retained for operations-based recoveries.
+     */
+    public ByteSizeValue getTranslogRetentionSize() {
+        return translogRetentionSize;
+    }
+
+    /**
+     * Returns the maximum age of committed translog generations that are retained for operations-based recoveries.
+     */
+    public TimeValue getTranslogRetentionAge() {
+        return translogRetentionAge;
+    }
+
+    /**
+     * Returns <code>true</code> if immutable translog generations should be read through a memory mapping.
+     */
+    public boolean isTranslogMMapReads() {
+        return translogMMapReads;
+    }
+
     /**
      * Returns the {@link MergeSchedulerConfig}
      */
     public MergeSchedulerConfig getMergeSchedulerConfig() { return mergeSchedulerConfig; }
 
+    /**
+     * Returns the {@link IndexSortConfig} that defines the sort order of the segments of this index
+     */
+    public IndexSortConfig getIndexSortConfig() { return indexSortConfig; }
+
     /**
      * Returns the max result window for search requests, describing the maximum value of from + size on a query.
      */
@@ -511,6 +591,17 @@ public final class IndexSettings {
         this.maxAdjacencyMatrixFilters = maxAdjacencyFilters;
     }    
 
+    /**
+     * Returns <code>true</code> if the segments of a shard should be searched concurrently by default.
+     */
+    public boolean isConcurrentSegmentSearch() {
+        return concurrentSegmentSearch;
+    }
+
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
     /**
      * Returns the maximum rescore window for search requests.
      */
@@ -387,10 +387,16 @@ public abstract class Engine implements Closeable {
     public static class IndexResult extends Result {
 
         private final boolean created;
+        private final boolean appendOnly;
 
         public IndexResult(long version, long seqNo, boolean created) {
+            this(version, seqNo, created, false);
+        }
+
+        public IndexResult(long version, long seqNo, boolean created, boolean appendOnly) {
             super(Operation.TYPE.INDEX, version, seqNo);
             this.created = created;
+            this.appendOnly = appendOnly;
         }
 
         /**
@@ -404,12 +410,21 @@ public abstract class Engine implements Closeable {
         public IndexResult(Exception failure, long version, long seqNo) {
             super(Operation.TYPE.INDEX, failure, version, seqNo);
             this.created = false;
+            this.appendOnly = false;
         }
 
         public boolean isCreated() {
             return created;
         }
 
+        /**
+         * Returns <code>true</code> if the document was added without looking up previous versions, since it has an auto-generated id
+         * and can't have been indexed before.
+         */
+        public boolean isAppendOnly() {
+            return appendOnly;
+        }
+
     }
 
     public static class DeleteResult extends Result {
@@ -25,6 +25,7 @@ import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Nullable;
@@ -69,6 +70,8 @@ public final class EngineConfig {
     private final long maxUnsafeAutoIdTimestamp;
     @Nullable
     private final ReferenceManager.RefreshListener refreshListeners;
+    @Nullable
+    private final Sort indexSort;
 
     /**
      * Index setting to change the low level lucene codec used for writing new segments.
@@ -101,8 +104,17 @@ public final class EngineConfig {
     public static final Setting<Boolean> INDEX_OPTIMIZE_AUTO_GENERATED_IDS = Setting.boolSetting("index.optimize_auto_generated_id", true,
         Property.IndexScope, Property.Dynamic);
 
+    /**
+     * Configures the engine to keep the versions of documents that were written since the last refresh in paged arrays rather than in
+     * on-heap maps, which reduces the garbage that update heavy workloads create. This setting is only read when the engine is opened.
+     * The default is <code>false</code>
+     */
+    public static final Setting<Boolean> INDEX_PAGED_VERSION_MAP_SETTING = Setting.boolSetting("index.engine.paged_version_map", false,
+        Property.IndexScope);
+
     private final TranslogConfig translogConfig;
     private final OpenMode openMode;
+    private final boolean pagedVersionMap;
 
     /**
      * Creates a new {@link org.elasticsearch.index.engine.EngineConfig}
@@ -113,7 +125,7 @@ public final class EngineConfig {
                         Similarity similarity, CodecService codecService, Engine.EventListener eventListener,
                         TranslogRecoveryPerformer translogRecoveryPerformer, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                         TranslogConfig translogConfig, TimeValue flushMergesAfter, ReferenceManager.RefreshListener refreshListeners,
-                        long maxUnsafeAutoIdTimestamp) {
+                        @Nullable Sort indexSort, long maxUnsafeAutoIdTimestamp) {
         if (openMode == null) {
             throw new IllegalArgumentException("openMode must not be null");
         }
@@ -129,6 +141,7 @@ public final class EngineConfig {
         this.codecService = codecService;
         this.eventListener = eventListener;
         codecName = indexSettings.getValue(INDEX_CODEC_SETTING);
+        pagedVersionMap = indexSettings.getValue(INDEX_PAGED_VERSION_MAP_SETTING);
         // We give IndexWriter a "huge" (256 MB) buffer, so it won't flush on its own unless the ES indexing buffer is also huge and/or
         // there are not too many shards allocated to this node.  Instead, IndexingMemoryController periodically checks
         // and refreshes the most heap-consuming shards when total indexing heap usage across all shards is too high:
@@ -140,6 +153,7 @@ public final class EngineConfig {
         this.flushMergesAfter = flushMergesAfter;
         this.openMode = openMode;
         this.refreshListeners = refreshListeners;
+        this.indexSort = indexSort;
         assert maxUnsafeAutoIdTimestamp >= IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP :
             "maxUnsafeAutoIdTimestamp must be >= -1 but was " + maxUnsafeAutoIdTimestamp;
         this.maxUnsafeAutoIdTimestamp = maxUnsafeAutoIdTimestamp;
@@ -186,6 +200,14 @@ public final class EngineConfig {
         return codecService.codec(codecName);
     }
 
+    /**
+     * Returns <code>true</code> iff the engine should keep its live version map in paged arrays, see
+     * {@link #INDEX_PAGED_VERSION_MAP_SETTING}.
+     */
+    public boolean isPagedVersionMap() {
+        return pagedVersionMap;
+    }
+
     /**
      * Returns a thread-pool mainly used to get estimated time stamps from
      * {@link org.elasticsearch.threadpool.ThreadPool#relativeTimeInMillis()} and to schedule
@@ -335,4 +357,11 @@ public final class EngineConfig {
     public long getMaxUnsafeAutoIdTimestamp() {
         return indexSettings.getValue(INDEX_OPTIMIZE_AUTO_GENERATED_IDS) ? maxUnsafeAutoIdTimestamp : Long.MAX_VALUE;
     }
+
+    /**
+     * Return the sort order of this index, or null if the index has no sort.
+     */
+    public Sort getIndexSort() {
+        return indexSort;
+    }
 }
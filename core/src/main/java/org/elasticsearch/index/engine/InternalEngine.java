@@ -140,7 +140,11 @@ public class InternalEngine extends Engine {
         } else {
             maxUnsafeAutoIdTimestamp.set(engineConfig.getMaxUnsafeAutoIdTimestamp());
         }
-        this.versionMap = new LiveVersionMap();
+        if (engineConfig.isPagedVersionMap()) {
+            this.versionMap = new PagedLiveVersionMap(engineConfig.getTranslogConfig().getBigArrays());
+        } else {
+            this.versionMap = new LiveVersionMap();
+        }
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -384,7 +388,7 @@ public class InternalEngine extends Engine {
         try (ReleasableLock ignored = readLock.acquire()) {
             ensureOpen();
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.getUnderLock(get.uid());
+                VersionValue versionValue = getVersionFromMap(get.uid());
                 if (versionValue != null) {
                     if (versionValue.isDelete()) {
                         return GetResult.NOT_EXISTS;
@@ -419,7 +423,7 @@ public class InternalEngine extends Engine {
     /** resolves the current version of the document, returning null if not found */
     private VersionValue resolveDocVersion(final Operation op) throws IOException {
         assert incrementVersionLookup(); // used for asserting in tests
-        VersionValue versionValue = versionMap.getUnderLock(op.uid());
+        VersionValue versionValue = getVersionFromMap(op.uid());
         if (versionValue == null) {
             assert incrementIndexVersionLookup(); // used for asserting in tests
             final long currentVersion = loadCurrentVersionFromIndex(op.uid());
@@ -434,6 +438,25 @@ public class InternalEngine extends Engine {
         return versionValue;
     }
 
+    /**
+     * Returns the live version of the document from the version map. Append-only operations skip the version map as long as nobody
+     * looks up versions, so the first lookup after such operations refreshes to make them visible and switches the version map to
+     * safe access, where all operations are added to it.
+     */
+    private VersionValue getVersionFromMap(Term uid) {
+        versionMap.enforceSafeAccess();
+        if (versionMap.isUnsafe()) {
+            synchronized (versionMap) {
+                // concurrent lookups may race to get here, only the first one needs to refresh. We may hold a uid lock, so we must not
+                // prune tombstones here:
+                if (versionMap.isUnsafe()) {
+                    refreshSearcher("unsafe_version_map");
+                }
+            }
+        }
+        return versionMap.getUnderLock(uid);
+    }
+
     private OpVsLuceneDocStatus compareOpToLuceneDocBasedOnVersions(final Operation op)
         throws IOException {
         assert op.version() >= 0 : "versions should be non-negative. got " + op.version();
@@ -671,9 +694,14 @@ public class InternalEngine extends Engine {
                 assert assertDocDoesNotExist(index, canOptimizeAddDocument(index) == false);
                 index(index.docs(), indexWriter);
             }
-            versionMap.putUnderLock(index.uid().bytes(), new VersionValue(plan.versionForIndexing));
+            if (plan.appendOnly) {
+                // the document can't have a previous version, so we only need to track it if somebody looks up versions
+                versionMap.maybePutUnderLock(index.uid().bytes(), new VersionValue(plan.versionForIndexing));
+            } else {
+                versionMap.putUnderLock(index.uid().bytes(), new VersionValue(plan.versionForIndexing));
+            }
             return new IndexResult(plan.versionForIndexing, plan.seqNoForIndexing,
-                plan.currentNotFoundOrDeleted);
+                plan.currentNotFoundOrDeleted, plan.appendOnly);
         } catch (Exception ex) {
             if (indexWriter.getTragicException() == null) {
                 /* There is no tragic event recorded so this must be a document failure.
@@ -737,11 +765,21 @@ public class InternalEngine extends Engine {
         final long seqNoForIndexing;
         final long versionForIndexing;
         final boolean indexIntoLucene;
+        final boolean appendOnly;
         final Optional<IndexResult> earlyResultOnPreFlightError;
 
         private IndexingStrategy(boolean currentNotFoundOrDeleted, boolean useLuceneUpdateDocument,
                                  boolean indexIntoLucene, long seqNoForIndexing,
                                  long versionForIndexing, IndexResult earlyResultOnPreFlightError) {
+            this(currentNotFoundOrDeleted, useLuceneUpdateDocument, indexIntoLucene, false, seqNoForIndexing, versionForIndexing,
+                earlyResultOnPreFlightError);
+        }
+
+        private IndexingStrategy(boolean currentNotFoundOrDeleted, boolean useLuceneUpdateDocument,
+                                 boolean indexIntoLucene, boolean appendOnly, long seqNoForIndexing,
+                                 long versionForIndexing, IndexResult earlyResultOnPreFlightError) {
+            assert appendOnly == false || (indexIntoLucene && useLuceneUpdateDocument == false) :
+                "append only operations must be added to lucene without updating existing documents";
             assert useLuceneUpdateDocument == false || indexIntoLucene :
                 "use lucene update is set to true, but we're not indexing into lucene";
             assert (indexIntoLucene && earlyResultOnPreFlightError != null) == false :
@@ -753,13 +791,14 @@ public class InternalEngine extends Engine {
             this.seqNoForIndexing = seqNoForIndexing;
             this.versionForIndexing = versionForIndexing;
             this.indexIntoLucene = indexIntoLucene;
+            this.appendOnly = appendOnly;
             this.earlyResultOnPreFlightError =
                 earlyResultOnPreFlightError == null ? Optional.empty() :
                     Optional.of(earlyResultOnPreFlightError);
         }
 
         static IndexingStrategy optimizedAppendOnly(long seqNoForIndexing) {
-            return new IndexingStrategy(true, false, true, seqNoForIndexing, 1, null);
+            return new IndexingStrategy(true, false, true, true, seqNoForIndexing, 1, null);
         }
 
         static IndexingStrategy skipDueToVersionConflict(VersionConflictEngineException e,
@@ -1022,6 +1061,17 @@ public class InternalEngine extends Engine {
 
     @Override
     public void refresh(String source) throws EngineException {
+        refreshSearcher(source);
+
+        // TODO: maybe we should just put a scheduled job in threadPool?
+        // We check for pruning in each delete request, but we also prune here e.g. in case a delete burst comes in and then no more deletes
+        // for a long time:
+        maybePruneDeletedTombstones();
+        versionMapRefreshPending.set(false);
+        mergeScheduler.refreshConfig();
+    }
+
+    private void refreshSearcher(String source) throws EngineException {
         // we obtain a read lock here, since we don't want a flush to happen while we are refreshing
         // since it flushes the index as well (though, in terms of concurrency, we are allowed to do it)
         try (ReleasableLock lock = readLock.acquire()) {
@@ -1038,13 +1088,6 @@ public class InternalEngine extends Engine {
             }
             throw new RefreshFailedEngineException(shardId, e);
         }
-
-        // TODO: maybe we should just put a scheduled job in threadPool?
-        // We check for pruning in each delete request, but we also prune here e.g. in case a delete burst comes in and then no more deletes
-        // for a long time:
-        maybePruneDeletedTombstones();
-        versionMapRefreshPending.set(false);
-        mergeScheduler.refreshConfig();
     }
 
     @Override
@@ -1531,6 +1574,9 @@ public class InternalEngine extends Engine {
         iwc.setRAMBufferSizeMB(engineConfig.getIndexingBufferSize().getMbFrac());
         iwc.setCodec(engineConfig.getCodec());
         iwc.setUseCompoundFile(true); // always use compound on flush - reduces # of file-handles on refresh
+        if (config().getIndexSort() != null) {
+            iwc.setIndexSort(config().getIndexSort());
+        }
         return iwc;
     }
 
@@ -1803,6 +1849,10 @@ public class InternalEngine extends Engine {
         return indexWriter.hasDeletions();
     }
 
+    LiveVersionMap getVersionMap() { // for testing
+        return versionMap;
+    }
+
     @Override
     public boolean isRecovering() {
         return pendingTranslogRecovery.get();
@@ -59,6 +59,43 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     private volatile Maps maps = new Maps();
 
+    /**
+     * Tracks whether append-only operations may skip the map. Skipping is only safe as long as nobody looks up versions, so the first
+     * lookup requires safe access and makes all operations go through the map until the next refresh after it. Operations that skipped
+     * the map mark it as unsafe, and a lookup on an unsafe map has to refresh first to see them. There is one instance per generation of
+     * maps, it is replaced together with the maps on refresh.
+     */
+    private static final class SafeAccess {
+
+        // set once a lookup needed all operations to be in the map
+        volatile boolean required;
+
+        // set once an operation skipped the map
+        volatile boolean unsafe;
+
+        // the state of the maps that are being refreshed, null if no refresh is running
+        volatile SafeAccess old;
+
+        // whether the previous maps required safe access, we keep it for another refresh interval since more lookups are likely
+        final boolean previousRequired;
+
+        SafeAccess(boolean previousRequired, SafeAccess old) {
+            this.previousRequired = previousRequired;
+            this.old = old;
+        }
+
+        boolean isSafeAccessMode() {
+            return required || previousRequired;
+        }
+
+        boolean isUnsafe() {
+            final SafeAccess oldSafeAccess = old;
+            return unsafe || (oldSafeAccess != null && oldSafeAccess.unsafe);
+        }
+    }
+
+    private volatile SafeAccess safeAccess = new SafeAccess(false, null);
+
     private ReferenceManager<?> mgr;
 
     /** Bytes consumed for each BytesRef UID:
@@ -108,6 +145,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
         // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happeninge):
         maps = new Maps();
+        safeAccess = new SafeAccess(safeAccess.isSafeAccessMode(), null);
 
         // So we are notified when reopen starts and finishes
         mgr.addListener(this);
@@ -115,6 +153,8 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     @Override
     public void beforeRefresh() throws IOException {
+        swapSafeAccessBeforeRefresh();
+
         // Start sending all updates after this point to the new
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
@@ -135,6 +175,58 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact reflected
         // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
         maps = new Maps(maps.current, ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        dropOldSafeAccessAfterRefresh();
+    }
+
+    /** Starts tracking safe access for the maps that receive the operations from now on, must be called from {@link #beforeRefresh}. */
+    final void swapSafeAccessBeforeRefresh() {
+        final SafeAccess current = safeAccess;
+        safeAccess = new SafeAccess(current.required, current);
+    }
+
+    /**
+     * Drops the safe access state of the refreshed maps, must be called from {@link #afterRefresh}. The operations that skipped them
+     * are visible through the new reader.
+     */
+    final void dropOldSafeAccessAfterRefresh() {
+        safeAccess.old = null;
+    }
+
+    /**
+     * Adds this uid/version to the pending adds map if lookups require safe access, otherwise marks the map as unsafe. Must only be
+     * used for operations that are known to not have a previous version, such as append-only operations on documents with an
+     * auto-generated id.
+     */
+    void maybePutUnderLock(BytesRef uid, VersionValue version) {
+        final SafeAccess current = safeAccess;
+        if (current.isSafeAccessMode()) {
+            putUnderLock(uid, version);
+        } else {
+            // Even though we don't keep track of the operation we still remove any previous delete of this uid, lookups would otherwise
+            // find the delete. The tombstones are empty in the common case so this is cheap:
+            removeTombstoneUnderLock(uid);
+            if (current.unsafe == false) {
+                current.unsafe = true;
+            }
+        }
+    }
+
+    /** Makes all operations go through the map from now on, so lookups can rely on it once it isn't {@link #isUnsafe()} anymore. */
+    void enforceSafeAccess() {
+        final SafeAccess current = safeAccess;
+        if (current.required == false) {
+            current.required = true;
+        }
+    }
+
+    /** Returns <code>true</code> if lookups require all operations to be added to the map. */
+    boolean isSafeAccessRequired() {
+        return safeAccess.isSafeAccessMode();
+    }
+
+    /** Returns <code>true</code> if operations skipped the map since the last refresh, lookups must refresh before trusting the map. */
+    boolean isUnsafe() {
+        return safeAccess.isUnsafe();
     }
 
     /** Returns the live version (add or delete) for this uid. */
@@ -158,7 +250,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     /** Adds this uid/version to the pending adds map. */
     void putUnderLock(BytesRef uid, VersionValue version) {
         assert uid.bytes.length == uid.length : "Oversized _uid! UID length: " + uid.length + ", bytes length: " + uid.bytes.length;
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+        long uidRAMBytesUsed = uidRAMBytesUsed(uid);
 
         final VersionValue prev = maps.current.put(uid, version);
         if (prev != null) {
@@ -177,6 +269,20 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         }
         ramBytesUsedCurrent.addAndGet(newBytes);
 
+        final VersionValue prevTombstone = putTombstoneUnderLock(uid, version);
+        if (version.isDelete() && prevTombstone == null && prev != null && prev.isDelete()) {
+            // If prev was a delete that had already been removed from tombstones, then current was already accounting for the
+            // BytesRef/VersionValue RAM, so we now deduct that as well:
+            ramBytesUsedCurrent.addAndGet(-(prev.ramBytesUsed() + uidRAMBytesUsed));
+        }
+    }
+
+    /**
+     * Enrolls a delete into the tombstones, or removes the tombstone of a uid that came back to life, and returns the tombstone that
+     * was replaced or removed, if any.
+     */
+    final VersionValue putTombstoneUnderLock(BytesRef uid, VersionValue version) {
+        final long uidRAMBytesUsed = uidRAMBytesUsed(uid);
         final VersionValue prevTombstone;
         if (version.isDelete()) {
             // Also enroll the delete into tombstones, and account for its RAM too:
@@ -186,12 +292,6 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             // on refresh. Later, in removeTombstoneUnderLock, if we clear the tombstone entry but the delete remains in current, we shift
             // the accounting to current:
             ramBytesUsedTombstones.addAndGet(BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
-
-            if (prevTombstone == null && prev != null && prev.isDelete()) {
-                // If prev was a delete that had already been removed from tombstones, then current was already accounting for the
-                // BytesRef/VersionValue RAM, so we now deduct that as well:
-                ramBytesUsedCurrent.addAndGet(-(prev.ramBytesUsed() + uidRAMBytesUsed));
-            }
         } else {
             // UID came back to life so we remove the tombstone:
             prevTombstone = tombstones.remove(uid);
@@ -202,19 +302,13 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prevTombstone.ramBytesUsed() + uidRAMBytesUsed));
             assert v >= 0: "bytes=" + v;
         }
+        return prevTombstone;
     }
 
     /** Removes this uid from the pending deletes map. */
     void removeTombstoneUnderLock(BytesRef uid) {
-
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-
-        final VersionValue prev = tombstones.remove(uid);
-        if (prev != null) {
-            assert prev.isDelete();
-            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
-            assert v >= 0: "bytes=" + v;
-        }
+        removeTombstone(uid);
+        long uidRAMBytesUsed = uidRAMBytesUsed(uid);
         final VersionValue curVersion = maps.current.get(uid);
         if (curVersion != null && curVersion.isDelete()) {
             // We now shift accounting of the BytesRef from tombstones to current, because a refresh would clear this RAM.  This should be
@@ -224,6 +318,20 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         }
     }
 
+    /** Removes the tombstone of this uid, if any, and deducts its RAM from the tombstones. */
+    final void removeTombstone(BytesRef uid) {
+        final VersionValue prev = tombstones.remove(uid);
+        if (prev != null) {
+            assert prev.isDelete();
+            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed(uid)));
+            assert v >= 0: "bytes=" + v;
+        }
+    }
+
+    private static long uidRAMBytesUsed(BytesRef uid) {
+        return BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+    }
+
     /** Caller has a lock, so that this uid will not be concurrently added/deleted by another thread. */
     VersionValue getTombstoneUnderLock(BytesRef uid) {
         return tombstones.get(uid);
@@ -242,6 +350,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     /** Called when this index is closed. */
     synchronized void clear() {
         maps = new Maps();
+        safeAccess = new SafeAccess(false, null);
         tombstones.clear();
         ramBytesUsedCurrent.set(0);
 
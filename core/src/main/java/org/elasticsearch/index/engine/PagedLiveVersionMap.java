@@ -0,0 +1,256 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+
+import java.io.IOException;
+
+/**
+ * A {@link LiveVersionMap} that keeps the versions written since the last refresh in paged arrays obtained from {@link BigArrays}
+ * instead of maps of objects. The uids and versions are packed into a few large pages that are recycled on refresh, so update heavy
+ * workloads don't allocate a {@link BytesRef} and a map entry per operation that only live until the next refresh. Tombstones are
+ * retained across refreshes and are kept on heap, like in the {@link LiveVersionMap}.
+ */
+final class PagedLiveVersionMap extends LiveVersionMap {
+
+    private final BigArrays bigArrays;
+
+    // All writes (adds and deletes) go into current, old holds the writes while a refresh is running. We read from both on lookup:
+    private volatile Lookups lookups;
+
+    PagedLiveVersionMap(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.lookups = new Lookups(new PagedVersionLookup(bigArrays), new PagedVersionLookup(bigArrays));
+    }
+
+    private static final class Lookups {
+        final PagedVersionLookup current;
+        final PagedVersionLookup old;
+
+        Lookups(PagedVersionLookup current, PagedVersionLookup old) {
+            this.current = current;
+            this.old = old;
+        }
+    }
+
+    @Override
+    synchronized void setManager(ReferenceManager<?> newMgr) {
+        super.setManager(newMgr);
+        // all deletes are visible in the new reader, see LiveVersionMap#setManager
+        Lookups previous = lookups;
+        lookups = new Lookups(new PagedVersionLookup(bigArrays), new PagedVersionLookup(bigArrays));
+        Releasables.close(previous.current, previous.old);
+    }
+
+    @Override
+    public void beforeRefresh() throws IOException {
+        swapSafeAccessBeforeRefresh();
+        lookups = new Lookups(new PagedVersionLookup(bigArrays), lookups.current);
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) throws IOException {
+        // The operations in old are visible through the new reader, see LiveVersionMap#afterRefresh. Lookups that still hold on to old
+        // find it released, which is fine for the same reason:
+        Lookups previous = lookups;
+        lookups = new Lookups(previous.current, new PagedVersionLookup(bigArrays));
+        previous.old.close();
+        dropOldSafeAccessAfterRefresh();
+    }
+
+    @Override
+    VersionValue getUnderLock(Term uid) {
+        final BytesRef bytes = uid.bytes();
+        final int code = bytes.hashCode();
+        Lookups currentLookups = lookups;
+
+        // First try to get the "live" value:
+        VersionValue value = currentLookups.current.get(bytes, code);
+        if (value != null) {
+            return value;
+        }
+
+        value = currentLookups.old.get(bytes, code);
+        if (value != null) {
+            return value;
+        }
+
+        return getTombstoneUnderLock(bytes);
+    }
+
+    @Override
+    void putUnderLock(BytesRef uid, VersionValue version) {
+        final int code = uid.hashCode();
+        while (lookups.current.put(uid, code, version) == false) {
+            // current is only released after it went through a refresh as old, so this operation is already visible in the reader.
+            // We still add it to the new current to be safe, like operations that sneak into old during a refresh.
+        }
+        putTombstoneUnderLock(uid, version);
+    }
+
+    @Override
+    void removeTombstoneUnderLock(BytesRef uid) {
+        // the paged lookups hold their own copy of the uid, so their RAM usage doesn't depend on the tombstones
+        removeTombstone(uid);
+    }
+
+    @Override
+    synchronized void clear() {
+        super.clear();
+        Lookups previous = lookups;
+        lookups = new Lookups(new PagedVersionLookup(bigArrays), new PagedVersionLookup(bigArrays));
+        Releasables.close(previous.current, previous.old);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        final Lookups currentLookups = lookups;
+        return currentLookups.current.ramBytesUsed() + currentLookups.old.ramBytesUsed() + ramBytesUsedTombstones.get();
+    }
+
+    @Override
+    long ramBytesUsedForRefresh() {
+        return lookups.current.ramBytesUsed();
+    }
+
+    /**
+     * A map from uid to version that is split into independently locked segments, like a {@link java.util.concurrent.ConcurrentHashMap}.
+     * The arrays of a segment are only allocated once the first entry is added and are all returned to {@link BigArrays} on close.
+     */
+    static final class PagedVersionLookup implements Releasable {
+
+        private static final int SEGMENT_BITS = 4;
+
+        private final Segment[] segments;
+
+        PagedVersionLookup(BigArrays bigArrays) {
+            segments = new Segment[1 << SEGMENT_BITS];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(bigArrays);
+            }
+        }
+
+        private Segment segment(int code) {
+            // the hash uses the low bits of the code to pick a slot, so we pick the segment based on the high bits of the mixed code
+            return segments[BitMixer.mix32(code) >>> (32 - SEGMENT_BITS)];
+        }
+
+        /** Returns the version of the given uid, or <code>null</code> if it was not added or this lookup is released. */
+        VersionValue get(BytesRef uid, int code) {
+            return segment(code).get(uid, code);
+        }
+
+        /** Adds or replaces the version of the given uid, returns <code>false</code> if this lookup is released. */
+        boolean put(BytesRef uid, int code, VersionValue version) {
+            return segment(code).put(uid, code, version);
+        }
+
+        long ramBytesUsed() {
+            long ramBytesUsed = 0;
+            for (Segment segment : segments) {
+                ramBytesUsed += segment.ramBytesUsed;
+            }
+            return ramBytesUsed;
+        }
+
+        @Override
+        public void close() {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        // marks additions, since deletes are the only entries with a time
+        private static final long NO_DELETE_TIME = Long.MIN_VALUE;
+
+        private final BigArrays bigArrays;
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray deleteTimes;
+        private boolean closed;
+        volatile long ramBytesUsed;
+
+        Segment(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+        }
+
+        synchronized VersionValue get(BytesRef uid, int code) {
+            if (uids == null) {
+                return null;
+            }
+            final long id = uids.find(uid, code);
+            if (id < 0) {
+                return null;
+            }
+            final long version = versions.get(id);
+            final long deleteTime = deleteTimes.get(id);
+            return deleteTime == NO_DELETE_TIME ? new VersionValue(version) : new DeleteVersionValue(version, deleteTime);
+        }
+
+        synchronized boolean put(BytesRef uid, int code, VersionValue version) {
+            if (closed) {
+                return false;
+            }
+            if (uids == null) {
+                // allocated lazily, most segments of the lookup that is created for a refresh stay empty on idle shards
+                versions = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                deleteTimes = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                uids = new BytesRefHash(INITIAL_CAPACITY, bigArrays);
+            }
+            long id = uids.add(uid, code);
+            if (id < 0) {
+                id = -1 - id;
+            } else {
+                versions = bigArrays.grow(versions, id + 1);
+                deleteTimes = bigArrays.grow(deleteTimes, id + 1);
+            }
+            versions.set(id, version.getVersion());
+            deleteTimes.set(id, version.isDelete() ? version.getTime() : NO_DELETE_TIME);
+            ramBytesUsed = uids.ramBytesUsed() + versions.ramBytesUsed() + deleteTimes.ramBytesUsed();
+            return true;
+        }
+
+        synchronized void close() {
+            closed = true;
+            try {
+                Releasables.close(uids, versions, deleteTimes);
+            } finally {
+                uids = null;
+                versions = null;
+                deleteTimes = null;
+                ramBytesUsed = 0;
+            }
+        }
+    }
+}
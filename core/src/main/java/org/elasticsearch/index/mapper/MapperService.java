@@ -439,6 +439,10 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
             checkDepthLimit(fullPathObjectMappers.keySet());
         }
 
+        if (hasNested && indexSettings.getIndexSortConfig().hasIndexSort()) {
+            throw new IllegalArgumentException("cannot have nested fields when index sort is activated");
+        }
+
         for (Map.Entry<String, DocumentMapper> entry : mappers.entrySet()) {
             if (entry.getKey().equals(DEFAULT_MAPPING)) {
                 continue;
@@ -35,11 +35,14 @@ import org.apache.lucene.index.PointValues;
 import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.StringHelper;
 import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.Explicit;
+import org.elasticsearch.common.joda.DateMathParser;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -50,6 +53,7 @@ import org.elasticsearch.common.xcontent.XContentParser.Token;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
 import org.elasticsearch.index.fielddata.plain.DocValuesIndexFieldData;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.joda.time.DateTimeZone;
@@ -972,6 +976,47 @@ public class NumberFieldMapper extends FieldMapper {
             return type.valueForSearch((Number) value);
         }
 
+        @Override
+        public Relation isFieldWithinQuery(IndexReader reader,
+                Object from, Object to, boolean includeLower, boolean includeUpper,
+                DateTimeZone timeZone, DateMathParser dateParser, QueryRewriteContext context) throws IOException {
+            if (indexOptions() == IndexOptions.NONE) {
+                // let the query fail on the unindexed field rather than rewrite it away
+                return Relation.INTERSECTS;
+            }
+            // build the points query so that bounds are parsed and rounded exactly like at search time
+            Query query = type.rangeQuery(name(), from, to, includeLower, includeUpper, false);
+            if (query instanceof MatchNoDocsQuery) {
+                return Relation.DISJOINT;
+            }
+
+            // This check needs to be done after the query is built so we can
+            // throw an exception if the bounds are invalid even if there are
+            // no points in the shard
+            if (PointValues.size(reader, name()) == 0) {
+                // no points, so nothing matches
+                return Relation.DISJOINT;
+            }
+
+            // points are encoded so that their unsigned byte order is the numeric order
+            PointRangeQuery pointQuery = (PointRangeQuery) query;
+            byte[] lowerPoint = pointQuery.getLowerPoint();
+            byte[] upperPoint = pointQuery.getUpperPoint();
+            byte[] minValue = PointValues.getMinPackedValue(reader, name());
+            byte[] maxValue = PointValues.getMaxPackedValue(reader, name());
+            int numBytes = minValue.length;
+
+            if (StringHelper.compare(numBytes, minValue, 0, lowerPoint, 0) >= 0
+                    && StringHelper.compare(numBytes, maxValue, 0, upperPoint, 0) <= 0) {
+                return Relation.WITHIN;
+            } else if (StringHelper.compare(numBytes, maxValue, 0, lowerPoint, 0) < 0
+                    || StringHelper.compare(numBytes, minValue, 0, upperPoint, 0) > 0) {
+                return Relation.DISJOINT;
+            } else {
+                return Relation.INTERSECTS;
+            }
+        }
+
         @Override
         public DocValueFormat docValueFormat(String format, DateTimeZone timeZone) {
             if (timeZone != null) {
@@ -31,6 +31,7 @@ import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Lock;
@@ -111,6 +112,7 @@ import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogConfig;
 import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.index.translog.TranslogSyncScheduler;
 import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndexingMemoryController;
@@ -146,6 +148,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class IndexShard extends AbstractIndexShardComponent implements IndicesClusterStateService.Shard {
 
@@ -225,11 +228,19 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      */
     private final RefreshListeners refreshListeners;
 
+    /**
+     * Group-commits translog syncs with the other shards on the same data path, or <code>null</code> if every shard syncs its own
+     * translog.
+     */
+    @Nullable
+    private final TranslogSyncScheduler translogSyncScheduler;
+
     public IndexShard(ShardRouting shardRouting, IndexSettings indexSettings, ShardPath path, Store store, IndexCache indexCache,
                       MapperService mapperService, SimilarityService similarityService, IndexFieldDataService indexFieldDataService,
                       @Nullable EngineFactory engineFactory,
                       IndexEventListener indexEventListener, IndexSearcherWrapper indexSearcherWrapper, ThreadPool threadPool, BigArrays bigArrays,
-                      Engine.Warmer warmer, Runnable globalCheckpointSyncer, List<SearchOperationListener> searchOperationListener, List<IndexingOperationListener> listeners) throws IOException {
+                      Engine.Warmer warmer, Runnable globalCheckpointSyncer, @Nullable TranslogSyncScheduler translogSyncScheduler,
+                      List<SearchOperationListener> searchOperationListener, List<IndexingOperationListener> listeners) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -253,6 +264,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         searchListenersList.add(searchStats);
         this.searchOperationListener = new SearchOperationListener.CompositeListener(searchListenersList, logger);
         this.globalCheckpointSyncer = globalCheckpointSyncer;
+        this.translogSyncScheduler = translogSyncScheduler;
         this.getService = new ShardGetService(indexSettings, this, mapperService);
         this.shardWarmerService = new ShardIndexWarmerService(shardId, indexSettings);
         this.requestCacheStats = new ShardRequestCache();
@@ -751,7 +763,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     public TranslogStats translogStats() {
-        return getEngine().getTranslog().stats();
+        final TranslogStats translogStats = getEngine().getTranslog().stats();
+        groupCommitSyncTarget.addStats(translogStats);
+        return translogStats;
     }
 
     public CompletionStats completionStats(String... fields) {
@@ -1779,7 +1793,15 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             threadPool, indexSettings, warmer, store, deletionPolicy, indexSettings.getMergePolicy(),
             mapperService.indexAnalyzer(), similarityService.similarity(mapperService), codecService, shardEventListener, translogRecoveryPerformer, indexCache.query(), cachingPolicy, translogConfig,
             IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING.get(indexSettings.getSettings()), refreshListeners,
-            maxUnsafeAutoIdTimestamp);
+            getIndexSort(), maxUnsafeAutoIdTimestamp);
+    }
+
+    /**
+     * Returns the sort order of the segments of this shard as defined by the <code>index.sort.*</code> settings,
+     * or <code>null</code> if the index is not sorted.
+     */
+    public Sort getIndexSort() {
+        return indexSettings.getIndexSortConfig().buildIndexSort(mapperService::fullName);
     }
 
     /**
@@ -1830,6 +1852,17 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         }
     };
 
+    private final TranslogSyncScheduler.SyncTarget groupCommitSyncTarget = new TranslogSyncScheduler.SyncTarget() {
+        @Override
+        protected void ensureSynced(Stream<Translog.Location> locations) throws IOException {
+            try {
+                getEngine().getTranslog().ensureSynced(locations);
+            } catch (AlreadyClosedException ex) {
+                // that's fine since we already synced everything on engine close
+            }
+        }
+    };
+
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
@@ -1838,10 +1871,16 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      * one thread blocking on the sync an all others can continue indexing.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
+     * If translog group commit is enabled on this node the location is synced by the committer of the shard's data path together with
+     * the pending syncs of all other shards on that path instead.
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        if (translogSyncScheduler != null) {
+            translogSyncScheduler.sync(path.getRootDataPath(), groupCommitSyncTarget, location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
     }
 
     /**
@@ -44,12 +44,13 @@ public class IndexingStats implements Streamable, ToXContent {
         private long deleteTimeInMillis;
         private long deleteCurrent;
         private long noopUpdateCount;
+        private long appendOnlyIndexCount;
         private long throttleTimeInMillis;
         private boolean isThrottled;
 
         Stats() {}
 
-        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis) {
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, long appendOnlyIndexCount, boolean isThrottled, long throttleTimeInMillis) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
@@ -58,6 +59,7 @@ public class IndexingStats implements Streamable, ToXContent {
             this.deleteTimeInMillis = deleteTimeInMillis;
             this.deleteCurrent = deleteCurrent;
             this.noopUpdateCount = noopUpdateCount;
+            this.appendOnlyIndexCount = appendOnlyIndexCount;
             this.isThrottled = isThrottled;
             this.throttleTimeInMillis = throttleTimeInMillis;
         }
@@ -73,6 +75,7 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCurrent += stats.deleteCurrent;
 
             noopUpdateCount += stats.noopUpdateCount;
+            appendOnlyIndexCount += stats.appendOnlyIndexCount;
             throttleTimeInMillis += stats.throttleTimeInMillis;
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
@@ -132,6 +135,14 @@ public class IndexingStats implements Streamable, ToXContent {
             return noopUpdateCount;
         }
 
+        /**
+         * Returns the number of index operations on documents with an auto-generated id that were added without looking up a
+         * previous version of the document
+         */
+        public long getAppendOnlyIndexCount() {
+            return appendOnlyIndexCount;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -150,6 +161,9 @@ public class IndexingStats implements Streamable, ToXContent {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                appendOnlyIndexCount = in.readVLong();
+            }
         }
 
         @Override
@@ -164,7 +178,9 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
-
+            if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                out.writeVLong(appendOnlyIndexCount);
+            }
         }
 
         @Override
@@ -179,6 +195,7 @@ public class IndexingStats implements Streamable, ToXContent {
             builder.field(Fields.DELETE_CURRENT, deleteCurrent);
 
             builder.field(Fields.NOOP_UPDATE_TOTAL, noopUpdateCount);
+            builder.field(Fields.APPEND_ONLY_INDEX_TOTAL, appendOnlyIndexCount);
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
@@ -270,6 +287,7 @@ public class IndexingStats implements Streamable, ToXContent {
         static final String DELETE_TIME_IN_MILLIS = "delete_time_in_millis";
         static final String DELETE_CURRENT = "delete_current";
         static final String NOOP_UPDATE_TOTAL = "noop_update_total";
+        static final String APPEND_ONLY_INDEX_TOTAL = "append_only_index_total";
         static final String IS_THROTTLED = "is_throttled";
         static final String THROTTLED_TIME_IN_MILLIS = "throttle_time_in_millis";
         static final String THROTTLED_TIME = "throttle_time";
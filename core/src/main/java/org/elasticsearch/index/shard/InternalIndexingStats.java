@@ -83,6 +83,10 @@ final class InternalIndexingStats implements IndexingOperationListener {
                 StatsHolder typeStats = typeStats(index.type());
                 typeStats.indexMetric.inc(took);
                 typeStats.indexCurrent.dec();
+                if (result.isAppendOnly()) {
+                    totalStats.appendOnlyIndexCount.inc();
+                    typeStats.appendOnlyIndexCount.inc();
+                }
             }
         } else {
             postIndex(shardId, index, result.getFailure());
@@ -159,12 +163,13 @@ final class InternalIndexingStats implements IndexingOperationListener {
         private final CounterMetric indexFailed = new CounterMetric();
         private final CounterMetric deleteCurrent = new CounterMetric();
         private final CounterMetric noopUpdates = new CounterMetric();
+        private final CounterMetric appendOnlyIndexCount = new CounterMetric();
 
         IndexingStats.Stats stats(boolean isThrottled, long currentThrottleMillis) {
             return new IndexingStats.Stats(
                 indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(), indexFailed.count(),
                 deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
-                noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis));
+                noopUpdates.count(), appendOnlyIndexCount.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis));
         }
 
         void clear() {
@@ -24,6 +24,7 @@ import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -80,6 +81,13 @@ public abstract class BaseTranslogReader implements Comparable<BaseTranslogReade
         return new TranslogSnapshot(this, sizeInBytes());
     }
 
+    /**
+     * Returns the last modified time of the underlying file in milliseconds since the epoch.
+     */
+    public long getLastModifiedTime() throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+
     /**
      * reads an operation at the given position and returns it. The buffer length is equal to the number
      * of bytes reads.
@@ -55,6 +55,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
@@ -186,6 +187,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 try {
                     current = createWriter(checkpoint.generation + 1);
                     this.lastCommittedTranslogFileGeneration = translogGeneration.translogFileGeneration;
+                    trimUnreferencedReaders();
                     success = true;
                 } finally {
                     // we have to close all the recovered ones otherwise we leak file handles here
@@ -225,6 +227,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         boolean tempFileRenamed = false;
         try (ReleasableLock lock = writeLock.acquire()) {
             logger.debug("open uncommitted translog checkpoint {}", checkpoint);
+            foundTranslogs.addAll(recoverRetainedFiles(translogGeneration.translogFileGeneration));
             final String checkpointTranslogFile = getFilename(checkpoint.generation);
             for (long i = translogGeneration.translogFileGeneration; i < checkpoint.generation; i++) {
                 Path committedTranslogFile = location.resolve(getFilename(i));
@@ -268,6 +271,30 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         return foundTranslogs;
     }
 
+    /**
+     * Opens the already committed translog files below the given generation that were retained for operations-based recoveries.
+     * These files are not required to open the translog so we stop at the first generation that is missing or can't be opened.
+     */
+    private List<TranslogReader> recoverRetainedFiles(long minRequiredGeneration) {
+        final List<TranslogReader> retained = new ArrayList<>();
+        for (long generation = minRequiredGeneration - 1; generation > 0; generation--) {
+            final Path translogFile = location.resolve(getFilename(generation));
+            final Path checkpointFile = location.resolve(getCommitCheckpointFileName(generation));
+            if (Files.exists(translogFile) == false || Files.exists(checkpointFile) == false) {
+                break;
+            }
+            try {
+                retained.add(openReader(translogFile, Checkpoint.read(checkpointFile)));
+            } catch (Exception e) {
+                logger.warn((Supplier<?>) () -> new ParameterizedMessage("failed to open retained translog file {}", translogFile), e);
+                break;
+            }
+            logger.debug("recovered retained translog file {}", translogFile);
+        }
+        Collections.reverse(retained);
+        return retained;
+    }
+
     TranslogReader openReader(Path path, Checkpoint checkpoint) throws IOException {
         FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
         try {
@@ -494,31 +521,34 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     /**
-     * Snapshots the current transaction log allowing to safely iterate over the snapshot.
-     * Snapshots are fixed in time and will not be updated with future operations.
+     * Snapshots the operations of the current transaction log that aren't committed to lucene, allowing to safely iterate over the
+     * snapshot. Snapshots are fixed in time and will not be updated with future operations.
      */
     public Snapshot newSnapshot() {
-        return createSnapshot(Long.MIN_VALUE);
+        return createSnapshot(lastCommittedTranslogFileGeneration);
     }
 
     private Snapshot createSnapshot(long minGeneration) {
         try (ReleasableLock ignored = readLock.acquire()) {
             ensureOpen();
-            Snapshot[] snapshots = Stream.concat(readers.stream(), Stream.of(current))
-                    .filter(reader -> reader.getGeneration() >= minGeneration)
-                    .map(BaseTranslogReader::newSnapshot).toArray(Snapshot[]::new);
+            final boolean mmap = indexSettings.isTranslogMMapReads();
+            Snapshot[] snapshots = Stream.concat(readers.stream().filter(reader -> reader.getGeneration() >= minGeneration)
+                        .map(reader -> reader.newSnapshot(mmap)),
+                    Stream.of(current).filter(writer -> writer.getGeneration() >= minGeneration).map(BaseTranslogReader::newSnapshot))
+                    .toArray(Snapshot[]::new);
             return new MultiSnapshot(snapshots);
         }
     }
 
     /**
-     * Returns a view into the current translog that is guaranteed to retain all current operations
-     * while receiving future ones as well
+     * Returns a view into the current translog that is guaranteed to retain all current operations, including
+     * the committed ones that are still retained, while receiving future ones as well
      */
     public Translog.View newView() {
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
-            View view = new View(lastCommittedTranslogFileGeneration);
+            final long minGeneration = readers.isEmpty() ? current.getGeneration() : readers.get(0).getGeneration();
+            View view = new View(Math.min(minGeneration, lastCommittedTranslogFileGeneration));
             outstandingViews.add(view);
             return view;
         }
@@ -655,6 +685,13 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return Translog.this.totalOperations(minGeneration);
         }
 
+        /**
+         * The total number of operations in the view, starting at the given generation.
+         */
+        public int totalOperations(long fromGeneration) {
+            return Translog.this.totalOperations(Math.max(minGeneration, fromGeneration));
+        }
+
         /**
          * Returns the size in bytes of the files behind the view.
          */
@@ -668,6 +705,12 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return Translog.this.createSnapshot(minGeneration);
         }
 
+        /** create a snapshot from this view, only including the translog files starting at the given generation */
+        public Snapshot snapshot(long fromGeneration) {
+            ensureOpen();
+            return Translog.this.createSnapshot(Math.max(minGeneration, fromGeneration));
+        }
+
         void ensureOpen() {
             if (closed.get()) {
                 throw new AlreadyClosedException("View is already closed");
@@ -1418,7 +1461,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             }
             long minReferencedGen = outstandingViews.stream().mapToLong(View::minTranslogGeneration).min().orElse(Long.MAX_VALUE);
             minReferencedGen = Math.min(lastCommittedTranslogFileGeneration, minReferencedGen);
-            final long finalMinReferencedGen = minReferencedGen;
+            final long finalMinReferencedGen = minRetainedGeneration(minReferencedGen);
             List<TranslogReader> unreferenced = readers.stream().filter(r -> r.getGeneration() < finalMinReferencedGen).collect(Collectors.toList());
             for (final TranslogReader unreferencedReader : unreferenced) {
                 Path translogPath = unreferencedReader.path();
@@ -1431,6 +1474,39 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Extends the given minimum referenced generation downwards to the committed generations that are retained for
+     * operations-based recoveries, as long as they fit within the configured retention size and age.
+     */
+    private long minRetainedGeneration(long minReferencedGen) {
+        assert writeLock.isHeldByCurrentThread();
+        final long retentionSizeInBytes = indexSettings.getTranslogRetentionSize().getBytes();
+        final long retentionAgeInMillis = indexSettings.getTranslogRetentionAge().millis();
+        final long now = System.currentTimeMillis();
+        long retainedSizeInBytes = 0;
+        long minRetainedGen = minReferencedGen;
+        for (int i = readers.size() - 1; i >= 0; i--) {
+            final TranslogReader reader = readers.get(i);
+            if (reader.getGeneration() >= minReferencedGen) {
+                continue;
+            }
+            retainedSizeInBytes += reader.sizeInBytes();
+            if (retainedSizeInBytes > retentionSizeInBytes) {
+                break;
+            }
+            try {
+                if (now - reader.getLastModifiedTime() >= retentionAgeInMillis) {
+                    break;
+                }
+            } catch (IOException e) {
+                logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to read last modified time of {}", reader.path()), e);
+                break;
+            }
+            minRetainedGen = reader.getGeneration();
+        }
+        return minRetainedGen;
+    }
+
     void closeFilesIfNoPendingViews() throws IOException {
         try (ReleasableLock ignored = writeLock.acquire()) {
             if (closed.get() && outstandingViews.isEmpty()) {
@@ -24,8 +24,13 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.io.stream.InputStreamStreamInput;
 
@@ -49,6 +54,8 @@ public class TranslogReader extends BaseTranslogReader implements Closeable {
     private final int totalOperations;
     private final Checkpoint checkpoint;
     protected final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Object mappingMutex = new Object();
+    private volatile IndexInput mappedInput;
 
     /**
      * Create a translog writer against the specified translog file channel.
@@ -160,6 +167,40 @@ public class TranslogReader extends BaseTranslogReader implements Closeable {
         return checkpoint;
     }
 
+    /**
+     * Returns a snapshot of this generation. If <code>mmap</code> is <code>true</code> the snapshot parses the operations directly
+     * from a read-only memory mapping of the file that is shared by all snapshots of this reader, rather than copying every
+     * operation through a heap buffer first. Falls back to a regular snapshot if the file can't be mapped.
+     */
+    Translog.Snapshot newSnapshot(boolean mmap) {
+        if (mmap) {
+            final IndexInput mappedInput = mappedInput();
+            if (mappedInput != null) {
+                return new TranslogSnapshot(this, length, mappedInput.clone());
+            }
+        }
+        return newSnapshot();
+    }
+
+    private IndexInput mappedInput() {
+        if (mappedInput == null) {
+            synchronized (mappingMutex) {
+                if (mappedInput == null) {
+                    ensureOpen();
+                    // the generation is immutable so we can map it once. The mapping is unmapped when this reader is closed, after
+                    // which snapshots that still read from it fail with an AlreadyClosedException like reads from the channel do
+                    try (Directory directory = new MMapDirectory(path.getParent())) {
+                        mappedInput = directory.openInput(path.getFileName().toString(), IOContext.READONCE);
+                    } catch (IOException e) {
+                        // mapping can fail if the address space is exhausted, we read through the channel instead
+                        return null;
+                    }
+                }
+            }
+        }
+        return mappedInput;
+    }
+
     /**
      * reads an operation at the given position into the given buffer.
      */
@@ -176,7 +217,11 @@ public class TranslogReader extends BaseTranslogReader implements Closeable {
     @Override
     public final void close() throws IOException {
         if (closed.compareAndSet(false, true)) {
-            channel.close();
+            synchronized (mappingMutex) {
+                // unmap the generation right away rather than once the mapping is garbage collected, so that the disk space of a
+                // deleted generation is freed and the file can be deleted on Windows
+                IOUtils.close(mappedInput, channel);
+            }
         }
     }
 
@@ -18,7 +18,11 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.apache.lucene.store.IndexInput;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -31,6 +35,8 @@ final class TranslogSnapshot extends BaseTranslogReader implements Translog.Snap
     protected final long length;
 
     private final ByteBuffer reusableBuffer;
+    @Nullable
+    private final IndexInput mappedInput;
     private long position;
     private int readOperations;
     private BufferedChecksumStreamInput reuse;
@@ -39,11 +45,21 @@ final class TranslogSnapshot extends BaseTranslogReader implements Translog.Snap
      * Create a snapshot of translog file channel.
      */
     TranslogSnapshot(final BaseTranslogReader reader, final long length) {
+        this(reader, length, null);
+    }
+
+    /**
+     * Create a snapshot of translog file channel that reads the operations from the given memory mapped input of the file if it
+     * isn't <code>null</code>.
+     */
+    TranslogSnapshot(final BaseTranslogReader reader, final long length, @Nullable final IndexInput mappedInput) {
         super(reader.generation, reader.channel, reader.path, reader.firstOperationOffset);
+        assert mappedInput == null || mappedInput.length() >= length : "mapping must cover the snapshot";
         this.length = length;
         this.totalOperations = reader.totalOperations();
         this.checkpoint = reader.getCheckpoint();
-        this.reusableBuffer = ByteBuffer.allocate(1024);
+        this.mappedInput = mappedInput;
+        this.reusableBuffer = mappedInput == null ? ByteBuffer.allocate(1024) : null;
         readOperations = 0;
         position = firstOperationOffset;
         reuse = null;
@@ -69,14 +85,36 @@ final class TranslogSnapshot extends BaseTranslogReader implements Translog.Snap
     }
 
     protected Translog.Operation readOperation() throws IOException {
-        final int opSize = readSize(reusableBuffer, position);
-        reuse = checksummedStream(reusableBuffer, position, opSize, reuse);
+        final int opSize;
+        if (mappedInput == null) {
+            opSize = readSize(reusableBuffer, position);
+            reuse = checksummedStream(reusableBuffer, position, opSize, reuse);
+        } else {
+            opSize = readMappedSize(position);
+            // parse the operation straight from the mapped pages without copying it to the heap first
+            mappedInput.seek(position);
+            reuse = new BufferedChecksumStreamInput(new InputStreamStreamInput(new InputStreamIndexInput(mappedInput, opSize)), reuse);
+        }
         Translog.Operation op = read(reuse);
         position += opSize;
         readOperations++;
         return op;
     }
 
+    private int readMappedSize(long position) throws IOException {
+        if (position + Integer.BYTES > length) {
+            throw new EOFException("read requested past EOF. pos [" + position + "] end: [" + length + "], generation: [" + getGeneration() + "], path: [" + path + "]");
+        }
+        // Add an extra 4 to account for the operation size integer itself
+        mappedInput.seek(position);
+        final int size = mappedInput.readInt() + 4;
+        final long maxSize = length - position;
+        if (size < 0 || size > maxSize) {
+            throw new TranslogCorruptedException("operation size is corrupted must be [0.." + maxSize + "] but was: " + size);
+        }
+        return size;
+    }
+
     public long sizeInBytes() {
         return length;
     }
@@ -102,6 +140,7 @@ final class TranslogSnapshot extends BaseTranslogReader implements Translog.Snap
                 ", totalOperations=" + totalOperations +
                 ", length=" + length +
                 ", reusableBuffer=" + reusableBuffer +
+                ", mapped=" + (mappedInput != null) +
                 '}';
     }
 
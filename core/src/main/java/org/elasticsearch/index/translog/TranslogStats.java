@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.ToXContentToBytes;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -25,11 +26,25 @@ import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class TranslogStats extends ToXContentToBytes implements Streamable {
 
+    /**
+     * Inclusive upper bounds of the group commit batch size histogram buckets. The last bucket counts all larger batches.
+     */
+    public static final long[] GROUP_COMMIT_BATCH_SIZE_BOUNDS = new long[] {1, 2, 4, 8, 16, 32, 64, 128, 256};
+    /**
+     * Inclusive upper bounds, in microseconds, of the group commit fsync latency histogram buckets. The last bucket counts all
+     * slower fsyncs.
+     */
+    public static final long[] GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS =
+        new long[] {100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000};
+
     private long translogSizeInBytes;
     private int numberOfOperations;
+    private long[] groupCommitBatchSizes = new long[GROUP_COMMIT_BATCH_SIZE_BOUNDS.length + 1];
+    private long[] groupCommitFsyncLatencies = new long[GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS.length + 1];
 
     public TranslogStats() {
     }
@@ -53,6 +68,34 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
         this.numberOfOperations += translogStats.numberOfOperations;
         this.translogSizeInBytes += translogStats.translogSizeInBytes;
+        addGroupCommits(translogStats.groupCommitBatchSizes, translogStats.groupCommitFsyncLatencies);
+    }
+
+    /**
+     * Adds the given group commit histograms to the histograms of this stats instance.
+     *
+     * @param batchSizes      the number of group commits per bucket of {@link #GROUP_COMMIT_BATCH_SIZE_BOUNDS}
+     * @param fsyncLatencies  the number of group commits per bucket of {@link #GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS}
+     */
+    public void addGroupCommits(long[] batchSizes, long[] fsyncLatencies) {
+        if (batchSizes.length != groupCommitBatchSizes.length || fsyncLatencies.length != groupCommitFsyncLatencies.length) {
+            throw new IllegalArgumentException("group commit histograms must have [" + groupCommitBatchSizes.length + "] and ["
+                + groupCommitFsyncLatencies.length + "] buckets but got [" + batchSizes.length + "] and [" + fsyncLatencies.length + "]");
+        }
+        for (int i = 0; i < batchSizes.length; i++) {
+            groupCommitBatchSizes[i] += batchSizes[i];
+        }
+        for (int i = 0; i < fsyncLatencies.length; i++) {
+            groupCommitFsyncLatencies[i] += fsyncLatencies[i];
+        }
+    }
+
+    /**
+     * Returns the index of the histogram bucket the given value falls into.
+     */
+    public static int bucket(long[] bounds, long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        return index >= 0 ? index : -index - 1;
     }
 
     public long getTranslogSizeInBytes() {
@@ -63,31 +106,92 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         return numberOfOperations;
     }
 
+    /**
+     * Returns the number of group commits this translog took part in
+     */
+    public long getGroupCommitCount() {
+        long count = 0;
+        for (long bucket : groupCommitBatchSizes) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of group commits per bucket of {@link #GROUP_COMMIT_BATCH_SIZE_BOUNDS}
+     */
+    public long[] getGroupCommitBatchSizes() {
+        return groupCommitBatchSizes;
+    }
+
+    /**
+     * Returns the number of group commits per bucket of {@link #GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS}
+     */
+    public long[] getGroupCommitFsyncLatencies() {
+        return groupCommitFsyncLatencies;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, numberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        final long groupCommits = getGroupCommitCount();
+        if (groupCommits > 0) {
+            builder.startObject(Fields.GROUP_COMMIT);
+            builder.field(Fields.TOTAL, groupCommits);
+            histogramToXContent(builder, Fields.BATCH_SIZE, GROUP_COMMIT_BATCH_SIZE_BOUNDS, groupCommitBatchSizes);
+            histogramToXContent(builder, Fields.FSYNC_LATENCY_MICROS, GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS,
+                groupCommitFsyncLatencies);
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
 
+    private static void histogramToXContent(XContentBuilder builder, String name, long[] bounds, long[] counts) throws IOException {
+        builder.startArray(name);
+        for (int i = 0; i < counts.length; i++) {
+            builder.startObject();
+            if (i < bounds.length) {
+                builder.field(Fields.LE, bounds[i]);
+            }
+            builder.field(Fields.COUNT, counts[i]);
+            builder.endObject();
+        }
+        builder.endArray();
+    }
+
     static final class Fields {
         static final String TRANSLOG = "translog";
         static final String OPERATIONS = "operations";
         static final String SIZE = "size";
         static final String SIZE_IN_BYTES = "size_in_bytes";
+        static final String GROUP_COMMIT = "group_commit";
+        static final String TOTAL = "total";
+        static final String BATCH_SIZE = "batch_size";
+        static final String FSYNC_LATENCY_MICROS = "fsync_latency_micros";
+        static final String LE = "le";
+        static final String COUNT = "count";
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         numberOfOperations = in.readVInt();
         translogSizeInBytes = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            groupCommitBatchSizes = in.readVLongArray();
+            groupCommitFsyncLatencies = in.readVLongArray();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(numberOfOperations);
         out.writeVLong(translogSizeInBytes);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVLongArray(groupCommitBatchSizes);
+            out.writeVLongArray(groupCommitFsyncLatencies);
+        }
     }
 }
@@ -0,0 +1,290 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.env.NodeEnvironment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A node level scheduler that group-commits translog syncs of all shards that live on the same data path. Each data path has a
+ * single committer thread that collects pending sync requests for up to {@link #MAX_WAIT_SETTING} (or until
+ * {@link #MAX_BATCH_SIZE_SETTING} requests are pending) and then syncs every translog that has pending requests in one round.
+ * This bounds the number of concurrent fsync calls per device to one, no matter how many shards are written to, instead of
+ * having every shard's indexing threads issue their own fsyncs. Listeners are notified once their location is durable.
+ * Closing the scheduler waits for the in-flight round and fails the syncs that are still queued with an
+ * {@link AlreadyClosedException}.
+ */
+public final class TranslogSyncScheduler extends AbstractComponent implements Closeable {
+
+    public static final Setting<Boolean> ENABLED_SETTING =
+        Setting.boolSetting("indices.translog.group_commit.enabled", false, Property.NodeScope);
+    public static final Setting<TimeValue> MAX_WAIT_SETTING =
+        Setting.timeSetting("indices.translog.group_commit.max_wait", TimeValue.timeValueMillis(1), TimeValue.timeValueMillis(0),
+            Property.NodeScope);
+    public static final Setting<Integer> MAX_BATCH_SIZE_SETTING =
+        Setting.intSetting("indices.translog.group_commit.max_batch_size", 1024, 1, Property.NodeScope);
+
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+    private final ConcurrentMap<Path, GroupCommitter> committers = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    public TranslogSyncScheduler(Settings settings, NodeEnvironment nodeEnv) {
+        super(settings);
+        this.maxWaitNanos = MAX_WAIT_SETTING.get(settings).nanos();
+        this.maxBatchSize = MAX_BATCH_SIZE_SETTING.get(settings);
+        if (nodeEnv.hasNodeFile()) {
+            for (NodeEnvironment.NodePath nodePath : nodeEnv.nodePaths()) {
+                committerFor(nodePath.path);
+            }
+        }
+    }
+
+    /**
+     * Schedules a sync of the given location. The listener is notified once the location is durable or the sync failed.
+     *
+     * @param dataPath the root data path the translog lives on, see {@link org.elasticsearch.index.shard.ShardPath#getRootDataPath()}
+     * @param target   the translog to sync. The same instance must be passed for all syncs of one translog
+     * @param location the location to sync
+     * @param listener the listener to notify
+     */
+    public void sync(Path dataPath, SyncTarget target, Translog.Location location, Consumer<Exception> listener) {
+        if (closed) {
+            listener.accept(new AlreadyClosedException("translog sync scheduler is closed"));
+            return;
+        }
+        committerFor(dataPath).put(new PendingSync(target, location, listener));
+    }
+
+    private GroupCommitter committerFor(Path dataPath) {
+        return committers.computeIfAbsent(dataPath, path -> {
+            GroupCommitter committer = new GroupCommitter(path);
+            committer.start();
+            return committer;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (GroupCommitter committer : committers.values()) {
+            committer.stopAndJoin();
+        }
+    }
+
+    /**
+     * A translog that can be synced by the scheduler. Also records the group commits it took part in so they can be reported
+     * in {@link TranslogStats}.
+     */
+    public abstract static class SyncTarget {
+
+        private final AtomicLongArray batchSizes = new AtomicLongArray(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS.length + 1);
+        private final AtomicLongArray fsyncLatencies =
+            new AtomicLongArray(TranslogStats.GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS.length + 1);
+
+        /**
+         * Ensures that all given locations are synced to the underlying storage.
+         */
+        protected abstract void ensureSynced(Stream<Translog.Location> locations) throws IOException;
+
+        void onGroupCommit(int batchSize, long fsyncTookInNanos) {
+            batchSizes.incrementAndGet(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, batchSize));
+            fsyncLatencies.incrementAndGet(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_FSYNC_LATENCY_BOUNDS_MICROS,
+                TimeUnit.NANOSECONDS.toMicros(fsyncTookInNanos)));
+        }
+
+        /**
+         * Adds the group commits of this target to the given stats.
+         */
+        public void addStats(TranslogStats stats) {
+            stats.addGroupCommits(toArray(batchSizes), toArray(fsyncLatencies));
+        }
+
+        private static long[] toArray(AtomicLongArray array) {
+            final long[] values = new long[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.get(i);
+            }
+            return values;
+        }
+    }
+
+    private static final class PendingSync {
+        final SyncTarget target;
+        final Translog.Location location;
+        final Consumer<Exception> listener;
+
+        PendingSync(SyncTarget target, Translog.Location location, Consumer<Exception> listener) {
+            this.target = target;
+            this.location = location;
+            this.listener = listener;
+        }
+    }
+
+    private final class GroupCommitter implements Runnable {
+        private final Path dataPath;
+        private final BlockingQueue<PendingSync> queue = new LinkedBlockingQueue<>(maxBatchSize * 4);
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        GroupCommitter(Path dataPath) {
+            this.dataPath = dataPath;
+            this.thread = EsExecutors.daemonThreadFactory(settings, "translog_group_commit").newThread(this);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void put(PendingSync pendingSync) {
+            try {
+                // blocks indexing threads if the device can't keep up with the syncs, like AsyncIOProcessor does
+                while (queue.offer(pendingSync, 100, TimeUnit.MILLISECONDS) == false) {
+                    if (running == false) {
+                        notifyListener(pendingSync, new AlreadyClosedException("translog sync scheduler is closed"));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                notifyListener(pendingSync, e);
+                return;
+            }
+            if (running == false) {
+                // we raced with closing and the committer may have drained the queue already
+                failPending();
+            }
+        }
+
+        /**
+         * Fails all syncs that are still queued. Each sync is removed from the queue exactly once, so its listener is notified
+         * either by the committer or here, never by both.
+         */
+        void failPending() {
+            final List<PendingSync> pending = new ArrayList<>();
+            queue.drainTo(pending);
+            for (PendingSync pendingSync : pending) {
+                notifyListener(pendingSync, new AlreadyClosedException("translog sync scheduler is closed"));
+            }
+        }
+
+        void stopAndJoin() {
+            // we don't interrupt the committer since interrupting an fsync closes the translog channel
+            running = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            failPending();
+        }
+
+        @Override
+        public void run() {
+            final List<PendingSync> batch = new ArrayList<>();
+            while (running) {
+                try {
+                    final PendingSync first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    final long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        final PendingSync next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    // sync what we collected so far, we only stop once we are closed
+                }
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                commit(batch);
+                batch.clear();
+            }
+            // the in-flight batch was committed, syncs that were queued behind it or concurrently to closing are failed
+            failPending();
+        }
+
+        private void commit(List<PendingSync> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            final Map<SyncTarget, List<PendingSync>> byTarget = new IdentityHashMap<>();
+            for (PendingSync pendingSync : batch) {
+                byTarget.computeIfAbsent(pendingSync.target, t -> new ArrayList<>()).add(pendingSync);
+            }
+            for (Map.Entry<SyncTarget, List<PendingSync>> entry : byTarget.entrySet()) {
+                final SyncTarget target = entry.getKey();
+                final List<PendingSync> pendingSyncs = entry.getValue();
+                Exception exception = null;
+                final long startTime = System.nanoTime();
+                try {
+                    target.ensureSynced(pendingSyncs.stream().map(p -> p.location));
+                } catch (Exception e) {
+                    logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to group commit translog on [{}]", dataPath), e);
+                    exception = e;
+                }
+                target.onGroupCommit(pendingSyncs.size(), System.nanoTime() - startTime);
+                for (PendingSync pendingSync : pendingSyncs) {
+                    notifyListener(pendingSync, exception);
+                }
+            }
+        }
+
+        private void notifyListener(PendingSync pendingSync, Exception exception) {
+            try {
+                pendingSync.listener.accept(exception);
+            } catch (Exception e) {
+                logger.warn("failed to notify translog sync listener", e);
+            }
+        }
+    }
+}
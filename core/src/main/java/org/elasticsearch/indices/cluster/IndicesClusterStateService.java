@@ -206,7 +206,7 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
 
         createIndices(state);
 
-        createOrUpdateShards(state);
+        createOrUpdateShards(event);
     }
 
     /**
@@ -490,7 +490,8 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
         }
     }
 
-    private void createOrUpdateShards(final ClusterState state) {
+    private void createOrUpdateShards(final ClusterChangedEvent event) {
+        final ClusterState state = event.state();
         RoutingNode localRoutingNode = state.getRoutingNodes().node(state.nodes().getLocalNodeId());
         if (localRoutingNode == null) {
             return;
@@ -498,6 +499,9 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
 
         DiscoveryNodes nodes = state.nodes();
         RoutingTable routingTable = state.routingTable();
+        // unchanged index routing tables and nodes keep their instances when a cluster state diff is applied, which allows us to
+        // only touch the shards of indices that changed instead of walking all shards on every cluster state update
+        final boolean nodesChanged = nodes != event.previousState().nodes();
 
         for (final ShardRouting shardRouting : localRoutingNode) {
             ShardId shardId = shardRouting.shardId();
@@ -508,13 +512,26 @@ public class IndicesClusterStateService extends AbstractLifecycleComponent imple
                 if (shard == null) {
                     assert shardRouting.initializing() : shardRouting + " should have been removed by failMissingShards";
                     createShard(nodes, routingTable, shardRouting, state);
-                } else {
+                } else if (nodesChanged || event.indexRoutingTableChanged(shardId.getIndexName())
+                    || shardNeedsUpdate(shardRouting, shard)) {
                     updateShard(nodes, shardRouting, shard, routingTable, state);
                 }
             }
         }
     }
 
+    /**
+     * Returns <code>true</code> if the given shard has to be updated even though neither its index routing table nor the nodes changed,
+     * i.e. if it didn't see the routing entry yet or if it has to resend the shard started message to the master.
+     */
+    private static boolean shardNeedsUpdate(ShardRouting shardRouting, Shard shard) {
+        if (shardRouting.equals(shard.routingEntry()) == false) {
+            return true;
+        }
+        final IndexShardState state = shard.state();
+        return shardRouting.initializing() && (state == IndexShardState.STARTED || state == IndexShardState.POST_RECOVERY);
+    }
+
     private void createShard(DiscoveryNodes nodes, RoutingTable routingTable, ShardRouting shardRouting, ClusterState state) {
         assert shardRouting.initializing() : "only allow shard creation for initializing shard but was " + shardRouting;
 
@@ -198,7 +198,8 @@ public class PeerRecoverySourceService extends AbstractComponent implements Inde
                         request.targetNode(), recoverySettings, throttleTime -> shard.recoveryStats().addThrottleTime(throttleTime));
                 Supplier<Long> currentClusterStateVersionSupplier = () -> clusterService.state().getVersion();
                 handler = new RecoverySourceHandler(shard, recoveryTarget, request, currentClusterStateVersionSupplier,
-                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), settings);
+                        this::delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(),
+                        recoverySettings.getMaxConcurrentFileChunks(), settings);
                 return handler;
             }
 
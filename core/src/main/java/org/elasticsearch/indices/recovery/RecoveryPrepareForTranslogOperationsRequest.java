@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -33,15 +34,18 @@ public class RecoveryPrepareForTranslogOperationsRequest extends TransportReques
     private long recoveryId;
     private ShardId shardId;
     private int totalTranslogOps = RecoveryState.Translog.UNKNOWN;
+    private RecoveryState.Mode mode = RecoveryState.Mode.FILE_BASED;
 
     public RecoveryPrepareForTranslogOperationsRequest() {
     }
 
-    RecoveryPrepareForTranslogOperationsRequest(long recoveryId, ShardId shardId, int totalTranslogOps, long maxUnsafeAutoIdTimestamp) {
+    RecoveryPrepareForTranslogOperationsRequest(long recoveryId, ShardId shardId, int totalTranslogOps, long maxUnsafeAutoIdTimestamp,
+                                                RecoveryState.Mode mode) {
         this.recoveryId = recoveryId;
         this.shardId = shardId;
         this.totalTranslogOps = totalTranslogOps;
         this.maxUnsafeAutoIdTimestamp = maxUnsafeAutoIdTimestamp;
+        this.mode = mode;
     }
 
     public long recoveryId() {
@@ -60,6 +64,10 @@ public class RecoveryPrepareForTranslogOperationsRequest extends TransportReques
         return maxUnsafeAutoIdTimestamp;
     }
 
+    public RecoveryState.Mode mode() {
+        return mode;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -67,6 +75,9 @@ public class RecoveryPrepareForTranslogOperationsRequest extends TransportReques
         shardId = ShardId.readShardId(in);
         totalTranslogOps = in.readVInt();
         maxUnsafeAutoIdTimestamp = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            mode = RecoveryState.Mode.fromId(in.readByte());
+        }
     }
 
     @Override
@@ -76,5 +87,8 @@ public class RecoveryPrepareForTranslogOperationsRequest extends TransportReques
         shardId.writeTo(out);
         out.writeVInt(totalTranslogOps);
         out.writeLong(maxUnsafeAutoIdTimestamp);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeByte(mode.id());
+        }
     }
 }
@@ -31,9 +31,11 @@ import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
@@ -57,7 +59,10 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
@@ -86,6 +91,11 @@ public class RecoverySourceHandler {
     private final Function<String, Releasable> delayNewRecoveries;
     private final int chunkSizeInBytes;
     private final RecoveryTargetHandler recoveryTarget;
+    private final int maxConcurrentFileChunks;
+    // permits for file chunks that have been sent but not acknowledged by the target yet
+    private final Semaphore fileChunkPermits;
+    // the first failure of a file chunk that was sent asynchronously, and the file it belongs to
+    private final AtomicReference<Tuple<StoreFileMetaData, Exception>> fileChunkFailure = new AtomicReference<>();
 
     protected final RecoveryResponse response;
 
@@ -111,6 +121,20 @@ public class RecoverySourceHandler {
                                  Function<String, Releasable> delayNewRecoveries,
                                  final int fileChunkSizeInBytes,
                                  final Settings nodeSettings) {
+        this(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, fileChunkSizeInBytes, 1,
+            nodeSettings);
+    }
+
+    public RecoverySourceHandler(final IndexShard shard, RecoveryTargetHandler recoveryTarget,
+                                 final StartRecoveryRequest request,
+                                 final Supplier<Long> currentClusterStateVersionSupplier,
+                                 Function<String, Releasable> delayNewRecoveries,
+                                 final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
+                                 final Settings nodeSettings) {
+        if (maxConcurrentFileChunks < 1) {
+            throw new IllegalArgumentException("maxConcurrentFileChunks must be >= 1 but was [" + maxConcurrentFileChunks + "]");
+        }
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
         this.request = request;
@@ -120,6 +144,8 @@ public class RecoverySourceHandler {
         this.shardId = this.request.shardId().id();
         this.logger = Loggers.getLogger(getClass(), nodeSettings, request.shardId(), "recover to " + request.targetNode().getName());
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -133,8 +159,11 @@ public class RecoverySourceHandler {
             boolean isSequenceNumberBasedRecoveryPossible = request.startingSeqNo() != SequenceNumbersService.UNASSIGNED_SEQ_NO &&
                 isTranslogReadyForSequenceNumberBasedRecovery(translogView);
 
+            // the first translog generation holding operations that have to be replayed on the target
+            final long translogStartGeneration;
             if (isSequenceNumberBasedRecoveryPossible) {
                 logger.trace("performing sequence numbers based recovery. starting at [{}]", request.startingSeqNo());
+                translogStartGeneration = translogView.minTranslogGeneration();
             } else {
                 final IndexCommit phase1Snapshot;
                 try {
@@ -144,6 +173,7 @@ public class RecoverySourceHandler {
                     throw new RecoveryEngineException(shard.shardId(), 1, "snapshot failed", e);
                 }
                 try {
+                    translogStartGeneration = getTranslogGeneration(phase1Snapshot, translogView);
                     phase1(phase1Snapshot, translogView);
                 } catch (final Exception e) {
                     throw new RecoveryEngineException(shard.shardId(), 1, "phase1 failed", e);
@@ -157,7 +187,9 @@ public class RecoverySourceHandler {
             }
 
             try {
-                prepareTargetForTranslog(translogView.totalOperations(), shard.segmentStats(false).getMaxUnsafeAutoIdTimestamp());
+                prepareTargetForTranslog(translogView.totalOperations(translogStartGeneration),
+                    shard.segmentStats(false).getMaxUnsafeAutoIdTimestamp(),
+                    isSequenceNumberBasedRecoveryPossible ? RecoveryState.Mode.OPERATIONS_BASED : RecoveryState.Mode.FILE_BASED);
             } catch (final Exception e) {
                 throw new RecoveryEngineException(shard.shardId(), 1, "prepare target for translog failed", e);
             }
@@ -180,10 +212,10 @@ public class RecoverySourceHandler {
                 throw new IndexShardRelocatedException(request.shardId());
             }
 
-            logger.trace("snapshot translog for recovery; current size is [{}]", translogView.totalOperations());
+            logger.trace("snapshot translog for recovery; current size is [{}]", translogView.totalOperations(translogStartGeneration));
             try {
                 phase2(isSequenceNumberBasedRecoveryPossible ? request.startingSeqNo() : SequenceNumbersService.UNASSIGNED_SEQ_NO,
-                    translogView.snapshot());
+                    translogView.snapshot(translogStartGeneration));
             } catch (Exception e) {
                 throw new RecoveryEngineException(shard.shardId(), 2, "phase2 failed", e);
             }
@@ -193,6 +225,19 @@ public class RecoverySourceHandler {
         return response;
     }
 
+    /**
+     * Returns the translog generation that was current when the given commit was made. The source translog may retain older
+     * generations for operations-based recoveries but their operations are contained in the commit, so there is no need to replay
+     * them after a file-based recovery.
+     */
+    static long getTranslogGeneration(final IndexCommit commit, final Translog.View translogView) throws IOException {
+        final String translogGeneration = commit.getUserData().get(Translog.TRANSLOG_GENERATION_KEY);
+        if (translogGeneration == null) {
+            return translogView.minTranslogGeneration();
+        }
+        return Long.parseLong(translogGeneration);
+    }
+
     /**
      * Determines if the source translog is ready for a sequence-number-based peer recovery. The main condition here is that the source
      * translog contains all operations between the local checkpoint on the target and the current maximum sequence number on the source.
@@ -389,13 +434,14 @@ public class RecoverySourceHandler {
         }
     }
 
-    void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp) throws IOException {
+    void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp, final RecoveryState.Mode mode)
+            throws IOException {
         StopWatch stopWatch = new StopWatch().start();
         logger.trace("recovery [phase1]: prepare remote engine for translog");
         final long startEngineStart = stopWatch.totalTime().millis();
         // Send a request preparing the new shard's translog to receive operations. This ensures the shard engine is started and disables
         // garbage collection (not the JVM's GC!) of tombstone deletes.
-        cancellableThreads.executeIO(() -> recoveryTarget.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp));
+        cancellableThreads.executeIO(() -> recoveryTarget.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp, mode));
         stopWatch.stop();
 
         response.startTime = stopWatch.totalTime().millis() - startEngineStart;
@@ -566,22 +612,58 @@ public class RecoverySourceHandler {
 
         @Override
         public void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the chunk may still be in flight when the next one is buffered, so we can't reference the buffer of the caller
+            final BytesArray content = new BytesArray(Arrays.copyOfRange(b, offset, offset + length));
+            sendNextChunk(position, content, md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
         private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
+            // wait until there is room for another chunk in flight
+            cancellableThreads.execute(fileChunkPermits::acquire);
+            try {
+                rethrowFileChunkFailure();
+            } catch (Exception e) {
+                fileChunkPermits.release();
+                throw e;
+            }
+            // Actually send the file chunk to the target node, the permit is released once the target acknowledged it
+            recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations(),
+                ActionListener.wrap(
+                    r -> fileChunkPermits.release(),
+                    e -> {
+                        fileChunkFailure.compareAndSet(null, new Tuple<>(md, e));
+                        fileChunkPermits.release();
+                    }));
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
         }
     }
 
+    private void rethrowFileChunkFailure() throws IOException {
+        final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+        if (failure != null) {
+            final Exception e = failure.v2();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else {
+                throw new IOException("failed to send file chunk of [" + failure.v1().name() + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all file chunks that are in flight have been acknowledged by the target.
+     */
+    private void waitForFileChunks() {
+        cancellableThreads.execute(() -> fileChunkPermits.acquire(maxConcurrentFileChunks));
+        fileChunkPermits.release(maxConcurrentFileChunks);
+    }
+
     void sendFiles(Store store, StoreFileMetaData[] files, Function<StoreFileMetaData, OutputStream> outputStreamFactory) throws Exception {
         store.incRef();
         try {
@@ -593,35 +675,51 @@ public class RecoverySourceHandler {
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
                 } catch (Exception e) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(e);
-                            logger.warn(
-                                (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
-                                    "{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    shardId,
-                                    request.targetNode(),
-                                    md),
-                                corruptIndexException);
-                            throw exception;
-                        }
+                    // the failure may belong to a chunk of a previous file that was still in flight
+                    final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+                    if (failure != null && (failure.v2() == e || failure.v2() == e.getCause())) {
+                        handleErrorOnSendFiles(store, failure.v2(), failure.v1());
                     } else {
-                        throw e;
+                        handleErrorOnSendFiles(store, e, md);
                     }
                 }
             }
+            // chunks are sent asynchronously, the last ones might not have been acknowledged yet
+            waitForFileChunks();
+            final Tuple<StoreFileMetaData, Exception> failure = fileChunkFailure.get();
+            if (failure != null) {
+                handleErrorOnSendFiles(store, failure.v2(), failure.v1());
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleErrorOnSendFiles(Store store, Exception e, StoreFileMetaData md) throws Exception {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(e);
+                logger.warn(
+                    (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
+                        "{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        shardId,
+                        request.targetNode(),
+                        md),
+                    corruptIndexException);
+                throw exception;
+            }
+        } else {
+            throw e;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -97,7 +98,44 @@ public class RecoveryState implements ToXContent, Streamable {
         }
     }
 
+    /**
+     * How a peer recovery brings the target in sync with the source.
+     */
+    public enum Mode {
+        /**
+         * segment files are copied from the source before replaying the operations that are not contained in them
+         */
+        FILE_BASED((byte) 0),
+
+        /**
+         * the target already has all operations up to its local checkpoint and only the missing operations are replayed
+         */
+        OPERATIONS_BASED((byte) 1);
+
+        private final byte id;
+
+        Mode(byte id) {
+            this.id = id;
+        }
+
+        public byte id() {
+            return id;
+        }
+
+        public static Mode fromId(byte id) {
+            switch (id) {
+                case 0:
+                    return FILE_BASED;
+                case 1:
+                    return OPERATIONS_BASED;
+                default:
+                    throw new IllegalArgumentException("No mapping for id [" + id + "]");
+            }
+        }
+    }
+
     private Stage stage;
+    private Mode mode = Mode.FILE_BASED;
 
     private final Index index = new Index();
     private final Translog translog = new Translog();
@@ -151,6 +189,7 @@ public class RecoveryState implements ToXContent, Streamable {
             case INIT:
                 // reinitializing stop remove all state except for start time
                 this.stage = Stage.INIT;
+                this.mode = Mode.FILE_BASED;
                 getIndex().reset();
                 getVerifyIndex().reset();
                 getTranslog().reset();
@@ -183,6 +222,15 @@ public class RecoveryState implements ToXContent, Streamable {
         return this;
     }
 
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    public synchronized RecoveryState setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
     public Index getIndex() {
         return index;
     }
@@ -237,6 +285,9 @@ public class RecoveryState implements ToXContent, Streamable {
         translog.readFrom(in);
         verifyIndex.readFrom(in);
         primary = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            mode = Mode.fromId(in.readByte());
+        }
     }
 
     @Override
@@ -251,6 +302,9 @@ public class RecoveryState implements ToXContent, Streamable {
         translog.writeTo(out);
         verifyIndex.writeTo(out);
         out.writeBoolean(primary);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeByte(mode.id());
+        }
     }
 
     @Override
@@ -267,6 +321,7 @@ public class RecoveryState implements ToXContent, Streamable {
         builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, timer.time());
 
         if (recoverySource.getType() == RecoverySource.Type.PEER) {
+            builder.field(Fields.MODE, mode.toString().toLowerCase(Locale.ROOT));
             builder.startObject(Fields.SOURCE);
             builder.field(Fields.ID, sourceNode.getId());
             builder.field(Fields.HOST, sourceNode.getHostName());
@@ -308,6 +363,7 @@ public class RecoveryState implements ToXContent, Streamable {
         static final String TYPE = "type";
         static final String STAGE = "stage";
         static final String PRIMARY = "primary";
+        static final String MODE = "mode";
         static final String START_TIME = "start_time";
         static final String START_TIME_IN_MILLIS = "start_time_in_millis";
         static final String STOP_TIME = "stop_time";
@@ -33,6 +33,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
@@ -52,10 +53,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -87,6 +90,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
     private final CancellableThreads cancellableThreads;
 
     // last time this status was accessed
@@ -319,6 +323,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     @Override
     protected void closeInternal() {
         try {
+            fileChunkWriters.clear();
             // clean open index outputs
             Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
             while (iterator.hasNext()) {
@@ -360,7 +365,9 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     /*** Implementation of {@link RecoveryTargetHandler } */
 
     @Override
-    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException {
+    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp, RecoveryState.Mode mode)
+            throws IOException {
+        state().setMode(mode);
         state().getTranslog().totalOperations(totalTranslogOps);
         indexShard().skipTranslogRecovery(maxUnsafeAutoIdTimestamp);
     }
@@ -448,9 +455,54 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                                boolean lastChunk, int totalTranslogOps) throws IOException {
+        state().getTranslog().totalOperations(totalTranslogOps);
+        final FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetaData.name(), name -> new FileChunkWriter());
+        writer.writeFileChunk(fileMetaData, position, content, lastChunk);
+    }
+
+    /**
+     * Writes the chunks of a single file in order. The source may have several chunks of a file in flight, so they can arrive out of
+     * order. Chunks that arrive ahead of their turn are kept until the gap before them is filled since index outputs can only be
+     * written sequentially.
+     */
+    private final class FileChunkWriter {
+        private final PriorityQueue<FileChunk> pendingChunks = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.position));
+        private long nextPosition = 0;
+
+        synchronized void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                         boolean lastChunk) throws IOException {
+            if (position != nextPosition) {
+                assert position > nextPosition : "chunk at [" + position + "] was already written, next position is [" + nextPosition + "]";
+                // the transport layer may reuse the bytes of the request once it has been handled, so we hold on to a copy
+                pendingChunks.add(new FileChunk(position, new BytesArray(content.toBytesRef(), true), lastChunk));
+                return;
+            }
+            innerWriteFileChunk(fileMetaData, position, content, lastChunk);
+            nextPosition += content.length();
+            while (pendingChunks.isEmpty() == false && pendingChunks.peek().position == nextPosition) {
+                final FileChunk chunk = pendingChunks.poll();
+                innerWriteFileChunk(fileMetaData, chunk.position, chunk.content, chunk.lastChunk);
+                nextPosition += chunk.content.length();
+            }
+        }
+    }
+
+    private static final class FileChunk {
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(long position, BytesReference content, boolean lastChunk) {
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
+    private void innerWriteFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                     boolean lastChunk) throws IOException {
         final Store store = store();
         final String name = fileMetaData.name();
-        state().getTranslog().totalOperations(totalTranslogOps);
         final RecoveryState.Index indexState = state().getIndex();
         IndexOutput indexOutput;
         if (position == 0) {
@@ -477,6 +529,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
             store.directory().sync(Collections.singleton(temporaryFileName));
             IndexOutput remove = removeOpenIndexOutputs(name);
             assert remove == null || remove == indexOutput; // remove maybe null if we got finished
+            fileChunkWriters.remove(name);
         }
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
@@ -35,8 +36,9 @@ public interface RecoveryTargetHandler {
      * @param totalTranslogOps total translog operations expected to be sent
      * @param maxUnsafeAutoIdTimestamp the max timestamp that is used to de-optimize documents with auto-generated IDs in the engine.
      * This is used to ensure we don't add duplicate documents when we assume an append only case based on auto-generated IDs
+     * @param mode whether files were copied before replaying operations or only operations are replayed
      */
-    void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException;
+    void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp, RecoveryState.Mode mode) throws IOException;
 
     /**
      * The finalize request refreshes the engine now that new segments are available, enables garbage collection of tombstone files, and
@@ -79,6 +81,21 @@ public interface RecoveryTargetHandler {
     void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                         boolean lastChunk, int totalTranslogOps) throws IOException;
 
+    /**
+     * writes a partial file chunk to the target store and notifies the listener once the target acknowledged it. Chunks that are
+     * written concurrently may reach the target out of order. By default the chunk is written synchronously.
+     */
+    default void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener) {
+        try {
+            writeFileChunk(fileMetaData, position, content, lastChunk, totalTranslogOps);
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        listener.onResponse(null);
+    }
+
     /***
      * @return the allocation id of the target shard.
      */
@@ -61,6 +61,12 @@ public class RecoveryTranslogOperationsRequest extends TransportRequest {
         return totalTranslogOps;
     }
 
+    @Override
+    public boolean canReferenceMessageBytes() {
+        // the operations are applied to the shard before the recovery target responds
+        return true;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
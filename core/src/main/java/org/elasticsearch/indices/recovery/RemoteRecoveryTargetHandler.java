@@ -21,6 +21,8 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.shard.ShardId;
@@ -29,6 +31,7 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -78,9 +81,10 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
     }
 
     @Override
-    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException {
+    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp, RecoveryState.Mode mode)
+            throws IOException {
         transportService.submitRequest(targetNode, PeerRecoveryTargetService.Actions.PREPARE_TRANSLOG,
-                new RecoveryPrepareForTranslogOperationsRequest(recoveryId, shardId, totalTranslogOps, maxUnsafeAutoIdTimestamp),
+                new RecoveryPrepareForTranslogOperationsRequest(recoveryId, shardId, totalTranslogOps, maxUnsafeAutoIdTimestamp, mode),
                 TransportRequestOptions.builder().withTimeout(recoverySettings.internalActionTimeout()).build(),
                 EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
     }
@@ -132,7 +136,44 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean
             lastChunk, int totalTranslogOps) throws IOException {
-        // Pause using the rate limiter, if desired, to throttle the recovery
+        final long throttleTimeInNanos = throttle(content);
+        transportService.submitRequest(targetNode, PeerRecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+    }
+
+    @Override
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                               int totalTranslogOps, ActionListener<Void> listener) {
+        final long throttleTimeInNanos;
+        try {
+            throttleTimeInNanos = throttle(content);
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        transportService.sendRequest(targetNode, PeerRecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, new ActionListenerResponseHandler<>(
+                        ActionListener.wrap(response -> listener.onResponse(null), listener::onFailure),
+                        () -> TransportResponse.Empty.INSTANCE));
+    }
+
+    private RecoveryFileChunkRequest newFileChunkRequest(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                                         boolean lastChunk, int totalTranslogOps, long throttleTimeInNanos) {
+        return new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
+                totalTranslogOps,
+                        /* we send totalOperations with every request since we collect stats on the target and that way we can
+                         * see how many translog ops we accumulate while copying files across the network. A future optimization
+                         * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
+                         */
+                throttleTimeInNanos);
+    }
+
+    /**
+     * Pauses using the rate limiter, if desired, to throttle the recovery and returns the time paused in nanoseconds.
+     */
+    private long throttle(BytesReference content) {
         final long throttleTimeInNanos;
         // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
         final RateLimiter rl = recoverySettings.rateLimiter();
@@ -153,15 +194,7 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
         } else {
             throttleTimeInNanos = 0;
         }
-
-        transportService.submitRequest(targetNode, PeerRecoveryTargetService.Actions.FILE_CHUNK,
-                new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
-                        totalTranslogOps,
-                                /* we send totalOperations with every request since we collect stats on the target and that way we can
-                                 * see how many translog ops we accumulate while copying files across the network. A future optimization
-                                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
-                                 */
-                        throttleTimeInNanos), fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+        return throttleTimeInNanos;
     }
 
     @Override
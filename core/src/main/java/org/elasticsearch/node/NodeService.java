@@ -24,6 +24,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
+import org.elasticsearch.action.search.SearchTransportService;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -55,6 +56,8 @@ public class NodeService extends AbstractComponent implements Closeable {
     private final SettingsFilter settingsFilter;
     private ScriptService scriptService;
     private final HttpServerTransport httpServerTransport;
+    private final ResponseCollectorService responseCollectorService;
+    private final SearchTransportService searchTransportService;
 
 
     private final Discovery discovery;
@@ -63,7 +66,8 @@ public class NodeService extends AbstractComponent implements Closeable {
                        TransportService transportService, IndicesService indicesService, PluginsService pluginService,
                        CircuitBreakerService circuitBreakerService, ScriptService scriptService,
                        @Nullable HttpServerTransport httpServerTransport, IngestService ingestService, ClusterService clusterService,
-                       SettingsFilter settingsFilter) {
+                       SettingsFilter settingsFilter, ResponseCollectorService responseCollectorService,
+                       SearchTransportService searchTransportService) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -76,6 +80,8 @@ public class NodeService extends AbstractComponent implements Closeable {
         this.ingestService = ingestService;
         this.settingsFilter = settingsFilter;
         this.scriptService = scriptService;
+        this.responseCollectorService = responseCollectorService;
+        this.searchTransportService = searchTransportService;
         clusterService.addStateApplier(ingestService.getPipelineStore());
         clusterService.addStateApplier(ingestService.getPipelineExecutionService());
     }
@@ -98,7 +104,7 @@ public class NodeService extends AbstractComponent implements Closeable {
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool,
                            boolean fs, boolean transport, boolean http, boolean circuitBreaker,
-                           boolean script, boolean discoveryStats, boolean ingest) {
+                           boolean script, boolean discoveryStats, boolean ingest, boolean adaptiveSelection) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(discovery.localNode(), System.currentTimeMillis(),
@@ -113,7 +119,8 @@ public class NodeService extends AbstractComponent implements Closeable {
                 circuitBreaker ? circuitBreakerService.stats() : null,
                 script ? scriptService.stats() : null,
                 discoveryStats ? discovery.stats() : null,
-                ingest ? ingestService.getPipelineExecutionService().stats() : null
+                ingest ? ingestService.getPipelineExecutionService().stats() : null,
+                adaptiveSelection ? responseCollectorService.getAdaptiveStats(searchTransportService.getPendingSearchRequests()) : null
         );
     }
 
@@ -27,6 +27,7 @@ import org.elasticsearch.common.CheckedFunction;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -65,6 +66,8 @@ public class ChecksumBlobStoreFormat<T extends ToXContent> extends BlobStoreForm
 
     protected final boolean compress;
 
+    protected final Compressor compressor;
+
     private final String codec;
 
     /**
@@ -72,16 +75,43 @@ public class ChecksumBlobStoreFormat<T extends ToXContent> extends BlobStoreForm
      * @param blobNameFormat format of the blobname in {@link String#format} format
      * @param reader         prototype object that can deserialize T from XContent
      * @param compress       true if the content should be compressed
+     * @param compressor     compressor that should be used for write operations if the content is compressed
      * @param xContentType   content type that should be used for write operations
      */
     public ChecksumBlobStoreFormat(String codec, String blobNameFormat, CheckedFunction<XContentParser, T, IOException> reader,
-                                   NamedXContentRegistry namedXContentRegistry, boolean compress, XContentType xContentType) {
+                                   NamedXContentRegistry namedXContentRegistry, boolean compress, Compressor compressor,
+                                   XContentType xContentType) {
         super(blobNameFormat, reader, namedXContentRegistry);
         this.xContentType = xContentType;
         this.compress = compress;
+        this.compressor = compressor;
         this.codec = codec;
     }
 
+    /**
+     * @param codec          codec name
+     * @param blobNameFormat format of the blobname in {@link String#format} format
+     * @param reader         prototype object that can deserialize T from XContent
+     * @param compress       true if the content should be compressed
+     * @param xContentType   content type that should be used for write operations
+     */
+    public ChecksumBlobStoreFormat(String codec, String blobNameFormat, CheckedFunction<XContentParser, T, IOException> reader,
+                                   NamedXContentRegistry namedXContentRegistry, boolean compress, XContentType xContentType) {
+        this(codec, blobNameFormat, reader, namedXContentRegistry, compress, CompressorFactory.COMPRESSOR, xContentType);
+    }
+
+    /**
+     * @param codec          codec name
+     * @param blobNameFormat format of the blobname in {@link String#format} format
+     * @param reader         prototype object that can deserialize T from XContent
+     * @param compress       true if the content should be compressed
+     * @param compressor     compressor that should be used for write operations if the content is compressed
+     */
+    public ChecksumBlobStoreFormat(String codec, String blobNameFormat, CheckedFunction<XContentParser, T, IOException> reader,
+                                   NamedXContentRegistry namedXContentRegistry, boolean compress, Compressor compressor) {
+        this(codec, blobNameFormat, reader, namedXContentRegistry, compress, compressor, DEFAULT_X_CONTENT_TYPE);
+    }
+
     /**
      * @param codec          codec name
      * @param blobNameFormat format of the blobname in {@link String#format} format
@@ -201,7 +231,7 @@ public class ChecksumBlobStoreFormat<T extends ToXContent> extends BlobStoreForm
     protected BytesReference write(T obj) throws IOException {
         try (BytesStreamOutput bytesStreamOutput = new BytesStreamOutput()) {
             if (compress) {
-                try (StreamOutput compressedStreamOutput = CompressorFactory.COMPRESSOR.streamOutput(bytesStreamOutput)) {
+                try (StreamOutput compressedStreamOutput = compressor.streamOutput(bytesStreamOutput)) {
                     write(obj, compressedStreamOutput);
                 }
             } else {
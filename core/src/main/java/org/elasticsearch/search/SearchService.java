@@ -25,8 +25,10 @@ import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.lucene.Lucene;
@@ -42,6 +44,9 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.index.query.InnerHitBuilder;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
@@ -93,6 +98,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
@@ -144,6 +152,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final AtomicLong idGenerator = new AtomicLong();
 
+    /** moving average of the time spent executing query phases on this node, reported back for adaptive replica selection */
+    private final ExponentiallyWeightedMovingAverage queryPhaseTimeEWMA = new ExponentiallyWeightedMovingAverage(0.3, 0);
+
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
     public SearchService(ClusterService clusterService, IndicesService indicesService,
@@ -266,6 +277,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
             final long afterQueryTime = System.nanoTime();
             operationListener.onQueryPhase(context, afterQueryTime - time);
+            addNodeStats(context.queryResult(), afterQueryTime - time);
             if (request.numberOfShards() == 1) {
                 return executeFetchPhase(context, operationListener, afterQueryTime);
             }
@@ -347,7 +359,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             } else {
                 contextProcessedSuccessfully(context);
             }
-            operationListener.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            operationListener.onQueryPhase(context, took);
+            addNodeStats(context.queryResult(), took);
             return context.queryResult();
         } catch (Exception e) {
             operationListener.onFailedQueryPhase(context);
@@ -359,6 +373,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * Records the time spent in the query phase and attaches the current search queue size and service time
+     * moving average to the result so that the coordinating node can rank shard copies.
+     */
+    private void addNodeStats(QuerySearchResult result, long queryPhaseTimeNanos) {
+        queryPhaseTimeEWMA.addValue(queryPhaseTimeNanos);
+        final ExecutorService executor = threadPool.executor(Names.SEARCH);
+        final int queueSize = executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : -1;
+        result.nodeStats(queueSize, (long) queryPhaseTimeEWMA.getAverage());
+    }
+
     private boolean fetchPhaseShouldFreeContext(SearchContext context) {
         if (context.scrollContext() == null) {
             // simple search, no scroll
@@ -500,9 +525,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().getId(), indexShard.shardId());
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
+        final boolean concurrentSegmentSearch = request.concurrentSegmentSearch() != null ? request.concurrentSegmentSearch()
+            : indexService.getIndexSettings().isConcurrentSegmentSearch();
+        final Executor sliceExecutor = concurrentSegmentSearch ? threadPool.executor(Names.SEARCH_WORKER) : null;
+        final int maxSlices = concurrentSegmentSearch ? threadPool.info(Names.SEARCH_WORKER).getMax() : 1;
 
         final DefaultSearchContext searchContext = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget,
-            engineSearcher, indexService, indexShard, bigArrays, threadPool.estimatedTimeInMillisCounter(), timeout, fetchPhase);
+            engineSearcher, indexService, indexShard, bigArrays, threadPool.estimatedTimeInMillisCounter(), timeout, fetchPhase,
+            sliceExecutor, maxSlices);
         boolean success = false;
         try {
             // we clone the query shard context here just for rewriting otherwise we
@@ -621,6 +651,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
         }
         context.trackScores(source.trackScores());
+        if (source.trackTotalHits() == false && context.scrollContext() != null) {
+            throw new SearchContextException(context, "disabling [track_total_hits] is not allowed in a scroll context");
+        }
+        context.trackTotalHits(source.trackTotalHits());
         if (source.minScore() != null) {
             context.minimumScore(source.minScore());
         }
@@ -813,4 +847,34 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public AliasFilter buildAliasFilter(ClusterState state, String index, String... expressions) {
         return indicesService.buildAliasFilter(state, index, expressions);
     }
+
+    /**
+     * This method does a very quick rewrite of the query and returns true if the query can potentially match any documents.
+     * This method can have false positives while if it returns <code>false</code> the query won't match any documents on the current
+     * shard.
+     */
+    public boolean canMatch(ShardSearchRequest request) throws IOException {
+        assert request.searchType() == SearchType.QUERY_THEN_FETCH : "unexpected search type: " + request.searchType();
+        try (DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, null)) {
+            SearchSourceBuilder source = context.request().source();
+            if (canRewriteToMatchNone(source)) {
+                QueryBuilder queryBuilder = source.query();
+                return queryBuilder instanceof MatchNoneQueryBuilder == false;
+            }
+            return true; // null query means match_all
+        }
+    }
+
+    /**
+     * Returns true iff the given search source builder can be early terminated by rewriting to a match none query. Or in other words
+     * if the execution of a the search request can be early terminated without executing it. This is for instance not possible if
+     * a global aggregation is part of this request or if there is a suggest builder present.
+     */
+    public static boolean canRewriteToMatchNone(SearchSourceBuilder source) {
+        if (source == null || source.query() == null || source.query() instanceof MatchAllQueryBuilder || source.suggest() != null) {
+            return false;
+        }
+        AggregatorFactories.Builder aggregations = source.aggregations();
+        return aggregations == null || aggregations.mustVisitAllDocs() == false;
+    }
 }
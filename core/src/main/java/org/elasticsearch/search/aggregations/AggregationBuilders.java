@@ -25,6 +25,9 @@ import org.elasticsearch.search.aggregations.bucket.adjacency.AdjacencyMatrix;
 import org.elasticsearch.search.aggregations.bucket.adjacency.AdjacencyMatrixAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.children.Children;
 import org.elasticsearch.search.aggregations.bucket.children.ChildrenAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.filters.Filters;
@@ -34,6 +37,7 @@ import org.elasticsearch.search.aggregations.bucket.geogrid.GeoGridAggregationBu
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGrid;
 import org.elasticsearch.search.aggregations.bucket.global.Global;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.AutoDateHistogramAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
@@ -53,6 +57,7 @@ import org.elasticsearch.search.aggregations.bucket.sampler.Sampler;
 import org.elasticsearch.search.aggregations.bucket.sampler.SamplerAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantTerms;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantTermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.MultiTermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.avg.Avg;
@@ -84,6 +89,7 @@ import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregationB
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregationBuilder;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -263,6 +269,14 @@ public class AggregationBuilders {
         return new DateHistogramAggregationBuilder(name);
     }
 
+    /**
+     * Create a new {@link AutoDateHistogramAggregationBuilder} aggregation with the given
+     * name.
+     */
+    public static AutoDateHistogramAggregationBuilder autoDateHistogram(String name) {
+        return new AutoDateHistogramAggregationBuilder(name);
+    }
+
     /**
      * Create a new {@link Range} aggregation with the given name.
      */
@@ -293,6 +307,14 @@ public class AggregationBuilders {
         return new TermsAggregationBuilder(name, null);
     }
 
+    /**
+     * Create a new {@link Terms} aggregation with the given name that creates a bucket per combination of the terms of the
+     * given fields.
+     */
+    public static MultiTermsAggregationBuilder multiTerms(String name, List<String> fields) {
+        return new MultiTermsAggregationBuilder(name, fields);
+    }
+
     /**
      * Create a new {@link Percentiles} aggregation with the given name.
      */
@@ -341,4 +363,11 @@ public class AggregationBuilders {
     public static ScriptedMetricAggregationBuilder scriptedMetric(String name) {
         return new ScriptedMetricAggregationBuilder(name);
     }
+
+    /**
+     * Create a new {@link CompositeAggregation} aggregation with the given name.
+     */
+    public static CompositeAggregationBuilder composite(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        return new CompositeAggregationBuilder(name, sources);
+    }
 }
@@ -23,6 +23,7 @@ import org.apache.lucene.search.Query;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -75,6 +76,33 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Creates a collector for an additional slice of a search that collects segments concurrently. The collector
+     * feeds its own instances of the top level aggregators, except global ones, whose results are merged into the
+     * results of the main aggregators by {@link #execute(SearchContext)}. The caller must call
+     * {@link BucketCollector#postCollection()} on the thread that collected the slice. Returns <code>null</code> if
+     * there are no aggregations to collect.
+     */
+    public static BucketCollector createSliceCollector(SearchContext context) throws IOException {
+        assert context.getProfilers() == null : "profiled searches don't collect segments concurrently";
+        if (context.aggregations() == null) {
+            return null;
+        }
+        List<Aggregator> collectors = new ArrayList<>();
+        for (Aggregator aggregator : context.aggregations().factories().createTopLevelAggregators()) {
+            if (aggregator instanceof GlobalAggregator == false) {
+                collectors.add(aggregator);
+            }
+        }
+        if (collectors.isEmpty()) {
+            return null;
+        }
+        context.aggregations().addSliceAggregators(collectors.toArray(new Aggregator[collectors.size()]));
+        BucketCollector collector = BucketCollector.wrap(collectors);
+        collector.preCollection();
+        return collector;
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -131,6 +159,9 @@ public class AggregationPhase implements SearchPhase {
                 throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
             }
         }
+        if (context.aggregations().sliceAggregators().isEmpty() == false) {
+            aggregations = reduceSlices(context, aggregations);
+        }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
@@ -154,4 +185,44 @@ public class AggregationPhase implements SearchPhase {
         context.queryCollectors().remove(AggregationPhase.class);
     }
 
+    /**
+     * Merges the aggregations built by the aggregators of the additional slices into the aggregations of the main
+     * aggregators. The reduce is not final so that the result is the same as if a single aggregator had collected
+     * all segments, the final reduce happens on the coordinating node.
+     */
+    private static List<InternalAggregation> reduceSlices(SearchContext context, List<InternalAggregation> aggregations) {
+        final List<List<InternalAggregation>> sliceAggregations = new ArrayList<>();
+        for (Aggregator[] sliceAggregators : context.aggregations().sliceAggregators()) {
+            List<InternalAggregation> slice = new ArrayList<>(sliceAggregators.length);
+            for (Aggregator aggregator : sliceAggregators) {
+                try {
+                    // post collection already happened on the thread that collected the slice
+                    slice.add(aggregator.buildAggregation(0));
+                } catch (IOException e) {
+                    throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+                }
+            }
+            sliceAggregations.add(slice);
+        }
+        // aggregations that support concurrent collection don't run scripts when they are reduced
+        final ReduceContext reduceContext = new ReduceContext(context.bigArrays(), null, false);
+        final Aggregator[] aggregators = context.aggregations().aggregators();
+        final List<InternalAggregation> reduced = new ArrayList<>(aggregations.size());
+        int sliceIndex = 0;
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] instanceof GlobalAggregator) {
+                // global aggregations are not collected per slice
+                reduced.add(aggregations.get(i));
+                continue;
+            }
+            List<InternalAggregation> toReduce = new ArrayList<>(sliceAggregations.size() + 1);
+            toReduce.add(aggregations.get(i));
+            for (List<InternalAggregation> slice : sliceAggregations) {
+                toReduce.add(slice.get(sliceIndex));
+            }
+            reduced.add(aggregations.get(i).reduce(toReduce, reduceContext));
+            sliceIndex++;
+        }
+        return reduced;
+    }
 }
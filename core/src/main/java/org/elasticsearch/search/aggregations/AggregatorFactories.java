@@ -26,6 +26,9 @@ import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.AggregationPath.PathElement;
@@ -228,6 +231,23 @@ public class AggregatorFactories {
         return aggregators;
     }
 
+    /**
+     * Returns <code>true</code> if all aggregators of this tree can collect segments concurrently, see
+     * {@link AggregatorFactory#supportsConcurrentCollection()}. Global aggregations are ignored since they
+     * are collected separately after the query.
+     */
+    public boolean supportsConcurrentCollection() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory instanceof GlobalAggregatorFactory) {
+                continue;
+            }
+            if (factory.supportsConcurrentCollection() == false || factory.factories.supportsConcurrentCollection() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
@@ -419,6 +439,24 @@ public class AggregatorFactories {
             }
         }
 
+        /**
+         * Returns <code>true</code> iff one of the top level aggregations needs to see every document of the shard even if
+         * the query doesn't match any of them, for instance a <code>global</code> aggregation or a <code>terms</code>
+         * aggregation with <code>min_doc_count: 0</code> that reports all terms of the shard.
+         */
+        public boolean mustVisitAllDocs() {
+            for (AggregationBuilder builder : aggregationBuilders) {
+                if (builder instanceof GlobalAggregationBuilder) {
+                    return true;
+                } else if (builder instanceof TermsAggregationBuilder) {
+                    if (((TermsAggregationBuilder) builder).minDocCount() == 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         public List<AggregationBuilder> getAggregatorFactories() {
             return Collections.unmodifiableList(aggregationBuilders);
         }
@@ -225,6 +225,16 @@ public abstract class AggregatorFactory<AF extends AggregatorFactory<AF>> {
         return parent;
     }
 
+    /**
+     * Returns <code>true</code> if aggregators created by this factory can collect disjoint sets of segments
+     * concurrently and have their results merged by a non-final reduce into exactly the result that a single
+     * aggregator would have built. Defaults to <code>false</code>, which makes searches that use this aggregation
+     * collect segments sequentially.
+     */
+    protected boolean supportsConcurrentCollection() {
+        return false;
+    }
+
     /**
      * Utility method. Given an {@link AggregatorFactory} that creates
      * {@link Aggregator}s that only know how to collect bucket <tt>0</tt>, this
@@ -18,6 +18,9 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The aggregation context that is part of the search context.
  */
@@ -25,6 +28,7 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -50,4 +54,18 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Returns the aggregators that collected additional slices of the shard when its segments were searched
+     * concurrently. Each entry holds the top level aggregators, except global ones, of one slice.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    /**
+     * Registers the top level aggregators, except global ones, that collect an additional slice of the shard.
+     */
+    public void addSliceAggregators(Aggregator[] aggregators) {
+        sliceAggregators.add(aggregators);
+    }
 }
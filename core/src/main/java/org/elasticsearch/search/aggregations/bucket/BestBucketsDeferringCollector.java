@@ -44,7 +44,7 @@ import java.util.List;
  * this collector.
  */
 public class BestBucketsDeferringCollector extends DeferringBucketCollector {
-    private static class Entry {
+    static class Entry {
         final LeafReaderContext context;
         final PackedLongValues docDeltas;
         final PackedLongValues buckets;
@@ -89,6 +89,25 @@ public abstract class BucketsAggregator extends AggregatorBase {
         docCounts.increment(bucketOrd, inc);
     }
 
+    /**
+     * Merges the doc counts of buckets that are collapsed into the same bucket. The doc count of the bucket with ordinal
+     * {@code i} is added to the doc count of the bucket with ordinal {@code mergeMap[i]}.
+     *
+     * @param mergeMap      the new ordinal of each existing bucket
+     * @param newNumBuckets the number of buckets after the merge
+     */
+    public final void mergeBuckets(long[] mergeMap, long newNumBuckets) {
+        try (IntArray oldDocCounts = docCounts) {
+            docCounts = bigArrays.newIntArray(newNumBuckets, true);
+            for (int i = 0; i < mergeMap.length && i < oldDocCounts.size(); i++) {
+                final int docCount = oldDocCounts.get(i);
+                if (docCount != 0) {
+                    docCounts.increment(mergeMap[i], docCount);
+                }
+            }
+        }
+    }
+
     /**
      * Utility method to return the number of documents that fell in the given bucket (identified by the bucket ordinal)
      */
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A specialization of {@link BestBucketsDeferringCollector} that allows the aggregator that owns it to merge buckets while
+ * collecting, see {@link BucketsAggregator#mergeBuckets(long[], long)}. The recorded documents are replayed into the
+ * merged buckets.
+ */
+public class MergingBucketsDeferringCollector extends BestBucketsDeferringCollector {
+
+    public MergingBucketsDeferringCollector(SearchContext context) {
+        super(context);
+    }
+
+    /**
+     * Moves the documents recorded so far for the bucket with ordinal {@code i} to the bucket with ordinal {@code mergeMap[i]}.
+     */
+    public void mergeBuckets(long[] mergeMap) {
+        if (finished) {
+            throw new IllegalStateException("Cannot merge buckets after collection is finished");
+        }
+        final List<Entry> newEntries = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            newEntries.add(new Entry(entry.context, entry.docDeltas, remap(entry.buckets, mergeMap).build()));
+        }
+        entries.clear();
+        entries.addAll(newEntries);
+
+        // the buckets of the segment that is being collected
+        if (buckets != null) {
+            buckets = remap(buckets.build(), mergeMap);
+        }
+    }
+
+    private static PackedLongValues.Builder remap(PackedLongValues buckets, long[] mergeMap) {
+        final PackedLongValues.Builder newBuckets = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        for (PackedLongValues.Iterator it = buckets.iterator(); it.hasNext(); ) {
+            newBuckets.add(mergeMap[Math.toIntExact(it.next())]);
+        }
+        return newBuckets;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.bkd.BKDWriter;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents of a segment whose value of a {@code long} or {@code date} field falls into a range by intersecting the
+ * range with the points of the field rather than by reading the doc values of every matching document. This only gives the
+ * same counts as collecting the documents if the search query matches exactly the documents whose value is within some bounds,
+ * like a {@code match_all} query or a range query on the same field does, so it is only used by top level bucket aggregations
+ * without sub-aggregations, see {@link #build}. Segments that have deleted documents or multi-valued documents are collected.
+ */
+public final class PointRangeCounter {
+
+    private final String field;
+    private final long queryMin;
+    private final long queryMax;
+
+    PointRangeCounter(String field, long queryMin, long queryMax) {
+        this.field = field;
+        this.queryMin = queryMin;
+        this.queryMax = queryMax;
+    }
+
+    /**
+     * Returns a counter for the field of the given values source config if the documents that an aggregation on it collects
+     * can be counted from the points of the field, or {@code null} if the aggregation must collect them one by one.
+     */
+    @Nullable
+    public static PointRangeCounter build(ValuesSourceConfig<?> config, SearchContext context, @Nullable Aggregator parent,
+                                          AggregatorFactories factories) {
+        if (parent != null || factories.countAggregators() > 0) {
+            // buckets are counted per segment, sub-aggregations and parent buckets need the documents
+            return null;
+        }
+        if (config.script() != null || config.missing() != null || config.fieldContext() == null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        final boolean longPoints = fieldType instanceof DateFieldMapper.DateFieldType
+            || (fieldType instanceof NumberFieldMapper.NumberFieldType
+                && fieldType.typeName().equals(NumberFieldMapper.NumberType.LONG.typeName()));
+        if (longPoints == false || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return null;
+        }
+        final long[] bounds = queryBounds(context.query(), fieldType.name());
+        if (bounds == null) {
+            return null;
+        }
+        return new PointRangeCounter(fieldType.name(), bounds[0], bounds[1]);
+    }
+
+    /**
+     * Returns the inclusive bounds of the values of the given field if the query matches exactly the documents that have a value
+     * within these bounds, or {@code null} if it doesn't or this can't be told from the query.
+     */
+    @Nullable
+    static long[] queryBounds(@Nullable Query query, String field) {
+        if (query instanceof MatchAllDocsQuery) {
+            return new long[] {Long.MIN_VALUE, Long.MAX_VALUE};
+        } else if (query instanceof ConstantScoreQuery) {
+            return queryBounds(((ConstantScoreQuery) query).getQuery(), field);
+        } else if (query instanceof BoostQuery) {
+            return queryBounds(((BoostQuery) query).getQuery(), field);
+        } else if (query instanceof IndexOrDocValuesQuery) {
+            return queryBounds(((IndexOrDocValuesQuery) query).getIndexQuery(), field);
+        } else if (query instanceof PointRangeQuery) {
+            final PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) && rangeQuery.getNumDims() == 1 && rangeQuery.getBytesPerDim() == Long.BYTES) {
+                return new long[] {
+                    LongPoint.decodeDimension(rangeQuery.getLowerPoint(), 0),
+                    LongPoint.decodeDimension(rangeQuery.getUpperPoint(), 0)
+                };
+            }
+        } else if (query instanceof BooleanQuery) {
+            final BooleanQuery booleanQuery = (BooleanQuery) query;
+            if (booleanQuery.clauses().isEmpty() || booleanQuery.getMinimumNumberShouldMatch() > 0) {
+                return null;
+            }
+            final long[] bounds = new long[] {Long.MIN_VALUE, Long.MAX_VALUE};
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                final long[] clauseBounds = clause.isRequired() ? queryBounds(clause.getQuery(), field) : null;
+                if (clauseBounds == null) {
+                    return null;
+                }
+                bounds[0] = Math.max(bounds[0], clauseBounds[0]);
+                bounds[1] = Math.min(bounds[1], clauseBounds[1]);
+            }
+            return bounds;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the points of the field in the given segment if the matching documents of the segment can be counted from them,
+     * or {@code null} if they must be collected.
+     */
+    @Nullable
+    public PointValues pointValues(LeafReaderContext ctx) throws IOException {
+        final LeafReader reader = ctx.reader();
+        if (reader.hasDeletions()) {
+            // the points of deleted documents are still in the tree
+            return null;
+        }
+        final PointValues values = reader.getPointValues(field);
+        if (values == null || values.getNumDimensions() != 1 || values.getBytesPerDimension() != Long.BYTES) {
+            return null;
+        }
+        if (values.size() != values.getDocCount()) {
+            // a document is counted once per bucket, not once per value
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * The maximum number of ranges worth counting in a segment. Each range visits up to two leaves of the tree partially, so
+     * counting is only cheaper than collecting the documents if there are fewer ranges than leaves.
+     */
+    public int maxRanges(PointValues values) {
+        return Math.max(1, values.getDocCount() / BKDWriter.DEFAULT_MAX_POINTS_IN_LEAF_NODE);
+    }
+
+    /**
+     * The minimum value of the segment that the query matches.
+     */
+    public long min(PointValues values) throws IOException {
+        return Math.max(queryMin, LongPoint.decodeDimension(values.getMinPackedValue(), 0));
+    }
+
+    /**
+     * The maximum value of the segment that the query matches.
+     */
+    public long max(PointValues values) throws IOException {
+        return Math.min(queryMax, LongPoint.decodeDimension(values.getMaxPackedValue(), 0));
+    }
+
+    /**
+     * Counts the documents of the segment that the query matches and whose value is within {@code from} and {@code to}, both
+     * inclusive.
+     */
+    public int count(PointValues values, long from, long to) throws IOException {
+        final long lower = Math.max(from, queryMin);
+        final long upper = Math.min(to, queryMax);
+        if (lower > upper) {
+            return 0;
+        }
+        final CountingVisitor visitor = new CountingVisitor(lower, upper);
+        values.intersect(visitor);
+        return visitor.count;
+    }
+
+    private static final class CountingVisitor implements PointValues.IntersectVisitor {
+        private final long lower;
+        private final long upper;
+        private int count;
+
+        CountingVisitor(long lower, long upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        public void visit(int docID) {
+            count++;
+        }
+
+        @Override
+        public void visit(int docID, byte[] packedValue) {
+            final long value = LongPoint.decodeDimension(packedValue, 0);
+            if (value >= lower && value <= upper) {
+                count++;
+            }
+        }
+
+        @Override
+        public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+            final long min = LongPoint.decodeDimension(minPackedValue, 0);
+            final long max = LongPoint.decodeDimension(maxPackedValue, 0);
+            if (max < lower || min > upper) {
+                return PointValues.Relation.CELL_OUTSIDE_QUERY;
+            } else if (min >= lower && max <= upper) {
+                return PointValues.Relation.CELL_INSIDE_QUERY;
+            }
+            return PointValues.Relation.CELL_CROSSES_QUERY;
+        }
+    }
+}
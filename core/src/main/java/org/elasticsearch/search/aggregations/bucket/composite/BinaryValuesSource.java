@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * A {@link SingleDimensionValuesSource} for binary source ({@link BytesRef}).
+ */
+class BinaryValuesSource extends SingleDimensionValuesSource<BytesRef> {
+    private final CheckedFunction<LeafReaderContext, SortedBinaryDocValues, IOException> docValuesFunc;
+    private final BytesRefBuilder[] values;
+    private BytesRef currentValue;
+
+    BinaryValuesSource(MappedFieldType fieldType, CheckedFunction<LeafReaderContext, SortedBinaryDocValues, IOException> docValuesFunc,
+                       DocValueFormat format, int size, int reverseMul) {
+        super(format, fieldType, size, reverseMul);
+        this.docValuesFunc = docValuesFunc;
+        this.values = new BytesRefBuilder[size];
+    }
+
+    private BytesRef valueAt(int slot) {
+        return slot == candidateSlot() ? currentValue : values[slot].get();
+    }
+
+    @Override
+    void copyCurrent(int slot) {
+        if (values[slot] == null) {
+            values[slot] = new BytesRefBuilder();
+        }
+        values[slot].copyBytes(currentValue);
+    }
+
+    @Override
+    int compare(int from, int to) {
+        return valueAt(from).compareTo(valueAt(to)) * reverseMul;
+    }
+
+    @Override
+    int compareCurrentWithAfter() {
+        return currentValue.compareTo(afterValue) * reverseMul;
+    }
+
+    @Override
+    void setAfter(Comparable<?> value) {
+        if (value.getClass() == BytesRef.class) {
+            afterValue = (BytesRef) value;
+        } else if (value.getClass() == String.class) {
+            afterValue = format.parseBytesRef(value.toString());
+        } else {
+            throw new IllegalArgumentException("invalid value, expected string, got " + value.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    BytesRef toComparable(int slot) {
+        return BytesRef.deepCopyOf(valueAt(slot));
+    }
+
+    @Override
+    LeafBucketCollector getLeafCollector(LeafReaderContext context, LeafBucketCollector next) throws IOException {
+        final SortedBinaryDocValues dvs = docValuesFunc.apply(context);
+        return new LeafBucketCollector() {
+            final BytesRefBuilder previous = new BytesRefBuilder();
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                dvs.setDocument(doc);
+                final int num = dvs.count();
+                for (int i = 0; i < num; i++) {
+                    final BytesRef value = dvs.valueAt(i);
+                    // values are sorted so duplicates are always adjacent
+                    if (i > 0 && value.equals(previous.get())) {
+                        continue;
+                    }
+                    currentValue = value;
+                    next.collect(doc, bucket);
+                    previous.copyBytes(value);
+                }
+            }
+        };
+    }
+
+    @Override
+    LeafBucketCollector getLeafCollector(Comparable<?> value, LeafReaderContext context, LeafBucketCollector next) {
+        if (value.getClass() != BytesRef.class) {
+            throw new IllegalArgumentException("Expected BytesRef, got " + value.getClass());
+        }
+        currentValue = (BytesRef) value;
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                next.collect(doc, bucket);
+            }
+        };
+    }
+
+    @Override
+    SortedDocsProducer createSortedDocsProducerOrNull(IndexReader reader, Query query) {
+        if (checkIfSortedDocsIsApplicable(reader, fieldType) == false || isMatchAll(query) == false) {
+            return null;
+        }
+        return new TermsSortedDocsProducer(fieldType.name());
+    }
+
+    @Override
+    public void close() {}
+}
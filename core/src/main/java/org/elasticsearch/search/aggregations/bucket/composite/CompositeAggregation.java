@@ -0,0 +1,60 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code composite} aggregation. Defines multiple buckets, each representing a unique combination of the values
+ * extracted by its sources. Buckets are sorted by key and can be paginated with {@link #afterKey()}.
+ */
+public interface CompositeAggregation extends MultiBucketsAggregation {
+
+    ParseField SOURCES_FIELD = new ParseField("sources");
+    ParseField SIZE_FIELD = new ParseField("size");
+    ParseField AFTER_FIELD = new ParseField("after");
+    ParseField AFTER_KEY_FIELD = new ParseField("after_key");
+
+    /**
+     * A bucket in the composite aggregation
+     */
+    interface Bucket extends MultiBucketsAggregation.Bucket {
+        /**
+         * @return the composite key of this bucket, indexed by source name
+         */
+        @Override
+        Map<String, Object> getKey();
+    }
+
+    /**
+     * @return the buckets of this composite aggregation, sorted by key
+     */
+    @Override
+    List<? extends CompositeAggregation.Bucket> getBuckets();
+
+    /**
+     * @return the key of the last bucket of this page, or {@code null} if the page is empty.
+     * This key should be passed as the {@code after} parameter of the next request in order to retrieve the next page.
+     */
+    Map<String, Object> afterKey();
+}
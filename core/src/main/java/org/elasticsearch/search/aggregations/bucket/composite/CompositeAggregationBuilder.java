@@ -0,0 +1,231 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+public class CompositeAggregationBuilder extends AbstractAggregationBuilder<CompositeAggregationBuilder> {
+    public static final String NAME = "composite";
+
+    public static final int DEFAULT_SIZE = 10;
+
+    private static final ObjectParser<CompositeAggregationBuilder, QueryParseContext> PARSER;
+    static {
+        PARSER = new ObjectParser<>(NAME);
+        PARSER.declareObjectArray(CompositeAggregationBuilder::setSources,
+            (p, c) -> CompositeValuesSourceParserHelper.fromXContent(p), CompositeAggregation.SOURCES_FIELD);
+        PARSER.declareInt(CompositeAggregationBuilder::size, CompositeAggregation.SIZE_FIELD);
+        PARSER.declareObject(CompositeAggregationBuilder::aggregateAfter, (p, c) -> p.map(), CompositeAggregation.AFTER_FIELD);
+    }
+
+    public static CompositeAggregationBuilder parse(String aggregationName, QueryParseContext context) throws IOException {
+        CompositeAggregationBuilder builder = PARSER.parse(context.parser(), new CompositeAggregationBuilder(aggregationName), context);
+        if (builder.sources == null) {
+            throw new IllegalArgumentException("Required [" + CompositeAggregation.SOURCES_FIELD.getPreferredName()
+                + "] for aggregation [" + aggregationName + "]");
+        }
+        return builder;
+    }
+
+    private List<CompositeValuesSourceBuilder<?>> sources;
+    private Map<String, Object> after;
+    private int size = DEFAULT_SIZE;
+
+    private CompositeAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public CompositeAggregationBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        super(name);
+        setSources(sources);
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public CompositeAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        int num = in.readVInt();
+        this.sources = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            CompositeValuesSourceBuilder<?> builder = CompositeValuesSourceParserHelper.readFrom(in);
+            sources.add(builder);
+        }
+        this.size = in.readVInt();
+        if (in.readBoolean()) {
+            this.after = in.readMap();
+        }
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(sources.size());
+        for (CompositeValuesSourceBuilder<?> builder : sources) {
+            CompositeValuesSourceParserHelper.writeTo(builder, out);
+        }
+        out.writeVInt(size);
+        out.writeBoolean(after != null);
+        if (after != null) {
+            out.writeMap(after);
+        }
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+
+    private void setSources(List<CompositeValuesSourceBuilder<?>> sources) {
+        if (sources == null || sources.isEmpty()) {
+            throw new IllegalArgumentException("Composite [" + CompositeAggregation.SOURCES_FIELD.getPreferredName()
+                + "] cannot be null or empty");
+        }
+        Set<String> names = new HashSet<>();
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            if (names.add(source.name()) == false) {
+                throw new IllegalArgumentException("Composite source names must be unique, found duplicates: [" + source.name() + "]");
+            }
+        }
+        this.sources = sources;
+    }
+
+    /**
+     * Gets the list of {@link CompositeValuesSourceBuilder} for this aggregation.
+     */
+    public List<CompositeValuesSourceBuilder<?>> sources() {
+        return sources;
+    }
+
+    /**
+     * Sets the values that indicates which composite bucket this request should "aggregate after".
+     * Defaults to {@code null}.
+     */
+    public CompositeAggregationBuilder aggregateAfter(Map<String, Object> afterKey) {
+        this.after = afterKey;
+        return this;
+    }
+
+    /**
+     * Gets the values that indicates which composite bucket this request should "aggregate after".
+     */
+    public Map<String, Object> aggregateAfter() {
+        return after;
+    }
+
+    /**
+     * The number of composite buckets to return. Defaults to {@code 10}.
+     */
+    public CompositeAggregationBuilder size(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("[" + CompositeAggregation.SIZE_FIELD.getPreferredName()
+                + "] must be greater than 0. Found [" + size + "] in [" + name + "]");
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * @return the number of composite buckets. Defaults to {@code 10}.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    protected AggregatorFactory<?> doBuild(SearchContext context, AggregatorFactory<?> parent,
+                                           AggregatorFactories.Builder subfactoriesBuilder) throws IOException {
+        if (parent != null) {
+            throw new IllegalArgumentException("[composite] aggregation cannot be used with a parent aggregation");
+        }
+        CompositeValuesSourceConfig[] configs = new CompositeValuesSourceConfig[sources.size()];
+        for (int i = 0; i < configs.length; i++) {
+            configs[i] = sources.get(i).build(context);
+        }
+        final CompositeKey afterKey;
+        if (after != null) {
+            if (after.size() != sources.size()) {
+                throw new IllegalArgumentException("[after] has " + after.size() +
+                    " value(s) but [sources] has " + sources.size());
+            }
+            Comparable<?>[] values = new Comparable<?>[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                String sourceName = sources.get(i).name();
+                if (after.containsKey(sourceName) == false) {
+                    throw new IllegalArgumentException("Missing value for [after." + sources.get(i).name() + "]");
+                }
+                Object obj = after.get(sourceName);
+                if (obj instanceof Comparable) {
+                    values[i] = (Comparable<?>) obj;
+                } else {
+                    throw new IllegalArgumentException("Invalid value for [after." + sources.get(i).name() +
+                        "], expected comparable, got [" + (obj == null ? "null" : obj.getClass().getSimpleName()) + "]");
+                }
+            }
+            afterKey = new CompositeKey(values);
+        } else {
+            afterKey = null;
+        }
+        return new CompositeAggregationFactory(name, context, parent, subfactoriesBuilder, metaData, size, configs, afterKey);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(CompositeAggregation.SIZE_FIELD.getPreferredName(), size);
+        builder.startArray(CompositeAggregation.SOURCES_FIELD.getPreferredName());
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            CompositeValuesSourceParserHelper.toXContent(source, builder, params);
+        }
+        builder.endArray();
+        if (after != null) {
+            builder.field(CompositeAggregation.AFTER_FIELD.getPreferredName(), after);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(sources, size, after);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        CompositeAggregationBuilder other = (CompositeAggregationBuilder) obj;
+        return size == other.size &&
+            Objects.equals(sources, other.sources) &&
+            Objects.equals(after, other.after);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the top {@code size} composite buckets of a shard in the order of their keys.
+ *
+ * The sub-aggregations are deferred until the end of the collection: the documents that
+ * produced a competitive composite bucket are recorded per segment and replayed once the final
+ * buckets are known. When the leading source is a terms source on an indexed field and the
+ * query matches all documents, segments are visited in the order of the terms of this field and
+ * the collection of a segment stops as soon as no more competitive buckets can be found.
+ */
+final class CompositeAggregator extends BucketsAggregator {
+    private final int size;
+    private final SingleDimensionValuesSource<?>[] sources;
+    private final List<String> sourceNames;
+    private final int[] reverseMuls;
+    private final List<DocValueFormat> formats;
+
+    private final CompositeValuesCollectorQueue queue;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private LeafReaderContext currentLeaf;
+    private DocIdSetBuilder docIdSetBuilder;
+    private BucketCollector deferredCollectors;
+
+    private final SortedDocsProducer sortedDocsProducer;
+
+    CompositeAggregator(String name, AggregatorFactories factories, SearchContext context, Aggregator parent,
+                        List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData,
+                        int size, CompositeValuesSourceConfig[] sourceConfigs, CompositeKey rawAfterKey) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::name).collect(Collectors.toList());
+        this.reverseMuls = Arrays.stream(sourceConfigs).mapToInt(CompositeValuesSourceConfig::reverseMul).toArray();
+        this.formats = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::format).collect(Collectors.toList());
+        final IndexReader reader = context.searcher().getIndexReader();
+        this.sources = createValuesSources(context.bigArrays(), reader, sourceConfigs, size);
+        this.queue = new CompositeValuesCollectorQueue(context.bigArrays(), sources, size);
+        if (rawAfterKey != null) {
+            queue.setAfter(rawAfterKey.values());
+        }
+        // the sorted collection can only be used if the composite aggregation is the only aggregator
+        // that collects the documents of the query
+        this.sortedDocsProducer = parent == null ? sources[0].createSortedDocsProducerOrNull(reader, context.query()) : null;
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(queue);
+        Releasables.close(sources);
+    }
+
+    @Override
+    protected void doPreCollection() throws IOException {
+        List<BucketCollector> collectors = Arrays.asList(subAggregators);
+        deferredCollectors = BucketCollector.wrap(collectors);
+        collectableSubAggregators = BucketCollector.NO_OP_COLLECTOR;
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        finishLeaf();
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long zeroBucket) throws IOException {
+        assert zeroBucket == 0L;
+        // replay all documents that contain at least one top bucket (collected during the first pass).
+        if (deferredCollectors != BucketCollector.NO_OP_COLLECTOR) {
+            runDeferredCollections();
+        }
+
+        int num = Math.min(size, queue.size());
+        final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[num];
+        int pos = 0;
+        for (int slot : queue.getSortedSlot()) {
+            CompositeKey key = queue.toCompositeKey(slot);
+            InternalAggregations aggs = bucketAggregations(slot);
+            int docCount = queue.getDocCount(slot);
+            buckets[pos++] = new InternalComposite.InternalBucket(sourceNames, formats, key, reverseMuls, docCount, aggs);
+        }
+        CompositeKey lastBucket = num > 0 ? buckets[num - 1].getRawKey() : null;
+        return new InternalComposite(name, size, sourceNames, formats, Arrays.asList(buckets), lastBucket, reverseMuls,
+            pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalComposite(name, size, sourceNames, formats, Collections.emptyList(), null, reverseMuls,
+            pipelineAggregators(), metaData());
+    }
+
+    private void finishLeaf() {
+        if (currentLeaf != null) {
+            DocIdSet docIdSet = docIdSetBuilder.build();
+            entries.add(new Entry(currentLeaf, docIdSet));
+            currentLeaf = null;
+            docIdSetBuilder = null;
+        }
+    }
+
+    @Override
+    protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        finishLeaf();
+        boolean fillDocIdSet = deferredCollectors != BucketCollector.NO_OP_COLLECTOR;
+        if (sortedDocsProducer != null) {
+            /*
+              The producer will visit documents sorted by the leading source of the composite definition
+              and terminates when the leading source value is guaranteed to be greater than the lowest
+              composite bucket in the queue.
+             */
+            DocIdSet docIdSet = sortedDocsProducer.processLeaf(queue, ctx, fillDocIdSet);
+            if (fillDocIdSet) {
+                entries.add(new Entry(ctx, docIdSet));
+            }
+            // the segment is fully processed, the remaining documents of the query are not needed
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        } else {
+            if (fillDocIdSet) {
+                currentLeaf = ctx;
+                docIdSetBuilder = new DocIdSetBuilder(ctx.reader().maxDoc());
+            }
+            // We use a separate collector for the first pass in order to use the same
+            // values sources for the second pass.
+            return queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder));
+        }
+    }
+
+    /**
+     * The first pass selects the top composite buckets from all matching documents.
+     */
+    private LeafBucketCollector getFirstPassCollector(DocIdSetBuilder builder) {
+        return new LeafBucketCollector() {
+            int lastDoc = -1;
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                int slot = queue.addIfCompetitive();
+                if (slot != -1) {
+                    if (builder != null && lastDoc != doc) {
+                        builder.grow(1).add(doc);
+                        lastDoc = doc;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Replay the documents that might contain a top bucket and pass top buckets to
+     * the {@link #deferredCollectors}.
+     */
+    private void runDeferredCollections() throws IOException {
+        final boolean needsScores = needsScores();
+        Weight weight = null;
+        if (needsScores) {
+            Query query = context.query();
+            weight = context.searcher().createNormalizedWeight(query, true);
+        }
+        deferredCollectors.preCollection();
+        for (Entry entry : entries) {
+            DocIdSetIterator docIdSetIterator = entry.docIdSet.iterator();
+            if (docIdSetIterator == null) {
+                continue;
+            }
+            final LeafBucketCollector subCollector = deferredCollectors.getLeafCollector(entry.context);
+            final LeafBucketCollector collector = queue.getLeafCollector(entry.context, getSecondPassCollector(subCollector));
+            DocIdSetIterator scorerIt = null;
+            if (needsScores) {
+                Scorer scorer = weight.scorer(entry.context);
+                if (scorer != null) {
+                    scorerIt = scorer.iterator();
+                    subCollector.setScorer(scorer);
+                }
+            }
+            int docID;
+            while ((docID = docIdSetIterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                if (scorerIt != null) {
+                    assert scorerIt.docID() < docID;
+                    scorerIt.advance(docID);
+                    // aggregations should only be replayed on matching documents
+                    assert scorerIt.docID() == docID;
+                }
+                collector.collect(docID);
+            }
+        }
+        deferredCollectors.postCollection();
+    }
+
+    /**
+     * Replay the top buckets from the matching documents.
+     */
+    private LeafBucketCollector getSecondPassCollector(LeafBucketCollector subCollector) {
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long zeroBucket) throws IOException {
+                assert zeroBucket == 0;
+                Integer slot = queue.compareCurrent();
+                if (slot != null) {
+                    // The candidate key is a top bucket.
+                    // We can defer the collection of this document/bucket to the sub collector
+                    subCollector.collect(doc, slot);
+                }
+            }
+        };
+    }
+
+    private static SingleDimensionValuesSource<?>[] createValuesSources(BigArrays bigArrays, IndexReader reader,
+                                                                        CompositeValuesSourceConfig[] configs, int size) {
+        final SingleDimensionValuesSource<?>[] sources = new SingleDimensionValuesSource<?>[configs.length];
+        for (int i = 0; i < sources.length; i++) {
+            final int reverseMul = configs[i].reverseMul();
+            if (configs[i].valuesSource() instanceof ValuesSource.Bytes.WithOrdinals && reader instanceof DirectoryReader) {
+                ValuesSource.Bytes.WithOrdinals vs = (ValuesSource.Bytes.WithOrdinals) configs[i].valuesSource();
+                sources[i] = new GlobalOrdinalValuesSource(bigArrays, configs[i].fieldType(), vs::globalOrdinalsValues,
+                    configs[i].format(), size, reverseMul);
+            } else if (configs[i].valuesSource() instanceof ValuesSource.Bytes) {
+                ValuesSource.Bytes vs = (ValuesSource.Bytes) configs[i].valuesSource();
+                sources[i] = new BinaryValuesSource(configs[i].fieldType(), vs::bytesValues, configs[i].format(), size, reverseMul);
+            } else if (configs[i].valuesSource() instanceof ValuesSource.Numeric) {
+                final ValuesSource.Numeric vs = (ValuesSource.Numeric) configs[i].valuesSource();
+                if (vs.isFloatingPoint()) {
+                    sources[i] = new DoubleValuesSource(bigArrays, configs[i].fieldType(), vs::doubleValues,
+                        configs[i].format(), size, reverseMul);
+                } else {
+                    sources[i] = new LongValuesSource(bigArrays, configs[i].fieldType(), vs::longValues,
+                        configs[i].format(), size, reverseMul);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown values source type: " + configs[i].valuesSource().getClass().getName() +
+                    " for source: " + configs[i].name());
+            }
+        }
+        return sources;
+    }
+
+    private static class Entry {
+        final LeafReaderContext context;
+        final DocIdSet docIdSet;
+
+        Entry(LeafReaderContext context, DocIdSet docIdSet) {
+            this.context = context;
+            this.docIdSet = docIdSet;
+        }
+    }
+}
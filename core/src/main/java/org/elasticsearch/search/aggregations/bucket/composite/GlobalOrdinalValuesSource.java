@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * A {@link SingleDimensionValuesSource} for global ordinals.
+ */
+class GlobalOrdinalValuesSource extends SingleDimensionValuesSource<BytesRef> {
+    private final CheckedFunction<LeafReaderContext, RandomAccessOrds, IOException> docValuesFunc;
+    private final LongArray values;
+    private RandomAccessOrds lookup;
+    private long currentValue;
+    private Long afterValueGlobalOrd;
+    private boolean isTopValueInsertionPoint;
+
+    GlobalOrdinalValuesSource(BigArrays bigArrays,
+                              MappedFieldType type, CheckedFunction<LeafReaderContext, RandomAccessOrds, IOException> docValuesFunc,
+                              DocValueFormat format, int size, int reverseMul) {
+        super(format, type, size, reverseMul);
+        this.docValuesFunc = docValuesFunc;
+        this.values = bigArrays.newLongArray(size, false);
+    }
+
+    private long valueAt(int slot) {
+        return slot == candidateSlot() ? currentValue : values.get(slot);
+    }
+
+    @Override
+    void copyCurrent(int slot) {
+        values.set(slot, currentValue);
+    }
+
+    @Override
+    int compare(int from, int to) {
+        return Long.compare(valueAt(from), valueAt(to)) * reverseMul;
+    }
+
+    @Override
+    int compareCurrentWithAfter() {
+        int cmp = Long.compare(currentValue, afterValueGlobalOrd);
+        if (cmp == 0 && isTopValueInsertionPoint) {
+            // the after value is not present in the index, the current ordinal is the first one that is greater
+            return reverseMul;
+        }
+        return cmp * reverseMul;
+    }
+
+    @Override
+    void setAfter(Comparable<?> value) {
+        if (value.getClass() == BytesRef.class) {
+            afterValue = (BytesRef) value;
+        } else if (value.getClass() == String.class) {
+            afterValue = format.parseBytesRef(value.toString());
+        } else {
+            throw new IllegalArgumentException("invalid value, expected string, got " + value.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    BytesRef toComparable(int slot) {
+        return BytesRef.deepCopyOf(lookup.lookupOrd(valueAt(slot)));
+    }
+
+    @Override
+    LeafBucketCollector getLeafCollector(LeafReaderContext context, LeafBucketCollector next) throws IOException {
+        final RandomAccessOrds dvs = docValuesFunc.apply(context);
+        initLookup(dvs);
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                dvs.setDocument(doc);
+                final int num = dvs.cardinality();
+                for (int i = 0; i < num; i++) {
+                    currentValue = dvs.ordAt(i);
+                    next.collect(doc, bucket);
+                }
+            }
+        };
+    }
+
+    @Override
+    LeafBucketCollector getLeafCollector(Comparable<?> value, LeafReaderContext context, LeafBucketCollector next) throws IOException {
+        if (value.getClass() != BytesRef.class) {
+            throw new IllegalArgumentException("Expected BytesRef, got " + value.getClass());
+        }
+        final BytesRef term = (BytesRef) value;
+        final RandomAccessOrds dvs = docValuesFunc.apply(context);
+        initLookup(dvs);
+        final long ord = lookup.lookupTerm(term);
+        if (ord < 0) {
+            // the term is indexed but has no doc values
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                currentValue = ord;
+                next.collect(doc, bucket);
+            }
+        };
+    }
+
+    @Override
+    SortedDocsProducer createSortedDocsProducerOrNull(IndexReader reader, Query query) {
+        if (checkIfSortedDocsIsApplicable(reader, fieldType) == false || isMatchAll(query) == false) {
+            return null;
+        }
+        return new TermsSortedDocsProducer(fieldType.name());
+    }
+
+    private void initLookup(RandomAccessOrds dvs) {
+        lookup = dvs;
+        if (afterValue != null && afterValueGlobalOrd == null) {
+            afterValueGlobalOrd = lookup.lookupTerm(afterValue);
+            if (afterValueGlobalOrd < 0) {
+                // convert negative insert position
+                afterValueGlobalOrd = -afterValueGlobalOrd - 1;
+                isTopValueInsertionPoint = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(values);
+    }
+}
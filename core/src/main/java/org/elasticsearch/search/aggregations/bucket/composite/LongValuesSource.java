@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * A {@link SingleDimensionValuesSource} for longs.
+ */
+class LongValuesSource extends SingleDimensionValuesSource<Long> {
+    private final CheckedFunction<LeafReaderContext, SortedNumericDocValues, IOException> docValuesFunc;
+    private final LongArray values;
+
+    LongValuesSource(BigArrays bigArrays, MappedFieldType fieldType,
+                     CheckedFunction<LeafReaderContext, SortedNumericDocValues, IOException> docValuesFunc,
+                     DocValueFormat format, int size, int reverseMul) {
+        super(format, fieldType, size, reverseMul);
+        this.docValuesFunc = docValuesFunc;
+        this.values = bigArrays.newLongArray(size + 1, false);
+    }
+
+    @Override
+    void copyCurrent(int slot) {
+        values.set(slot, values.get(candidateSlot()));
+    }
+
+    @Override
+    int compare(int from, int to) {
+        return compareValues(values.get(from), values.get(to));
+    }
+
+    @Override
+    int compareCurrentWithAfter() {
+        return compareValues(values.get(candidateSlot()), afterValue);
+    }
+
+    private int compareValues(long v1, long v2) {
+        return Long.compare(v1, v2) * reverseMul;
+    }
+
+    @Override
+    void setAfter(Comparable<?> value) {
+        if (value instanceof Number) {
+            afterValue = ((Number) value).longValue();
+        } else {
+            // for date histogram source with "format", the after value is formatted
+            // as a string so we need to retrieve the original value in milliseconds.
+            afterValue = format.parseLong(value.toString(), false, () -> {
+                throw new IllegalArgumentException("now() is not supported in [after] key");
+            });
+        }
+    }
+
+    @Override
+    Long toComparable(int slot) {
+        return values.get(slot);
+    }
+
+    @Override
+    LeafBucketCollector getLeafCollector(LeafReaderContext context, LeafBucketCollector next) throws IOException {
+        final SortedNumericDocValues dvs = docValuesFunc.apply(context);
+        final int candidate = candidateSlot();
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                dvs.setDocument(doc);
+                final int num = dvs.count();
+                long previous = Long.MAX_VALUE;
+                for (int i = 0; i < num; i++) {
+                    final long value = dvs.valueAt(i);
+                    // values are sorted and the rounding (if any) is monotonic so duplicates are always adjacent
+                    if (i > 0 && value == previous) {
+                        continue;
+                    }
+                    values.set(candidate, value);
+                    next.collect(doc, bucket);
+                    previous = value;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(values);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * A producer that visits composite buckets in the order of the value source that is used in the first position.
+ * Implementations can use this order to stop the collection of a segment as soon as the queue of
+ * competitive composite buckets is full and no more competitive buckets can be found.
+ */
+abstract class SortedDocsProducer {
+    protected final String field;
+
+    SortedDocsProducer(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Visits all non-deleted documents in <code>iterator</code> and fills the provided <code>queue</code>
+     * with the top composite buckets extracted from the collection.
+     * Documents that contain a top composite bucket are added in the provided <code>builder</code> if it is not null.
+     *
+     * Returns true if the queue is full and the current <code>leadSourceBucket</code> did not produce any competitive
+     * composite buckets.
+     */
+    protected boolean processBucket(CompositeValuesCollectorQueue queue, LeafReaderContext context, DocIdSetIterator iterator,
+                                    Comparable<?> leadSourceBucket, @Nullable DocIdSetBuilder builder) throws IOException {
+        final int[] topCompositeCollected = new int[1];
+        final boolean[] hasCollected = new boolean[1];
+        final LeafBucketCollector queueCollector = new LeafBucketCollector() {
+            int lastDoc = -1;
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                hasCollected[0] = true;
+                int slot = queue.addIfCompetitive();
+                if (slot != -1) {
+                    topCompositeCollected[0]++;
+                    if (builder != null && lastDoc != doc) {
+                        builder.grow(1).add(doc);
+                        lastDoc = doc;
+                    }
+                }
+            }
+        };
+        final Bits liveDocs = context.reader().getLiveDocs();
+        final LeafBucketCollector collector = queue.getLeafCollector(leadSourceBucket, context, queueCollector);
+        while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            if (liveDocs == null || liveDocs.get(iterator.docID())) {
+                collector.collect(iterator.docID());
+            }
+        }
+        if (queue.isFull() &&
+                hasCollected[0] &&
+                topCompositeCollected[0] == 0) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Populates the queue with the composite buckets present in the <code>context</code>.
+     * Returns the {@link DocIdSet} of the documents that contain a top composite bucket in this leaf or
+     * {@link DocIdSet#EMPTY} if <code>fillDocIdSet</code> is false.
+     */
+    abstract DocIdSet processLeaf(CompositeValuesCollectorQueue queue,
+                                  LeafReaderContext context, boolean fillDocIdSet) throws IOException;
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ * A {@link CompositeValuesSourceBuilder} that builds a {@link ValuesSource} from a script or
+ * a field name.
+ */
+public class TermsValuesSourceBuilder extends CompositeValuesSourceBuilder<TermsValuesSourceBuilder> {
+    static final String TYPE = "terms";
+
+    private static final ObjectParser<TermsValuesSourceBuilder, Void> PARSER;
+    static {
+        PARSER = new ObjectParser<>(TermsValuesSourceBuilder.TYPE);
+        CompositeValuesSourceParserHelper.declareValuesSourceFields(PARSER, null);
+    }
+    static TermsValuesSourceBuilder parse(String name, XContentParser parser) throws IOException {
+        return PARSER.parse(parser, new TermsValuesSourceBuilder(name), null);
+    }
+
+    public TermsValuesSourceBuilder(String name) {
+        super(name);
+    }
+
+    protected TermsValuesSourceBuilder(StreamInput in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected void innerWriteTo(StreamOutput out) throws IOException {}
+
+    @Override
+    protected void doXContentBody(XContentBuilder builder, Params params) throws IOException {}
+
+    @Override
+    protected int innerHashCode() {
+        return 0;
+    }
+
+    @Override
+    protected boolean innerEquals(TermsValuesSourceBuilder builder) {
+        return true;
+    }
+
+    @Override
+    String type() {
+        return TYPE;
+    }
+
+    @Override
+    protected CompositeValuesSourceConfig innerBuild(SearchContext context, ValuesSourceConfig<?> config) throws IOException {
+        ValuesSource vs = config.toValuesSource(context.getQueryShardContext());
+        if (vs == null) {
+            // the field is unmapped so we use a source that has no values
+            vs = config.valueSourceType() == ValuesSourceType.NUMERIC ? ValuesSource.Numeric.EMPTY : ValuesSource.Bytes.WithOrdinals.EMPTY;
+        }
+        if (vs instanceof ValuesSource.GeoPoint) {
+            throw new IllegalArgumentException("[" + TYPE + "] source [" + name + "] cannot be used on geo_point fields");
+        }
+        final MappedFieldType fieldType = config.fieldContext() != null ? config.fieldContext().fieldType() : null;
+        return new CompositeValuesSourceConfig(name, script() == null ? fieldType : null, vs, config.format(), order());
+    }
+}
@@ -51,4 +51,8 @@ public class FilterAggregatorFactory extends AggregatorFactory<FilterAggregatorF
         return new FilterAggregator(name, weight, factories, context, parent, pipelineAggregators, metaData);
     }
 
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return true;
+    }
 }
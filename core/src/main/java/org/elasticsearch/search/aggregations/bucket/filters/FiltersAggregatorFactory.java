@@ -66,5 +66,8 @@ public class FiltersAggregatorFactory extends AggregatorFactory<FiltersAggregato
                 pipelineAggregators, metaData);
     }
 
-
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return true;
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.DeferringBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.MergingBucketsDeferringCollector;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator for date values that starts with rounding dates with the finest of the given {@link Rounding}s and switches to
+ * the next coarser one whenever it collected more buckets than the target number of buckets. The existing buckets are merged
+ * into the buckets of the coarser rounding, so there are never much more buckets than the target. Sub-aggregations are deferred
+ * and only collected into the final buckets. A document with several values that fell into buckets that are merged later on is
+ * counted once per such value in the merged bucket.
+ *
+ * @see InternalAutoDateHistogram for how the buckets of shards that picked different roundings are reduced
+ */
+class AutoDateHistogramAggregator extends BucketsAggregator {
+
+    private final ValuesSource.Numeric valuesSource;
+    private final DocValueFormat formatter;
+    private final Rounding[] roundings;
+    private final int targetBuckets;
+
+    private LongHash bucketOrds;
+    private int roundingIdx = 0;
+
+    private MergingBucketsDeferringCollector deferringCollector;
+
+    AutoDateHistogramAggregator(String name, AggregatorFactories factories, int targetBuckets, Rounding[] roundings,
+            @Nullable ValuesSource.Numeric valuesSource, DocValueFormat formatter, SearchContext aggregationContext, Aggregator parent,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+
+        super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
+        this.targetBuckets = targetBuckets;
+        this.valuesSource = valuesSource;
+        this.formatter = formatter;
+        this.roundings = roundings;
+
+        bucketOrds = new LongHash(1, aggregationContext.bigArrays());
+    }
+
+    @Override
+    public boolean needsScores() {
+        return (valuesSource != null && valuesSource.needsScores()) || super.needsScores();
+    }
+
+    @Override
+    protected boolean shouldDefer(Aggregator aggregator) {
+        // buckets may still be merged until collection is done
+        return true;
+    }
+
+    @Override
+    public DeferringBucketCollector getDeferringCollector() {
+        deferringCollector = new MergingBucketsDeferringCollector(context);
+        return deferringCollector;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
+            final LeafBucketCollector sub) throws IOException {
+        if (valuesSource == null) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        final SortedNumericDocValues values = valuesSource.longValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                values.setDocument(doc);
+                final int valuesCount = values.count();
+
+                long previousRounded = Long.MIN_VALUE;
+                for (int i = 0; i < valuesCount; ++i) {
+                    long value = values.valueAt(i);
+                    long rounded = roundings[roundingIdx].round(value);
+                    assert rounded >= previousRounded;
+                    if (rounded == previousRounded) {
+                        continue;
+                    }
+                    long bucketOrd = bucketOrds.add(rounded);
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                        collectExistingBucket(sub, doc, bucketOrd);
+                    } else {
+                        collectBucket(sub, doc, bucketOrd);
+                        if (bucketOrds.size() > targetBuckets && roundingIdx < roundings.length - 1) {
+                            increaseRounding();
+                            // the remaining values of the document are rounded with the new rounding
+                            rounded = roundings[roundingIdx].round(value);
+                        }
+                    }
+                    previousRounded = rounded;
+                }
+            }
+        };
+    }
+
+    /**
+     * Switches to the next coarser rounding until there are at most the target number of buckets, or the coarsest rounding
+     * is reached, and merges the existing buckets accordingly.
+     */
+    private void increaseRounding() {
+        do {
+            roundingIdx++;
+            final LongHash oldBucketOrds = bucketOrds;
+            boolean success = false;
+            final LongHash newBucketOrds = new LongHash(1, context.bigArrays());
+            try {
+                final long[] mergeMap = new long[Math.toIntExact(oldBucketOrds.size())];
+                for (int i = 0; i < mergeMap.length; i++) {
+                    final long newKey = roundings[roundingIdx].round(oldBucketOrds.get(i));
+                    final long newBucketOrd = newBucketOrds.add(newKey);
+                    mergeMap[i] = newBucketOrd < 0 ? -1 - newBucketOrd : newBucketOrd;
+                }
+                mergeBuckets(mergeMap, newBucketOrds.size());
+                if (deferringCollector != null) {
+                    deferringCollector.mergeBuckets(mergeMap);
+                }
+                bucketOrds = newBucketOrds;
+                success = true;
+            } finally {
+                Releasables.close(success ? oldBucketOrds : newBucketOrds);
+            }
+        } while (bucketOrds.size() > targetBuckets && roundingIdx < roundings.length - 1);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+        final long[] bucketOrdsToCollect = new long[Math.toIntExact(bucketOrds.size())];
+        for (int i = 0; i < bucketOrdsToCollect.length; i++) {
+            bucketOrdsToCollect[i] = i;
+        }
+        runDeferredCollections(bucketOrdsToCollect);
+
+        List<InternalAutoDateHistogram.Bucket> buckets = new ArrayList<>((int) bucketOrds.size());
+        for (long i = 0; i < bucketOrds.size(); i++) {
+            buckets.add(new InternalAutoDateHistogram.Bucket(bucketOrds.get(i), bucketDocCount(i), formatter, bucketAggregations(i)));
+        }
+
+        // the contract of the histogram aggregation is that shards must return buckets ordered by key in ascending order
+        CollectionUtil.introSort(buckets, (a, b) -> Long.compare(a.key, b.key));
+
+        InternalAutoDateHistogram.BucketInfo bucketInfo = new InternalAutoDateHistogram.BucketInfo(roundings, roundingIdx,
+                buildEmptySubAggregations());
+        return new InternalAutoDateHistogram(name, buckets, targetBuckets, bucketInfo, formatter, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        InternalAutoDateHistogram.BucketInfo bucketInfo = new InternalAutoDateHistogram.BucketInfo(roundings, 0,
+                buildEmptySubAggregations());
+        return new InternalAutoDateHistogram(name, Collections.emptyList(), targetBuckets, bucketInfo, formatter,
+                pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public void doClose() {
+        Releasables.close(bucketOrds);
+    }
+}
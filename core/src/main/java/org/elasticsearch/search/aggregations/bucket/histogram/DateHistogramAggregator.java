@@ -18,7 +18,9 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import com.carrotsearch.hppc.LongArrayList;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.inject.internal.Nullable;
@@ -32,6 +34,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -62,11 +65,15 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
+    @Nullable
+    private final PointRangeCounter pointRangeCounter;
+
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, long offset, InternalOrder order,
             boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
             DocValueFormat formatter, SearchContext aggregationContext,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData,
+            @Nullable PointRangeCounter pointRangeCounter) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
@@ -77,6 +84,7 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
         this.formatter = formatter;
+        this.pointRangeCounter = pointRangeCounter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
     }
@@ -92,6 +100,12 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (pointRangeCounter != null) {
+            final PointValues points = pointRangeCounter.pointValues(ctx);
+            if (points != null && countFromPoints(points)) {
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -121,6 +135,53 @@ class DateHistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Counts the documents of the segment per bucket by intersecting the range of every bucket with the points of the field.
+     * Returns {@code false} without counting anything if the segment spans too many buckets for this to be worth it, or if the
+     * values between a key and the next rounding value don't all round to that key.
+     */
+    private boolean countFromPoints(PointValues points) throws IOException {
+        final long min = pointRangeCounter.min(points);
+        final long max = pointRangeCounter.max(points);
+        if (min > max) {
+            // the query doesn't match any value of the segment
+            return true;
+        }
+        final int maxRanges = pointRangeCounter.maxRanges(points);
+        // the keys of the buckets, followed by the key of the first bucket after the last value
+        final LongArrayList keys = new LongArrayList();
+        long key = rounding.round(min - offset) + offset;
+        keys.add(key);
+        while (key <= max) {
+            if (keys.size() > maxRanges) {
+                return false;
+            }
+            final long next = rounding.nextRoundingValue(key - offset) + offset;
+            if (next <= key) {
+                // overflow
+                return false;
+            }
+            if (rounding.round(key - offset) + offset != key || rounding.round(next - 1 - offset) + offset != key) {
+                // the values of the range don't all round to the key, like with fixed intervals in a time zone that
+                // changes its offset within the range
+                return false;
+            }
+            keys.add(next);
+            key = next;
+        }
+        for (int i = 0; i < keys.size() - 1; i++) {
+            final int count = pointRangeCounter.count(points, keys.get(i), keys.get(i + 1) - 1);
+            if (count > 0) {
+                long bucketOrd = bucketOrds.add(keys.get(i));
+                if (bucketOrd < 0) { // already seen
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, count);
+            }
+        }
+        return true;
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -23,6 +23,7 @@ import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource.Numeric;
@@ -77,7 +78,8 @@ public final class DateHistogramAggregatorFactory
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
         return new DateHistogramAggregator(name, factories, rounding, offset, order, keyed, minDocCount, extendedBounds, valuesSource,
-                config.format(), context, parent, pipelineAggregators, metaData);
+                config.format(), context, parent, pipelineAggregators, metaData,
+                PointRangeCounter.build(config, context, parent, factories));
     }
 
     @Override
@@ -85,4 +87,9 @@ public final class DateHistogramAggregatorFactory
             throws IOException {
         return createAggregator(null, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
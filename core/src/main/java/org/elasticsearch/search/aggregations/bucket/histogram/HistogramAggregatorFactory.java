@@ -80,4 +80,9 @@ public final class HistogramAggregatorFactory extends ValuesSourceAggregatorFact
             throws IOException {
         return createAggregator(null, parent, pipelineAggregators, metaData);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Implementation of {@link Histogram} for the {@code auto_date_histogram} aggregation. Shards may have picked different
+ * roundings, so the reduce re-rounds all buckets with the coarsest rounding any shard picked, or a coarser one if the reduced
+ * buckets would span more than the target number of buckets, and merges buckets that end up with the same key.
+ */
+public final class InternalAutoDateHistogram extends
+        InternalMultiBucketAggregation<InternalAutoDateHistogram, InternalAutoDateHistogram.Bucket> implements Histogram {
+
+    public static class Bucket extends InternalMultiBucketAggregation.InternalBucket implements Histogram.Bucket {
+
+        final long key;
+        final long docCount;
+        final InternalAggregations aggregations;
+        protected final transient DocValueFormat format;
+
+        public Bucket(long key, long docCount, DocValueFormat format, InternalAggregations aggregations) {
+            this.format = format;
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        public Bucket(StreamInput in, DocValueFormat format) throws IOException {
+            this.format = format;
+            key = in.readLong();
+            docCount = in.readVLong();
+            aggregations = InternalAggregations.readAggregations(in);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != InternalAutoDateHistogram.Bucket.class) {
+                return false;
+            }
+            InternalAutoDateHistogram.Bucket that = (InternalAutoDateHistogram.Bucket) obj;
+            // No need to take the format parameter into account, it is already stored and tested on the InternalAutoDateHistogram
+            return key == that.key
+                    && docCount == that.docCount
+                    && Objects.equals(aggregations, that.aggregations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), key, docCount, aggregations);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeLong(key);
+            out.writeVLong(docCount);
+            aggregations.writeTo(out);
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return format.format(key);
+        }
+
+        @Override
+        public Object getKey() {
+            return new DateTime(key, DateTimeZone.UTC);
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        Bucket reduce(List<Bucket> buckets, long key, ReduceContext context) {
+            List<InternalAggregations> aggregations = new ArrayList<>(buckets.size());
+            long docCount = 0;
+            for (Bucket bucket : buckets) {
+                docCount += bucket.docCount;
+                aggregations.add((InternalAggregations) bucket.getAggregations());
+            }
+            InternalAggregations aggs = InternalAggregations.reduce(aggregations, context);
+            return new InternalAutoDateHistogram.Bucket(key, docCount, format, aggs);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            if (format != DocValueFormat.RAW) {
+                builder.field(CommonFields.KEY_AS_STRING.getPreferredName(), format.format(key));
+            }
+            builder.field(CommonFields.KEY.getPreferredName(), key);
+            builder.field(CommonFields.DOC_COUNT.getPreferredName(), docCount);
+            aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+            return builder;
+        }
+
+        public DocValueFormat getFormatter() {
+            return format;
+        }
+    }
+
+    static class BucketInfo {
+
+        final Rounding[] roundings;
+        final int roundingIdx;
+        final InternalAggregations emptySubAggregations;
+
+        BucketInfo(Rounding[] roundings, int roundingIdx, InternalAggregations emptySubAggregations) {
+            this.roundings = roundings;
+            this.roundingIdx = roundingIdx;
+            this.emptySubAggregations = emptySubAggregations;
+        }
+
+        BucketInfo(StreamInput in) throws IOException {
+            roundings = new Rounding[in.readVInt()];
+            for (int i = 0; i < roundings.length; i++) {
+                roundings[i] = Rounding.Streams.read(in);
+            }
+            roundingIdx = in.readVInt();
+            emptySubAggregations = InternalAggregations.readAggregations(in);
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(roundings.length);
+            for (Rounding rounding : roundings) {
+                Rounding.Streams.write(rounding, out);
+            }
+            out.writeVInt(roundingIdx);
+            emptySubAggregations.writeTo(out);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            BucketInfo that = (BucketInfo) obj;
+            return Arrays.equals(roundings, that.roundings)
+                    && roundingIdx == that.roundingIdx
+                    && Objects.equals(emptySubAggregations, that.emptySubAggregations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), Arrays.hashCode(roundings), roundingIdx, emptySubAggregations);
+        }
+    }
+
+    private final List<Bucket> buckets;
+    private final DocValueFormat format;
+    private final int targetBuckets;
+    private final BucketInfo bucketInfo;
+
+    InternalAutoDateHistogram(String name, List<Bucket> buckets, int targetBuckets, BucketInfo bucketInfo, DocValueFormat formatter,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        this.buckets = buckets;
+        this.bucketInfo = bucketInfo;
+        this.targetBuckets = targetBuckets;
+        this.format = formatter;
+    }
+
+    /**
+     * Stream from a stream.
+     */
+    public InternalAutoDateHistogram(StreamInput in) throws IOException {
+        super(in);
+        bucketInfo = new BucketInfo(in);
+        format = in.readNamedWriteable(DocValueFormat.class);
+        targetBuckets = in.readVInt();
+        buckets = in.readList(stream -> new Bucket(stream, format));
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        bucketInfo.writeTo(out);
+        out.writeNamedWriteable(format);
+        out.writeVInt(targetBuckets);
+        out.writeList(buckets);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return AutoDateHistogramAggregationBuilder.NAME;
+    }
+
+    @Override
+    public List<InternalAutoDateHistogram.Bucket> getBuckets() {
+        return Collections.unmodifiableList(buckets);
+    }
+
+    /**
+     * The interval of the buckets.
+     */
+    public DateHistogramInterval getInterval() {
+        return AutoDateHistogramAggregationBuilder.INTERVALS[bucketInfo.roundingIdx];
+    }
+
+    @Override
+    public InternalAutoDateHistogram create(List<Bucket> buckets) {
+        return new InternalAutoDateHistogram(name, buckets, targetBuckets, bucketInfo, format, pipelineAggregators(), metaData);
+    }
+
+    @Override
+    public Bucket createBucket(InternalAggregations aggregations, Bucket prototype) {
+        return new Bucket(prototype.key, prototype.docCount, prototype.format, aggregations);
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // all buckets are reduced with the coarsest rounding that any of the shards had to use
+        int roundingIdx = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        List<Bucket> allBuckets = new ArrayList<>();
+        for (InternalAggregation aggregation : aggregations) {
+            InternalAutoDateHistogram histogram = (InternalAutoDateHistogram) aggregation;
+            roundingIdx = Math.max(roundingIdx, histogram.bucketInfo.roundingIdx);
+            if (histogram.buckets.isEmpty() == false) {
+                min = Math.min(min, histogram.buckets.get(0).key);
+                max = Math.max(max, histogram.buckets.get(histogram.buckets.size() - 1).key);
+                allBuckets.addAll(histogram.buckets);
+            }
+        }
+        final Rounding[] roundings = bucketInfo.roundings;
+        if (allBuckets.isEmpty() == false) {
+            // the rounding is picked upfront so that sub-aggregations are reduced only once
+            while (roundingIdx < roundings.length - 1 && spansMoreThan(roundings[roundingIdx], min, max, targetBuckets)) {
+                roundingIdx++;
+            }
+        }
+        List<Bucket> reducedBuckets = reduceBuckets(allBuckets, roundings[roundingIdx], reduceContext);
+        if (reduceContext.isFinalReduce()) {
+            addEmptyBuckets(reducedBuckets, roundings[roundingIdx], reduceContext);
+        }
+        return new InternalAutoDateHistogram(getName(), reducedBuckets, targetBuckets,
+                new BucketInfo(roundings, roundingIdx, bucketInfo.emptySubAggregations), format, pipelineAggregators(), getMetaData());
+    }
+
+    /**
+     * Whether the keys between {@code min} and {@code max}, both included, span more than {@code target} buckets of the given
+     * rounding.
+     */
+    static boolean spansMoreThan(Rounding rounding, long min, long max, int target) {
+        long key = rounding.round(min);
+        final long last = rounding.round(max);
+        int count = 1;
+        while (key < last) {
+            key = rounding.nextRoundingValue(key);
+            if (++count > target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Bucket> reduceBuckets(List<Bucket> allBuckets, Rounding rounding, ReduceContext reduceContext) {
+        // rounding keeps the order of the keys, so buckets that end up with the same key are next to each other once sorted
+        CollectionUtil.timSort(allBuckets, (a, b) -> Long.compare(a.key, b.key));
+
+        List<Bucket> reducedBuckets = new ArrayList<>();
+        // list of buckets that have the same key
+        List<Bucket> currentBuckets = new ArrayList<>();
+        long currentKey = 0;
+        for (Bucket bucket : allBuckets) {
+            final long key = rounding.round(bucket.key);
+            if (currentBuckets.isEmpty() == false && key != currentKey) {
+                // the key changes, reduce what we already buffered and reset the buffer for current buckets
+                reducedBuckets.add(currentBuckets.get(0).reduce(currentBuckets, currentKey, reduceContext));
+                currentBuckets.clear();
+            }
+            currentKey = key;
+            currentBuckets.add(bucket);
+        }
+        if (currentBuckets.isEmpty() == false) {
+            reducedBuckets.add(currentBuckets.get(0).reduce(currentBuckets, currentKey, reduceContext));
+        }
+        return reducedBuckets;
+    }
+
+    private void addEmptyBuckets(List<Bucket> list, Rounding rounding, ReduceContext reduceContext) {
+        if (list.isEmpty()) {
+            return;
+        }
+        InternalAggregations reducedEmptySubAggs = InternalAggregations.reduce(
+                Collections.singletonList(bucketInfo.emptySubAggregations), reduceContext);
+        List<Bucket> filled = new ArrayList<>(list.size());
+        Bucket lastBucket = null;
+        for (Bucket bucket : list) {
+            if (lastBucket != null) {
+                long key = rounding.nextRoundingValue(lastBucket.key);
+                while (key < bucket.key) {
+                    filled.add(new Bucket(key, 0, format, reducedEmptySubAggs));
+                    key = rounding.nextRoundingValue(key);
+                }
+                assert key == bucket.key;
+            }
+            filled.add(bucket);
+            lastBucket = bucket;
+        }
+        list.clear();
+        list.addAll(filled);
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(CommonFields.BUCKETS.getPreferredName());
+        for (Bucket bucket : buckets) {
+            bucket.toXContent(builder, params);
+        }
+        builder.endArray();
+        builder.field(INTERVAL_FIELD.getPreferredName(), getInterval().toString());
+        return builder;
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        InternalAutoDateHistogram that = (InternalAutoDateHistogram) obj;
+        return Objects.equals(buckets, that.buckets)
+                && Objects.equals(format, that.format)
+                && Objects.equals(targetBuckets, that.targetBuckets)
+                && Objects.equals(bucketInfo, that.bucketInfo);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(buckets, format, targetBuckets, bucketInfo);
+    }
+}
@@ -51,4 +51,8 @@ public class MissingAggregatorFactory extends ValuesSourceAggregatorFactory<Valu
         return new MissingAggregator(name, factories, valuesSource, context, parent, pipelineAggregators, metaData);
     }
 
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
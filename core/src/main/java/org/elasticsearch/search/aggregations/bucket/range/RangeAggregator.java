@@ -19,6 +19,8 @@
 package org.elasticsearch.search.aggregations.bucket.range;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -36,6 +38,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.NonCollectingAggregator;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.PointRangeCounter;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
@@ -195,6 +198,9 @@ public class RangeAggregator extends BucketsAggregator {
         }
     }
 
+    /** The largest magnitude up to which all {@code long} values can be converted to {@code double} exactly. */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
     final ValuesSource.Numeric valuesSource;
     final DocValueFormat format;
     final Range[] ranges;
@@ -203,9 +209,19 @@ public class RangeAggregator extends BucketsAggregator {
 
     final double[] maxTo;
 
+    @Nullable
+    private final PointRangeCounter pointRangeCounter;
+
     public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
             InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        this(name, factories, valuesSource, format, rangeFactory, ranges, keyed, context, parent, pipelineAggregators, metaData, null);
+    }
+
+    public RangeAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, DocValueFormat format,
+            InternalRange.Factory rangeFactory, Range[] ranges, boolean keyed, SearchContext context,
+            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData,
+            @Nullable PointRangeCounter pointRangeCounter) throws IOException {
 
         super(name, factories, context, parent, pipelineAggregators, metaData);
         assert valuesSource != null;
@@ -215,6 +231,7 @@ public class RangeAggregator extends BucketsAggregator {
         this.rangeFactory = rangeFactory;
 
         this.ranges = ranges;
+        this.pointRangeCounter = pointRangeCounter;
 
         maxTo = new double[this.ranges.length];
         maxTo[0] = this.ranges[0].to;
@@ -232,6 +249,12 @@ public class RangeAggregator extends BucketsAggregator {
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
             final LeafBucketCollector sub) throws IOException {
+        if (pointRangeCounter != null) {
+            final PointValues points = pointRangeCounter.pointValues(ctx);
+            if (points != null && countFromPoints(points)) {
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -295,6 +318,42 @@ public class RangeAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Counts the documents of the segment per range by intersecting the ranges with the points of the field. Returns
+     * {@code false} without counting anything if there are too many ranges for this to be worth it or if the values of the
+     * segment can't be compared with the bounds of the ranges exactly.
+     */
+    private boolean countFromPoints(PointValues points) throws IOException {
+        if (ranges.length > pointRangeCounter.maxRanges(points)) {
+            return false;
+        }
+        final long min = pointRangeCounter.min(points);
+        final long max = pointRangeCounter.max(points);
+        if (min > max) {
+            // the query doesn't match any value of the segment
+            return true;
+        }
+        if (min < -MAX_EXACT_LONG || max > MAX_EXACT_LONG) {
+            // the collector compares the values as doubles
+            return false;
+        }
+        for (int i = 0; i < ranges.length; i++) {
+            // ranges include from and exclude to
+            final double from = ranges[i].from;
+            final double to = ranges[i].to;
+            if (from > MAX_EXACT_LONG || to < -MAX_EXACT_LONG) {
+                continue;
+            }
+            final long lower = from < -MAX_EXACT_LONG ? Long.MIN_VALUE : (long) Math.ceil(from);
+            final long upper = to > MAX_EXACT_LONG ? Long.MAX_VALUE : (long) Math.ceil(to) - 1;
+            final int count = pointRangeCounter.count(points, lower, upper);
+            if (count > 0) {
+                incrementBucketDocCount(subBucketOrdinal(0, i), count);
+            }
+        }
+        return true;
+    }
+
     private long subBucketOrdinal(long owningBucketOrdinal, int rangeOrd) {
         return owningBucketOrdinal * ranges.length + rangeOrd;
     }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongHash;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Assigns dense ordinals to the terms of the buckets that are reduced, using hash tables that are backed by {@link BigArrays}
+ * rather than one map entry per term.
+ */
+abstract class BucketOrds<B extends InternalTerms.Bucket<B>> implements Releasable {
+
+    /**
+     * Add the term of the given bucket, and return its ordinal if it is new or {@code -1 - ordinal} if it was already added.
+     */
+    abstract long add(B bucket);
+
+    /**
+     * Return the ordinal of the term of the given bucket, or {@code -1} if it was never added.
+     */
+    abstract long find(B bucket);
+
+    /**
+     * Return the number of distinct terms.
+     */
+    abstract long size();
+
+    /**
+     * Create ordinals for terms that can be represented as longs.
+     */
+    static <B extends InternalTerms.Bucket<B>> BucketOrds<B> longs(BigArrays bigArrays, ToLongFunction<B> term) {
+        final LongHash hash = new LongHash(1, bigArrays);
+        return new BucketOrds<B>() {
+            @Override
+            long add(B bucket) {
+                return hash.add(term.applyAsLong(bucket));
+            }
+
+            @Override
+            long find(B bucket) {
+                return hash.find(term.applyAsLong(bucket));
+            }
+
+            @Override
+            long size() {
+                return hash.size();
+            }
+
+            @Override
+            public void close() {
+                hash.close();
+            }
+        };
+    }
+
+    /**
+     * Create ordinals for binary terms.
+     */
+    static <B extends InternalTerms.Bucket<B>> BucketOrds<B> bytesRefs(BigArrays bigArrays, Function<B, BytesRef> term) {
+        final BytesRefHash hash = new BytesRefHash(1, bigArrays);
+        return new BucketOrds<B>() {
+            @Override
+            long add(B bucket) {
+                return hash.add(term.apply(bucket));
+            }
+
+            @Override
+            long find(B bucket) {
+                return hash.find(term.apply(bucket));
+            }
+
+            @Override
+            long size() {
+                return hash.size();
+            }
+
+            @Override
+            public void close() {
+                hash.close();
+            }
+        };
+    }
+}
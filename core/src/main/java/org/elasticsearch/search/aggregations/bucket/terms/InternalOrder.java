@@ -120,6 +120,23 @@ class InternalOrder extends Terms.Order {
         return false;
     }
 
+    /**
+     * Whether the order only depends on the terms and the doc counts of the buckets, and not on their sub-aggregations.
+     */
+    public static boolean isTermOrCountOrder(Terms.Order order) {
+        if (order == COUNT_DESC || order == COUNT_ASC || order == TERM_DESC || order == TERM_ASC) {
+            return true;
+        } else if (order instanceof CompoundOrder) {
+            for (Terms.Order innerOrder : ((CompoundOrder) order).orderElements) {
+                if (isTermOrCountOrder(innerOrder) == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     final byte id;
     final String key;
     final boolean asc;
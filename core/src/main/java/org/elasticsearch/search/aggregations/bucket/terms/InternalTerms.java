@@ -21,6 +21,11 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
@@ -35,7 +40,6 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -223,97 +227,179 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-        Map<Object, List<B>> buckets = new HashMap<>();
+        // Terms are mapped to ordinals and their doc counts are summed up in arrays that are accounted in the request circuit
+        // breaker. The buckets of the shards are only grouped and reduced for the terms that can make it to the response.
+        final BigArrays bigArrays = reduceContext.bigArrays().withCircuitBreaking();
         long sumDocCountError = 0;
         long otherDocCount = 0;
         InternalTerms<A, B> referenceTerms = null;
-        for (InternalAggregation aggregation : aggregations) {
-            @SuppressWarnings("unchecked")
-            InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
-            if (referenceTerms == null && !aggregation.getClass().equals(UnmappedTerms.class)) {
-                referenceTerms = terms;
-            }
-            if (referenceTerms != null &&
-                    !referenceTerms.getClass().equals(terms.getClass()) &&
-                    !terms.getClass().equals(UnmappedTerms.class)) {
-                // control gets into this loop when the same field name against which the query is executed
-                // is of different types in different indices.
-                throw new AggregationExecutionException("Merging/Reducing the aggregations failed when computing the aggregation ["
-                        + referenceTerms.getName() + "] because the field you gave in the aggregation query existed as two different "
-                        + "types in two different indices");
-            }
-            otherDocCount += terms.getSumOfOtherDocCounts();
-            final long thisAggDocCountError;
-            if (terms.getBucketsInternal().size() < getShardSize() || InternalOrder.isTermOrder(order)) {
-                thisAggDocCountError = 0;
-            } else if (InternalOrder.isCountDesc(this.order)) {
-                if (terms.getDocCountError() > 0) {
-                    // If there is an existing docCountError for this agg then
-                    // use this as the error for this aggregation
-                    thisAggDocCountError = terms.getDocCountError();
+        BucketOrds<B> bucketOrds = null;
+        LongArray docCounts = null;
+        ObjectArray<B> firstBuckets = null;
+        IntArray slots = null;
+        try {
+            bucketOrds = newBucketOrds(bigArrays);
+            docCounts = bigArrays.newLongArray(1, true);
+            firstBuckets = bigArrays.newObjectArray(1);
+            for (InternalAggregation aggregation : aggregations) {
+                @SuppressWarnings("unchecked")
+                InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
+                if (referenceTerms == null && !aggregation.getClass().equals(UnmappedTerms.class)) {
+                    referenceTerms = terms;
+                }
+                if (referenceTerms != null &&
+                        !referenceTerms.getClass().equals(terms.getClass()) &&
+                        !terms.getClass().equals(UnmappedTerms.class)) {
+                    // control gets into this loop when the same field name against which the query is executed
+                    // is of different types in different indices.
+                    throw new AggregationExecutionException("Merging/Reducing the aggregations failed when computing the aggregation ["
+                            + referenceTerms.getName() + "] because the field you gave in the aggregation query existed as two different "
+                            + "types in two different indices");
+                }
+                otherDocCount += terms.getSumOfOtherDocCounts();
+                final long thisAggDocCountError;
+                if (terms.getBucketsInternal().size() < getShardSize() || InternalOrder.isTermOrder(order)) {
+                    thisAggDocCountError = 0;
+                } else if (InternalOrder.isCountDesc(this.order)) {
+                    if (terms.getDocCountError() > 0) {
+                        // If there is an existing docCountError for this agg then
+                        // use this as the error for this aggregation
+                        thisAggDocCountError = terms.getDocCountError();
+                    } else {
+                        // otherwise use the doc count of the last term in the
+                        // aggregation
+                        thisAggDocCountError = terms.getBucketsInternal().get(terms.getBucketsInternal().size() - 1).docCount;
+                    }
                 } else {
-                    // otherwise use the doc count of the last term in the
-                    // aggregation
-                    thisAggDocCountError = terms.getBucketsInternal().get(terms.getBucketsInternal().size() - 1).docCount;
+                    thisAggDocCountError = -1;
+                }
+                if (sumDocCountError != -1) {
+                    if (thisAggDocCountError == -1) {
+                        sumDocCountError = -1;
+                    } else {
+                        sumDocCountError += thisAggDocCountError;
+                    }
                 }
+                setDocCountError(thisAggDocCountError);
+                for (B bucket : terms.getBucketsInternal()) {
+                    // If there is already a doc count error for this bucket
+                    // subtract this aggs doc count error from it to make the
+                    // new value for the bucket. This then means that when the
+                    // final error for the bucket is calculated below we account
+                    // for the existing error calculated in a previous reduce.
+                    // Note that if the error is unbounded (-1) this will be fixed
+                    // later in this method.
+                    bucket.docCountError -= thisAggDocCountError;
+                    long bucketOrd = bucketOrds.add(bucket);
+                    if (bucketOrd < 0) {
+                        bucketOrd = -1 - bucketOrd;
+                    } else {
+                        docCounts = bigArrays.grow(docCounts, bucketOrd + 1);
+                        firstBuckets = bigArrays.grow(firstBuckets, bucketOrd + 1);
+                        firstBuckets.set(bucketOrd, bucket);
+                    }
+                    docCounts.increment(bucketOrd, bucket.docCount);
+                }
+            }
+
+            final long numTerms = bucketOrds.size();
+            final int size = reduceContext.isFinalReduce() == false ? Math.toIntExact(numTerms) : (int) Math.min(requiredSize, numTerms);
+            final boolean orderedBySubAggregations = InternalOrder.isTermOrCountOrder(order) == false;
+            // the slot of each term in the reduced buckets, or -1 if the term does not need to be reduced
+            slots = bigArrays.newIntArray(numTerms);
+            final int numSlots;
+            if (orderedBySubAggregations) {
+                // the sub-aggregations of all terms need to be reduced before they can be sorted
+                for (int bucketOrd = 0; bucketOrd < numTerms; bucketOrd++) {
+                    slots.set(bucketOrd, bucketOrd);
+                }
+                numSlots = Math.toIntExact(numTerms);
             } else {
-                thisAggDocCountError = -1;
+                // the top terms can be picked from the summed up doc counts, the sub-aggregations of the first shard bucket of
+                // each term only stand in until the competitive terms are reduced
+                slots.fill(0, numTerms, -1);
+                final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
+                for (long bucketOrd = 0; bucketOrd < numTerms; bucketOrd++) {
+                    final long docCount = docCounts.get(bucketOrd);
+                    if (docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
+                        final B firstBucket = firstBuckets.get(bucketOrd);
+                        final B candidate = firstBucket.newBucket(docCount, firstBucket.aggregations, 0);
+                        candidate.bucketOrd = bucketOrd;
+                        B removed = ordered.insertWithOverflow(candidate);
+                        if (removed != null) {
+                            otherDocCount += removed.getDocCount();
+                        }
+                    }
+                }
+                numSlots = ordered.size();
+                for (int slot = numSlots - 1; slot >= 0; slot--) {
+                    slots.set(ordered.pop().bucketOrd, slot);
+                }
             }
-            if (sumDocCountError != -1) {
-                if (thisAggDocCountError == -1) {
-                    sumDocCountError = -1;
+            // the shard buckets are not needed anymore to pick the top terms
+            Releasables.close(docCounts, firstBuckets);
+            docCounts = null;
+            firstBuckets = null;
+
+            @SuppressWarnings("unchecked")
+            final List<B>[] sameTermBuckets = new List[numSlots];
+            for (InternalAggregation aggregation : aggregations) {
+                @SuppressWarnings("unchecked")
+                InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
+                for (B bucket : terms.getBucketsInternal()) {
+                    final int slot = slots.get(bucketOrds.find(bucket));
+                    if (slot >= 0) {
+                        if (sameTermBuckets[slot] == null) {
+                            sameTermBuckets[slot] = new ArrayList<>();
+                        }
+                        sameTermBuckets[slot].add(bucket);
+                    }
+                }
+            }
+
+            B[] list = createBucketsArray(numSlots);
+            for (int slot = 0; slot < numSlots; slot++) {
+                final B b = sameTermBuckets[slot].get(0).reduce(sameTermBuckets[slot], reduceContext);
+                sameTermBuckets[slot] = null;
+                if (sumDocCountError == -1) {
+                    b.docCountError = -1;
                 } else {
-                    sumDocCountError += thisAggDocCountError;
+                    b.docCountError += sumDocCountError;
                 }
+                list[slot] = b;
             }
-            setDocCountError(thisAggDocCountError);
-            for (B bucket : terms.getBucketsInternal()) {
-                // If there is already a doc count error for this bucket
-                // subtract this aggs doc count error from it to make the
-                // new value for the bucket. This then means that when the
-                // final error for the bucket is calculated below we account
-                // for the existing error calculated in a previous reduce.
-                // Note that if the error is unbounded (-1) this will be fixed
-                // later in this method.
-                bucket.docCountError -= thisAggDocCountError;
-                List<B> bucketList = buckets.get(bucket.getKey());
-                if (bucketList == null) {
-                    bucketList = new ArrayList<>();
-                    buckets.put(bucket.getKey(), bucketList);
+            if (orderedBySubAggregations) {
+                final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
+                for (B b : list) {
+                    if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
+                        B removed = ordered.insertWithOverflow(b);
+                        if (removed != null) {
+                            otherDocCount += removed.getDocCount();
+                        }
+                    }
+                }
+                list = createBucketsArray(ordered.size());
+                for (int i = ordered.size() - 1; i >= 0; i--) {
+                    list[i] = ordered.pop();
                 }
-                bucketList.add(bucket);
             }
-        }
-
-        final int size = reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size());
-        final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
-        for (List<B> sameTermBuckets : buckets.values()) {
-            final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+            long docCountError;
             if (sumDocCountError == -1) {
-                b.docCountError = -1;
+                docCountError = -1;
             } else {
-                b.docCountError += sumDocCountError;
-            }
-            if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
-                B removed = ordered.insertWithOverflow(b);
-                if (removed != null) {
-                    otherDocCount += removed.getDocCount();
-                }
+                docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
             }
+            return create(name, Arrays.asList(list), docCountError, otherDocCount);
+        } finally {
+            Releasables.close(bucketOrds, docCounts, firstBuckets, slots);
         }
-        B[] list = createBucketsArray(ordered.size());
-        for (int i = ordered.size() - 1; i >= 0; i--) {
-            list[i] = ordered.pop();
-        }
-        long docCountError;
-        if (sumDocCountError == -1) {
-            docCountError = -1;
-        } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
-        }
-        return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
+    /**
+     * Create the ordinals that the terms of the buckets are mapped to when reducing.
+     */
+    abstract BucketOrds<B> newBucketOrds(BigArrays bigArrays);
+
     protected abstract void setDocCountError(long docCountError);
 
     protected abstract int getShardSize();
@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -147,6 +148,11 @@ public class LongTerms extends InternalMappedTerms<LongTerms, LongTerms.Bucket>
         return new Bucket[size];
     }
 
+    @Override
+    BucketOrds<Bucket> newBucketOrds(BigArrays bigArrays) {
+        return BucketOrds.longs(bigArrays, bucket -> bucket.term);
+    }
+
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         for (InternalAggregation agg : aggregations) {
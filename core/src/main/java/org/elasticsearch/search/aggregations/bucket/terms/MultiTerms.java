@@ -0,0 +1,285 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Result of the {@link MultiTermsAggregator}. Each bucket is keyed by a tuple of terms, one per field, and buckets
+ * are compared term by term in the order of the fields.
+ */
+public class MultiTerms extends InternalTerms<MultiTerms, MultiTerms.Bucket> {
+    public static final String NAME = "mterms";
+
+    public static class Bucket extends InternalTerms.Bucket<Bucket> {
+        final BytesRef[] terms;
+        private final List<DocValueFormat> formats;
+
+        public Bucket(BytesRef[] terms, long docCount, InternalAggregations aggregations, boolean showDocCountError,
+                long docCountError, List<DocValueFormat> formats) {
+            super(docCount, aggregations, showDocCountError, docCountError, DocValueFormat.RAW);
+            assert terms.length == formats.size();
+            this.terms = terms;
+            this.formats = formats;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        Bucket(StreamInput in, List<DocValueFormat> formats, boolean showDocCountError) throws IOException {
+            super(in, DocValueFormat.RAW, showDocCountError);
+            this.formats = formats;
+            terms = new BytesRef[formats.size()];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = in.readBytesRef();
+            }
+        }
+
+        @Override
+        protected void writeTermTo(StreamOutput out) throws IOException {
+            for (BytesRef term : terms) {
+                out.writeBytesRef(term);
+            }
+        }
+
+        /**
+         * The formatted terms of this bucket, in the order of the fields.
+         */
+        @Override
+        public List<String> getKey() {
+            List<String> key = new ArrayList<>(terms.length);
+            for (int i = 0; i < terms.length; i++) {
+                key.add(formats.get(i).format(terms[i]));
+            }
+            return key;
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return String.join("|", getKey());
+        }
+
+        @Override
+        public Number getKeyAsNumber() {
+            throw new UnsupportedOperationException("The key of a [" + MultiTermsAggregationBuilder.NAME + "] bucket is not a number");
+        }
+
+        @Override
+        int compareTerm(Terms.Bucket other) {
+            BytesRef[] otherTerms = ((Bucket) other).terms;
+            for (int i = 0; i < terms.length; i++) {
+                int cmp = terms[i].compareTo(otherTerms[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Encodes the terms into a single {@link BytesRef}, each term prefixed with its length, so that buckets with the
+         * same terms and only those have the same encoded terms.
+         */
+        BytesRef encodedTerms() {
+            int length = 0;
+            for (BytesRef term : terms) {
+                length += Integer.BYTES + term.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            for (BytesRef term : terms) {
+                buffer.putInt(term.length).put(term.bytes, term.offset, term.length);
+            }
+            return new BytesRef(buffer.array());
+        }
+
+        @Override
+        Bucket newBucket(long docCount, InternalAggregations aggs, long docCountError) {
+            return new Bucket(terms, docCount, aggs, showDocCountError, docCountError, formats);
+        }
+
+        @Override
+        protected final XContentBuilder keyToXContent(XContentBuilder builder) throws IOException {
+            builder.field(CommonFields.KEY.getPreferredName(), getKey());
+            return builder.field(CommonFields.KEY_AS_STRING.getPreferredName(), getKeyAsString());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return super.equals(obj) && Arrays.equals(terms, ((Bucket) obj).terms);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), Arrays.hashCode(terms));
+        }
+    }
+
+    private final List<DocValueFormat> formats;
+    private final int shardSize;
+    private final boolean showTermDocCountError;
+    private final long otherDocCount;
+    private final List<Bucket> buckets;
+    private Map<String, Bucket> bucketMap;
+
+    private long docCountError;
+
+    public MultiTerms(String name, Terms.Order order, int requiredSize, long minDocCount, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData, List<DocValueFormat> formats, int shardSize, boolean showTermDocCountError,
+            long otherDocCount, List<Bucket> buckets, long docCountError) {
+        super(name, order, requiredSize, minDocCount, pipelineAggregators, metaData);
+        this.formats = formats;
+        this.shardSize = shardSize;
+        this.showTermDocCountError = showTermDocCountError;
+        this.otherDocCount = otherDocCount;
+        this.buckets = buckets;
+        this.docCountError = docCountError;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public MultiTerms(StreamInput in) throws IOException {
+        super(in);
+        docCountError = in.readZLong();
+        final List<DocValueFormat> formats = in.readNamedWriteableList(DocValueFormat.class);
+        this.formats = formats;
+        shardSize = readSize(in);
+        final boolean showTermDocCountError = in.readBoolean();
+        this.showTermDocCountError = showTermDocCountError;
+        otherDocCount = in.readVLong();
+        buckets = in.readList(stream -> new Bucket(stream, formats, showTermDocCountError));
+    }
+
+    @Override
+    protected void writeTermTypeInfoTo(StreamOutput out) throws IOException {
+        out.writeZLong(docCountError);
+        out.writeNamedWriteableList(formats);
+        writeSize(shardSize, out);
+        out.writeBoolean(showTermDocCountError);
+        out.writeVLong(otherDocCount);
+        out.writeList(buckets);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    @Override
+    public MultiTerms create(List<Bucket> buckets) {
+        return new MultiTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), metaData, formats, shardSize,
+                showTermDocCountError, otherDocCount, buckets, docCountError);
+    }
+
+    @Override
+    public Bucket createBucket(InternalAggregations aggregations, Bucket prototype) {
+        return new Bucket(prototype.terms, prototype.docCount, aggregations, prototype.showDocCountError, prototype.docCountError,
+                prototype.formats);
+    }
+
+    @Override
+    protected MultiTerms create(String name, List<Bucket> buckets, long docCountError, long otherDocCount) {
+        return new MultiTerms(name, order, requiredSize, minDocCount, pipelineAggregators(), getMetaData(), formats, shardSize,
+                showTermDocCountError, otherDocCount, buckets, docCountError);
+    }
+
+    @Override
+    protected Bucket[] createBucketsArray(int size) {
+        return new Bucket[size];
+    }
+
+    @Override
+    BucketOrds<Bucket> newBucketOrds(BigArrays bigArrays) {
+        return BucketOrds.bytesRefs(bigArrays, Bucket::encodedTerms);
+    }
+
+    @Override
+    protected void setDocCountError(long docCountError) {
+        this.docCountError = docCountError;
+    }
+
+    @Override
+    protected int getShardSize() {
+        return shardSize;
+    }
+
+    @Override
+    public long getDocCountError() {
+        return docCountError;
+    }
+
+    @Override
+    public long getSumOfOtherDocCounts() {
+        return otherDocCount;
+    }
+
+    @Override
+    protected List<Bucket> getBucketsInternal() {
+        return buckets;
+    }
+
+    /**
+     * Get the bucket for the given terms joined with {@code |}, see {@link Bucket#getKeyAsString()}.
+     */
+    @Override
+    public Bucket getBucketByKey(String term) {
+        if (bucketMap == null) {
+            bucketMap = buckets.stream().collect(Collectors.toMap(Bucket::getKeyAsString, Function.identity()));
+        }
+        return bucketMap.get(term);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        MultiTerms that = (MultiTerms) obj;
+        return super.doEquals(obj)
+                && Objects.equals(buckets, that.buckets)
+                && Objects.equals(formats, that.formats)
+                && Objects.equals(otherDocCount, that.otherDocCount)
+                && Objects.equals(showTermDocCountError, that.showTermDocCountError)
+                && Objects.equals(shardSize, that.shardSize);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(super.doHashCode(), buckets, formats, otherDocCount, showTermDocCountError, shardSize);
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        return doXContentCommon(builder, params, docCountError, otherDocCount, buckets);
+    }
+}
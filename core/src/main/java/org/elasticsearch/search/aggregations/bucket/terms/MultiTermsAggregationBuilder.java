@@ -0,0 +1,318 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregator.BucketCountThresholds;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds a {@code multi_terms} aggregation, which creates a bucket per combination of the terms of several fields. The
+ * fields must support global ordinals, like {@code keyword} fields.
+ */
+public class MultiTermsAggregationBuilder extends AbstractAggregationBuilder<MultiTermsAggregationBuilder> {
+    public static final String NAME = "multi_terms";
+
+    public static final ParseField FIELDS_FIELD = new ParseField("fields");
+
+    static final BucketCountThresholds DEFAULT_BUCKET_COUNT_THRESHOLDS = new BucketCountThresholds(1, 0, 10, -1);
+
+    private static final ObjectParser<MultiTermsAggregationBuilder, QueryParseContext> PARSER;
+    static {
+        PARSER = new ObjectParser<>(NAME);
+        PARSER.declareStringArray(MultiTermsAggregationBuilder::setFields, FIELDS_FIELD);
+
+        PARSER.declareBoolean(MultiTermsAggregationBuilder::showTermDocCountError,
+                TermsAggregationBuilder.SHOW_TERM_DOC_COUNT_ERROR);
+
+        PARSER.declareInt(MultiTermsAggregationBuilder::shardSize, TermsAggregationBuilder.SHARD_SIZE_FIELD_NAME);
+
+        PARSER.declareLong(MultiTermsAggregationBuilder::minDocCount, TermsAggregationBuilder.MIN_DOC_COUNT_FIELD_NAME);
+
+        PARSER.declareLong(MultiTermsAggregationBuilder::shardMinDocCount, TermsAggregationBuilder.SHARD_MIN_DOC_COUNT_FIELD_NAME);
+
+        PARSER.declareInt(MultiTermsAggregationBuilder::size, TermsAggregationBuilder.REQUIRED_SIZE_FIELD_NAME);
+
+        PARSER.declareField(MultiTermsAggregationBuilder::collectMode,
+                (p, c) -> SubAggCollectionMode.parse(p.text()),
+                SubAggCollectionMode.KEY, ObjectParser.ValueType.STRING);
+
+        PARSER.declareObjectArray(MultiTermsAggregationBuilder::order, TermsAggregationBuilder::parseOrderParam,
+                TermsAggregationBuilder.ORDER_FIELD);
+    }
+
+    public static MultiTermsAggregationBuilder parse(String aggregationName, QueryParseContext context) throws IOException {
+        MultiTermsAggregationBuilder builder = PARSER.parse(context.parser(), new MultiTermsAggregationBuilder(aggregationName), context);
+        if (builder.fields == null) {
+            throw new IllegalArgumentException("Required [" + FIELDS_FIELD.getPreferredName()
+                + "] for aggregation [" + aggregationName + "]");
+        }
+        return builder;
+    }
+
+    private List<String> fields;
+    private Terms.Order order = Terms.Order.compound(Terms.Order.count(false), Terms.Order.term(true));
+    private SubAggCollectionMode collectMode = null;
+    private BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(DEFAULT_BUCKET_COUNT_THRESHOLDS);
+    private boolean showTermDocCountError = false;
+
+    private MultiTermsAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public MultiTermsAggregationBuilder(String name, List<String> fields) {
+        super(name);
+        setFields(fields);
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public MultiTermsAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        fields = in.readList(StreamInput::readString);
+        bucketCountThresholds = new BucketCountThresholds(in);
+        collectMode = in.readOptionalWriteable(SubAggCollectionMode::readFromStream);
+        order = InternalOrder.Streams.readOrder(in);
+        showTermDocCountError = in.readBoolean();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeStringList(fields);
+        bucketCountThresholds.writeTo(out);
+        out.writeOptionalWriteable(collectMode);
+        InternalOrder.Streams.writeOrder(order, out);
+        out.writeBoolean(showTermDocCountError);
+    }
+
+    private void setFields(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("[" + FIELDS_FIELD.getPreferredName() + "] must not be null or empty: [" + name + "]");
+        }
+        this.fields = fields;
+    }
+
+    /**
+     * Gets the fields whose terms make up the keys of the buckets.
+     */
+    public List<String> fields() {
+        return fields;
+    }
+
+    /**
+     * Sets the size - indicating how many buckets should be returned
+     * (defaults to 10)
+     */
+    public MultiTermsAggregationBuilder size(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("[size] must be greater than 0. Found [" + size + "] in [" + name + "]");
+        }
+        bucketCountThresholds.setRequiredSize(size);
+        return this;
+    }
+
+    /**
+     * Sets the shard_size - indicating the number of buckets each shard
+     * will return to the coordinating node (the node that coordinates the
+     * search execution). The higher the shard size is, the more accurate the
+     * results are.
+     */
+    public MultiTermsAggregationBuilder shardSize(int shardSize) {
+        if (shardSize <= 0) {
+            throw new IllegalArgumentException(
+                    "[shardSize] must be greater than 0. Found [" + shardSize + "] in [" + name + "]");
+        }
+        bucketCountThresholds.setShardSize(shardSize);
+        return this;
+    }
+
+    /**
+     * Set the minimum document count buckets should have in order to appear
+     * in the response. Buckets are only created for combinations of terms
+     * that occur in documents, so it must be greater than 0.
+     */
+    public MultiTermsAggregationBuilder minDocCount(long minDocCount) {
+        if (minDocCount <= 0) {
+            throw new IllegalArgumentException(
+                    "[minDocCount] must be greater than 0. Found [" + minDocCount + "] in [" + name + "]");
+        }
+        bucketCountThresholds.setMinDocCount(minDocCount);
+        return this;
+    }
+
+    /**
+     * Returns the minimum document count required per bucket
+     */
+    public long minDocCount() {
+        return bucketCountThresholds.getMinDocCount();
+    }
+
+    /**
+     * Set the minimum document count buckets should have on the shard in
+     * order to appear in the response.
+     */
+    public MultiTermsAggregationBuilder shardMinDocCount(long shardMinDocCount) {
+        if (shardMinDocCount < 0) {
+            throw new IllegalArgumentException(
+                    "[shardMinDocCount] must be greater than or equal to 0. Found [" + shardMinDocCount + "] in [" + name + "]");
+        }
+        bucketCountThresholds.setShardMinDocCount(shardMinDocCount);
+        return this;
+    }
+
+    /**
+     * Sets the order in which the buckets will be returned. Ordering by term
+     * compares the terms of the fields one after the other.
+     */
+    public MultiTermsAggregationBuilder order(Terms.Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("[order] must not be null: [" + name + "]");
+        }
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Sets the order in which the buckets will be returned.
+     */
+    public MultiTermsAggregationBuilder order(List<Terms.Order> orders) {
+        if (orders == null) {
+            throw new IllegalArgumentException("[orders] must not be null: [" + name + "]");
+        }
+        order(Terms.Order.compound(orders));
+        return this;
+    }
+
+    /**
+     * Gets the order in which the buckets will be returned.
+     */
+    public Terms.Order order() {
+        return order;
+    }
+
+    /**
+     * Expert: set the collection mode.
+     */
+    public MultiTermsAggregationBuilder collectMode(SubAggCollectionMode collectMode) {
+        if (collectMode == null) {
+            throw new IllegalArgumentException("[collectMode] must not be null: [" + name + "]");
+        }
+        this.collectMode = collectMode;
+        return this;
+    }
+
+    /**
+     * Expert: get the collection mode.
+     */
+    public SubAggCollectionMode collectMode() {
+        return collectMode;
+    }
+
+    /**
+     * Get whether doc count error will be return for individual buckets
+     */
+    public boolean showTermDocCountError() {
+        return showTermDocCountError;
+    }
+
+    /**
+     * Set whether doc count error will be return for individual buckets
+     */
+    public MultiTermsAggregationBuilder showTermDocCountError(boolean showTermDocCountError) {
+        this.showTermDocCountError = showTermDocCountError;
+        return this;
+    }
+
+    @Override
+    protected AggregatorFactory<?> doBuild(SearchContext context, AggregatorFactory<?> parent,
+                                           AggregatorFactories.Builder subFactoriesBuilder) throws IOException {
+        ValuesSource.Bytes.WithOrdinals[] valuesSources = new ValuesSource.Bytes.WithOrdinals[fields.size()];
+        List<DocValueFormat> formats = new ArrayList<>(fields.size());
+        for (int i = 0; i < valuesSources.length; i++) {
+            ValuesSourceConfig<ValuesSource> config = ValuesSourceConfig.resolve(context.getQueryShardContext(),
+                null, fields.get(i), null, null, null, null);
+            ValuesSource vs = config.toValuesSource(context.getQueryShardContext());
+            if (vs == null) {
+                // the field is unmapped so we use a source that has no values
+                vs = ValuesSource.Bytes.WithOrdinals.EMPTY;
+            }
+            if (vs instanceof ValuesSource.Bytes.WithOrdinals == false) {
+                throw new IllegalArgumentException("[" + NAME + "] aggregation [" + name + "] only supports fields with global "
+                    + "ordinals such as keyword fields, but [" + fields.get(i) + "] is not such a field");
+            }
+            valuesSources[i] = (ValuesSource.Bytes.WithOrdinals) vs;
+            formats.add(config.format());
+        }
+        return new MultiTermsAggregatorFactory(name, valuesSources, formats, order, bucketCountThresholds, collectMode,
+                showTermDocCountError, context, parent, subFactoriesBuilder, metaData);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(FIELDS_FIELD.getPreferredName(), fields);
+        bucketCountThresholds.toXContent(builder, params);
+        builder.field(TermsAggregationBuilder.SHOW_TERM_DOC_COUNT_ERROR.getPreferredName(), showTermDocCountError);
+        builder.field(TermsAggregationBuilder.ORDER_FIELD.getPreferredName());
+        order.toXContent(builder, params);
+        if (collectMode != null) {
+            builder.field(SubAggCollectionMode.KEY.getPreferredName(), collectMode.parseField().getPreferredName());
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fields, bucketCountThresholds, collectMode, order, showTermDocCountError);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        MultiTermsAggregationBuilder other = (MultiTermsAggregationBuilder) obj;
+        return Objects.equals(fields, other.fields)
+                && Objects.equals(bucketCountThresholds, other.bucketCountThresholds)
+                && Objects.equals(collectMode, other.collectMode)
+                && Objects.equals(order, other.order)
+                && Objects.equals(showTermDocCountError, other.showTermDocCountError);
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+}
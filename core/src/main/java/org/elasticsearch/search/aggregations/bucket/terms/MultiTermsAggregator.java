@@ -0,0 +1,411 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator that builds a bucket per combination of the terms of several fields. The global ordinals of the terms of a
+ * document are combined into a single key: the ordinals are packed into a long when their bits add up to at most 63 bits,
+ * otherwise they are written as fixed-width big-endian longs into a {@link BytesRef}. Either way keys compare like the tuples
+ * of terms they stand for, so no terms need to be looked up until the top buckets are built. Documents that don't have a
+ * value for one of the fields are not collected, and documents with several values per field are collected into the
+ * bucket of every combination of their values.
+ */
+class MultiTermsAggregator extends TermsAggregator {
+
+    private final ValuesSource.Bytes.WithOrdinals[] valuesSources;
+    private final List<DocValueFormat> formats;
+    private final boolean showTermDocCountError;
+    private final KeyOrds bucketOrds;
+
+    private RandomAccessOrds[] globalOrds;
+
+    MultiTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals[] valuesSources,
+            List<DocValueFormat> formats, Terms.Order order, BucketCountThresholds bucketCountThresholds, SearchContext context,
+            Aggregator parent, SubAggCollectionMode collectMode, boolean showTermDocCountError,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, bucketCountThresholds, order, DocValueFormat.RAW, collectMode, pipelineAggregators,
+                metaData);
+        this.valuesSources = valuesSources;
+        this.formats = formats;
+        this.showTermDocCountError = showTermDocCountError;
+
+        final int[] bits = new int[valuesSources.length];
+        int totalBits = 0;
+        for (int i = 0; i < valuesSources.length; i++) {
+            long maxOrd = valuesSources[i].globalMaxOrd(context.searcher());
+            bits[i] = PackedInts.bitsRequired(Math.max(0, maxOrd - 1));
+            totalBits += bits[i];
+        }
+        if (totalBits < Long.SIZE) {
+            bucketOrds = new PackedKeyOrds(bits, context.bigArrays());
+        } else {
+            bucketOrds = new FixedWidthKeyOrds(valuesSources.length, context.bigArrays());
+        }
+    }
+
+    @Override
+    public boolean needsScores() {
+        for (ValuesSource.Bytes.WithOrdinals valuesSource : valuesSources) {
+            if (valuesSource.needsScores()) {
+                return true;
+            }
+        }
+        return super.needsScores();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        final RandomAccessOrds[] ords = new RandomAccessOrds[valuesSources.length];
+        final SortedDocValues[] singleValues = new SortedDocValues[valuesSources.length];
+        boolean singleValued = true;
+        for (int i = 0; i < ords.length; i++) {
+            ords[i] = valuesSources[i].globalOrdinalsValues(ctx);
+            singleValues[i] = DocValues.unwrapSingleton(ords[i]);
+            singleValued &= singleValues[i] != null;
+        }
+        globalOrds = ords;
+
+        final long[] key = new long[ords.length];
+        if (singleValued) {
+            return new LeafBucketCollectorBase(sub, null) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    for (int i = 0; i < key.length; i++) {
+                        key[i] = singleValues[i].getOrd(doc);
+                        if (key[i] < 0) {
+                            return;
+                        }
+                    }
+                    collectKey(sub, doc, key);
+                }
+            };
+        } else {
+            final int[] cardinalities = new int[ords.length];
+            final int[] positions = new int[ords.length];
+            return new LeafBucketCollectorBase(sub, null) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    for (int i = 0; i < ords.length; i++) {
+                        ords[i].setDocument(doc);
+                        cardinalities[i] = ords[i].cardinality();
+                        if (cardinalities[i] == 0) {
+                            return;
+                        }
+                        positions[i] = 0;
+                        key[i] = ords[i].ordAt(0);
+                    }
+                    // visit every combination of the ordinals of the document, ordinals of a single field are unique so that
+                    // no combination is visited twice
+                    while (true) {
+                        collectKey(sub, doc, key);
+                        int i = ords.length - 1;
+                        while (i >= 0 && positions[i] == cardinalities[i] - 1) {
+                            positions[i] = 0;
+                            key[i] = ords[i].ordAt(0);
+                            i--;
+                        }
+                        if (i < 0) {
+                            break;
+                        }
+                        key[i] = ords[i].ordAt(++positions[i]);
+                    }
+                }
+            };
+        }
+    }
+
+    private void collectKey(LeafBucketCollector sub, int doc, long[] key) throws IOException {
+        long bucketOrd = bucketOrds.add(key);
+        if (bucketOrd < 0) { // already seen
+            bucketOrd = -1 - bucketOrd;
+            collectExistingBucket(sub, doc, bucketOrd);
+        } else {
+            collectBucket(sub, doc, bucketOrd);
+        }
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+        if (globalOrds == null) { // no context in this reader
+            return buildEmptyAggregation();
+        }
+
+        final int size = (int) Math.min(bucketOrds.size(), bucketCountThresholds.getShardSize());
+        long otherDocCount = 0;
+        BucketPriorityQueue<OrdBucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
+        OrdBucket spare = null;
+        for (long bucketOrd = 0; bucketOrd < bucketOrds.size(); bucketOrd++) {
+            if (spare == null) {
+                spare = new OrdBucket(bucketOrds, showTermDocCountError);
+            }
+            spare.bucketOrd = bucketOrd;
+            spare.docCount = bucketDocCount(bucketOrd);
+            otherDocCount += spare.docCount;
+            if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                spare = ordered.insertWithOverflow(spare);
+            }
+        }
+
+        // Get the top buckets
+        final MultiTerms.Bucket[] list = new MultiTerms.Bucket[ordered.size()];
+        final long[] survivingBucketOrds = new long[ordered.size()];
+        final long[] key = new long[globalOrds.length];
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final OrdBucket bucket = ordered.pop();
+            survivingBucketOrds[i] = bucket.bucketOrd;
+            bucketOrds.get(bucket.bucketOrd, key);
+            final BytesRef[] terms = new BytesRef[key.length];
+            for (int j = 0; j < terms.length; j++) {
+                terms[j] = BytesRef.deepCopyOf(globalOrds[j].lookupOrd(key[j]));
+            }
+            list[i] = new MultiTerms.Bucket(terms, bucket.docCount, null, showTermDocCountError, 0, formats);
+            list[i].bucketOrd = bucket.bucketOrd;
+            otherDocCount -= list[i].docCount;
+        }
+        //replay any deferred collections
+        runDeferredCollections(survivingBucketOrds);
+
+        //Now build the aggs
+        for (MultiTerms.Bucket bucket : list) {
+            bucket.aggregations = bucketAggregations(bucket.bucketOrd);
+        }
+
+        return new MultiTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                pipelineAggregators(), metaData(), formats, bucketCountThresholds.getShardSize(), showTermDocCountError,
+                otherDocCount, Arrays.asList(list), 0);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new MultiTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                pipelineAggregators(), metaData(), formats, bucketCountThresholds.getShardSize(), showTermDocCountError, 0,
+                Collections.emptyList(), 0);
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(bucketOrds);
+    }
+
+    /**
+     * Maps the global ordinals of the terms of a bucket to the ordinal of the bucket. Comparing the keys of two buckets
+     * compares the terms of the buckets field by field.
+     */
+    abstract static class KeyOrds implements Releasable {
+
+        /**
+         * Add the given global ordinals, returns the ordinal of the bucket if they were not there yet, or {@code -1 - ord}
+         * with the ordinal of the existing bucket otherwise.
+         */
+        abstract long add(long[] key);
+
+        /**
+         * Read the global ordinals of the given bucket into {@code key}.
+         */
+        abstract void get(long bucketOrd, long[] key);
+
+        abstract int compare(long bucketOrd1, long bucketOrd2);
+
+        abstract long size();
+    }
+
+    /**
+     * Packs the global ordinals into a long, the ordinals of the first field taking the highest bits.
+     */
+    static class PackedKeyOrds extends KeyOrds {
+        private final int[] bits;
+        private final LongHash hash;
+
+        PackedKeyOrds(int[] bits, BigArrays bigArrays) {
+            this.bits = bits;
+            this.hash = new LongHash(1, bigArrays);
+        }
+
+        @Override
+        long add(long[] key) {
+            long packed = 0;
+            for (int i = 0; i < key.length; i++) {
+                packed = (packed << bits[i]) | key[i];
+            }
+            return hash.add(packed);
+        }
+
+        @Override
+        void get(long bucketOrd, long[] key) {
+            long packed = hash.get(bucketOrd);
+            for (int i = key.length - 1; i >= 0; i--) {
+                key[i] = packed & ((1L << bits[i]) - 1);
+                packed >>>= bits[i];
+            }
+        }
+
+        @Override
+        int compare(long bucketOrd1, long bucketOrd2) {
+            // the packed keys are never negative since they use at most 63 bits
+            return Long.compare(hash.get(bucketOrd1), hash.get(bucketOrd2));
+        }
+
+        @Override
+        long size() {
+            return hash.size();
+        }
+
+        @Override
+        public void close() {
+            hash.close();
+        }
+    }
+
+    /**
+     * Writes the global ordinals as big-endian longs one after the other, for fields with too many terms to pack their
+     * ordinals into a long.
+     */
+    static class FixedWidthKeyOrds extends KeyOrds {
+        private final BytesRefHash hash;
+        private final BytesRef scratch;
+        private final BytesRef scratch1 = new BytesRef();
+        private final BytesRef scratch2 = new BytesRef();
+
+        FixedWidthKeyOrds(int numFields, BigArrays bigArrays) {
+            this.hash = new BytesRefHash(1, bigArrays);
+            this.scratch = new BytesRef(new byte[numFields * Long.BYTES]);
+        }
+
+        @Override
+        long add(long[] key) {
+            int offset = 0;
+            for (long ord : key) {
+                for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+                    scratch.bytes[offset++] = (byte) (ord >>> shift);
+                }
+            }
+            return hash.add(scratch);
+        }
+
+        @Override
+        void get(long bucketOrd, long[] key) {
+            BytesRef bytes = hash.get(bucketOrd, scratch1);
+            int offset = bytes.offset;
+            for (int i = 0; i < key.length; i++) {
+                long ord = 0;
+                for (int j = 0; j < Long.BYTES; j++) {
+                    ord = (ord << Byte.SIZE) | (bytes.bytes[offset++] & 0xFF);
+                }
+                key[i] = ord;
+            }
+        }
+
+        @Override
+        int compare(long bucketOrd1, long bucketOrd2) {
+            // ordinals are never negative so that comparing the bytes as unsigned compares the ordinals
+            return hash.get(bucketOrd1, scratch1).compareTo(hash.get(bucketOrd2, scratch2));
+        }
+
+        @Override
+        long size() {
+            return hash.size();
+        }
+
+        @Override
+        public void close() {
+            hash.close();
+        }
+    }
+
+    /**
+     * Used internally only to compare buckets by their keys instead of their terms in the priority queue.
+     */
+    static class OrdBucket extends InternalTerms.Bucket<OrdBucket> {
+        private final KeyOrds keyOrds;
+
+        OrdBucket(KeyOrds keyOrds, boolean showDocCountError) {
+            super(0, null, showDocCountError, 0, null);
+            this.keyOrds = keyOrds;
+        }
+
+        @Override
+        int compareTerm(Terms.Bucket other) {
+            return keyOrds.compare(bucketOrd, ((OrdBucket) other).bucketOrd);
+        }
+
+        @Override
+        public String getKeyAsString() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object getKey() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        OrdBucket newBucket(long docCount, InternalAggregations aggs, long docCountError) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Number getKeyAsNumber() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void writeTermTo(StreamOutput out) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected final XContentBuilder keyToXContent(XContentBuilder builder) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
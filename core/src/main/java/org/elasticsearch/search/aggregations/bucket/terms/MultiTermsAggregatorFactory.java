@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.BucketUtils;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregator.BucketCountThresholds;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+class MultiTermsAggregatorFactory extends AggregatorFactory<MultiTermsAggregatorFactory> {
+
+    private final ValuesSource.Bytes.WithOrdinals[] valuesSources;
+    private final List<DocValueFormat> formats;
+    private final Terms.Order order;
+    private final BucketCountThresholds bucketCountThresholds;
+    private final SubAggCollectionMode collectMode;
+    private final boolean showTermDocCountError;
+
+    MultiTermsAggregatorFactory(String name, ValuesSource.Bytes.WithOrdinals[] valuesSources, List<DocValueFormat> formats,
+            Terms.Order order, BucketCountThresholds bucketCountThresholds, SubAggCollectionMode collectMode,
+            boolean showTermDocCountError, SearchContext context, AggregatorFactory<?> parent,
+            AggregatorFactories.Builder subFactoriesBuilder, Map<String, Object> metaData) throws IOException {
+        super(name, context, parent, subFactoriesBuilder, metaData);
+        this.valuesSources = valuesSources;
+        this.formats = formats;
+        this.order = order;
+        this.bucketCountThresholds = bucketCountThresholds;
+        this.collectMode = collectMode;
+        this.showTermDocCountError = showTermDocCountError;
+    }
+
+    @Override
+    protected Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        if (collectsFromSingleBucket == false) {
+            return asMultiBucketAggregator(this, context, parent);
+        }
+        BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(this.bucketCountThresholds);
+        if (!(order == InternalOrder.TERM_ASC || order == InternalOrder.TERM_DESC)
+                && bucketCountThresholds.getShardSize() == MultiTermsAggregationBuilder.DEFAULT_BUCKET_COUNT_THRESHOLDS.getShardSize()) {
+            // The user has not made a shardSize selection. Use default
+            // heuristic to avoid any wrong-ranking caused by distributed
+            // counting
+            bucketCountThresholds.setShardSize(BucketUtils.suggestShardSideQueueSize(bucketCountThresholds.getRequiredSize(),
+                    context.numberOfShards()));
+        }
+        bucketCountThresholds.ensureValidity();
+        SubAggCollectionMode cm = collectMode;
+        if (cm == null) {
+            cm = SubAggCollectionMode.DEPTH_FIRST;
+            if (factories != AggregatorFactories.EMPTY) {
+                // the number of combinations of terms is unknown
+                cm = TermsAggregatorFactory.subAggCollectionMode(bucketCountThresholds.getShardSize(), -1);
+            }
+        }
+        return new MultiTermsAggregator(name, factories, valuesSources, formats, order, bucketCountThresholds, context, parent, cm,
+                showTermDocCountError, pipelineAggregators, metaData);
+    }
+}
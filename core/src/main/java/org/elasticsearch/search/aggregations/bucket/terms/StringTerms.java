@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.InternalAggregations;
@@ -141,4 +142,9 @@ public class StringTerms extends InternalMappedTerms<StringTerms, StringTerms.Bu
     protected Bucket[] createBucketsArray(int size) {
         return new Bucket[size];
     }
+
+    @Override
+    BucketOrds<Bucket> newBucketOrds(BigArrays bigArrays) {
+        return BucketOrds.bytesRefs(bigArrays, bucket -> bucket.termBytes);
+    }
 }
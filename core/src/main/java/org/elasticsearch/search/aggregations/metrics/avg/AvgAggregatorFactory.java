@@ -51,4 +51,9 @@ public class AvgAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSo
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         return new AvgAggregator(name, valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
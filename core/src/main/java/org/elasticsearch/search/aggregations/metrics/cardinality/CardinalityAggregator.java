@@ -140,6 +140,11 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         if (counts == null || owningBucketOrdinal >= counts.maxBucket() || counts.cardinality(owningBucketOrdinal) == 0) {
             return buildEmptyAggregation();
         }
+        final LinearCountingHashes hashes = counts.linearCountingHashes(owningBucketOrdinal);
+        if (hashes != null) {
+            // the hashes take much less space than a copy of the counters while there are few of them
+            return new InternalCardinality(name, null, hashes, pipelineAggregators(), metaData());
+        }
         // We need to build a copy because the returned Aggregation needs remain usable after
         // this Aggregator (and its HLL++ counters) is released.
         HyperLogLogPlusPlus copy = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
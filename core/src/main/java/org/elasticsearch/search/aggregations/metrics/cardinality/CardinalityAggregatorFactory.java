@@ -61,4 +61,9 @@ public class CardinalityAggregatorFactory extends ValuesSourceAggregatorFactory<
                 ? HyperLogLogPlusPlus.DEFAULT_PRECISION
                 : HyperLogLogPlusPlus.precisionFromThreshold(precisionThreshold);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
@@ -57,8 +58,8 @@ public final class HyperLogLogPlusPlus implements Releasable {
     public static final int MIN_PRECISION = 4;
     public static final int DEFAULT_PRECISION = 14;
     public static final int MAX_PRECISION = 18;
-    private static final boolean LINEAR_COUNTING = false;
-    private static final boolean HYPERLOGLOG = true;
+    static final boolean LINEAR_COUNTING = false;
+    static final boolean HYPERLOGLOG = true;
     private static final float MAX_LOAD_FACTOR = 0.75f;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
@@ -75,6 +76,14 @@ public final class HyperLogLogPlusPlus implements Releasable {
         return precision;
     }
 
+    /**
+     * Return the number of hashes above which a counter with the given precision switches from linear counting to hyperloglog.
+     */
+    static int linearCountingThreshold(int precision) {
+        final int capacity = (1 << precision) / 4; // because ints take 4 bytes
+        return (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
     /**
      * Return the expected per-bucket memory usage for the given precision.
      */
@@ -245,6 +254,18 @@ public final class HyperLogLogPlusPlus implements Releasable {
         collectLcEncoded(bucket, k);
     }
 
+    /**
+     * Collect a hash that was encoded with {@link #encodeHash(long, int)}.
+     */
+    void collectEncoded(long bucket, int encoded) {
+        ensureCapacity(bucket + 1);
+        if (algorithm.get(bucket) == LINEAR_COUNTING) {
+            collectLcEncoded(bucket, encoded);
+        } else {
+            collectHllEncoded(bucket, encoded);
+        }
+    }
+
     private void collectLcEncoded(long bucket, int encoded) {
         final int newSize = hashSet.add(bucket, encoded);
         if (newSize > hashSet.threshold) {
@@ -278,8 +299,15 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private long cardinalityLc(long bucket) {
+        return cardinalityLc(hashSet.size(bucket));
+    }
+
+    /**
+     * Return the cardinality of a counter that uses linear counting and collected the given number of distinct hashes.
+     */
+    static long cardinalityLc(int size) {
         final long m = 1 << P2;
-        final long v = m - hashSet.size(bucket);
+        final long v = m - size;
         return linearCounting(m, v);
     }
 
@@ -464,7 +492,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
         Hashset(long initialBucketCount) {
             capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
+            threshold = linearCountingThreshold(p);
             mask = capacity - 1;
             sizes = bigArrays.newIntArray(initialBucketCount);
             readSpare = new BytesRef();
@@ -544,43 +572,117 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     }
 
+    /**
+     * Return the hashes of the given bucket if it still uses linear counting, or {@code null} if it switched to hyperloglog.
+     */
+    LinearCountingHashes linearCountingHashes(long bucket) {
+        if (algorithm.get(bucket) == HYPERLOGLOG) {
+            return null;
+        }
+        try (IntArray values = hashSet.values(bucket)) {
+            final int[] hashes = new int[Math.toIntExact(values.size())];
+            for (int i = 0; i < hashes.length; ++i) {
+                hashes[i] = values.get(i);
+            }
+            return LinearCountingHashes.fromUnsorted(p, hashes, hashes.length);
+        }
+    }
+
     public void writeTo(long bucket, StreamOutput out) throws IOException {
         out.writeVInt(p);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
-            try (IntArray hashes = hashSet.values(bucket)) {
-                out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+            if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                linearCountingHashes(bucket).writeTo(out);
+            } else {
+                try (IntArray hashes = hashSet.values(bucket)) {
+                    out.writeVLong(hashes.size());
+                    for (long i = 0; i < hashes.size(); ++i) {
+                        out.writeInt(hashes.get(i));
+                    }
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
-                out.writeByte(runLens.get(i));
+            writeRegisters(bucket, out);
+        }
+    }
+
+    private void writeRegisters(long bucket, StreamOutput out) throws IOException {
+        final long start = bucket << p;
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            int runs = 1;
+            for (long i = start + 1, end = start + m; i < end; ++i) {
+                if (runLens.get(i) != runLens.get(i - 1)) {
+                    ++runs;
+                }
+            }
+            // a run takes at least two bytes, so registers are only run-length encoded if most of them are equal to their
+            // predecessor, which is typically the case when most of them are still zero
+            final boolean runLengthEncoded = runs < m / 2;
+            out.writeBoolean(runLengthEncoded);
+            if (runLengthEncoded) {
+                for (long i = start, end = start + m; i < end; ) {
+                    final byte runLen = runLens.get(i);
+                    long j = i + 1;
+                    while (j < end && runLens.get(j) == runLen) {
+                        ++j;
+                    }
+                    out.writeByte(runLen);
+                    out.writeVInt(Math.toIntExact(j - i));
+                    i = j;
+                }
+                return;
             }
         }
+        final BytesRef registers = new BytesRef();
+        runLens.get(start, m, registers);
+        out.writeBytes(registers.bytes, registers.offset, registers.length);
     }
 
     public static HyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
         final int precision = in.readVInt();
-        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
         final boolean algorithm = in.readBoolean();
+        return readFrom(precision, algorithm, in, bigArrays);
+    }
+
+    /**
+     * Read a counter whose precision and algorithm have already been read from the given stream.
+     */
+    static HyperLogLogPlusPlus readFrom(int precision, boolean algorithm, StreamInput in, BigArrays bigArrays) throws IOException {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
         if (algorithm == LINEAR_COUNTING) {
             counts.algorithm.clear(0);
-            final long size = in.readVLong();
-            for (long i = 0; i < size; ++i) {
-                final int encoded = in.readInt();
-                counts.hashSet.add(0, encoded);
+            if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                LinearCountingHashes.readFrom(precision, in).collectInto(counts, 0);
+            } else {
+                final long size = in.readVLong();
+                for (long i = 0; i < size; ++i) {
+                    final int encoded = in.readInt();
+                    counts.hashSet.add(0, encoded);
+                }
             }
         } else {
             counts.algorithm.set(0);
-            for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
-            }
+            counts.readRegisters(in);
         }
         return counts;
     }
+
+    private void readRegisters(StreamInput in) throws IOException {
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED) && in.readBoolean()) {
+            for (int i = 0; i < m; ) {
+                final byte runLen = in.readByte();
+                final int length = in.readVInt();
+                runLens.fill(i, i + length, runLen);
+                i += length;
+            }
+        } else {
+            final byte[] registers = new byte[m];
+            in.readBytes(registers, 0, m);
+            runLens.set(0, registers, 0, m);
+        }
+    }
     
     /** looks and smells like the old openbitset. */
     static class OpenBitSet {
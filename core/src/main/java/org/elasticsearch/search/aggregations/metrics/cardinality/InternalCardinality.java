@@ -19,6 +19,8 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
@@ -29,16 +31,26 @@ import org.elasticsearch.search.aggregations.metrics.InternalNumericMetricsAggre
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 public final class InternalCardinality extends InternalNumericMetricsAggregation.SingleValue implements Cardinality {
+    // at most one of these is set, the hashes are a compact alternative to the counts while they use linear counting
     private final HyperLogLogPlusPlus counts;
+    private final LinearCountingHashes hashes;
 
     InternalCardinality(String name, HyperLogLogPlusPlus counts, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) {
+        this(name, counts, null, pipelineAggregators, metaData);
+    }
+
+    InternalCardinality(String name, @Nullable HyperLogLogPlusPlus counts, @Nullable LinearCountingHashes hashes,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
         super(name, pipelineAggregators, metaData);
+        assert counts == null || hashes == null;
         this.counts = counts;
+        this.hashes = hashes;
     }
 
     /**
@@ -48,9 +60,18 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
         super(in);
         format = in.readNamedWriteable(DocValueFormat.class);
         if (in.readBoolean()) {
-            counts = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+            final int precision = in.readVInt();
+            final boolean algorithm = in.readBoolean();
+            if (algorithm == HyperLogLogPlusPlus.LINEAR_COUNTING && in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                counts = null;
+                hashes = LinearCountingHashes.readFrom(precision, in);
+            } else {
+                counts = HyperLogLogPlusPlus.readFrom(precision, algorithm, in, BigArrays.NON_RECYCLING_INSTANCE);
+                hashes = null;
+            }
         } else {
             counts = null;
+            hashes = null;
         }
     }
 
@@ -60,6 +81,15 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
         if (counts != null) {
             out.writeBoolean(true);
             counts.writeTo(0, out);
+        } else if (hashes != null) {
+            out.writeBoolean(true);
+            if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                out.writeVInt(hashes.precision());
+                out.writeBoolean(HyperLogLogPlusPlus.LINEAR_COUNTING);
+                hashes.writeTo(out);
+            } else {
+                hashes.toCounts(BigArrays.NON_RECYCLING_INSTANCE).writeTo(0, out);
+            }
         } else {
             out.writeBoolean(false);
         }
@@ -77,12 +107,18 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
 
     @Override
     public long getValue() {
-        return counts == null ? 0 : counts.cardinality(0);
+        if (counts != null) {
+            return counts.cardinality(0);
+        } else if (hashes != null) {
+            return hashes.cardinality();
+        }
+        return 0;
     }
 
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalCardinality reduced = null;
+        List<LinearCountingHashes> hashesList = new ArrayList<>();
         for (InternalAggregation aggregation : aggregations) {
             final InternalCardinality cardinality = (InternalCardinality) aggregation;
             if (cardinality.counts != null) {
@@ -91,6 +127,24 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
                             BigArrays.NON_RECYCLING_INSTANCE, 1), pipelineAggregators(), getMetaData());
                 }
                 reduced.merge(cardinality);
+            } else if (cardinality.hashes != null) {
+                hashesList.add(cardinality.hashes);
+            }
+        }
+
+        if (hashesList.isEmpty() == false) {
+            if (reduced == null) {
+                // the union of the hashes is only collected into registers if it is too large for linear counting
+                final LinearCountingHashes union = LinearCountingHashes.union(hashesList);
+                if (union.size() <= HyperLogLogPlusPlus.linearCountingThreshold(union.precision())) {
+                    return new InternalCardinality(name, null, union, pipelineAggregators(), getMetaData());
+                }
+                reduced = new InternalCardinality(name, union.toCounts(BigArrays.NON_RECYCLING_INSTANCE), pipelineAggregators(),
+                        getMetaData());
+            } else {
+                for (LinearCountingHashes hashes : hashesList) {
+                    hashes.collectInto(reduced.counts, 0);
+                }
             }
         }
 
@@ -103,7 +157,11 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
 
     public void merge(InternalCardinality other) {
         assert counts != null && other != null;
-        counts.merge(0, other.counts, 0);
+        if (other.counts != null) {
+            counts.merge(0, other.counts, 0);
+        } else if (other.hashes != null) {
+            other.hashes.collectInto(counts, 0);
+        }
     }
 
     @Override
@@ -115,16 +173,22 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
 
     @Override
     protected int doHashCode() {
-        return counts.hashCode(0);
+        return getState().hashCode(0);
     }
 
     @Override
     protected boolean doEquals(Object obj) {
         InternalCardinality other = (InternalCardinality) obj;
-        return counts.equals(0, other.counts);
+        return getState().equals(0, other.getState());
     }
 
+    /**
+     * Return the state of this aggregation as a counter, which needs to be built if the aggregation only has hashes.
+     */
     HyperLogLogPlusPlus getState() {
+        if (hashes != null) {
+            return hashes.toCounts(BigArrays.NON_RECYCLING_INSTANCE);
+        }
         return counts;
     }
 }
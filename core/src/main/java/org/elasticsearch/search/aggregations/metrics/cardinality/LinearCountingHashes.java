@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The hashes of a {@link HyperLogLogPlusPlus} counter that still uses linear counting, sorted as unsigned integers. Unlike the
+ * counter, which always allocates <code>2^precision</code> bytes, this takes space that is proportional to the number of hashes
+ * so it is used to transport and reduce the results of low-cardinality buckets. Hashes are written as variable-length deltas.
+ */
+final class LinearCountingHashes {
+
+    private final int precision;
+    private final int[] hashes;
+
+    private LinearCountingHashes(int precision, int[] hashes) {
+        this.precision = precision;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Build from hashes that have been encoded with {@link HyperLogLogPlusPlus#encodeHash(long, int)}. The first
+     * <code>length</code> entries of the array are sorted and deduplicated in place.
+     */
+    static LinearCountingHashes fromUnsorted(int precision, int[] hashes, int length) {
+        // flipping the sign bit makes signed ints sort like the unsigned ints that they encode
+        for (int i = 0; i < length; ++i) {
+            hashes[i] ^= Integer.MIN_VALUE;
+        }
+        Arrays.sort(hashes, 0, length);
+        int size = 0;
+        for (int i = 0; i < length; ++i) {
+            if (size == 0 || hashes[i] != hashes[size - 1]) {
+                hashes[size++] = hashes[i];
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            hashes[i] ^= Integer.MIN_VALUE;
+        }
+        return new LinearCountingHashes(precision, size == hashes.length ? hashes : Arrays.copyOf(hashes, size));
+    }
+
+    /**
+     * Compute the union of the given hashes, which must all have the same precision.
+     */
+    static LinearCountingHashes union(List<LinearCountingHashes> hashesList) {
+        final int precision = hashesList.get(0).precision;
+        int length = 0;
+        for (LinearCountingHashes hashes : hashesList) {
+            if (hashes.precision != precision) {
+                throw new IllegalArgumentException("Cannot merge hashes with precision [" + hashes.precision
+                        + "] into hashes with precision [" + precision + "]");
+            }
+            length += hashes.hashes.length;
+        }
+        final int[] union = new int[length];
+        int offset = 0;
+        for (LinearCountingHashes hashes : hashesList) {
+            System.arraycopy(hashes.hashes, 0, union, offset, hashes.hashes.length);
+            offset += hashes.hashes.length;
+        }
+        return fromUnsorted(precision, union, length);
+    }
+
+    int precision() {
+        return precision;
+    }
+
+    /**
+     * Return the number of distinct hashes.
+     */
+    int size() {
+        return hashes.length;
+    }
+
+    long cardinality() {
+        return HyperLogLogPlusPlus.cardinalityLc(hashes.length);
+    }
+
+    /**
+     * Collect the hashes into the given bucket of the given counter.
+     */
+    void collectInto(HyperLogLogPlusPlus counts, long bucket) {
+        if (counts.precision() != precision) {
+            throw new IllegalArgumentException("Cannot merge hashes with precision [" + precision + "] into a counter with precision ["
+                    + counts.precision() + "]");
+        }
+        for (int hash : hashes) {
+            counts.collectEncoded(bucket, hash);
+        }
+    }
+
+    /**
+     * Create a counter that contains these hashes.
+     */
+    HyperLogLogPlusPlus toCounts(BigArrays bigArrays) {
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
+        collectInto(counts, 0);
+        return counts;
+    }
+
+    /**
+     * Write the hashes, but not the precision.
+     */
+    void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(hashes.length);
+        long previous = 0;
+        for (int hash : hashes) {
+            final long current = Integer.toUnsignedLong(hash);
+            out.writeVLong(current - previous);
+            previous = current;
+        }
+    }
+
+    /**
+     * Read hashes that have been written with {@link #writeTo(StreamOutput)}.
+     */
+    static LinearCountingHashes readFrom(int precision, StreamInput in) throws IOException {
+        final int[] hashes = new int[in.readVInt()];
+        long current = 0;
+        for (int i = 0; i < hashes.length; ++i) {
+            current += in.readVLong();
+            hashes[i] = (int) current;
+        }
+        return new LinearCountingHashes(precision, hashes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LinearCountingHashes that = (LinearCountingHashes) obj;
+        return precision == that.precision && Arrays.equals(hashes, that.hashes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * precision + Arrays.hashCode(hashes);
+    }
+}
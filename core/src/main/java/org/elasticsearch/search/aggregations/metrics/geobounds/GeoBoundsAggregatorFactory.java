@@ -54,4 +54,9 @@ public class GeoBoundsAggregatorFactory extends ValuesSourceAggregatorFactory<Va
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         return new GeoBoundsAggregator(name, context, parent, valuesSource, wrapLongitude, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
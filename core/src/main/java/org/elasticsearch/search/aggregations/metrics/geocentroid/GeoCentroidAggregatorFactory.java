@@ -52,4 +52,9 @@ public class GeoCentroidAggregatorFactory extends ValuesSourceAggregatorFactory<
                     throws IOException {
         return new GeoCentroidAggregator(name, context, parent, valuesSource, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
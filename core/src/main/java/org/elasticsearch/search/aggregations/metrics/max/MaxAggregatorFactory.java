@@ -52,4 +52,9 @@ public class MaxAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSo
                     throws IOException {
         return new MaxAggregator(name, valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
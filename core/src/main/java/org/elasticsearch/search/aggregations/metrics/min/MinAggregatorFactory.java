@@ -51,4 +51,9 @@ public class MinAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSo
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         return new MinAggregator(name, valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
@@ -55,4 +55,9 @@ public class ExtendedStatsAggregatorFactory extends ValuesSourceAggregatorFactor
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         return new ExtendedStatsAggregator(name, valuesSource, config.format(), context, parent, sigma, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
@@ -50,4 +50,9 @@ public class ValueCountAggregatorFactory extends ValuesSourceAggregatorFactory<V
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         return new ValueCountAggregator(name, valuesSource, context, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected boolean supportsConcurrentCollection() {
+        return config.script() == null;
+    }
 }
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,6 +32,9 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -39,6 +44,13 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -57,14 +69,174 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private QueryProfiler profiler;
 
+    /** The executor that searches slices concurrently, or <code>null</code> if segments are searched sequentially. */
+    @Nullable
+    private final Executor sliceExecutor;
+
+    /** Contiguous groups of leaves that are searched concurrently if a {@link #sliceExecutor} is set. */
+    private final List<List<LeafReaderContext>> slices;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
+        this(searcher, queryCache, queryCachingPolicy, null, 1);
+    }
+
+    /**
+     * Creates a searcher that partitions the leaves of the reader into at most <code>maxSlices</code> slices which are
+     * searched concurrently on the given executor by {@link #searchConcurrently(Query, List)}.
+     */
+    public ContextIndexSearcher(Engine.Searcher searcher, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                @Nullable Executor sliceExecutor, int maxSlices) {
         super(searcher.reader());
         in = searcher.searcher();
         engineSearcher = searcher;
         setSimilarity(searcher.searcher().getSimilarity(true));
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
+        this.sliceExecutor = sliceExecutor;
+        this.slices = sliceExecutor == null ? Collections.singletonList(leafContexts) : computeSlices(leafContexts, maxSlices);
+    }
+
+    /**
+     * Partitions the leaves into at most <code>maxSlices</code> contiguous slices holding roughly the same number of
+     * documents. Slices are contiguous so that documents of earlier slices always have smaller doc ids, which keeps ties
+     * broken by doc id when the per-slice results are merged in slice order.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.max(1, Math.min(maxSlices, leaves.size()));
+        if (numSlices == 1) {
+            return Collections.singletonList(leaves);
+        }
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        List<LeafReaderContext> current = new ArrayList<>();
+        long docsSoFar = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext leaf = leaves.get(i);
+            current.add(leaf);
+            docsSoFar += leaf.reader().maxDoc();
+            final int remainingLeaves = leaves.size() - i - 1;
+            final int remainingSlices = numSlices - slices.size() - 1;
+            // close the slice once it holds its share of the documents, but leave at least one leaf for every remaining slice
+            if (remainingSlices > 0 && (remainingLeaves == remainingSlices
+                    || docsSoFar * numSlices >= totalDocs * (slices.size() + 1))) {
+                slices.add(Collections.unmodifiableList(current));
+                current = new ArrayList<>();
+            }
+        }
+        slices.add(Collections.unmodifiableList(current));
+        return Collections.unmodifiableList(slices);
+    }
+
+    /**
+     * Returns the slices that {@link #searchConcurrently(Query, List)} searches concurrently.
+     */
+    public List<List<LeafReaderContext>> getSlices() {
+        return slices;
+    }
+
+    /**
+     * Returns <code>true</code> if this searcher has an executor and more than one slice to search concurrently.
+     */
+    public boolean canSearchConcurrently() {
+        return sliceExecutor != null && slices.size() > 1;
+    }
+
+    /**
+     * Searches each slice with its own collector, see {@link #searchConcurrently(Query, List, CheckedConsumer)}.
+     */
+    public void searchConcurrently(Query query, List<? extends Collector> collectors) throws IOException {
+        searchConcurrently(query, collectors, null);
+    }
+
+    /**
+     * Searches each slice with its own collector: the collector at index <code>i</code> collects the leaves of the
+     * slice at index <code>i</code>. All slices but the first are executed on the slice executor, the first one, as
+     * well as any slice that the executor rejects, is executed on the calling thread. Once a slice is collected, even
+     * if its collection failed, <code>afterSlice</code> is called with the index of the slice on the thread that
+     * collected it, since per-leaf state like doc values must not be consumed from other threads. This method returns
+     * once all slices are done and rethrows the first failure, if any.
+     */
+    public void searchConcurrently(Query query, List<? extends Collector> collectors,
+                                   @Nullable CheckedConsumer<Integer, IOException> afterSlice) throws IOException {
+        if (collectors.size() != slices.size()) {
+            throw new IllegalArgumentException("expected one collector per slice, got [" + collectors.size()
+                + "] collectors for [" + slices.size() + "] slices");
+        }
+        boolean needsScores = false;
+        for (Collector collector : collectors) {
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size() - 1);
+        for (int i = 1; i < slices.size(); i++) {
+            final int sliceIndex = i;
+            final FutureTask<Void> task = new FutureTask<>(() -> {
+                searchSlice(sliceIndex, weight, collectors.get(sliceIndex), afterSlice);
+                return null;
+            });
+            tasks.add(task);
+            try {
+                sliceExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+        Throwable failure = null;
+        try {
+            searchSlice(0, weight, collectors.get(0), afterSlice);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        for (FutureTask<Void> task : tasks) {
+            // wait for every slice, even after a failure, so that no slice outlives the search context
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("failed to search slice", failure);
+        }
+    }
+
+    private void searchSlice(int sliceIndex, Weight weight, Collector collector,
+                             @Nullable CheckedConsumer<Integer, IOException> afterSlice) throws IOException {
+        try {
+            search(slices.get(sliceIndex), weight, collector);
+        } catch (IOException | RuntimeException e) {
+            if (afterSlice != null) {
+                try {
+                    afterSlice.accept(sliceIndex);
+                } catch (IOException | RuntimeException inner) {
+                    e.addSuppressed(inner);
+                }
+            }
+            throw e;
+        }
+        if (afterSlice != null) {
+            afterSlice.accept(sliceIndex);
+        }
     }
 
     @Override
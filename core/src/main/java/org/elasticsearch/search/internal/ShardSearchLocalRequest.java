@@ -68,6 +68,7 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
     private float indexBoost;
     private SearchSourceBuilder source;
     private Boolean requestCache;
+    private Boolean concurrentSegmentSearch;
     private long nowInMillis;
 
     private boolean profile;
@@ -80,6 +81,7 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         this(shardId, numberOfShards, searchRequest.searchType(),
                 searchRequest.source(), searchRequest.types(), searchRequest.requestCache(), aliasFilter, indexBoost);
         this.scroll = searchRequest.scroll();
+        this.concurrentSegmentSearch = searchRequest.concurrentSegmentSearch();
         this.nowInMillis = nowInMillis;
     }
 
@@ -154,6 +156,11 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         return requestCache;
     }
 
+    @Override
+    public Boolean concurrentSegmentSearch() {
+        return concurrentSegmentSearch;
+    }
+
     @Override
     public Scroll scroll() {
         return scroll;
@@ -193,6 +200,9 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         }
         nowInMillis = in.readVLong();
         requestCache = in.readOptionalBoolean();
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            concurrentSegmentSearch = in.readOptionalBoolean();
+        }
     }
 
     protected void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
@@ -212,6 +222,10 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
             out.writeVLong(nowInMillis);
         }
         out.writeOptionalBoolean(requestCache);
+        // searching segments concurrently doesn't change the results, so it isn't part of the cache key
+        if (!asKey && out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeOptionalBoolean(concurrentSegmentSearch);
+        }
     }
 
     @Override
@@ -65,6 +65,11 @@ public interface ShardSearchRequest {
 
     Boolean requestCache();
 
+    /**
+     * Returns if the segments of the shard should be searched concurrently, <code>null</code> to use the index level setting.
+     */
+    Boolean concurrentSegmentSearch();
+
     Scroll scroll();
 
     /**
@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import java.io.IOException;
+
+/**
+ * A {@link Collector} that stops forwarding documents to its delegate once <code>maxCountHits</code> documents
+ * have been collected. Unlike {@link org.elasticsearch.common.lucene.Lucene.EarlyTerminatingCollector} it throws a
+ * {@link CollectionTerminatedException} so that the other collectors of the request (ie. aggregations) still see
+ * every matching document.
+ */
+final class EarlyTerminatingCollector extends FilterCollector {
+    private final int maxCountHits;
+    private int numCollected;
+    private boolean terminatedEarly = false;
+
+    EarlyTerminatingCollector(Collector delegate, int maxCountHits) {
+        super(delegate);
+        this.maxCountHits = maxCountHits;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        if (numCollected >= maxCountHits) {
+            terminatedEarly = true;
+            throw new CollectionTerminatedException();
+        }
+        return new FilterLeafCollector(super.getLeafCollector(context)) {
+            @Override
+            public void collect(int doc) throws IOException {
+                if (numCollected >= maxCountHits) {
+                    terminatedEarly = true;
+                    throw new CollectionTerminatedException();
+                }
+                super.collect(doc);
+                ++numCollected;
+            }
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if the collection stopped before all matching documents were visited.
+     */
+    boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+}
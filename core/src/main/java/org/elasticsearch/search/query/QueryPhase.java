@@ -19,13 +19,16 @@
 
 package org.elasticsearch.search.query;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.MinDocQuery;
+import org.apache.lucene.queries.SearchAfterSortedDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -33,10 +36,12 @@ import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
@@ -47,27 +52,37 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSortConfig;
+import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.MultiValueMode;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.profile.query.CollectorResult;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.suggest.SuggestPhase;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.function.BooleanSupplier;
 
 /**
  * Query phase of a search request, used to run the query and get back from each shard information about the matching documents
@@ -132,12 +147,61 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns the prefix of the index sort that matches the sort of the search request, or <code>null</code>
+     * if the documents of the shard are not sorted the same way as the request. When it is not null, the
+     * collection of every segment can terminate as soon as enough documents were collected.
+     */
+    static Sort earlyTerminationSort(SearchContext searchContext, IndexReader reader) {
+        final ShardSearchRequest request = searchContext.request();
+        final MapperService mapperService = searchContext.mapperService();
+        if (request == null || request.source() == null || mapperService == null || searchContext.sort() == null) {
+            return null;
+        }
+        final List<SortBuilder<?>> sorts = request.source().sorts();
+        final IndexSortConfig indexSortConfig = mapperService.getIndexSettings().getIndexSortConfig();
+        if (sorts == null || sorts.isEmpty() || sorts.size() > indexSortConfig.size()
+                || sorts.size() != searchContext.sort().sort.getSort().length) {
+            return null;
+        }
+        for (int i = 0; i < sorts.size(); i++) {
+            if (sorts.get(i) instanceof FieldSortBuilder == false) {
+                return null;
+            }
+            final FieldSortBuilder sort = (FieldSortBuilder) sorts.get(i);
+            if (sort.getNestedPath() != null || sort.getNestedFilter() != null) {
+                return null;
+            }
+            final MultiValueMode mode = sort.sortMode() == null ? null : MultiValueMode.fromString(sort.sortMode().toString());
+            if (indexSortConfig.isSameOrder(i, sort.getFieldName(), sort.order(), mode, sort.missing()) == false) {
+                return null;
+            }
+        }
+        Sort indexSort = null;
+        for (LeafReaderContext context : reader.leaves()) {
+            // segments that were written before the index sort was applied cannot be early terminated
+            final Sort segmentSort = context.reader().getIndexSort();
+            if (segmentSort == null || (indexSort != null && indexSort.equals(segmentSort) == false)) {
+                return null;
+            }
+            indexSort = segmentSort;
+        }
+        if (indexSort == null) {
+            return null;
+        }
+        final SortField[] prefix = Arrays.copyOf(indexSort.getSort(), sorts.size());
+        return new Sort(prefix);
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
      * @return whether the rescoring phase should be executed
      */
     static boolean execute(SearchContext searchContext, final IndexSearcher searcher) throws QueryPhaseExecutionException {
+        if (canSearchConcurrently(searchContext, searcher)) {
+            return executeConcurrently(searchContext, (ContextIndexSearcher) searcher);
+        }
         QuerySearchResult queryResult = searchContext.queryResult();
         queryResult.searchTimedOut(false);
 
@@ -154,6 +218,8 @@ public class QueryPhase implements SearchPhase {
 
             Collector collector;
             Callable<TopDocs> topDocsCallable;
+            // set when the collection of the top docs may stop before all matching documents are visited
+            BooleanSupplier hitsTerminatedEarly = null;
             DocValueFormat[] sortValueFormats = new DocValueFormat[0];
 
             assert query == searcher.rewrite(query); // already rewritten
@@ -171,6 +237,9 @@ public class QueryPhase implements SearchPhase {
                 assert (scrollContext != null) == (searchContext.request().scroll() != null);
                 final Collector topDocsCollector;
                 ScoreDoc after = null;
+                Sort earlyTerminationSort = null;
+                boolean terminateInOrder = false;
+                Query searchAfterFilter = null;
                 if (searchContext.request().scroll() != null) {
                     numDocs = Math.min(searchContext.size(), totalNumDocs);
                     after = scrollContext.lastEmittedDoc;
@@ -193,9 +262,40 @@ public class QueryPhase implements SearchPhase {
                             }
                             searchContext.terminateAfter(numDocs);
                         }
+                    } else if (scrollContext.totalHits != -1 && searchContext.collapse() == null) {
+                        // subsequent round: the index is sorted like the request so we can skip the documents
+                        // that were already returned and stop collecting each segment after ${size} matches
+                        earlyTerminationSort = earlyTerminationSort(searchContext, searcher.getIndexReader());
+                        if (earlyTerminationSort != null && after != null) {
+                            query = new BooleanQuery.Builder()
+                                .add(query, BooleanClause.Occur.MUST)
+                                .add(new SearchAfterSortedDocQuery(searchContext.sort().sort, (FieldDoc) after),
+                                    BooleanClause.Occur.FILTER)
+                                .build();
+                        }
                     }
                 } else {
                     after = searchContext.searchAfter();
+                    if (searchContext.trackTotalHits() == false && searchContext.collapse() == null) {
+                        // the total hit count is not needed so we can stop collecting as soon as the top docs are known
+                        if (returnsDocsInOrder(query, searchContext.sort())) {
+                            terminateInOrder = after == null;
+                        } else {
+                            earlyTerminationSort = earlyTerminationSort(searchContext, searcher.getIndexReader());
+                            if (earlyTerminationSort != null && after != null) {
+                                final Query searchAfterQuery = new SearchAfterSortedDocQuery(searchContext.sort().sort, (FieldDoc) after);
+                                if (searchContext.queryCollectors().isEmpty()) {
+                                    query = new BooleanQuery.Builder()
+                                        .add(query, BooleanClause.Occur.MUST)
+                                        .add(searchAfterQuery, BooleanClause.Occur.FILTER)
+                                        .build();
+                                } else {
+                                    // aggregations and other query collectors must still see all matching documents
+                                    searchAfterFilter = searchAfterQuery;
+                                }
+                            }
+                        }
+                    }
                 }
                 if (totalNumDocs == 0) {
                     // top collectors don't like a size of 0
@@ -229,6 +329,21 @@ public class QueryPhase implements SearchPhase {
                     }
                 }
                 collector = topDocsCollector;
+                if (earlyTerminationSort != null) {
+                    final EarlyTerminatingSortingCollector sortingCollector =
+                        new EarlyTerminatingSortingCollector(collector, earlyTerminationSort, numDocs);
+                    hitsTerminatedEarly = sortingCollector::terminatedEarly;
+                    collector = sortingCollector;
+                } else if (terminateInOrder) {
+                    final EarlyTerminatingCollector inOrderCollector = new EarlyTerminatingCollector(collector, numDocs);
+                    hitsTerminatedEarly = inOrderCollector::terminatedEarly;
+                    collector = inOrderCollector;
+                }
+                if (searchAfterFilter != null) {
+                    // skip the documents before the search after values for the top docs only, and before the early
+                    // termination counts them
+                    collector = new FilteredCollector(collector, searcher.createNormalizedWeight(searchAfterFilter, false));
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -399,6 +514,10 @@ public class QueryPhase implements SearchPhase {
             if (terminateAfterSet && queryResult.terminatedEarly() == null) {
                 queryResult.terminatedEarly(false);
             }
+            if (searchContext.trackTotalHits() == false && hitsTerminatedEarly != null && hitsTerminatedEarly.getAsBoolean()) {
+                // the total hit count is a lower bound
+                queryResult.terminatedEarly(true);
+            }
 
             queryResult.topDocs(topDocsCallable.call(), sortValueFormats);
 
@@ -414,4 +533,176 @@ public class QueryPhase implements SearchPhase {
             throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
         }
     }
+
+    /**
+     * Returns <code>true</code> if the segments of the shard can be searched concurrently. This requires a searcher that
+     * was created with an executor and more than one slice, and a request whose results don't depend on the order in
+     * which segments are collected: profiling, scrolls, field collapsing, <code>terminate_after</code>, collectors other
+     * than aggregations and aggregations that can't merge per-slice results fall back to a sequential search. So do requests
+     * that don't track the total hits, since their collection may terminate early.
+     */
+    static boolean canSearchConcurrently(SearchContext searchContext, IndexSearcher searcher) {
+        if (searcher instanceof ContextIndexSearcher == false || ((ContextIndexSearcher) searcher).canSearchConcurrently() == false) {
+            return false;
+        }
+        if (searchContext.getProfilers() != null
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.trackTotalHits() == false) {
+            return false;
+        }
+        for (Class<?> queryCollector : searchContext.queryCollectors().keySet()) {
+            if (queryCollector != AggregationPhase.class) {
+                return false;
+            }
+        }
+        if (searchContext.aggregations() != null && searchContext.aggregations().factories().supportsConcurrentCollection() == false) {
+            return false;
+        }
+        if (searchContext.size() == 0 && searchContext.queryCollectors().isEmpty()
+                && searchContext.parsedPostFilter() == null && searchContext.minimumScore() == null) {
+            // counts of match_all and term queries are computed without collecting documents
+            Query query = searchContext.query();
+            while (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            }
+            if (query.getClass() == MatchAllDocsQuery.class || query.getClass() == TermQuery.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the slices of the shard concurrently with one collector chain per slice and merges the per-slice
+     * top docs. Per-slice aggregators are merged by the {@link AggregationPhase}.
+     * @return whether the rescoring phase should be executed
+     */
+    private static boolean executeConcurrently(SearchContext searchContext, ContextIndexSearcher searcher)
+            throws QueryPhaseExecutionException {
+        QuerySearchResult queryResult = searchContext.queryResult();
+        queryResult.searchTimedOut(false);
+
+        boolean rescore = false;
+        try {
+            queryResult.from(searchContext.from());
+            queryResult.size(searchContext.size());
+
+            final Query query = searchContext.query();
+            assert query == searcher.rewrite(query); // already rewritten
+
+            final int totalNumDocs = searcher.getIndexReader().numDocs();
+            // top collectors don't like a size of 0
+            int numDocs = Math.max(1, Math.min(searchContext.from() + searchContext.size(), totalNumDocs));
+            DocValueFormat[] sortValueFormats = new DocValueFormat[0];
+            if (searchContext.size() > 0) {
+                if (searchContext.sort() != null) {
+                    sortValueFormats = searchContext.sort().formats;
+                } else {
+                    rescore = !searchContext.rescore().isEmpty();
+                    for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                        numDocs = Math.max(rescoreContext.window(), numDocs);
+                    }
+                }
+            }
+            final ScoreDoc after = searchContext.searchAfter();
+            final Weight filterWeight = searchContext.parsedPostFilter() == null ? null
+                : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+            final boolean timeoutSet = searchContext.timeout() != null && !searchContext.timeout().equals(SearchService.NO_TIMEOUT);
+
+            final int numSlices = searcher.getSlices().size();
+            final List<Collector> topDocsCollectors = new ArrayList<>(numSlices);
+            final List<Collector> collectors = new ArrayList<>(numSlices);
+            final BucketCollector[] sliceAggsCollectors = new BucketCollector[numSlices];
+            for (int i = 0; i < numSlices; i++) {
+                final Collector topDocsCollector;
+                if (searchContext.size() == 0) {
+                    topDocsCollector = new TotalHitCountCollector();
+                } else if (searchContext.sort() != null) {
+                    topDocsCollector = TopFieldCollector.create(searchContext.sort().sort, numDocs,
+                        (FieldDoc) after, true, searchContext.trackScores(), searchContext.trackScores());
+                } else {
+                    topDocsCollector = TopScoreDocCollector.create(numDocs, after);
+                }
+                topDocsCollectors.add(topDocsCollector);
+                Collector collector = topDocsCollector;
+                if (filterWeight != null) {
+                    collector = new FilteredCollector(collector, filterWeight);
+                }
+                // the first slice feeds the main aggregators, the other slices their own aggregators
+                final Collector aggsCollector;
+                if (i == 0) {
+                    aggsCollector = searchContext.queryCollectors().get(AggregationPhase.class);
+                } else {
+                    aggsCollector = sliceAggsCollectors[i] = AggregationPhase.createSliceCollector(searchContext);
+                }
+                if (aggsCollector != null) {
+                    collector = MultiCollector.wrap(collector, aggsCollector);
+                }
+                // apply the minimum score after multi collector so we filter aggs as well
+                if (searchContext.minimumScore() != null) {
+                    collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+                }
+                if (timeoutSet) {
+                    // throws TimeLimitingCollector.TimeExceededException when timeout has reached
+                    collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                        searchContext.timeout().millis());
+                }
+                collectors.add(new CancellableCollector(searchContext.getTask()::isCancelled,
+                    searchContext.lowLevelCancellation(), collector));
+            }
+
+            try {
+                searcher.searchConcurrently(query, collectors, sliceIndex -> {
+                    if (sliceAggsCollectors[sliceIndex] != null) {
+                        sliceAggsCollectors[sliceIndex].postCollection();
+                    }
+                });
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+                queryResult.searchTimedOut(true);
+            } finally {
+                searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+            }
+
+            queryResult.topDocs(mergeTopDocs(searchContext, topDocsCollectors, numDocs), sortValueFormats);
+            return rescore;
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
+        }
+    }
+
+    /**
+     * Merges the top docs of the slices. Slices hold contiguous ranges of doc ids, so breaking ties by slice
+     * index keeps ties broken by doc id like in a sequential search.
+     */
+    private static TopDocs mergeTopDocs(SearchContext searchContext, List<Collector> topDocsCollectors, int numDocs) {
+        if (searchContext.size() == 0) {
+            int totalHits = 0;
+            for (Collector collector : topDocsCollectors) {
+                totalHits += ((TotalHitCountCollector) collector).getTotalHits();
+            }
+            return new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
+        }
+        final TopDocs merged;
+        if (searchContext.sort() != null) {
+            final TopFieldDocs[] shardHits = new TopFieldDocs[topDocsCollectors.size()];
+            for (int i = 0; i < shardHits.length; i++) {
+                shardHits[i] = ((TopFieldCollector) topDocsCollectors.get(i)).topDocs();
+            }
+            merged = TopDocs.merge(searchContext.sort().sort, 0, numDocs, shardHits, true);
+        } else {
+            final TopDocs[] shardHits = new TopDocs[topDocsCollectors.size()];
+            for (int i = 0; i < shardHits.length; i++) {
+                shardHits[i] = ((TopScoreDocCollector) topDocsCollectors.get(i)).topDocs();
+            }
+            merged = TopDocs.merge(0, numDocs, shardHits, true);
+        }
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            // the shard index is assigned on the coordinating node
+            scoreDoc.shardIndex = -1;
+        }
+        return merged;
+    }
 }
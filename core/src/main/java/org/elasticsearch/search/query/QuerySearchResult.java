@@ -21,6 +21,7 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.DocValueFormat;
@@ -58,6 +59,8 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private boolean hasScoreDocs;
     private int totalHits;
     private float maxScore;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
 
     public QuerySearchResult() {
     }
@@ -278,6 +281,10 @@ public final class QuerySearchResult extends SearchPhaseResult {
         terminatedEarly = in.readOptionalBoolean();
         profileShardResults = in.readOptionalWriteable(ProfileShardResult::new);
         hasProfileResults = profileShardResults != null;
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            nodeQueueSize = in.readInt();
+            serviceTimeEWMA = in.readZLong();
+        }
     }
 
     @Override
@@ -315,6 +322,33 @@ public final class QuerySearchResult extends SearchPhaseResult {
         out.writeBoolean(searchTimedOut);
         out.writeOptionalBoolean(terminatedEarly);
         out.writeOptionalWriteable(profileShardResults);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeInt(nodeQueueSize);
+            out.writeZLong(serviceTimeEWMA);
+        }
+    }
+
+    /**
+     * Sets the size of the search queue and the moving average of the query phase service time (in nanoseconds)
+     * of the node that executed this request, used by the coordinating node for adaptive replica selection.
+     */
+    public void nodeStats(int nodeQueueSize, long serviceTimeEWMA) {
+        this.nodeQueueSize = nodeQueueSize;
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
+    /**
+     * Returns the size of the search queue of the executing node or <code>-1</code> if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    /**
+     * Returns the moving average of the query phase service time in nanoseconds of the executing node or <code>-1</code> if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
     }
 
     public int getTotalHits() {
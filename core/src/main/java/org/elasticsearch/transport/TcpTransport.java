@@ -43,6 +43,7 @@ import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.compress.NotCompressedException;
 import org.elasticsearch.common.io.ReleasableBytesStream;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.FilterStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -59,6 +60,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
@@ -95,6 +97,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -145,6 +148,12 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
     public static final Setting<ByteSizeValue> TCP_RECEIVE_BUFFER_SIZE =
         Setting.byteSizeSetting("transport.tcp.receive_buffer_size", NetworkService.TcpSettings.TCP_RECEIVE_BUFFER_SIZE,
             Setting.Property.NodeScope);
+    // the time outgoing messages of a channel are buffered to write them together, defaults to disabled (0)
+    public static final Setting<TimeValue> TCP_COALESCING_MAX_DELAY =
+        timeSetting("transport.tcp.coalescing.max_delay", TimeValue.timeValueMillis(0), TimeValue.timeValueMillis(0),
+            Setting.Property.NodeScope);
+    public static final Setting<ByteSizeValue> TCP_COALESCING_MAX_SIZE =
+        Setting.byteSizeSetting("transport.tcp.coalescing.max_size", new ByteSizeValue(64, ByteSizeUnit.KB), Setting.Property.NodeScope);
 
     private static final long NINETY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().getBytes() * 0.9);
     private static final int PING_DATA_SIZE = -1;
@@ -169,11 +178,15 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
     // connections while no connect operations is going on... (this might help with 100% CPU when stopping the transport?)
     protected final ReadWriteLock globalLock = new ReentrantReadWriteLock();
     protected final boolean compress;
+    private final Compressor compressor;
     protected volatile BoundTransportAddress boundAddress;
     private final String transportName;
     protected final ConnectionProfile defaultConnectionProfile;
 
     private final ConcurrentMap<Long, HandshakeResponseHandler> pendingHandshakes = new ConcurrentHashMap<>();
+    private final TimeValue coalescingMaxDelay;
+    private final long coalescingMaxSize;
+    private final ConcurrentMap<Channel, MessageCoalescer> coalescers = newConcurrentMap();
     private final AtomicLong requestIdGenerator = new AtomicLong();
     private final CounterMetric numHandshakes = new CounterMetric();
     private static final String HANDSHAKE_ACTION_NAME = "internal:tcp/handshake";
@@ -189,8 +202,11 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         this.pingSchedule = PING_SCHEDULE.get(settings);
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressor = Transport.TRANSPORT_TCP_COMPRESSION_SCHEME.get(settings);
         this.networkService = networkService;
         this.transportName = transportName;
+        this.coalescingMaxDelay = TCP_COALESCING_MAX_DELAY.get(settings);
+        this.coalescingMaxSize = TCP_COALESCING_MAX_SIZE.get(settings).getBytes();
         defaultConnectionProfile = buildDefaultConnectionProfile(settings);
     }
 
@@ -1030,18 +1046,18 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         final Releasable toRelease = Releasables.releaseOnce(() -> Releasables.close(bStream.bytes()));
         StreamOutput stream = bStream;
         try {
+            // we pick the smallest of the 2, to support both backward and forward compatibility
+            // note, this is the only place we need to do this, since from here on, we use the serialized version
+            // as the version to use also when the node receiving this request will send the response with
+            Version version = Version.min(getCurrentVersion(), channelVersion);
+
             // only compress if asked, and, the request is not bytes, since then only
             // the header part is compressed, and the "body" can't be extracted as compressed
             if (options.compress() && canCompress(request)) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = CompressorFactory.compressor(compressor, version).streamOutput(stream);
             }
 
-            // we pick the smallest of the 2, to support both backward and forward compatibility
-            // note, this is the only place we need to do this, since from here on, we use the serialized version
-            // as the version to use also when the node receiving this request will send the response with
-            Version version = Version.min(getCurrentVersion(), channelVersion);
-
             stream.setVersion(version);
             threadPool.getThreadContext().writeTo(stream);
             stream.writeString(action);
@@ -1060,6 +1076,14 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
      * sends a message to the given channel, using the given callbacks.
      */
     private void internalSendMessage(Channel targetChannel, BytesReference message, NotifyOnceListener<Channel> listener) {
+        if (coalescingMaxDelay.nanos() > 0) {
+            coalescers.computeIfAbsent(targetChannel, MessageCoalescer::new).add(message, listener);
+        } else {
+            doSendMessage(targetChannel, message, listener);
+        }
+    }
+
+    private void doSendMessage(Channel targetChannel, BytesReference message, NotifyOnceListener<Channel> listener) {
         try {
             sendMessage(targetChannel, message, listener);
         } catch (Exception ex) {
@@ -1121,7 +1145,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         try {
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.COMPRESSOR.streamOutput(stream);
+                stream = CompressorFactory.compressor(compressor, nodeVersion).streamOutput(stream);
             }
             threadPool.getThreadContext().writeTo(stream);
             stream.setVersion(nodeVersion);
@@ -1283,6 +1307,20 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
      */
     public final void messageReceived(BytesReference reference, Channel channel, String profileName,
                                       InetSocketAddress remoteAddress, int messageLengthBytes) throws IOException {
+        messageReceived(reference, channel, profileName, remoteAddress, messageLengthBytes, () -> {});
+    }
+
+    /**
+     * This method handles the message receive part for both request and responses. The given releasable releases the bytes of the
+     * reference and is always released by this method, by {@link #handleRequest} or by the channel of the request: requests that
+     * {@link TransportRequest#canReferenceMessageBytes() can reference the bytes of the message} do so until they are responded to,
+     * all other requests and responses copy what they read and release the bytes once they are read.
+     */
+    public final void messageReceived(BytesReference reference, Channel channel, String profileName,
+                                      InetSocketAddress remoteAddress, int messageLengthBytes, Releasable releasable)
+        throws IOException {
+        final Releasable releaseMessage = Releasables.releaseOnce(releasable);
+        boolean releasedByChannel = false;
         final int totalMessageSize = messageLengthBytes + TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
         transportServiceAdapter.addBytesReceived(totalMessageSize);
         // we have additional bytes to read, outside of the header
@@ -1315,11 +1353,16 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
                 throw new IllegalStateException("Received message from unsupported version: [" + version
                     + "] minimal compatible version is: [" + getCurrentVersion().minimumCompatibilityVersion() + "]");
             }
+            if (TransportStatus.isRequest(status) == false) {
+                streamIn = new CopyingStreamInput(streamIn);
+            }
             streamIn = new NamedWriteableAwareStreamInput(streamIn, namedWriteableRegistry);
             streamIn.setVersion(version);
             threadPool.getThreadContext().readHeaders(streamIn);
             if (TransportStatus.isRequest(status)) {
-                handleRequest(channel, profileName, streamIn, requestId, messageLengthBytes, version, remoteAddress, status);
+                handleRequest(channel, profileName, streamIn, requestId, messageLengthBytes, version, remoteAddress, status,
+                    releaseMessage);
+                releasedByChannel = true;
             } else {
                 final TransportResponseHandler<?> handler;
                 if (TransportStatus.isHandshake(status)) {
@@ -1350,14 +1393,42 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             }
             success = true;
         } finally {
-            if (success) {
-                IOUtils.close(streamIn);
-            } else {
-                IOUtils.closeWhileHandlingException(streamIn);
+            try {
+                if (success) {
+                    IOUtils.close(streamIn);
+                } else {
+                    IOUtils.closeWhileHandlingException(streamIn);
+                }
+            } finally {
+                if (releasedByChannel == false) {
+                    releaseMessage.close();
+                }
             }
         }
     }
 
+    /**
+     * Reads bytes references as copies instead of slices of the wrapped stream. Response handlers may hold on to a response after
+     * it was handled, and most requests may be used after they are responded to, so neither may reference the bytes of the message
+     * they were read from unless the request opts in via {@link TransportRequest#canReferenceMessageBytes()}.
+     */
+    private static final class CopyingStreamInput extends FilterStreamInput {
+
+        CopyingStreamInput(StreamInput delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public BytesReference readBytesReference(int length) throws IOException {
+            if (length == 0) {
+                return BytesArray.EMPTY;
+            }
+            final byte[] bytes = new byte[length];
+            readBytes(bytes, 0, length);
+            return new BytesArray(bytes, 0, length);
+        }
+    }
+
     private void handleResponse(InetSocketAddress remoteAddress, final StreamInput stream, final TransportResponseHandler handler) {
         final TransportResponse response = handler.newInstance();
         response.remoteAddress(new TransportAddress(remoteAddress));
@@ -1409,13 +1480,20 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         });
     }
 
+    /**
+     * Handles a request. The given releasable is released once the request is responded to if the request references the bytes of
+     * the message, see {@link TransportRequest#canReferenceMessageBytes()}, and as soon as the request is read otherwise.
+     */
     protected String handleRequest(Channel channel, String profileName, final StreamInput stream, long requestId, int messageLengthBytes,
-                                   Version version, InetSocketAddress remoteAddress, byte status) throws IOException {
+                                   Version version, InetSocketAddress remoteAddress, byte status, Releasable messageReleasable)
+        throws IOException {
+        final Releasable releasable = Releasables.releaseOnce(messageReleasable);
         final String action = stream.readString();
         transportServiceAdapter.onRequestReceived(requestId, action);
         TransportChannel transportChannel = null;
         try {
             if (TransportStatus.isHandshake(status)) {
+                releasable.close();
                 final VersionHandshakeResponse response = new VersionHandshakeResponse(getCurrentVersion());
                 sendResponse(version, channel, response, requestId, HANDSHAKE_ACTION_NAME, TransportResponseOptions.EMPTY,
                     TransportStatus.setHandshake((byte) 0));
@@ -1430,18 +1508,27 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
                     getInFlightRequestBreaker().addWithoutBreaking(messageLengthBytes);
                 }
                 transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName,
-                    messageLengthBytes);
+                    messageLengthBytes, releasable);
                 final TransportRequest request = reg.newRequest();
                 request.remoteAddress(new TransportAddress(remoteAddress));
-                request.readFrom(stream);
+                if (request.canReferenceMessageBytes()) {
+                    request.readFrom(stream);
+                } else {
+                    request.readFrom(new NamedWriteableAwareStreamInput(new CopyingStreamInput(stream), namedWriteableRegistry));
+                }
                 // in case we throw an exception, i.e. when the limit is hit, we don't want to verify
                 validateRequest(stream, requestId, action);
+                if (request.canReferenceMessageBytes() == false) {
+                    // the request holds copies of what it read, so the bytes of the message are not needed anymore
+                    releasable.close();
+                }
                 threadPool.executor(reg.getExecutor()).execute(new RequestHandler(reg, request, transportChannel));
             }
         } catch (Exception e) {
             // the circuit breaker tripped
             if (transportChannel == null) {
-                transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName, 0);
+                transportChannel = new TcpTransportChannel<>(this, channel, transportName, action, requestId, version, profileName, 0,
+                    releasable);
             }
             try {
                 transportChannel.sendResponse(e);
@@ -1587,6 +1674,11 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
      * Called once the channel is closed for instance due to a disconnect or a closed socket etc.
      */
     protected final void onChannelClosed(Channel channel) {
+        final MessageCoalescer coalescer = coalescers.remove(channel);
+        if (coalescer != null) {
+            // fails the buffered messages, the channel is closed
+            coalescer.flush();
+        }
         final Optional<Long> first = pendingHandshakes.entrySet().stream()
             .filter((entry) -> entry.getValue().channel == channel).map((e) -> e.getKey()).findFirst();
         if (first.isPresent()) {
@@ -1611,6 +1703,97 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         }
     }
 
+    /**
+     * Buffers the outgoing messages of a channel for up to {@link #TCP_COALESCING_MAX_DELAY} or until {@link #TCP_COALESCING_MAX_SIZE}
+     * bytes are buffered and then writes them with a single {@link #sendMessage(Object, BytesReference, ActionListener)} call. This
+     * saves a write per message when many small messages like shard level requests and their responses are sent to the same node.
+     * Every message keeps its own header, so the receiving side decodes all messages of a batch from the same read.
+     */
+    private final class MessageCoalescer {
+        private final Channel channel;
+        private final List<BytesReference> messages = new ArrayList<>();
+        private final List<NotifyOnceListener<Channel>> listeners = new ArrayList<>();
+        private long bufferedBytes;
+        private boolean flushScheduled;
+
+        MessageCoalescer(Channel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void add(BytesReference message, NotifyOnceListener<Channel> listener) {
+            messages.add(message);
+            listeners.add(listener);
+            bufferedBytes += message.length();
+            if (bufferedBytes >= coalescingMaxSize) {
+                flush();
+            } else if (flushScheduled == false) {
+                flushScheduled = true;
+                scheduleFlush();
+            }
+        }
+
+        private void scheduleFlush() {
+            try {
+                // we don't use ThreadPool#schedule since it only supports a resolution of milliseconds
+                threadPool.scheduler().schedule(() -> threadPool.generic().execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        flush();
+                    }
+
+                    @Override
+                    public void onRejection(Exception e) {
+                        // we are shutting down, don't leave the messages behind
+                        flush();
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        logger.warn("failed to flush coalesced messages", e);
+                    }
+                }), coalescingMaxDelay.nanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            flushScheduled = false;
+            if (messages.isEmpty()) {
+                return;
+            }
+            final BytesReference batch;
+            if (messages.size() == 1) {
+                batch = messages.get(0);
+            } else {
+                batch = new CompositeBytesReference(messages.toArray(new BytesReference[messages.size()]));
+            }
+            final List<NotifyOnceListener<Channel>> batchListeners = new ArrayList<>(listeners);
+            messages.clear();
+            listeners.clear();
+            bufferedBytes = 0;
+            // we write while holding the lock so that the batches of a channel are written in order
+            doSendMessage(channel, batch, new NotifyOnceListener<Channel>() {
+                @Override
+                protected void innerOnResponse(Channel sentChannel) {
+                    for (NotifyOnceListener<Channel> listener : batchListeners) {
+                        listener.onResponse(sentChannel);
+                    }
+                }
+
+                @Override
+                protected void innerOnFailure(Exception e) {
+                    for (NotifyOnceListener<Channel> listener : batchListeners) {
+                        listener.onFailure(e);
+                    }
+                }
+            });
+            if (isOpen(channel) == false) {
+                coalescers.remove(channel, this);
+            }
+        }
+    }
+
     private final class SendListener extends NotifyOnceListener<Channel> {
         private final Releasable optionalReleasable;
         private final Runnable transportAdaptorCallback;
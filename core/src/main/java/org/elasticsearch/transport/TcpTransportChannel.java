@@ -19,6 +19,7 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.lease.Releasable;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,12 +31,22 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
     protected final long requestId;
     private final String profileName;
     private final long reservedBytes;
+    private final Releasable releasable;
     private final AtomicBoolean released = new AtomicBoolean();
     private final String channelType;
     private final Channel channel;
 
     public TcpTransportChannel(TcpTransport<Channel> transport, Channel channel, String channelType, String action,
                                long requestId, Version version, String profileName, long reservedBytes) {
+        this(transport, channel, channelType, action, requestId, version, profileName, reservedBytes, () -> {});
+    }
+
+    /**
+     * Creates a channel that releases the given releasable once the response is sent. This allows the request to reference the
+     * bytes of the message it was read from until it is responded to.
+     */
+    public TcpTransportChannel(TcpTransport<Channel> transport, Channel channel, String channelType, String action,
+                               long requestId, Version version, String profileName, long reservedBytes, Releasable releasable) {
         this.version = version;
         this.channel = channel;
         this.transport = transport;
@@ -43,6 +54,7 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
         this.requestId = requestId;
         this.profileName = profileName;
         this.reservedBytes = reservedBytes;
+        this.releasable = releasable;
         this.channelType = channelType;
     }
 
@@ -83,7 +95,11 @@ public final class TcpTransportChannel<Channel> implements TransportChannel {
     private void release(boolean isExceptionResponse) {
         if (released.compareAndSet(false, true)) {
             assert (releaseBy = new Exception()) != null; // easier to debug if it's already closed
-            transport.getInFlightRequestBreaker().addWithoutBreaking(-reservedBytes);
+            try {
+                transport.getInFlightRequestBreaker().addWithoutBreaking(-reservedBytes);
+            } finally {
+                releasable.close();
+            }
         } else if (isExceptionResponse == false) {
             // only fail if we are not sending an error - we might send the error triggered by the previous
             // sendResponse call
@@ -25,6 +25,8 @@ import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -40,6 +42,9 @@ public interface Transport extends LifecycleComponent {
 
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, Property.NodeScope);
 
+    Setting<Compressor> TRANSPORT_TCP_COMPRESSION_SCHEME =
+        CompressorFactory.compressorSetting("transport.tcp.compression_scheme", Property.NodeScope);
+
     void transportServiceAdapter(TransportServiceAdapter service);
 
     /**
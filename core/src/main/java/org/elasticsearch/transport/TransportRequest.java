@@ -55,6 +55,15 @@ public abstract class TransportRequest extends TransportMessage implements TaskA
         return parentTaskId;
     }
 
+    /**
+     * Whether this request may reference the bytes of the network message it is read from instead of copying them. Those bytes
+     * are released as soon as the request is responded to, so only requests that are not used anymore once they are responded
+     * to, including any bytes references read from them, may return {@code true}. Defaults to {@code false}.
+     */
+    public boolean canReferenceMessageBytes() {
+        return false;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.lucene.queries;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class SearchAfterSortedDocQueryTests extends ESTestCase {
+
+    public void testBasics() {
+        Sort sort = new Sort(new SortedNumericSortField("field1", SortField.Type.INT));
+        SearchAfterSortedDocQuery query1 = new SearchAfterSortedDocQuery(sort, new FieldDoc(0, 0f, new Object[] { 1 }));
+        SearchAfterSortedDocQuery query2 = new SearchAfterSortedDocQuery(sort, new FieldDoc(0, 0f, new Object[] { 1 }));
+        SearchAfterSortedDocQuery query3 = new SearchAfterSortedDocQuery(sort, new FieldDoc(0, 0f, new Object[] { 2 }));
+        SearchAfterSortedDocQuery query4 = new SearchAfterSortedDocQuery(sort, new FieldDoc(1, 0f, new Object[] { 1 }));
+        QueryUtils.check(query1);
+        QueryUtils.checkEqual(query1, query2);
+        QueryUtils.checkUnequal(query1, query3);
+        QueryUtils.checkUnequal(query1, query4);
+    }
+
+    public void testInvalidSort() {
+        Sort sort = new Sort(new SortedNumericSortField("field1", SortField.Type.INT));
+        IllegalArgumentException ex = expectThrows(IllegalArgumentException.class,
+            () -> new SearchAfterSortedDocQuery(sort, new FieldDoc(0, 0f, new Object[] { 0L, 1 })));
+        assertEquals("after doc has 2 value(s) but sort has 1.", ex.getMessage());
+    }
+
+    public void testRandom() throws IOException {
+        final int numDocs = randomIntBetween(10, 200);
+        final Sort sort = new Sort(new SortedNumericSortField("number", SortField.Type.LONG, randomBoolean()));
+        final Directory dir = newDirectory();
+        final IndexWriterConfig config = newIndexWriterConfig();
+        config.setIndexSort(sort);
+        final RandomIndexWriter w = new RandomIndexWriter(random(), dir, config);
+        for (int i = 0; i < numDocs; ++i) {
+            final Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("number", randomIntBetween(0, 10)));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final TopFieldDocs topDocs = searcher.search(new MatchAllDocsQuery(), numDocs, sort);
+        for (int i = 0; i < numDocs; ++i) {
+            final FieldDoc after = (FieldDoc) topDocs.scoreDocs[i];
+            assertEquals(numDocs - i - 1, searcher.count(new SearchAfterSortedDocQuery(sort, after)));
+        }
+        w.close();
+        reader.close();
+        dir.close();
+    }
+}
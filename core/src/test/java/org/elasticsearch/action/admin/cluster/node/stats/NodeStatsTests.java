@@ -20,6 +20,7 @@
 package org.elasticsearch.action.admin.cluster.node.stats;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterStateListenerStats;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.discovery.DiscoveryStats;
@@ -32,6 +33,8 @@ import org.elasticsearch.monitor.fs.FsInfo;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.os.OsStats;
 import org.elasticsearch.monitor.process.ProcessStats;
+import org.elasticsearch.node.AdaptiveSelectionStats;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.VersionUtils;
@@ -252,6 +255,19 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(queueStats.getTotal(), deserializedDiscoveryStats.getQueueStats().getTotal());
                         assertEquals(queueStats.getPending(), deserializedDiscoveryStats.getQueueStats().getPending());
                     }
+                    List<ClusterStateListenerStats> listenerStats = discoveryStats.getListenerStats();
+                    List<ClusterStateListenerStats> deserializedListenerStats = deserializedDiscoveryStats.getListenerStats();
+                    assertEquals(listenerStats.size(), deserializedListenerStats.size());
+                    for (int i = 0; i < listenerStats.size(); i++) {
+                        ClusterStateListenerStats stats = listenerStats.get(i);
+                        ClusterStateListenerStats deserializedStats = deserializedListenerStats.get(i);
+                        assertEquals(stats.getName(), deserializedStats.getName());
+                        assertEquals(stats.isAsync(), deserializedStats.isAsync());
+                        assertEquals(stats.getNotifications(), deserializedStats.getNotifications());
+                        assertEquals(stats.getTotalTimeInMillis(), deserializedStats.getTotalTimeInMillis());
+                        assertEquals(stats.getMaxTimeInMillis(), deserializedStats.getMaxTimeInMillis());
+                        assertEquals(stats.getOverBudget(), deserializedStats.getOverBudget());
+                    }
                 }
                 IngestStats ingestStats = nodeStats.getIngestStats();
                 IngestStats deserializedIngestStats = deserializedNodeStats.getIngestStats();
@@ -273,6 +289,24 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(stats.getIngestCount(), deserializedStats.getIngestCount());
                     }
                 }
+                AdaptiveSelectionStats adaptiveStats = nodeStats.getAdaptiveSelectionStats();
+                AdaptiveSelectionStats deserializedAdaptiveStats = deserializedNodeStats.getAdaptiveSelectionStats();
+                if (adaptiveStats == null) {
+                    assertNull(deserializedAdaptiveStats);
+                } else {
+                    assertEquals(adaptiveStats.getOutgoingConnections(), deserializedAdaptiveStats.getOutgoingConnections());
+                    assertEquals(adaptiveStats.getComputedStats().size(), deserializedAdaptiveStats.getComputedStats().size());
+                    for (Map.Entry<String, ResponseCollectorService.ComputedNodeStats> entry : adaptiveStats.getComputedStats().entrySet()) {
+                        ResponseCollectorService.ComputedNodeStats stats = entry.getValue();
+                        ResponseCollectorService.ComputedNodeStats deserializedStats =
+                            deserializedAdaptiveStats.getComputedStats().get(entry.getKey());
+                        assertEquals(stats.nodeId, deserializedStats.nodeId);
+                        assertEquals(stats.queueSize, deserializedStats.queueSize);
+                        assertEquals(stats.responseTime, deserializedStats.responseTime, 0.01);
+                        assertEquals(stats.serviceTime, deserializedStats.serviceTime, 0.01);
+                        assertEquals(stats.rank(1), deserializedStats.rank(1), 0.01);
+                    }
+                }
             }
         }
     }
@@ -383,8 +417,17 @@ public class NodeStatsTests extends ESTestCase {
             allCircuitBreakerStats = new AllCircuitBreakerStats(circuitBreakerStatsArray);
         }
         ScriptStats scriptStats = frequently() ? new ScriptStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
-        DiscoveryStats discoveryStats = frequently() ? new DiscoveryStats(randomBoolean() ? new PendingClusterStateStats(randomInt(),
-                randomInt(), randomInt()) : null) : null;
+        DiscoveryStats discoveryStats = null;
+        if (frequently()) {
+            int numListenerStats = randomIntBetween(0, 10);
+            List<ClusterStateListenerStats> listenerStats = new ArrayList<>(numListenerStats);
+            for (int i = 0; i < numListenerStats; i++) {
+                listenerStats.add(new ClusterStateListenerStats(randomAlphaOfLengthBetween(3, 10), randomBoolean(),
+                        randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()));
+            }
+            discoveryStats = new DiscoveryStats(randomBoolean() ? new PendingClusterStateStats(randomInt(), randomInt(), randomInt())
+                    : null, listenerStats);
+        }
         IngestStats ingestStats = null;
         if (frequently()) {
             IngestStats.Stats totalStats = new IngestStats.Stats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
@@ -398,8 +441,31 @@ public class NodeStatsTests extends ESTestCase {
             }
             ingestStats = new IngestStats(totalStats, statsPerPipeline);
         }
+        AdaptiveSelectionStats adaptiveSelectionStats = null;
+        if (frequently()) {
+            int numNodes = randomIntBetween(0, 10);
+            Map<String, Long> nodeConnections = new HashMap<>();
+            Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = new HashMap<>();
+            for (int i = 0; i < numNodes; i++) {
+                String nodeId = randomAlphaOfLengthBetween(3, 10);
+                // add outgoing connection info
+                if (frequently()) {
+                    nodeConnections.put(nodeId, randomNonNegativeLong());
+                }
+                // add node calculations
+                if (frequently()) {
+                    ResponseCollectorService.ComputedNodeStats stats = new ResponseCollectorService.ComputedNodeStats(nodeId,
+                        randomIntBetween(1, 10), randomIntBetween(0, 2000),
+                        randomDoubleBetween(1.0, 10000000.0, true),
+                        randomDoubleBetween(1.0, 10000000.0, true));
+                    nodeStats.put(nodeId, stats);
+                }
+            }
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+        }
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats, fsInfo,
-                transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats, ingestStats);
+                transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats, ingestStats,
+                adaptiveSelectionStats);
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.Transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
+
+    public void testFilterShards() throws InterruptedException {
+        final TransportSearchAction.SearchTimeProvider timeProvider = new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(),
+            System::nanoTime);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put(primaryNode.getId(), new SearchAsyncActionTests.MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new SearchAsyncActionTests.MockConnection(replicaNode));
+        final boolean shard1 = randomBoolean();
+        final boolean shard2 = randomBoolean();
+
+        SearchTransportService searchTransportService = new SearchTransportService(
+            Settings.builder().put("search.remote.connect", false).build(), new ClusterSettings(Settings.EMPTY,
+            Collections.singleton(RemoteClusterService.REMOTE_CLUSTERS_SEEDS)), null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<CanMatchResponse> listener) {
+                new Thread(() -> listener.onResponse(new CanMatchResponse(request.shardId().id() == 0 ? shard1 : shard2))).start();
+            }
+        };
+
+        AtomicReference<GroupShardsIterator> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator shardsIter = SearchAsyncActionTests.getShardsIter("idx", 2, randomBoolean(), primaryNode, replicaNode);
+
+        final SearchRequest searchRequest = new SearchRequest();
+
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (nodeId) -> lookup.get(nodeId),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), EsExecutors.newDirectExecutorService(),
+            searchRequest, null, shardsIter, timeProvider, 0, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() throws IOException {
+                    result.set(iter);
+                    latch.countDown();
+                }});
+
+        canMatchPhase.start();
+        latch.await();
+
+        if (shard1 && shard2) {
+            for (ShardIterator i : result.get()) {
+                assertFalse(((SearchShardIterator) i).skip());
+            }
+        } else if (shard1 == false &&  shard2 == false) {
+            // we always need at least one shard
+            assertFalse(getShardIterators(result.get()).get(0).skip());
+            assertTrue(getShardIterators(result.get()).get(1).skip());
+        } else {
+            List<SearchShardIterator> iterators = getShardIterators(result.get());
+            assertEquals(0, iterators.get(0).shardId().id());
+            assertEquals(1, iterators.get(1).shardId().id());
+            assertEquals(shard1, iterators.get(0).skip() == false);
+            assertEquals(shard2, iterators.get(1).skip() == false);
+        }
+    }
+
+    public void testFilterWithFailure() throws InterruptedException {
+        final TransportSearchAction.SearchTimeProvider timeProvider = new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(),
+            System::nanoTime);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put(primaryNode.getId(), new SearchAsyncActionTests.MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new SearchAsyncActionTests.MockConnection(replicaNode));
+        final boolean shard1 = randomBoolean();
+        SearchTransportService searchTransportService = new SearchTransportService(
+            Settings.builder().put("search.remote.connect", false).build(), new ClusterSettings(Settings.EMPTY,
+            Collections.singleton(RemoteClusterService.REMOTE_CLUSTERS_SEEDS)), null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<CanMatchResponse> listener) {
+                boolean throwException = request.shardId().id() != 0;
+                if (throwException && randomBoolean()) {
+                    throw new IllegalArgumentException("boom");
+                } else {
+                    new Thread(() -> {
+                        if (throwException == false) {
+                            listener.onResponse(new CanMatchResponse(shard1));
+                        } else {
+                            listener.onFailure(new NullPointerException());
+                        }
+                    }).start();
+                }
+            }
+        };
+
+        AtomicReference<GroupShardsIterator> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator shardsIter = SearchAsyncActionTests.getShardsIter("idx", 2, randomBoolean(), primaryNode, replicaNode);
+
+        final SearchRequest searchRequest = new SearchRequest();
+
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (nodeId) -> lookup.get(nodeId),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), EsExecutors.newDirectExecutorService(),
+            searchRequest, null, shardsIter, timeProvider, 0, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() throws IOException {
+                    result.set(iter);
+                    latch.countDown();
+                }});
+
+        canMatchPhase.start();
+        latch.await();
+
+        List<SearchShardIterator> iterators = getShardIterators(result.get());
+        assertEquals(0, iterators.get(0).shardId().id());
+        assertEquals(1, iterators.get(1).shardId().id());
+        assertEquals(shard1, iterators.get(0).skip() == false);
+        // failed shards are never skipped so the query phase can report the failure
+        assertFalse(iterators.get(1).skip());
+    }
+
+    private static List<SearchShardIterator> getShardIterators(GroupShardsIterator shardsIts) {
+        List<SearchShardIterator> iterators = new ArrayList<>();
+        for (ShardIterator iterator : shardsIts) {
+            iterators.add((SearchShardIterator) iterator);
+        }
+        return iterators;
+    }
+}
@@ -154,7 +154,7 @@ public class SearchAsyncActionTests extends ESTestCase {
         }
     }
 
-    private GroupShardsIterator getShardsIter(String index, int numShards, boolean doReplicas, DiscoveryNode primaryNode,
+    static GroupShardsIterator getShardsIter(String index, int numShards, boolean doReplicas, DiscoveryNode primaryNode,
                                               DiscoveryNode replicaNode) {
         ArrayList<ShardIterator> list = new ArrayList<>();
         for (int i = 0; i < numShards; i++) {
@@ -212,7 +212,7 @@ public class SearchAsyncActionTests extends ESTestCase {
         }
     }
 
-    public final class MockConnection implements Transport.Connection {
+    public static final class MockConnection implements Transport.Connection {
 
         private final DiscoveryNode node;
 
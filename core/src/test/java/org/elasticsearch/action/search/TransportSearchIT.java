@@ -20,11 +20,13 @@
 package org.elasticsearch.action.search;
 
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ESIntegTestCase;
 
 import java.util.Collections;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.hamcrest.Matchers.containsString;
 
 public class TransportSearchIT extends ESIntegTestCase {
@@ -69,4 +71,42 @@ public class TransportSearchIT extends ESIntegTestCase {
         }
     }
 
+    public void testPreFilterSkipsShards() throws Exception {
+        final int numIndices = randomIntBetween(3, 5);
+        for (int i = 0; i < numIndices; i++) {
+            assertAcked(prepareCreate("logs-" + i)
+                .setSettings(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1, IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .addMapping("doc", "timestamp", "type=date"));
+            client().prepareIndex("logs-" + i, "doc", Integer.toString(i)).setSource("timestamp", "201" + i + "-01-01").get();
+        }
+        refresh();
+
+        SearchResponse response = client().prepareSearch("logs-*")
+            .setSearchType(SearchType.QUERY_THEN_FETCH)
+            .setQuery(QueryBuilders.rangeQuery("timestamp").gte("2010-06-01").lte("2011-06-01"))
+            .setPreFilterShardSize(1)
+            .get();
+        assertHitCount(response, 1);
+        assertEquals(numIndices, response.getTotalShards());
+        assertEquals(numIndices, response.getSuccessfulShards());
+        assertEquals(numIndices - 1, response.getSkippedShards());
+
+        // nothing matches, we still need one shard to build the response
+        response = client().prepareSearch("logs-*")
+            .setSearchType(SearchType.QUERY_THEN_FETCH)
+            .setQuery(QueryBuilders.rangeQuery("timestamp").gte("2030-01-01"))
+            .setPreFilterShardSize(1)
+            .get();
+        assertHitCount(response, 0);
+        assertEquals(numIndices, response.getSuccessfulShards());
+        assertEquals(numIndices - 1, response.getSkippedShards());
+
+        // no pre-filtering if the number of shards is below the threshold
+        response = client().prepareSearch("logs-*")
+            .setSearchType(SearchType.QUERY_THEN_FETCH)
+            .setQuery(QueryBuilders.rangeQuery("timestamp").gte("2010-06-01").lte("2011-06-01"))
+            .get();
+        assertHitCount(response, 1);
+        assertEquals(0, response.getSkippedShards());
+    }
 }
@@ -19,14 +19,25 @@
 package org.elasticsearch.cluster;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.IOException;
+
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class ClusterStateTests extends ESTestCase {
 
@@ -57,4 +68,41 @@ public class ClusterStateTests extends ESTestCase {
         assertThat(withMaster1a.supersedes(withMaster1b), equalTo(withMaster1a.version() > withMaster1b.version()));
 
     }
+
+    public void testRoutingNodesAreReusedIfRoutingTableAndNodesAreUnchanged() throws IOException {
+        final DiscoveryNode node1 = new DiscoveryNode("node1", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        final DiscoveryNode node2 = new DiscoveryNode("node2", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        final DiscoveryNodes nodes = DiscoveryNodes.builder().add(node1).add(node2).localNodeId(node1.getId()).build();
+        MetaData.Builder metaData = MetaData.builder();
+        RoutingTable.Builder routingTable = RoutingTable.builder();
+        final int numIndices = randomIntBetween(1, 10);
+        for (int i = 0; i < numIndices; i++) {
+            IndexMetaData indexMetaData = IndexMetaData.builder("index_" + i)
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(randomIntBetween(1, 3)).numberOfReplicas(randomIntBetween(0, 1)).build();
+            metaData.put(indexMetaData, false);
+            routingTable.addAsNew(indexMetaData);
+        }
+        final ClusterState state = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .metaData(metaData).routingTable(routingTable.build()).nodes(nodes).build();
+
+        // a metadata only change
+        final ClusterState metaDataChange = ClusterState.builder(state).incrementVersion()
+            .metaData(MetaData.builder(state.metaData()).persistentSettings(Settings.builder().put("foo", "bar").build())).build();
+        assertThat(metaDataChange.getRoutingNodes(), sameInstance(state.getRoutingNodes()));
+
+        // the same change received as a diff
+        final NamedWriteableRegistry registry = new NamedWriteableRegistry(ClusterModule.getNamedWriteables());
+        final BytesStreamOutput out = new BytesStreamOutput();
+        metaDataChange.diff(state).writeTo(out);
+        final StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), registry);
+        final ClusterState fromDiff = ClusterState.readDiffFrom(in, node1).apply(state);
+        assertThat(fromDiff.routingTable(), sameInstance(state.routingTable()));
+        assertThat(fromDiff.getRoutingNodes(), sameInstance(state.getRoutingNodes()));
+
+        // a change of the nodes
+        final ClusterState nodesChange = ClusterState.builder(metaDataChange).incrementVersion()
+            .nodes(DiscoveryNodes.builder(nodes).remove(node2.getId())).build();
+        assertThat(nodesChange.getRoutingNodes(), not(sameInstance(state.getRoutingNodes())));
+    }
 }
@@ -21,12 +21,15 @@ package org.elasticsearch.cluster.routing;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.support.replication.ClusterStateCreationUtils;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -427,4 +430,54 @@ public class OperationRoutingTests extends ESTestCase{
         }
     }
 
+    public void testAdaptiveReplicaSelection() throws Exception {
+        final int numIndices = 1;
+        final int numShards = 1;
+        final String[] indexNames = new String[]{"test"};
+        ClusterState state = ClusterStateCreationUtils.stateWithAssignedPrimariesAndOneReplica(indexNames[0], numShards);
+        final String primaryNode = state.routingTable().index(indexNames[0]).shard(0).primaryShard().currentNodeId();
+        final String replicaNode = state.routingTable().index(indexNames[0]).shard(0).replicaShards().get(0).currentNodeId();
+        TestThreadPool threadPool = new TestThreadPool("testAdaptiveReplicaSelection");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        try {
+            ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            OperationRouting opRouting = new OperationRouting(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+            opRouting.setUseAdaptiveReplicaSelection(true);
+            Map<String, Long> outstandingRequests = new HashMap<>();
+
+            // without statistics both copies are candidates
+            GroupShardsIterator groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            assertThat("One group per index shard", groupIterator.size(), equalTo(numIndices * numShards));
+            assertThat(groupIterator.iterator().next().size(), equalTo(2));
+            assertThat(outstandingRequests.values().stream().mapToLong(Long::longValue).sum(), equalTo(1L));
+
+            // the primary node is busy and slow, the replica is preferred
+            collector.addNodeStatistics(primaryNode, 10, TimeValue.timeValueMillis(150).nanos(), TimeValue.timeValueMillis(50).nanos());
+            collector.addNodeStatistics(replicaNode, 0, TimeValue.timeValueMillis(5).nanos(), TimeValue.timeValueMillis(2).nanos());
+            outstandingRequests.clear();
+            groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            ShardRouting selected = groupIterator.iterator().next().nextOrNull();
+            assertThat(selected.currentNodeId(), equalTo(replicaNode));
+            assertThat(outstandingRequests.get(replicaNode), equalTo(1L));
+
+            // a node we have no statistics for is tried first so that it gets sampled
+            collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            collector.addNodeStatistics(replicaNode, 0, TimeValue.timeValueMillis(5).nanos(), TimeValue.timeValueMillis(2).nanos());
+            outstandingRequests.clear();
+            groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            selected = groupIterator.iterator().next().nextOrNull();
+            assertThat(selected.currentNodeId(), equalTo(primaryNode));
+
+            // preferences are honored regardless of the ranking
+            collector.addNodeStatistics(primaryNode, 10, TimeValue.timeValueMillis(150).nanos(), TimeValue.timeValueMillis(50).nanos());
+            groupIterator = opRouting.searchShards(state, indexNames, null, "_primary", collector, outstandingRequests);
+            selected = groupIterator.iterator().next().nextOrNull();
+            assertThat(selected.currentNodeId(), equalTo(primaryNode));
+        } finally {
+            IOUtils.close(clusterService);
+            terminate(threadPool);
+        }
+    }
+
 }
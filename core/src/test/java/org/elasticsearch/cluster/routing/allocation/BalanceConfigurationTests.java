@@ -108,6 +108,31 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
 
     }
 
+    public void testIncrementalBalance() {
+        final float balanceTreshold = 1.0f;
+
+        Settings.Builder settings = Settings.builder();
+        settings.put(ClusterRebalanceAllocationDecider.CLUSTER_ROUTING_ALLOCATION_ALLOW_REBALANCE_SETTING.getKey(), ClusterRebalanceAllocationDecider.ClusterRebalanceType.ALWAYS.toString());
+        settings.put(BalancedShardsAllocator.THRESHOLD_SETTING.getKey(), balanceTreshold);
+        settings.put(BalancedShardsAllocator.INCREMENTAL_BALANCE_SETTING.getKey(), true);
+
+        AllocationService strategy = createAllocationService(settings.build(), new NoopGatewayAllocator());
+
+        ClusterState clusterState = initCluster(strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), numberOfNodes, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+        // the cluster is balanced, rerouting again must neither move any shard nor change the outcome when balanced indices are skipped
+        for (int i = 0; i < 3; i++) {
+            assertThat(strategy.reroute(clusterState, "reroute"), Matchers.sameInstance(clusterState));
+        }
+
+        clusterState = addNode(clusterState, strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), numberOfNodes + 1, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+
+        clusterState = removeNodes(clusterState, strategy);
+        assertReplicaBalance(logger, clusterState.getRoutingNodes(), (numberOfNodes + 1) - (numberOfNodes + 1) / 2, numberOfIndices, numberOfReplicas, numberOfShards, balanceTreshold);
+        assertThat(strategy.reroute(clusterState, "reroute"), Matchers.sameInstance(clusterState));
+    }
+
     private ClusterState initCluster(AllocationService strategy) {
         MetaData.Builder metaDataBuilder = MetaData.builder();
         RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
@@ -248,6 +273,12 @@ public class BalanceConfigurationTests extends ESAllocationTestCase {
         assertThat(allocator.getIndexBalance(), Matchers.equalTo(0.5f));
         assertThat(allocator.getShardBalance(), Matchers.equalTo(0.1f));
         assertThat(allocator.getThreshold(), Matchers.equalTo(3.0f));
+        assertThat(allocator.isIncrementalBalance(), Matchers.equalTo(false));
+
+        settings = Settings.builder();
+        settings.put(BalancedShardsAllocator.INCREMENTAL_BALANCE_SETTING.getKey(), true);
+        service.applySettings(settings.build());
+        assertThat(allocator.isIncrementalBalance(), Matchers.equalTo(true));
     }
 
     public void testNoRebalanceOnPrimaryOverload() {
@@ -26,6 +26,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.ClusterStateObserver;
 import org.elasticsearch.cluster.ClusterStateTaskConfig;
 import org.elasticsearch.cluster.ClusterStateTaskExecutor;
@@ -86,6 +87,7 @@ import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasToString;
 import static org.hamcrest.Matchers.is;
@@ -1321,6 +1323,84 @@ public class ClusterServiceTests extends ESTestCase {
         }
     }
 
+    public void testAsyncListenersDoNotDelayClusterStateApplication() throws Exception {
+        final List<Long> versionsSeenBySyncListener = new CopyOnWriteArrayList<>();
+        final List<Long> versionsSeenByAsyncListener = new CopyOnWriteArrayList<>();
+        final CountDownLatch releaseAsyncListener = new CountDownLatch(1);
+        final ClusterStateListener syncListener = event -> versionsSeenBySyncListener.add(event.state().version());
+        final ClusterStateListener asyncListener = event -> {
+            try {
+                releaseAsyncListener.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            // exceeds the default budget of 10s
+            clusterService.currentTimeOverride += TimeValue.timeValueSeconds(11).nanos();
+            versionsSeenByAsyncListener.add(event.state().version());
+        };
+        clusterService.currentTimeOverride = System.nanoTime();
+        clusterService.addListener("sync", syncListener);
+        clusterService.addAsyncListener("async", asyncListener);
+
+        final int numberOfStates = randomIntBetween(1, 10);
+        for (int i = 0; i < numberOfStates; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            clusterService.submitStateUpdateTask("test" + i, new ClusterStateUpdateTask() {
+                @Override
+                public ClusterState execute(ClusterState currentState) {
+                    return ClusterState.builder(currentState).build();
+                }
+
+                @Override
+                public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(String source, Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            latch.await();
+        }
+        // all states were applied while the async listener was still blocked on the first one
+        assertThat(versionsSeenBySyncListener.size(), equalTo(numberOfStates));
+        assertThat(versionsSeenByAsyncListener, empty());
+
+        releaseAsyncListener.countDown();
+        assertBusy(() -> assertThat(versionsSeenByAsyncListener.size(), equalTo(numberOfStates)));
+        assertThat(versionsSeenByAsyncListener, equalTo(versionsSeenBySyncListener));
+
+        final Map<Boolean, List<ClusterStateListenerStats>> stats =
+            clusterService.listenerStats().stream().collect(Collectors.groupingBy(ClusterStateListenerStats::isAsync));
+        assertThat(stats.get(true).size(), equalTo(1));
+        final ClusterStateListenerStats asyncStats = stats.get(true).get(0);
+        assertThat(asyncStats.getName(), equalTo("async"));
+        assertThat(asyncStats.getNotifications(), equalTo((long) numberOfStates));
+        assertThat(asyncStats.getOverBudget(), equalTo((long) numberOfStates));
+        assertThat(asyncStats.getMaxTimeInMillis(), greaterThanOrEqualTo(TimeValue.timeValueSeconds(11).millis()));
+        assertThat(stats.get(false).size(), equalTo(1));
+        final ClusterStateListenerStats syncStats = stats.get(false).get(0);
+        assertThat(syncStats.getName(), equalTo("sync"));
+        assertThat(syncStats.getNotifications(), equalTo((long) numberOfStates));
+        assertThat(syncStats.getOverBudget(), equalTo(0L));
+
+        clusterService.removeListener(asyncListener);
+        assertThat(clusterService.listenerStats().stream().filter(ClusterStateListenerStats::isAsync).count(), equalTo(0L));
+    }
+
+    public void testListenerNamesMustBeUnique() {
+        clusterService.addListener("listener", event -> {});
+        final ClusterStateListener listener = event -> {};
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> clusterService.addAsyncListener("listener", listener));
+        assertThat(e.getMessage(), equalTo("a cluster state listener named [listener] is already registered"));
+        // listeners added without a name are not reported
+        clusterService.addListener(listener);
+        assertThat(clusterService.listenerStats().size(), equalTo(1));
+        assertThat(clusterService.listenerStats().get(0).getName(), equalTo("listener"));
+    }
+
     static class TimedClusterService extends ClusterService {
 
         public volatile Long currentTimeOverride = null;
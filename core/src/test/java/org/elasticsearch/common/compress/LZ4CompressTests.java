@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class LZ4CompressTests extends AbstractCompressorTestCase {
+
+    private final Compressor compressor = new LZ4Compressor();
+
+    @Override
+    protected Compressor compressor() {
+        return compressor;
+    }
+
+    public void testEmpty() throws IOException {
+        doTest(new byte[0]);
+        BytesReference compressed = compress(new byte[0]);
+        assertTrue(compressor.isCompressed(compressed));
+        assertThat(CompressorFactory.uncompress(compressed).length(), equalTo(0));
+    }
+
+    public void testCompressesRepetitiveInput() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 200000) {
+            builder.append("{\"index\":{\"_index\":\"logs\",\"_type\":\"doc\"}}\n{\"message\":\"GET /index.html\",\"status\":")
+                .append(randomIntBetween(200, 599)).append("}\n");
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        BytesReference compressed = compress(bytes);
+        assertThat(compressed.length(), lessThan(bytes.length / 2));
+        assertThat(BytesReference.toBytes(CompressorFactory.uncompress(compressed)), equalTo(bytes));
+    }
+
+    public void testDetection() throws IOException {
+        byte[] bytes = randomUnicodeOfLengthBetween(1, 1000).getBytes(StandardCharsets.UTF_8);
+        BytesReference lz4 = compress(bytes);
+        assertTrue(compressor.isCompressed(lz4));
+        assertFalse(CompressorFactory.DEFLATE.isCompressed(lz4));
+        assertThat(CompressorFactory.compressor(lz4), sameInstance(CompressorFactory.LZ4));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput deflate = CompressorFactory.DEFLATE.streamOutput(out)) {
+            deflate.writeBytes(bytes);
+        }
+        assertFalse(compressor.isCompressed(out.bytes()));
+        assertThat(CompressorFactory.compressor(out.bytes()), sameInstance(CompressorFactory.DEFLATE));
+        assertFalse(compressor.isCompressed(new BytesArray("{\"foo\":\"bar\"}")));
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> compressor.streamInput(out.bytes().streamInput()));
+        assertThat(e.getMessage(), equalTo("Input stream is not compressed with LZ4!"));
+    }
+
+    public void testTruncated() throws IOException {
+        byte[] bytes = new byte[randomIntBetween(1, 200000)];
+        random().nextBytes(bytes);
+        BytesReference compressed = compress(bytes);
+        // cut anywhere after the header, but at least before the end of stream marker
+        BytesReference truncated = compressed.slice(0, randomIntBetween(5, compressed.length() - 1));
+        expectThrows(EOFException.class, () -> uncompress(truncated));
+    }
+
+    public void testCorruptedBlockHeader() throws IOException {
+        byte[] bytes = new byte[randomIntBetween(1, 1000)];
+        random().nextBytes(bytes);
+        byte[] compressed = BytesReference.toBytes(compress(bytes));
+        // the first block header follows the 4 byte stream header, make the compressed length larger than the block
+        compressed[8] = (byte) 0x7F;
+        IOException e = expectThrows(IOException.class, () -> uncompress(new BytesArray(compressed)));
+        assertThat(e.getMessage(), containsString("Corrupted LZ4 stream"));
+    }
+
+    public void testFlush() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        StreamOutput compressed = compressor.streamOutput(out);
+        compressed.writeString("first");
+        compressed.flush();
+        // everything written so far can be read back before the stream is closed
+        try (StreamInput in = compressor.streamInput(out.bytes().streamInput())) {
+            assertThat(in.readString(), equalTo("first"));
+        }
+        compressed.writeString("second");
+        compressed.close();
+        try (StreamInput in = compressor.streamInput(out.bytes().streamInput())) {
+            assertThat(in.readString(), equalTo("first"));
+            assertThat(in.readString(), equalTo("second"));
+            assertThat(in.read(), equalTo(-1));
+        }
+    }
+
+    public void testNestedStreams() throws IOException {
+        byte[] inner = new byte[randomIntBetween(1, 100000)];
+        random().nextBytes(inner);
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput outer = compressor.streamOutput(out)) {
+            // a second stream on the same thread must not share buffers with the first one
+            outer.writeBytesReference(compress(inner));
+            outer.writeBytes(inner);
+        }
+        try (StreamInput in = compressor.streamInput(out.bytes().streamInput())) {
+            BytesReference nested = in.readBytesReference();
+            assertThat(BytesReference.toBytes(uncompress(nested)), equalTo(inner));
+            byte[] read = new byte[inner.length];
+            in.readBytes(read, 0, read.length);
+            assertThat(read, equalTo(inner));
+        }
+    }
+
+    public void testCompressorSetting() {
+        Setting<Compressor> setting = CompressorFactory.compressorSetting("compression_scheme", Setting.Property.NodeScope);
+        assertThat(setting.get(Settings.EMPTY), sameInstance(CompressorFactory.DEFLATE));
+        assertThat(setting.get(Settings.builder().put("compression_scheme", "lz4").build()), sameInstance(CompressorFactory.LZ4));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> setting.get(Settings.builder().put("compression_scheme", "snappy").build()));
+        assertThat(e.getMessage(), equalTo("unknown compression scheme [snappy], must be one of [deflate, lz4]"));
+    }
+
+    public void testVersionFallback() {
+        assertThat(CompressorFactory.compressor(CompressorFactory.LZ4, Version.CURRENT), sameInstance(CompressorFactory.LZ4));
+        Version oldVersion = VersionUtils.randomVersionBetween(random(), Version.V_5_0_0,
+            VersionUtils.getPreviousVersion(Version.V_6_0_0_alpha1_UNRELEASED));
+        assertThat(CompressorFactory.compressor(CompressorFactory.LZ4, oldVersion), sameInstance(CompressorFactory.DEFLATE));
+        assertThat(CompressorFactory.compressor(CompressorFactory.DEFLATE, oldVersion), sameInstance(CompressorFactory.DEFLATE));
+    }
+
+    private BytesReference compress(byte[] bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressed = compressor.streamOutput(out)) {
+            compressed.writeBytes(bytes);
+        }
+        return out.bytes();
+    }
+
+    private BytesReference uncompress(BytesReference bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamInput in = compressor.streamInput(bytes.streamInput())) {
+            Streams.copy(in, out);
+        }
+        return out.bytes();
+    }
+}
@@ -36,13 +36,19 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.discovery.DiscoverySettings;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.junit.annotations.TestLogging;
@@ -255,7 +261,8 @@ public class PublishClusterStateActionTests extends ESTestCase {
                 clusterStateSupplier,
                 listener,
                 discoverySettings,
-                CLUSTER_NAME);
+                CLUSTER_NAME,
+                BigArrays.NON_RECYCLING_INSTANCE);
     }
 
     public void testSimpleClusterStatePublishing() throws Exception {
@@ -404,7 +411,10 @@ public class PublishClusterStateActionTests extends ESTestCase {
     public void testSimultaneousClusterStatePublishing() throws Exception {
         int numberOfNodes = randomIntBetween(2, 10);
         int numberOfIterations = scaledRandomIntBetween(5, 50);
-        Settings settings = Settings.builder().put(DiscoverySettings.PUBLISH_DIFF_ENABLE_SETTING.getKey(), randomBoolean()).build();
+        Settings settings = Settings.builder()
+            .put(DiscoverySettings.PUBLISH_DIFF_ENABLE_SETTING.getKey(), randomBoolean())
+            .put(DiscoverySettings.PUBLISH_COMPRESSION_SCHEME_SETTING.getKey(), randomFrom("deflate", "lz4"))
+            .build();
         MockNode master = createMockNode("node0", settings, new ClusterStateListener() {
             @Override
             public void clusterChanged(ClusterChangedEvent event) {
@@ -735,6 +745,35 @@ public class PublishClusterStateActionTests extends ESTestCase {
         assertSameState(node.clusterState, finalState);
     }
 
+    public void testSerializedStatesAreReleased() throws Exception {
+        MockNode node = createMockNode("node").setAsMaster();
+        final CapturingTransportChannel channel = new CapturingTransportChannel();
+        final ClusterState previousState = node.clusterState;
+        final ClusterState state = ClusterState.builder(previousState).blocks(ClusterBlocks.builder()
+            .addGlobalBlock(MetaData.CLUSTER_READ_ONLY_BLOCK)).incrementVersion().build();
+        final Compressor compressor = CompressorFactory.COMPRESSOR;
+        // MockBigArrays verifies that all pages were released once the test is done
+        PublishClusterStateAction.SerializedStates serializedStates = new PublishClusterStateAction.SerializedStates(
+            new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()), compressor);
+
+        BytesReference fullState = serializedStates.getOrSerializeFullState(state, Version.CURRENT);
+        assertSame(fullState, serializedStates.getOrSerializeFullState(state, Version.CURRENT));
+        assertThat(fullState, equalTo(PublishClusterStateAction.serializeFullClusterState(state, Version.CURRENT, compressor)));
+        BytesReference diff = serializedStates.getOrSerializeDiff(state.diff(previousState), Version.CURRENT);
+        assertSame(diff, serializedStates.getDiff(Version.CURRENT));
+        assertThat(diff, equalTo(PublishClusterStateAction.serializeDiffClusterState(state.diff(previousState), Version.CURRENT,
+            compressor)));
+
+        // an in flight send request keeps the bytes around once the publication is done
+        serializedStates.incRef();
+        serializedStates.decRef();
+        node.action.handleIncomingClusterStateRequest(new BytesTransportRequest(fullState, Version.CURRENT), channel);
+        assertThat(channel.response.get(), equalTo((TransportResponse) TransportResponse.Empty.INSTANCE));
+        assertThat(channel.error.get(), nullValue());
+        serializedStates.decRef();
+        assertThat(serializedStates.refCount(), equalTo(0));
+    }
+
     /**
      * Tests that cluster is committed or times out. It should never be the case that we fail
      * an update due to a commit timeout, but it ends up being committed anyway
@@ -876,8 +915,9 @@ public class PublishClusterStateActionTests extends ESTestCase {
 
         public MockPublishAction(Settings settings, TransportService transportService, NamedWriteableRegistry namedWriteableRegistry,
                                  Supplier<ClusterState> clusterStateSupplier, NewPendingClusterStateListener listener,
-                                 DiscoverySettings discoverySettings, ClusterName clusterName) {
-            super(settings, transportService, namedWriteableRegistry, clusterStateSupplier, listener, discoverySettings, clusterName);
+                                 DiscoverySettings discoverySettings, ClusterName clusterName, BigArrays bigArrays) {
+            super(settings, transportService, namedWriteableRegistry, clusterStateSupplier, listener, discoverySettings, clusterName,
+                bigArrays);
         }
 
         @Override
@@ -0,0 +1,279 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndexSortIT extends ESIntegTestCase {
+    private static final XContentBuilder TEST_MAPPING = createTestMapping();
+
+    private static XContentBuilder createTestMapping() {
+        try {
+            return XContentFactory.jsonBuilder()
+                .startObject()
+                    .startObject("properties")
+                        .startObject("date")
+                            .field("type", "date")
+                        .endObject()
+                        .startObject("numeric")
+                            .field("type", "integer")
+                        .endObject()
+                        .startObject("keyword")
+                            .field("type", "keyword")
+                        .endObject()
+                    .endObject()
+                .endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void testIndexSort() {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(indexSettings())
+                .put("index.number_of_shards", "1")
+                .put("index.number_of_replicas", "1")
+                .putArray("index.sort.field", "date", "numeric", "keyword")
+            )
+            .addMapping("test", TEST_MAPPING)
+            .get());
+        for (int i = 0; i < 20; i++) {
+            client().prepareIndex("test", "test", Integer.toString(i))
+                .setSource("date", randomNonNegativeLong() % 1000000L, "numeric", randomInt(),
+                    "keyword", randomAlphaOfLengthBetween(10, 20))
+                .get();
+        }
+        flushAndRefresh();
+        ensureYellow();
+        assertHitCount(client().prepareSearch("test").get(), 20);
+    }
+
+    public void testInvalidIndexSort() {
+        IllegalArgumentException exc = expectThrows(IllegalArgumentException.class,
+            () -> prepareCreate("test")
+                .setSettings(Settings.builder()
+                    .put(indexSettings())
+                    .putArray("index.sort.field", "invalid_field")
+                )
+                .addMapping("test", TEST_MAPPING)
+                .get());
+        assertThat(exc.getMessage(), containsString("unknown index sort field:[invalid_field]"));
+
+        exc = expectThrows(IllegalArgumentException.class,
+            () -> prepareCreate("test")
+                .setSettings(Settings.builder()
+                    .put(indexSettings())
+                    .putArray("index.sort.field", "numeric")
+                )
+                .addMapping("test", "nested_field", "type=nested", "numeric", "type=integer")
+                .get());
+        assertThat(exc.getMessage(), containsString("cannot have nested fields when index sort is activated"));
+    }
+
+    public void testScrollWithIndexSort() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(indexSettings())
+                .putArray("index.sort.field", "numeric", "keyword")
+                .putArray("index.sort.order", "desc", "asc")
+            )
+            .addMapping("test", TEST_MAPPING)
+            .get());
+        final int numDocs = randomIntBetween(50, 200);
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "test", Integer.toString(i))
+                .setSource("numeric", randomIntBetween(0, 10), "keyword", randomAlphaOfLengthBetween(1, 3)));
+        }
+        indexRandom(true, builders);
+
+        SearchResponse expected = client().prepareSearch("test")
+            .setSearchType(SearchType.QUERY_THEN_FETCH)
+            .addSort("numeric", SortOrder.DESC)
+            .addSort("keyword", SortOrder.ASC)
+            .setSize(numDocs)
+            .get();
+        assertNoFailures(expected);
+
+        final int size = randomIntBetween(1, 10);
+        SearchResponse response = client().prepareSearch("test")
+            .setSearchType(SearchType.QUERY_THEN_FETCH)
+            .addSort("numeric", SortOrder.DESC)
+            .addSort("keyword", SortOrder.ASC)
+            .setScroll(TimeValue.timeValueMinutes(1))
+            .setSize(size)
+            .get();
+        List<SearchHit> hits = new ArrayList<>();
+        try {
+            while (response.getHits().getHits().length > 0) {
+                assertNoFailures(response);
+                assertThat(response.getHits().getTotalHits(), equalTo((long) numDocs));
+                for (SearchHit hit : response.getHits().getHits()) {
+                    hits.add(hit);
+                }
+                response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+            }
+        } finally {
+            clearScroll(response.getScrollId());
+        }
+        assertThat(hits.size(), equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            SearchHit expectedHit = expected.getHits().getAt(i);
+            assertThat(hits.get(i).getSortValues(), equalTo(expectedHit.getSortValues()));
+        }
+    }
+
+    public void testTrackTotalHitsWithIndexSort() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(indexSettings())
+                .put("index.number_of_shards", "1")
+                .putArray("index.sort.field", "numeric", "keyword")
+                .putArray("index.sort.order", "desc", "asc")
+            )
+            .addMapping("test", TEST_MAPPING)
+            .get());
+        final int numDocs = randomIntBetween(50, 200);
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "test", Integer.toString(i))
+                .setSource("numeric", randomIntBetween(0, 10), "keyword", randomAlphaOfLengthBetween(1, 3)));
+        }
+        indexRandom(true, builders);
+
+        final int size = randomIntBetween(1, 10);
+        Object[] searchAfter = null;
+        for (int page = 0; page < 3; page++) {
+            SearchRequestBuilder expectedRequest = client().prepareSearch("test")
+                .setSearchType(SearchType.QUERY_THEN_FETCH)
+                .addSort("numeric", SortOrder.DESC)
+                .addSort("keyword", SortOrder.ASC)
+                .setSize(size);
+            SearchRequestBuilder request = client().prepareSearch("test")
+                .setSearchType(SearchType.QUERY_THEN_FETCH)
+                .addSort("numeric", SortOrder.DESC)
+                .addSort("keyword", SortOrder.ASC)
+                .setTrackTotalHits(false)
+                .setSize(size);
+            if (searchAfter != null) {
+                expectedRequest.searchAfter(searchAfter);
+                request.searchAfter(searchAfter);
+            }
+            SearchResponse expected = expectedRequest.get();
+            SearchResponse response = request.get();
+            assertNoFailures(response);
+            assertThat(expected.getHits().getTotalHits(), equalTo((long) numDocs));
+            assertThat(response.getHits().getTotalHits(), lessThanOrEqualTo((long) numDocs));
+            assertThat(response.getHits().getHits().length, equalTo(expected.getHits().getHits().length));
+            for (int i = 0; i < expected.getHits().getHits().length; i++) {
+                assertThat(response.getHits().getAt(i).getSortValues(), equalTo(expected.getHits().getAt(i).getSortValues()));
+            }
+            if (expected.getHits().getHits().length == 0) {
+                break;
+            }
+            searchAfter = expected.getHits().getAt(expected.getHits().getHits().length - 1).getSortValues();
+        }
+    }
+
+    public void testTrackTotalHitsWithIndexSortAndAggregations() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(indexSettings())
+                .put("index.number_of_shards", "1")
+                .putArray("index.sort.field", "numeric", "keyword")
+                .putArray("index.sort.order", "desc", "asc")
+            )
+            .addMapping("test", TEST_MAPPING)
+            .get());
+        final int numDocs = randomIntBetween(50, 200);
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "test", Integer.toString(i))
+                .setSource("numeric", randomIntBetween(0, 10), "keyword", randomAlphaOfLengthBetween(1, 3)));
+        }
+        indexRandom(true, builders);
+
+        final int size = randomIntBetween(1, 10);
+        Object[] searchAfter = null;
+        for (int page = 0; page < 3; page++) {
+            SearchRequestBuilder expectedRequest = client().prepareSearch("test")
+                .addSort("numeric", SortOrder.DESC)
+                .addSort("keyword", SortOrder.ASC)
+                .addAggregation(AggregationBuilders.terms("numeric").field("numeric").size(11))
+                .setSize(size);
+            SearchRequestBuilder request = client().prepareSearch("test")
+                .addSort("numeric", SortOrder.DESC)
+                .addSort("keyword", SortOrder.ASC)
+                .addAggregation(AggregationBuilders.terms("numeric").field("numeric").size(11))
+                .setTrackTotalHits(false)
+                .setSize(size);
+            if (searchAfter != null) {
+                expectedRequest.searchAfter(searchAfter);
+                request.searchAfter(searchAfter);
+            }
+            SearchResponse expected = expectedRequest.get();
+            SearchResponse response = request.get();
+            assertNoFailures(response);
+            // search after and the early termination only apply to the hits, aggregations still see every matching document
+            Terms expectedTerms = expected.getAggregations().get("numeric");
+            Terms terms = response.getAggregations().get("numeric");
+            assertThat(terms.getBuckets().size(), equalTo(expectedTerms.getBuckets().size()));
+            long docCount = 0;
+            for (int i = 0; i < expectedTerms.getBuckets().size(); i++) {
+                assertThat(terms.getBuckets().get(i).getKey(), equalTo(expectedTerms.getBuckets().get(i).getKey()));
+                assertThat(terms.getBuckets().get(i).getDocCount(), equalTo(expectedTerms.getBuckets().get(i).getDocCount()));
+                docCount += terms.getBuckets().get(i).getDocCount();
+            }
+            assertThat(docCount, equalTo((long) numDocs));
+            assertThat(response.getHits().getHits().length, equalTo(expected.getHits().getHits().length));
+            for (int i = 0; i < expected.getHits().getHits().length; i++) {
+                assertThat(response.getHits().getAt(i).getSortValues(), equalTo(expected.getHits().getAt(i).getSortValues()));
+            }
+            if (expected.getHits().getHits().length == 0) {
+                break;
+            }
+            searchAfter = expected.getHits().getAt(expected.getHits().getHits().length - 1).getSortValues();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.mapper.TextFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.elasticsearch.index.IndexSettingsTests.newIndexMeta;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class IndexSortSettingsTests extends ESTestCase {
+    private static IndexSettings indexSettings(Settings settings) {
+        return new IndexSettings(newIndexMeta("test", settings), Settings.EMPTY);
+    }
+
+    public void testNoIndexSort() {
+        IndexSettings indexSettings = indexSettings(Settings.EMPTY);
+        assertFalse(indexSettings.getIndexSortConfig().hasIndexSort());
+        assertNull(indexSettings.getIndexSortConfig().buildIndexSort(name -> null));
+    }
+
+    public void testSimpleIndexSort() {
+        Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.order", "asc")
+            .put("index.sort.mode", "max")
+            .put("index.sort.missing", "_last")
+            .build();
+        IndexSettings indexSettings = indexSettings(settings);
+        IndexSortConfig config = indexSettings.getIndexSortConfig();
+        assertTrue(config.hasIndexSort());
+        assertThat(config.sortSpecs, arrayWithSize(1));
+        assertThat(config.sortSpecs[0].field, equalTo("field1"));
+        assertThat(config.sortSpecs[0].order, equalTo(SortOrder.ASC));
+        assertThat(config.sortSpecs[0].missingValue, equalTo("_last"));
+        assertThat(config.sortSpecs[0].mode, equalTo(MultiValueMode.MAX));
+    }
+
+    public void testIndexSortWithArrays() {
+        Settings settings = Settings.builder()
+            .putArray("index.sort.field", "field1", "field2")
+            .putArray("index.sort.order", "asc", "desc")
+            .putArray("index.sort.missing", "_last", "_first")
+            .build();
+        IndexSettings indexSettings = indexSettings(settings);
+        IndexSortConfig config = indexSettings.getIndexSortConfig();
+        assertTrue(config.hasIndexSort());
+        assertThat(config.size(), equalTo(2));
+        assertThat(config.sortSpecs[0].field, equalTo("field1"));
+        assertThat(config.sortSpecs[1].field, equalTo("field2"));
+        assertThat(config.sortSpecs[0].order, equalTo(SortOrder.ASC));
+        assertThat(config.sortSpecs[1].order, equalTo(SortOrder.DESC));
+        assertThat(config.sortSpecs[0].missingValue, equalTo("_last"));
+        assertThat(config.sortSpecs[1].missingValue, equalTo("_first"));
+        assertNull(config.sortSpecs[0].mode);
+        assertNull(config.sortSpecs[1].mode);
+    }
+
+    public void testInvalidIndexSort() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.order", "asc, desc")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("index.sort.field:[field1] index.sort.order:[asc, desc], size mismatch"));
+    }
+
+    public void testInvalidIndexSortWithArray() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .putArray("index.sort.order", new String[] {"asc", "desc"})
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(),
+            containsString("index.sort.field:[field1] index.sort.order:[asc, desc], size mismatch"));
+    }
+
+    public void testInvalidOrder() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.order", "invalid")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal sort order:invalid"));
+    }
+
+    public void testInvalidMode() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.mode", "invalid")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal sort mode: invalid"));
+    }
+
+    public void testUnsupportedMode() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.mode", "sum")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal index sort mode:[SUM]"));
+    }
+
+    public void testInvalidMissing() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field1")
+            .put("index.sort.missing", "default")
+            .build();
+        IllegalArgumentException exc =
+            expectThrows(IllegalArgumentException.class, () -> indexSettings(settings));
+        assertThat(exc.getMessage(), containsString("Illegal missing value:[default]," +
+            " must be one of [_last, _first]"));
+    }
+
+    public void testBuildIndexSort() {
+        final Settings settings = Settings.builder()
+            .putArray("index.sort.field", "num", "kwd")
+            .putArray("index.sort.order", "desc", "asc")
+            .putArray("index.sort.missing", "_first", "_first")
+            .build();
+        final Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        fieldTypes.put("num", newFieldType(new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.INTEGER), "num"));
+        fieldTypes.put("kwd", newFieldType(new KeywordFieldMapper.KeywordFieldType(), "kwd"));
+        Sort sort = indexSettings(settings).getIndexSortConfig().buildIndexSort(fieldTypes::get);
+        assertThat(sort.getSort(), arrayWithSize(2));
+
+        SortField numSortField = sort.getSort()[0];
+        assertThat(numSortField, instanceOf(SortedNumericSortField.class));
+        assertThat(((SortedNumericSortField) numSortField).getNumericType(), equalTo(SortField.Type.LONG));
+        assertTrue(numSortField.getReverse());
+        assertThat(numSortField.getMissingValue(), equalTo(Long.MAX_VALUE));
+
+        SortField kwdSortField = sort.getSort()[1];
+        assertThat(kwdSortField, instanceOf(SortedSetSortField.class));
+        assertFalse(kwdSortField.getReverse());
+        assertThat(kwdSortField.getMissingValue(), equalTo(SortField.STRING_FIRST));
+    }
+
+    public void testBuildIndexSortWithInvalidFields() {
+        final Settings settings = Settings.builder()
+            .put("index.sort.field", "field")
+            .build();
+        final IndexSortConfig config = indexSettings(settings).getIndexSortConfig();
+
+        IllegalArgumentException exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(name -> null));
+        assertThat(exc.getMessage(), containsString("unknown index sort field:[field]"));
+
+        MappedFieldType noDocValues = newFieldType(new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG), "field");
+        noDocValues.setHasDocValues(false);
+        exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(name -> noDocValues));
+        assertThat(exc.getMessage(), containsString("docvalues not found for index sort field:[field]"));
+
+        MappedFieldType text = newFieldType(new TextFieldMapper.TextFieldType(), "field");
+        exc = expectThrows(IllegalArgumentException.class, () -> config.buildIndexSort(name -> text));
+        assertThat(exc.getMessage(), containsString("invalid index sort field:[field] of type [text]"));
+    }
+
+    public void testIsSameOrder() {
+        final Settings settings = Settings.builder()
+            .putArray("index.sort.field", "field1", "field2")
+            .putArray("index.sort.order", "desc", "asc")
+            .build();
+        final IndexSortConfig config = indexSettings(settings).getIndexSortConfig();
+        assertTrue(config.isSameOrder(0, "field1", SortOrder.DESC, null, null));
+        assertTrue(config.isSameOrder(0, "field1", SortOrder.DESC, MultiValueMode.MAX, "_last"));
+        assertFalse(config.isSameOrder(0, "field1", SortOrder.DESC, MultiValueMode.MIN, null));
+        assertFalse(config.isSameOrder(0, "field1", SortOrder.DESC, null, "_first"));
+        assertFalse(config.isSameOrder(0, "field1", SortOrder.ASC, null, null));
+        assertFalse(config.isSameOrder(0, "field2", SortOrder.DESC, null, null));
+        assertTrue(config.isSameOrder(1, "field2", SortOrder.ASC, MultiValueMode.MIN, null));
+    }
+
+    private static MappedFieldType newFieldType(MappedFieldType fieldType, String name) {
+        fieldType.setName(name);
+        fieldType.setHasDocValues(true);
+        return fieldType;
+    }
+}
@@ -218,6 +218,7 @@ public class InternalEngineTests extends ESTestCase {
         defaultSettings = IndexSettingsModule.newIndexSettings("test", Settings.builder()
                 .put(IndexSettings.INDEX_GC_DELETES_SETTING.getKey(), "1h") // make sure this doesn't kick in on us
                 .put(EngineConfig.INDEX_CODEC_SETTING.getKey(), codecName)
+                .put(EngineConfig.INDEX_PAGED_VERSION_MAP_SETTING.getKey(), randomBoolean())
                 .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
                 .put(IndexSettings.MAX_REFRESH_LISTENERS_PER_SHARD.getKey(),
                         between(10, 10 * IndexSettings.MAX_REFRESH_LISTENERS_PER_SHARD.get(Settings.EMPTY)))
@@ -256,7 +257,7 @@ public class InternalEngineTests extends ESTestCase {
             config.getStore(), config.getDeletionPolicy(), config.getMergePolicy(), analyzer, config.getSimilarity(),
             new CodecService(null, logger), config.getEventListener(), config.getTranslogRecoveryPerformer(), config.getQueryCache(),
             config.getQueryCachingPolicy(), config.getTranslogConfig(), config.getFlushMergesAfter(), config.getRefreshListeners(),
-            config.getMaxUnsafeAutoIdTimestamp());
+            config.getIndexSort(), config.getMaxUnsafeAutoIdTimestamp());
     }
 
     @Override
@@ -417,7 +418,7 @@ public class InternalEngineTests extends ESTestCase {
                 mergePolicy, iwc.getAnalyzer(), iwc.getSimilarity(), new CodecService(null, logger), listener,
                 new TranslogHandler(xContentRegistry(), shardId.getIndexName(), logger), IndexSearcher.getDefaultQueryCache(),
                 IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig, TimeValue.timeValueMinutes(5), refreshListener,
-            maxUnsafeAutoIdTimestamp);
+            null, maxUnsafeAutoIdTimestamp);
 
         return config;
     }
@@ -2630,7 +2631,7 @@ public class InternalEngineTests extends ESTestCase {
                 config.getIndexSettings(), null, store, createSnapshotDeletionPolicy(), newMergePolicy(), config.getAnalyzer(),
                 config.getSimilarity(), new CodecService(null, logger), config.getEventListener(), config.getTranslogRecoveryPerformer(),
                 IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig,
-                TimeValue.timeValueMinutes(5), config.getRefreshListeners(), IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP);
+                TimeValue.timeValueMinutes(5), config.getRefreshListeners(), null, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP);
 
         try {
             InternalEngine internalEngine = new InternalEngine(brokenConfig);
@@ -3232,6 +3233,46 @@ public class InternalEngineTests extends ESTestCase {
 
     }
 
+    public void testAppendOnlySkipsVersionMap() throws IOException {
+        final LiveVersionMap versionMap = engine.getVersionMap();
+        final int numDocs = randomIntBetween(1, 10);
+        for (int i = 0; i < numDocs; i++) {
+            final ParsedDocument doc = testParsedDocument(Integer.toString(i), "test", null, testDocumentWithTextField(),
+                new BytesArray("{}".getBytes(Charset.defaultCharset())), null);
+            Engine.IndexResult indexResult = engine.index(randomAppendOnly(doc, false, i));
+            assertTrue(indexResult.isAppendOnly());
+        }
+        assertTrue(versionMap.isUnsafe());
+        assertEquals(0, versionMap.ramBytesUsedForRefresh());
+        assertEquals(0, engine.getNumVersionLookups());
+
+        // a realtime get must see the documents, so it refreshes and makes the version map track all operations from now on
+        ParsedDocument doc = testParsedDocument(Integer.toString(randomIntBetween(0, numDocs - 1)), "test", null,
+            testDocumentWithTextField(), new BytesArray("{}".getBytes(Charset.defaultCharset())), null);
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid(doc)));
+        assertThat(getResult.exists(), equalTo(true));
+        getResult.release();
+        assertFalse(versionMap.isUnsafe());
+        assertTrue(versionMap.isSafeAccessRequired());
+
+        doc = testParsedDocument(Integer.toString(numDocs), "test", null, testDocumentWithTextField(),
+            new BytesArray("{}".getBytes(Charset.defaultCharset())), null);
+        Engine.IndexResult indexResult = engine.index(randomAppendOnly(doc, false, numDocs));
+        assertTrue(indexResult.isAppendOnly());
+        assertFalse(versionMap.isUnsafe());
+        assertNotNull(versionMap.getUnderLock(newUid(doc)));
+
+        // retries are not append only, they may have been indexed before
+        indexResult = engine.index(randomAppendOnly(doc, true, numDocs));
+        assertFalse(indexResult.isAppendOnly());
+
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(numDocs + 1, topDocs.totalHits);
+        }
+    }
+
     public static long getNumVersionLookups(InternalEngine engine) { // for other tests to access this
         return engine.getNumVersionLookups();
     }
@@ -19,6 +19,8 @@
 
 package org.elasticsearch.index.engine;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
@@ -57,4 +59,49 @@ public class LiveVersionMapTests extends ESTestCase {
         assertEquals(actualRamBytesUsed, estimatedRamBytesUsed, actualRamBytesUsed / 4);
     }
 
+    public void testSafeAccess() throws Exception {
+        LiveVersionMap map = new LiveVersionMap();
+        assertFalse(map.isSafeAccessRequired());
+        assertFalse(map.isUnsafe());
+        map.maybePutUnderLock(uid("1"), new VersionValue(1));
+        assertTrue(map.isUnsafe());
+        assertNull(map.getUnderLock(new Term("_uid", uid("1"))));
+
+        // a refresh makes the skipped operations visible through the reader, while it is running the map is still unsafe
+        map.beforeRefresh();
+        assertTrue(map.isUnsafe());
+        map.afterRefresh(true);
+        assertFalse(map.isUnsafe());
+
+        map.enforceSafeAccess();
+        assertTrue(map.isSafeAccessRequired());
+        map.maybePutUnderLock(uid("2"), new VersionValue(1));
+        assertFalse(map.isUnsafe());
+        assertEquals(1, map.getUnderLock(new Term("_uid", uid("2"))).getVersion());
+
+        // safe access is kept for another refresh interval, since more lookups are likely
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertTrue(map.isSafeAccessRequired());
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertFalse(map.isSafeAccessRequired());
+    }
+
+    public void testUnsafePutRemovesTombstone() throws Exception {
+        LiveVersionMap map = new LiveVersionMap();
+        map.putUnderLock(uid("1"), new DeleteVersionValue(1, 0));
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertTrue(map.getUnderLock(new Term("_uid", uid("1"))).isDelete());
+        map.maybePutUnderLock(uid("1"), new VersionValue(2));
+        assertTrue(map.isUnsafe());
+        assertNull(map.getUnderLock(new Term("_uid", uid("1"))));
+        assertEquals(0, map.ramBytesUsed());
+    }
+
+    private static BytesRef uid(String id) {
+        return BytesRef.deepCopyOf(new BytesRef(id));
+    }
+
 }
@@ -0,0 +1,191 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PagedLiveVersionMapTests extends ESTestCase {
+
+    private static Term uid(String id) {
+        return new Term("_uid", new BytesRef(id));
+    }
+
+    public void testRefreshSemantics() throws Exception {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()));
+        map.putUnderLock(uid("1").bytes(), new VersionValue(1));
+        map.putUnderLock(uid("2").bytes(), new DeleteVersionValue(2, 42));
+        assertThat(map.getUnderLock(uid("1")).getVersion(), equalTo(1L));
+        VersionValue delete = map.getUnderLock(uid("2"));
+        assertTrue(delete.isDelete());
+        assertThat(delete.getVersion(), equalTo(2L));
+        assertThat(delete.getTime(), equalTo(42L));
+        assertThat(map.getUnderLock(uid("3")), nullValue());
+
+        map.beforeRefresh();
+        // values are still visible from the old lookup while the refresh is running
+        assertThat(map.getUnderLock(uid("1")).getVersion(), equalTo(1L));
+        map.putUnderLock(uid("1").bytes(), new VersionValue(3));
+        assertThat(map.getUnderLock(uid("1")).getVersion(), equalTo(3L));
+        assertThat(map.ramBytesUsedForRefresh(), greaterThan(0L));
+        map.afterRefresh(true);
+
+        assertThat(map.getUnderLock(uid("1")).getVersion(), equalTo(3L));
+        // the delete is only retained as a tombstone
+        assertThat(map.getUnderLock(uid("2")), instanceOf(DeleteVersionValue.class));
+        assertThat(map.getTombstoneUnderLock(uid("2").bytes()).getVersion(), equalTo(2L));
+
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertThat(map.getUnderLock(uid("1")), nullValue());
+        assertThat(map.ramBytesUsedForRefresh(), equalTo(0L));
+
+        // re-adding a deleted uid removes its tombstone
+        map.putUnderLock(uid("2").bytes(), new VersionValue(4));
+        assertThat(map.getTombstoneUnderLock(uid("2").bytes()), nullValue());
+        assertThat(map.getUnderLock(uid("2")).getVersion(), equalTo(4L));
+
+        map.putUnderLock(uid("5").bytes(), new DeleteVersionValue(5, 42));
+        map.removeTombstoneUnderLock(uid("5").bytes());
+        assertThat(map.getTombstoneUnderLock(uid("5").bytes()), nullValue());
+        // the delete is still in current until the next refresh
+        assertTrue(map.getUnderLock(uid("5")).isDelete());
+        map.clear();
+        assertThat(map.getUnderLock(uid("2")), nullValue());
+    }
+
+    public void testRandomOperations() throws Exception {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()));
+        Map<String, VersionValue> current = new HashMap<>();
+        Map<String, VersionValue> tombstones = new HashMap<>();
+        int numOps = scaledRandomIntBetween(100, 10000);
+        for (int i = 0; i < numOps; i++) {
+            String id = Integer.toString(randomInt(numOps / 4));
+            if (rarely()) {
+                map.beforeRefresh();
+                map.afterRefresh(randomBoolean());
+                current.clear();
+            } else if (randomBoolean()) {
+                VersionValue version = new VersionValue(i);
+                map.putUnderLock(uid(id).bytes(), version);
+                current.put(id, version);
+                tombstones.remove(id);
+            } else {
+                VersionValue version = new DeleteVersionValue(i, randomNonNegativeLong());
+                map.putUnderLock(uid(id).bytes(), version);
+                current.put(id, version);
+                tombstones.put(id, version);
+            }
+        }
+        for (int i = 0; i <= numOps / 4; i++) {
+            String id = Integer.toString(i);
+            VersionValue expected = current.containsKey(id) ? current.get(id) : tombstones.get(id);
+            VersionValue actual = map.getUnderLock(uid(id));
+            if (expected == null) {
+                assertThat(actual, nullValue());
+            } else {
+                assertThat(actual.getVersion(), equalTo(expected.getVersion()));
+                assertThat(actual.isDelete(), equalTo(expected.isDelete()));
+            }
+        }
+        map.clear();
+    }
+
+    public void testRamBytesUsedMatchesArrays() throws Exception {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY,
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        BigArrays bigArrays = new MockBigArrays(Settings.EMPTY, breakerService);
+        PagedLiveVersionMap map = new PagedLiveVersionMap(bigArrays);
+        for (int i = 0; i < 3; i++) {
+            int numDocs = scaledRandomIntBetween(10, 50000);
+            for (int j = 0; j < numDocs; j++) {
+                map.putUnderLock(new BytesRef(randomAlphaOfLengthBetween(10, 20)), new VersionValue(randomNonNegativeLong()));
+            }
+            // without tombstones all the memory is in the arrays
+            assertThat(map.ramBytesUsed(), equalTo(breaker.getUsed()));
+            map.beforeRefresh();
+            assertThat(map.ramBytesUsed(), equalTo(breaker.getUsed()));
+            assertThat(map.ramBytesUsedForRefresh(), equalTo(0L));
+            map.afterRefresh(true);
+            assertThat(map.ramBytesUsed(), equalTo(breaker.getUsed()));
+        }
+        map.clear();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
+    public void testConcurrentPutsAndRefreshes() throws Exception {
+        PagedLiveVersionMap map = new PagedLiveVersionMap(new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()));
+        int numThreads = randomIntBetween(2, 5);
+        int numOpsPerThread = scaledRandomIntBetween(100, 5000);
+        CountDownLatch startGun = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final String prefix = "t" + t + "_";
+            threads[t] = new Thread(() -> {
+                try {
+                    startGun.await();
+                    for (int i = 0; i < numOpsPerThread; i++) {
+                        // each thread owns its ids, like the uid lock of the engine would ensure
+                        Term uid = uid(prefix + i);
+                        map.putUnderLock(uid.bytes(), new VersionValue(i));
+                        VersionValue value = map.getUnderLock(uid);
+                        // the value might have been refreshed away in the meantime
+                        if (value != null) {
+                            assertThat(value.getVersion(), equalTo((long) i));
+                        }
+                    }
+                } catch (Exception | AssertionError e) {
+                    failure.set(e);
+                }
+            });
+            threads[t].start();
+        }
+        startGun.countDown();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                map.beforeRefresh();
+                map.afterRefresh(true);
+            }
+            thread.join();
+        }
+        assertThat(failure.get(), nullValue());
+        map.clear();
+    }
+}
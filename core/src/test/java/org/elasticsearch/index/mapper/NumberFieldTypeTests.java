@@ -61,10 +61,54 @@ public class NumberFieldTypeTests extends FieldTypeTestCase {
     }
 
     public void testIsFieldWithinQuery() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(null));
+        Document doc = new Document();
+        doc.add(type.createFields("field", 10, true, false, false).get(0));
+        w.addDocument(doc);
+        doc = new Document();
+        doc.add(type.createFields("field", 20, true, false, false).get(0));
+        w.addDocument(doc);
+        DirectoryReader reader = DirectoryReader.open(w);
         MappedFieldType ft = createDefaultFieldType();
-        // current impl ignores args and should always return INTERSECTS
-        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(null, randomDouble(), randomDouble(),
+        ft.setName("field");
+        ft.setIndexOptions(IndexOptions.DOCS);
+
+        assertEquals(Relation.WITHIN, ft.isFieldWithinQuery(reader, null, null,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.WITHIN, ft.isFieldWithinQuery(reader, 5, 25,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.WITHIN, ft.isFieldWithinQuery(reader, 10, 20,
+                true, true, null, null, null));
+        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(reader, 10, 20,
+                false, true, null, null, null));
+        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(reader, 10, 20,
+                true, false, null, null, null));
+        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(reader, 15, 30,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(reader, 12, 18,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.DISJOINT, ft.isFieldWithinQuery(reader, 0, 5,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.DISJOINT, ft.isFieldWithinQuery(reader, 25, 30,
+                randomBoolean(), randomBoolean(), null, null, null));
+        assertEquals(Relation.DISJOINT, ft.isFieldWithinQuery(reader, 9, 10,
+                randomBoolean(), false, null, null, null));
+        assertEquals(Relation.DISJOINT, ft.isFieldWithinQuery(reader, 20, 25,
+                false, randomBoolean(), null, null, null));
+
+        // Fields with no value indexed.
+        MappedFieldType ft2 = createDefaultFieldType();
+        ft2.setName("field2");
+        ft2.setIndexOptions(IndexOptions.DOCS);
+        assertEquals(Relation.DISJOINT, ft2.isFieldWithinQuery(reader, 5, 25,
+                randomBoolean(), randomBoolean(), null, null, null));
+
+        // Fields that are not indexed are left to fail at query time
+        ft.setIndexOptions(IndexOptions.NONE);
+        assertEquals(Relation.INTERSECTS, ft.isFieldWithinQuery(reader, 0, 5,
                 randomBoolean(), randomBoolean(), null, null, null));
+        IOUtils.close(reader, w, dir);
     }
 
     public void testIntegerTermsQueryWithDecimalPart() {
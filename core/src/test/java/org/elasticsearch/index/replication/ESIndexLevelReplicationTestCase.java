@@ -93,14 +93,23 @@ public abstract class ESIndexLevelReplicationTestCase extends IndexShardTestCase
     private final Map<String, String> indexMapping = Collections.singletonMap("type", "{ \"type\": {} }");
 
     protected ReplicationGroup createGroup(int replicas) throws IOException {
-        IndexMetaData metaData = buildIndexMetaData(replicas);
+        return createGroup(replicas, Settings.EMPTY);
+    }
+
+    protected ReplicationGroup createGroup(int replicas, Settings indexSettings) throws IOException {
+        IndexMetaData metaData = buildIndexMetaData(replicas, indexSettings);
         return new ReplicationGroup(metaData);
     }
 
     protected IndexMetaData buildIndexMetaData(int replicas) throws IOException {
+        return buildIndexMetaData(replicas, Settings.EMPTY);
+    }
+
+    protected IndexMetaData buildIndexMetaData(int replicas, Settings indexSettings) throws IOException {
         Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
             .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, replicas)
             .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(indexSettings)
             .build();
         IndexMetaData.Builder metaData = IndexMetaData.builder(index.getName())
             .settings(settings)
@@ -29,6 +29,8 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.engine.EngineFactory;
@@ -79,7 +81,10 @@ public class RecoveryDuringReplicationTests extends ESIndexLevelReplicationTestC
     }
 
     public void testRecoveryOfDisconnectedReplica() throws Exception {
-        try (ReplicationGroup shards = createGroup(1)) {
+        final boolean retainTranslog = randomBoolean();
+        final Settings settings = retainTranslog ? Settings.EMPTY :
+            Settings.builder().put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "0b").build();
+        try (ReplicationGroup shards = createGroup(1, settings)) {
             shards.startAll();
             int docs = shards.indexDocs(randomInt(50));
             shards.flush();
@@ -127,11 +132,14 @@ public class RecoveryDuringReplicationTests extends ESIndexLevelReplicationTestC
             final IndexShard recoveredReplica =
                 shards.addReplicaWithExistingPath(originalReplica.shardPath(), originalReplica.routingEntry().currentNodeId());
             shards.recoverReplica(recoveredReplica);
-            if (flushPrimary && replicaHasDocsSinceLastFlushedCheckpoint) {
+            if (flushPrimary && replicaHasDocsSinceLastFlushedCheckpoint && retainTranslog == false) {
                 // replica has something to catch up with, but since we flushed the primary, we should fall back to full recovery
                 assertThat(recoveredReplica.recoveryState().getIndex().fileDetails(), not(empty()));
+                assertThat(recoveredReplica.recoveryState().getMode(), equalTo(RecoveryState.Mode.FILE_BASED));
             } else {
+                // the primary either did not flush or retained the flushed translog generations, so replaying operations is enough
                 assertThat(recoveredReplica.recoveryState().getIndex().fileDetails(), empty());
+                assertThat(recoveredReplica.recoveryState().getMode(), equalTo(RecoveryState.Mode.OPERATIONS_BASED));
                 assertThat(
                     recoveredReplica.recoveryState().getTranslog().recoveredOperations(),
                     equalTo(Math.toIntExact(docs - (replicaCommittedLocalCheckpoint + 1))));
@@ -289,9 +297,10 @@ public class RecoveryDuringReplicationTests extends ESIndexLevelReplicationTestC
                 return new RecoveryTarget(indexShard, node, recoveryListener, l -> {
                 }) {
                     @Override
-                    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException {
+                    public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp,
+                                                         RecoveryState.Mode mode) throws IOException {
                         preparedForTranslog.set(true);
-                        super.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp);
+                        super.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp, mode);
                     }
                 };
             });
@@ -1281,8 +1281,9 @@ public class IndexShardTests extends IndexShardTestCase {
             new RecoveryTarget(shard, discoveryNode, recoveryListener, aLong -> {
             }) {
                 @Override
-                public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException {
-                    super.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp);
+                public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp,
+                                                         RecoveryState.Mode mode) throws IOException {
+                    super.prepareForTranslogOperations(totalTranslogOps, maxUnsafeAutoIdTimestamp, mode);
                     // Shard is still inactive since we haven't started recovering yet
                     assertFalse(replica.isActive());
 
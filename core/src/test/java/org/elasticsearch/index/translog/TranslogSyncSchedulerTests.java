@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TranslogSyncSchedulerTests extends ESTestCase {
+
+    private static class RecordingTarget extends TranslogSyncScheduler.SyncTarget {
+        final List<Translog.Location> synced = new CopyOnWriteArrayList<>();
+        final AtomicInteger rounds = new AtomicInteger();
+        volatile IOException failure;
+
+        @Override
+        protected void ensureSynced(Stream<Translog.Location> locations) throws IOException {
+            rounds.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            synced.addAll(locations.collect(Collectors.toList()));
+        }
+    }
+
+    public void testSyncsAllTargets() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), randomIntBetween(0, 5) + "ms")
+            .put(TranslogSyncScheduler.MAX_BATCH_SIZE_SETTING.getKey(), randomIntBetween(1, 64))
+            .build();
+        try (NodeEnvironment nodeEnv = newNodeEnvironment();
+             TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, nodeEnv)) {
+            final Path dataPath = nodeEnv.nodePaths()[0].path;
+            final RecordingTarget[] targets = new RecordingTarget[randomIntBetween(1, 8)];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = new RecordingTarget();
+            }
+            final int numThreads = randomIntBetween(1, 8);
+            final int syncsPerThread = randomIntBetween(1, 200);
+            final CountDownLatch latch = new CountDownLatch(numThreads * syncsPerThread);
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int thread = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < syncsPerThread; i++) {
+                        final RecordingTarget target = targets[(thread + i) % targets.length];
+                        scheduler.sync(dataPath, target, new Translog.Location(thread, i, 1), e -> {
+                            if (e != null) {
+                                failure.set(e);
+                            }
+                            latch.countDown();
+                        });
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertNull(failure.get());
+            int synced = 0;
+            for (RecordingTarget target : targets) {
+                synced += target.synced.size();
+                assertThat(target.rounds.get(), lessThanOrEqualTo(target.synced.size()));
+                TranslogStats stats = new TranslogStats(0, 0);
+                target.addStats(stats);
+                assertThat(stats.getGroupCommitCount(), equalTo((long) target.rounds.get()));
+            }
+            assertThat(synced, equalTo(numThreads * syncsPerThread));
+        }
+    }
+
+    public void testFailureIsPassedToAllListenersOfTheTarget() throws Exception {
+        try (NodeEnvironment nodeEnv = newNodeEnvironment();
+             TranslogSyncScheduler scheduler = new TranslogSyncScheduler(Settings.EMPTY, nodeEnv)) {
+            final Path dataPath = nodeEnv.nodePaths()[0].path;
+            final RecordingTarget failing = new RecordingTarget();
+            failing.failure = new IOException("boom");
+            final RecordingTarget healthy = new RecordingTarget();
+            final List<Exception> failingResults = new CopyOnWriteArrayList<>();
+            final List<Exception> healthyResults = new CopyOnWriteArrayList<>();
+            final CountDownLatch latch = new CountDownLatch(4);
+            for (int i = 0; i < 2; i++) {
+                scheduler.sync(dataPath, failing, new Translog.Location(1, i, 1), e -> {
+                    failingResults.add(e);
+                    latch.countDown();
+                });
+                scheduler.sync(dataPath, healthy, new Translog.Location(1, i, 1), e -> {
+                    healthyResults.add(e == null ? new Exception("no failure") : e);
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            for (Exception e : failingResults) {
+                assertThat(e, sameInstance(failing.failure));
+            }
+            assertThat(healthyResults.stream().map(Exception::getMessage).collect(Collectors.toList()),
+                containsInAnyOrder("no failure", "no failure"));
+        }
+    }
+
+    public void testBatchSizeIsCountedPerTarget() throws Exception {
+        // the batch is only complete once all four syncs are pending
+        final Settings settings = Settings.builder()
+            .put(TranslogSyncScheduler.MAX_WAIT_SETTING.getKey(), "30s")
+            .put(TranslogSyncScheduler.MAX_BATCH_SIZE_SETTING.getKey(), 4)
+            .build();
+        try (NodeEnvironment nodeEnv = newNodeEnvironment();
+             TranslogSyncScheduler scheduler = new TranslogSyncScheduler(settings, nodeEnv)) {
+            final Path dataPath = nodeEnv.nodePaths()[0].path;
+            final RecordingTarget first = new RecordingTarget();
+            final RecordingTarget second = new RecordingTarget();
+            final CountDownLatch latch = new CountDownLatch(4);
+            for (int i = 0; i < 3; i++) {
+                scheduler.sync(dataPath, first, new Translog.Location(1, i, 1), e -> latch.countDown());
+            }
+            scheduler.sync(dataPath, second, new Translog.Location(1, 0, 1), e -> latch.countDown());
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+            TranslogStats firstStats = new TranslogStats(0, 0);
+            first.addStats(firstStats);
+            assertThat(firstStats.getGroupCommitCount(), equalTo(1L));
+            assertThat(firstStats.getGroupCommitBatchSizes()[TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 3)],
+                equalTo(1L));
+            TranslogStats secondStats = new TranslogStats(0, 0);
+            second.addStats(secondStats);
+            assertThat(secondStats.getGroupCommitCount(), equalTo(1L));
+            assertThat(secondStats.getGroupCommitBatchSizes()[TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 1)],
+                equalTo(1L));
+        }
+    }
+
+    public void testCloseFailsQueuedSyncs() throws Exception {
+        try (NodeEnvironment nodeEnv = newNodeEnvironment()) {
+            final TranslogSyncScheduler scheduler = new TranslogSyncScheduler(Settings.EMPTY, nodeEnv);
+            final Path dataPath = nodeEnv.nodePaths()[0].path;
+            final CountDownLatch syncing = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final RecordingTarget blocking = new RecordingTarget() {
+                @Override
+                protected void ensureSynced(Stream<Translog.Location> locations) throws IOException {
+                    syncing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                    super.ensureSynced(locations);
+                }
+            };
+            final AtomicReference<Exception> inFlightResult = new AtomicReference<>(new Exception("not notified"));
+            scheduler.sync(dataPath, blocking, new Translog.Location(1, 0, 1), inFlightResult::set);
+            assertTrue(syncing.await(30, TimeUnit.SECONDS));
+
+            final int numQueued = randomIntBetween(1, 10);
+            final List<Exception> queuedResults = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < numQueued; i++) {
+                scheduler.sync(dataPath, new RecordingTarget(), new Translog.Location(1, i, 1), queuedResults::add);
+            }
+
+            final Thread closeThread = new Thread(() -> {
+                try {
+                    scheduler.close();
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            closeThread.start();
+            // wait for close to join the committer so that the queued syncs are not committed anymore
+            assertBusy(() -> assertThat(closeThread.getState(), equalTo(Thread.State.WAITING)));
+            release.countDown();
+            closeThread.join();
+
+            assertNull(inFlightResult.get());
+            assertThat(queuedResults.size(), equalTo(numQueued));
+            for (Exception e : queuedResults) {
+                assertThat(e, instanceOf(AlreadyClosedException.class));
+            }
+        }
+    }
+
+    public void testSyncAfterClose() throws Exception {
+        try (NodeEnvironment nodeEnv = newNodeEnvironment()) {
+            TranslogSyncScheduler scheduler = new TranslogSyncScheduler(Settings.EMPTY, nodeEnv);
+            scheduler.close();
+            AtomicReference<Exception> result = new AtomicReference<>();
+            scheduler.sync(nodeEnv.nodePaths()[0].path, new RecordingTarget(), new Translog.Location(1, 0, 1), result::set);
+            assertThat(result.get(), instanceOf(AlreadyClosedException.class));
+        }
+    }
+
+    public void testHistogramBuckets() {
+        assertThat(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 1), equalTo(0));
+        assertThat(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 3), equalTo(2));
+        assertThat(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 4), equalTo(2));
+        assertThat(TranslogStats.bucket(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS, 100000),
+            equalTo(TranslogStats.GROUP_COMMIT_BATCH_SIZE_BOUNDS.length));
+    }
+}
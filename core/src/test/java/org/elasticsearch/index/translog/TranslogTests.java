@@ -75,6 +75,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
@@ -163,6 +164,8 @@ public class TranslogTests extends ESTestCase {
         final Settings settings = Settings
                 .builder()
                 .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                // don't retain committed generations so that tests can check that they are cleaned up
+                .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "0b")
                 .build();
         return getTranslogConfig(path, settings);
     }
@@ -429,6 +432,56 @@ public class TranslogTests extends ESTestCase {
         assertThat(snapshot1.totalOperations(), equalTo(1));
     }
 
+    public void testMappedSnapshot() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_READS_SETTING.getKey(), true)
+            .build();
+        final ArrayList<Translog.Operation> ops = new ArrayList<>();
+        try (Translog mappedTranslog = new Translog(getTranslogConfig(createTempDir(), settings), null,
+                () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+            final int generations = randomIntBetween(1, 4);
+            int id = 0;
+            for (int gen = 0; gen < generations; gen++) {
+                final int numOps = randomIntBetween(0, 32);
+                for (int i = 0; i < numOps; i++) {
+                    final String docId = Integer.toString(id++);
+                    if (randomBoolean()) {
+                        addToTranslogAndList(mappedTranslog, ops,
+                            new Translog.Index("test", docId, randomAlphaOfLength(randomIntBetween(1, 2048)).getBytes(StandardCharsets.UTF_8)));
+                    } else {
+                        addToTranslogAndList(mappedTranslog, ops, new Translog.Delete(newUid(docId)));
+                    }
+                }
+                mappedTranslog.rollGeneration();
+            }
+            // the operations of the current generation are read through the channel, the ones of older generations from the mapping
+            addToTranslogAndList(mappedTranslog, ops, new Translog.Index("test", Integer.toString(id), new byte[]{1}));
+            assertThat(mappedTranslog.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+            assertThat(mappedTranslog.newSnapshot(), SnapshotMatchers.equalsTo(ops));
+        }
+    }
+
+    public void testMappedSnapshotOfClosedTranslog() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_READS_SETTING.getKey(), true)
+            .build();
+        final Translog mappedTranslog = new Translog(getTranslogConfig(createTempDir(), settings), null,
+            () -> SequenceNumbersService.UNASSIGNED_SEQ_NO);
+        // at least two operations, so that there is one left to read after closing
+        final int numOps = randomIntBetween(2, 32);
+        for (int i = 0; i < numOps; i++) {
+            mappedTranslog.add(new Translog.Index("test", Integer.toString(i), new byte[]{1}));
+        }
+        mappedTranslog.rollGeneration();
+        final Translog.Snapshot snapshot = mappedTranslog.newSnapshot();
+        assertNotNull(snapshot.next());
+        // closing the translog closes its readers, which unmap their generations
+        mappedTranslog.close();
+        expectThrows(AlreadyClosedException.class, snapshot::next);
+    }
+
     public void testSnapshotWithNewTranslog() throws IOException {
         ArrayList<Translog.Operation> ops = new ArrayList<>();
         Translog.Snapshot snapshot = translog.newSnapshot();
@@ -2178,4 +2231,76 @@ public class TranslogTests extends ESTestCase {
 
     }
 
+    public void testRetainCommittedGenerations() throws IOException {
+        final Path path = createTempDir();
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), "1gb")
+            .build();
+        final TranslogConfig config = getTranslogConfig(path, settings);
+        final int committedOperations = randomIntBetween(1, 128);
+        final int uncommittedOperations = randomIntBetween(0, 128);
+        final long committedGeneration;
+        final Translog.TranslogGeneration translogGeneration;
+        try (Translog translog = new Translog(config, null, () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+            committedGeneration = translog.currentFileGeneration();
+            int seqNo = 0;
+            for (int i = 0; i < committedOperations; i++) {
+                translog.add(new Translog.NoOp(seqNo++, 0, "test"));
+            }
+            translog.commit();
+            for (int i = 0; i < uncommittedOperations; i++) {
+                translog.add(new Translog.NoOp(seqNo++, 0, "test"));
+            }
+            assertFileIsPresent(translog, committedGeneration);
+            assertThat(translog.totalOperations(), equalTo(uncommittedOperations));
+            assertThat(translog.newSnapshot().totalOperations(), equalTo(uncommittedOperations));
+            try (Translog.View view = translog.newView()) {
+                assertThat(view.minTranslogGeneration(), equalTo(committedGeneration));
+                assertThat(view.totalOperations(), equalTo(committedOperations + uncommittedOperations));
+                assertThat(view.snapshot().totalOperations(), equalTo(committedOperations + uncommittedOperations));
+                assertThat(view.totalOperations(committedGeneration + 1), equalTo(uncommittedOperations));
+                assertThat(view.snapshot(committedGeneration + 1).totalOperations(), equalTo(uncommittedOperations));
+            }
+            translogGeneration = translog.getGeneration();
+        }
+
+        // retained generations are picked up again when the translog is reopened
+        try (Translog translog = new Translog(config, translogGeneration, () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+            assertFileIsPresent(translog, committedGeneration);
+            assertThat(translog.newSnapshot().totalOperations(), equalTo(uncommittedOperations));
+            try (Translog.View view = translog.newView()) {
+                assertThat(view.minTranslogGeneration(), equalTo(committedGeneration));
+                assertThat(view.totalOperations(), equalTo(committedOperations + uncommittedOperations));
+            }
+        }
+
+        // and trimmed if they no longer fit within the retention policy
+        final String retentionSetting = randomBoolean() ? IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey()
+            : IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING.getKey();
+        final Settings noRetention = Settings.builder().put(settings).put(retentionSetting, "0").build();
+        try (Translog translog = new Translog(getTranslogConfig(path, noRetention), translogGeneration,
+            () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+            assertFileDeleted(translog, committedGeneration);
+            try (Translog.View view = translog.newView()) {
+                assertThat(view.minTranslogGeneration(), equalTo(translogGeneration.translogFileGeneration));
+                assertThat(view.totalOperations(), equalTo(uncommittedOperations));
+            }
+        }
+    }
+
+    public void testViewRetainsGenerationsBeyondRetention() throws IOException {
+        final int committedOperations = randomIntBetween(1, 128);
+        for (int i = 0; i < committedOperations; i++) {
+            translog.add(new Translog.NoOp(i, 0, "test"));
+        }
+        final long committedGeneration = translog.currentFileGeneration();
+        try (Translog.View view = translog.newView()) {
+            translog.commit();
+            assertFileIsPresent(translog, committedGeneration);
+            assertThat(view.totalOperations(), equalTo(committedOperations));
+        }
+        assertFileDeleted(translog, committedGeneration);
+    }
+
 }
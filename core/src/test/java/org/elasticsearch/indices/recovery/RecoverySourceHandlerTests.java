@@ -369,6 +369,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         when(shard.segmentStats(anyBoolean())).thenReturn(mock(SegmentsStats.class));
         final Translog.View translogView = mock(Translog.View.class);
         when(shard.acquireTranslogView()).thenReturn(translogView);
+        when(shard.acquireIndexCommit(anyBoolean())).thenReturn(mock(IndexCommit.class));
         when(shard.state()).thenReturn(IndexShardState.RELOCATED);
         final AtomicBoolean phase1Called = new AtomicBoolean();
         final AtomicBoolean prepareTargetForTranslogCalled = new AtomicBoolean();
@@ -393,7 +394,10 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             }
 
             @Override
-            void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp) throws IOException {
+            void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp, final RecoveryState.Mode mode)
+                    throws IOException {
+                assertThat(mode, equalTo(isTranslogReadyForSequenceNumberBasedRecovery ?
+                    RecoveryState.Mode.OPERATIONS_BASED : RecoveryState.Mode.FILE_BASED));
                 prepareTargetForTranslogCalled.set(true);
             }
 
@@ -435,6 +439,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         when(shard.segmentStats(anyBoolean())).thenReturn(mock(SegmentsStats.class));
         final Translog.View translogView = mock(Translog.View.class);
         when(shard.acquireTranslogView()).thenReturn(translogView);
+        when(shard.acquireIndexCommit(anyBoolean())).thenReturn(mock(IndexCommit.class));
         when(shard.state()).then(i -> relocated.get() ? IndexShardState.RELOCATED : IndexShardState.STARTED);
         doAnswer(i -> {
             relocated.set(true);
@@ -483,7 +488,10 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             }
 
             @Override
-            void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp) throws IOException {
+            void prepareTargetForTranslog(final int totalTranslogOps, final long maxUnsafeAutoIdTimestamp, final RecoveryState.Mode mode)
+                    throws IOException {
+                assertThat(mode, equalTo(isTranslogReadyForSequenceNumberBasedRecovery ?
+                    RecoveryState.Mode.OPERATIONS_BASED : RecoveryState.Mode.FILE_BASED));
                 prepareTargetForTranslogCalled.set(true);
             }
 
@@ -381,6 +381,38 @@ public class RecoveryTargetTests extends ESTestCase {
         assertThat(state.getStage(), equalTo(Stage.DONE));
     }
 
+    public void testMode() throws IOException {
+        final DiscoveryNode discoveryNode = new DiscoveryNode("1", buildNewFakeTransportAddress(), emptyMap(), emptySet(),
+            Version.CURRENT);
+        ShardRouting shardRouting = TestShardRouting.newShardRouting(new ShardId("bla", "_na_", 0), discoveryNode.getId(),
+            false, ShardRoutingState.INITIALIZING);
+        RecoveryState state = new RecoveryState(shardRouting, discoveryNode, discoveryNode);
+        assertThat(state.getMode(), equalTo(RecoveryState.Mode.FILE_BASED));
+        state.setMode(RecoveryState.Mode.OPERATIONS_BASED);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        state.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        assertThat(RecoveryState.readRecoveryState(in).getMode(), equalTo(RecoveryState.Mode.OPERATIONS_BASED));
+
+        // older nodes don't know about the mode
+        out = new BytesStreamOutput();
+        out.setVersion(Version.V_5_0_0);
+        state.writeTo(out);
+        in = out.bytes().streamInput();
+        in.setVersion(Version.V_5_0_0);
+        assertThat(RecoveryState.readRecoveryState(in).getMode(), equalTo(RecoveryState.Mode.FILE_BASED));
+
+        // a restarted recovery has to determine its mode again
+        state.setStage(Stage.INIT);
+        assertThat(state.getMode(), equalTo(RecoveryState.Mode.FILE_BASED));
+
+        for (RecoveryState.Mode mode : RecoveryState.Mode.values()) {
+            assertThat(RecoveryState.Mode.fromId(mode.id()), equalTo(mode));
+        }
+        expectThrows(IllegalArgumentException.class, () -> RecoveryState.Mode.fromId((byte) 2));
+    }
+
     public void testTranslog() throws Throwable {
         final Translog translog = new Translog();
         AtomicBoolean stop = new AtomicBoolean();
@@ -382,6 +382,23 @@ public class IndexStatsIT extends ESIntegTestCase {
         logger.info("test: test done");
     }
 
+    public void testAppendOnlyIndexStats() throws Exception {
+        createIndex("test");
+        ensureGreen();
+
+        int numDocs = randomIntBetween(1, 20);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type").setSource("field", "value").get();
+        }
+        client().prepareIndex("test", "type", "id").setSource("field", "value").get();
+
+        NumShards test = getNumShards("test");
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("test").setIndexing(true).get();
+        assertThat(stats.getPrimaries().getIndexing().getTotal().getIndexCount(), equalTo(numDocs + 1L));
+        assertThat(stats.getPrimaries().getIndexing().getTotal().getAppendOnlyIndexCount(), equalTo((long) numDocs));
+        assertThat(stats.getTotal().getIndexing().getTotal().getAppendOnlyIndexCount(), equalTo((long) numDocs * test.dataCopies));
+    }
+
     public void testSimpleStats() throws Exception {
         createIndex("test1", "test2");
         ensureGreen();
@@ -402,6 +419,7 @@ public class IndexStatsIT extends ESIntegTestCase {
         assertThat(stats.getTotal().getDocs().getCount(), equalTo(totalExpectedWrites));
         assertThat(stats.getPrimaries().getIndexing().getTotal().getIndexCount(), equalTo(3L));
         assertThat(stats.getPrimaries().getIndexing().getTotal().getIndexFailedCount(), equalTo(0L));
+        assertThat(stats.getPrimaries().getIndexing().getTotal().getAppendOnlyIndexCount(), equalTo(0L));
         assertThat(stats.getPrimaries().getIndexing().getTotal().isThrottled(), equalTo(false));
         assertThat(stats.getPrimaries().getIndexing().getTotal().getThrottleTime().millis(), equalTo(0L));
         assertThat(stats.getTotal().getIndexing().getTotal().getIndexCount(), equalTo(totalExpectedWrites));
@@ -0,0 +1,161 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ClusterServiceUtils;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    private ThreadPool threadpool;
+    private ClusterService clusterService;
+    private ResponseCollectorService collector;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        threadpool = new TestThreadPool("response_collector_tests");
+        clusterService = ClusterServiceUtils.createClusterService(threadpool);
+        collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        clusterService.close();
+        terminate(threadpool);
+    }
+
+    public void testNodeStats() throws Exception {
+        collector.addNodeStatistics("node1", 1, 100, 10);
+        Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        assertTrue(nodeStats.containsKey("node1"));
+        assertThat(nodeStats.get("node1").queueSize, equalTo(1));
+        assertThat(nodeStats.get("node1").responseTime, equalTo(100.0));
+        assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
+
+        Optional<ResponseCollectorService.ComputedNodeStats> stats = collector.getNodeStatistics("node1");
+        assertTrue(stats.isPresent());
+        assertFalse(collector.getNodeStatistics("node2").isPresent());
+    }
+
+    /*
+     * Test that concurrently adding values and removing nodes does not cause exceptions
+     */
+    public void testConcurrentAddingAndRemoving() throws Exception {
+        String[] nodes = new String[] {"a", "b", "c", "d"};
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Runnable f = () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                fail("should not be interrupted");
+            }
+            for (int i = 0; i < randomIntBetween(100, 200); i++) {
+                if (randomBoolean()) {
+                    collector.removeNode(randomFrom(nodes));
+                }
+                collector.addNodeStatistics(randomFrom(nodes), randomIntBetween(1, 100), randomIntBetween(1, 100),
+                    randomIntBetween(1, 100));
+            }
+        };
+
+        Thread t1 = new Thread(f);
+        Thread t2 = new Thread(f);
+        Thread t3 = new Thread(f);
+        Thread t4 = new Thread(f);
+
+        t1.start();
+        t2.start();
+        t3.start();
+        t4.start();
+        latch.countDown();
+        t1.join();
+        t2.join();
+        t3.join();
+        t4.join();
+
+        final Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        logger.info("--> got stats: {}", nodeStats);
+        for (String nodeId : nodes) {
+            if (nodeStats.containsKey(nodeId)) {
+                assertThat(nodeStats.get(nodeId).queueSize, greaterThan(0));
+                assertThat(nodeStats.get(nodeId).responseTime, greaterThan(0.0));
+                assertThat(nodeStats.get(nodeId).serviceTime, greaterThan(0.0));
+            }
+        }
+    }
+
+    public void testNodeRemoval() throws Exception {
+        collector.addNodeStatistics("node1", 1, 2, 3);
+        collector.addNodeStatistics("node2", 4, 5, 6);
+        assertThat(collector.getAllNodeStatistics().size(), equalTo(2));
+
+        final DiscoveryNode node1 = new DiscoveryNode("node1", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        final DiscoveryNode node2 = new DiscoveryNode("node2", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        final ClusterState previousState = ClusterState.builder(new ClusterName("cluster"))
+            .nodes(DiscoveryNodes.builder().add(node1).add(node2).localNodeId("node1").masterNodeId("node1")).build();
+        final ClusterState newState = ClusterState.builder(new ClusterName("cluster"))
+            .nodes(DiscoveryNodes.builder().add(node1).localNodeId("node1").masterNodeId("node1")).build();
+
+        collector.clusterChanged(new ClusterChangedEvent("test", newState, previousState));
+        assertThat(collector.getAllNodeStatistics().size(), equalTo(1));
+        assertFalse(collector.getNodeStatistics("node2").isPresent());
+    }
+
+    public void testRanking() {
+        // a node with a long queue and a slow service time ranks worse
+        ResponseCollectorService.ComputedNodeStats fast = new ResponseCollectorService.ComputedNodeStats("fast", 2, 0, 5e6, 2e6);
+        ResponseCollectorService.ComputedNodeStats slow = new ResponseCollectorService.ComputedNodeStats("slow", 2, 10, 150e6, 50e6);
+        assertThat(fast.rank(1), lessThan(slow.rank(1)));
+
+        // outstanding requests make a node look busier
+        assertThat(fast.rank(1), lessThan(fast.rank(10)));
+
+        // the same queue with a faster service time ranks better
+        ResponseCollectorService.ComputedNodeStats quick = new ResponseCollectorService.ComputedNodeStats("quick", 2, 5, 10e6, 1e6);
+        ResponseCollectorService.ComputedNodeStats sluggish = new ResponseCollectorService.ComputedNodeStats("sluggish", 2, 5, 10e6, 4e6);
+        assertThat(quick.rank(1), lessThan(sluggish.rank(1)));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+
+public class ConcurrentSegmentSearchIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singletonList(InternalSettingsPlugin.class); // uses index.merge.enabled
+    }
+
+    private void indexDocs() throws Exception {
+        assertAcked(prepareCreate("test")
+            // a single copy without merges so that both searches see the same segments and break ties the same way
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false))
+            .addMapping("type", "keyword", "type=keyword", "number", "type=long", "date", "type=date"));
+        // index in batches so that shards have several segments to search concurrently
+        final int numBatches = randomIntBetween(2, 8);
+        for (int batch = 0; batch < numBatches; batch++) {
+            List<IndexRequestBuilder> builders = new ArrayList<>();
+            final int numDocs = randomIntBetween(10, 50);
+            for (int i = 0; i < numDocs; i++) {
+                builders.add(client().prepareIndex("test", "type").setSource(
+                    "keyword", randomFrom("a", "b", "c", "d"),
+                    "number", randomIntBetween(0, 100),
+                    "date", randomIntBetween(0, 10) * 86400000L,
+                    "text", randomFrom("quick", "brown", "fox") + " " + randomFrom("jumps", "over", "dog")));
+            }
+            indexRandom(true, false, builders);
+        }
+    }
+
+    private void assertSameResponses(Function<SearchRequestBuilder, SearchRequestBuilder> request) throws IOException {
+        SearchResponse sequential = request.apply(client().prepareSearch("test").setConcurrentSegmentSearch(false)).get();
+        SearchResponse concurrent = request.apply(client().prepareSearch("test").setConcurrentSegmentSearch(true)).get();
+        assertSearchResponse(sequential);
+        assertSearchResponse(concurrent);
+        assertEquals(sequential.getHits().getTotalHits(), concurrent.getHits().getTotalHits());
+        assertEquals(sequential.getHits().getHits().length, concurrent.getHits().getHits().length);
+        for (int i = 0; i < sequential.getHits().getHits().length; i++) {
+            SearchHit expected = sequential.getHits().getHits()[i];
+            SearchHit actual = concurrent.getHits().getHits()[i];
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getScore(), actual.getScore(), 0f);
+        }
+        assertEquals(aggregationsToString(sequential), aggregationsToString(concurrent));
+    }
+
+    private static String aggregationsToString(SearchResponse response) throws IOException {
+        if (response.getAggregations() == null) {
+            return null;
+        }
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        ((InternalAggregations) response.getAggregations()).toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.endObject().string();
+    }
+
+    public void testSameResultsAsSequentialSearch() throws Exception {
+        indexDocs();
+        final QueryBuilder query = randomFrom(QueryBuilders.matchAllQuery(), QueryBuilders.matchQuery("text", "quick dog"),
+            QueryBuilders.rangeQuery("number").gte(20));
+        final int size = randomIntBetween(0, 30);
+        final SortOrder order = randomFrom(SortOrder.values());
+
+        assertSameResponses(r -> r.setQuery(query).setSize(size));
+        assertSameResponses(r -> r.setQuery(query).setSize(size).addSort("number", order));
+        assertSameResponses(r -> r.setQuery(query).setSize(size).setPostFilter(QueryBuilders.termQuery("keyword", "a")));
+        assertSameResponses(r -> r.setQuery(query).setSize(size)
+            .addAggregation(AggregationBuilders.stats("stats").field("number"))
+            .addAggregation(AggregationBuilders.cardinality("cardinality").field("keyword"))
+            .addAggregation(AggregationBuilders.histogram("histo").field("number").interval(10)
+                .subAggregation(AggregationBuilders.max("max").field("number")))
+            .addAggregation(AggregationBuilders.dateHistogram("date_histo").field("date").dateHistogramInterval(DateHistogramInterval.DAY))
+            .addAggregation(AggregationBuilders.filter("filter", QueryBuilders.termQuery("keyword", "b"))
+                .subAggregation(AggregationBuilders.range("range").field("number").addUnboundedTo(50).addUnboundedFrom(50)))
+            .addAggregation(AggregationBuilders.global("global").subAggregation(AggregationBuilders.avg("avg").field("number"))));
+        // terms aggregations can't be merged exactly and fall back to a sequential search
+        assertSameResponses(r -> r.setQuery(query).setSize(size)
+            .addAggregation(AggregationBuilders.terms("terms").field("keyword")
+                .subAggregation(AggregationBuilders.sum("sum").field("number"))));
+    }
+
+    public void testIndexSetting() throws Exception {
+        indexDocs();
+        SearchResponse sequential = client().prepareSearch("test").setSize(20).addSort("number", SortOrder.ASC)
+            .addAggregation(AggregationBuilders.stats("stats").field("number")).get();
+        assertAcked(client().admin().indices().prepareUpdateSettings("test")
+            .setSettings(Settings.builder().put(IndexSettings.INDEX_CONCURRENT_SEGMENT_SEARCH_SETTING.getKey(), true)));
+        SearchResponse concurrent = client().prepareSearch("test").setSize(20).addSort("number", SortOrder.ASC)
+            .addAggregation(AggregationBuilders.stats("stats").field("number")).get();
+        assertSearchResponse(sequential);
+        assertSearchResponse(concurrent);
+        assertEquals(sequential.getHits().getTotalHits(), concurrent.getHits().getTotalHits());
+        for (int i = 0; i < sequential.getHits().getHits().length; i++) {
+            assertEquals(sequential.getHits().getHits()[i].getId(), concurrent.getHits().getHits()[i].getId());
+        }
+        assertEquals(aggregationsToString(sequential), aggregationsToString(concurrent));
+    }
+
+    public void testTrackTotalHitsDisabled() throws Exception {
+        indexDocs();
+        final int size = randomIntBetween(1, 10);
+        // the early termination of the sequential search still applies when the total hits are not tracked
+        SearchResponse response = client().prepareSearch("test").setConcurrentSegmentSearch(true)
+            .setQuery(QueryBuilders.matchAllQuery()).setSize(size).setTrackTotalHits(false).get();
+        assertSearchResponse(response);
+        assertEquals(size, response.getHits().getHits().length);
+        assertEquals(Boolean.TRUE, response.isTerminatedEarly());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class PointRangeCounterTests extends ESTestCase {
+
+    public void testQueryBounds() {
+        assertArrayEquals(new long[] {Long.MIN_VALUE, Long.MAX_VALUE}, PointRangeCounter.queryBounds(new MatchAllDocsQuery(), "f"));
+        Query range = LongPoint.newRangeQuery("f", 3, 7);
+        assertArrayEquals(new long[] {3, 7}, PointRangeCounter.queryBounds(range, "f"));
+        assertArrayEquals(new long[] {3, 7}, PointRangeCounter.queryBounds(new BoostQuery(new ConstantScoreQuery(range), 2f), "f"));
+        assertArrayEquals(new long[] {3, 7}, PointRangeCounter.queryBounds(
+            new IndexOrDocValuesQuery(range, SortedNumericDocValuesField.newRangeQuery("f", 3, 7)), "f"));
+        assertNull(PointRangeCounter.queryBounds(range, "g"));
+        assertNull(PointRangeCounter.queryBounds(new TermQuery(new Term("f", "3")), "f"));
+        assertNull(PointRangeCounter.queryBounds(null, "f"));
+
+        BooleanQuery.Builder conjunction = new BooleanQuery.Builder();
+        conjunction.add(range, Occur.MUST);
+        conjunction.add(LongPoint.newRangeQuery("f", 5, 10), Occur.FILTER);
+        conjunction.add(new MatchAllDocsQuery(), Occur.FILTER);
+        assertArrayEquals(new long[] {5, 7}, PointRangeCounter.queryBounds(conjunction.build(), "f"));
+
+        BooleanQuery.Builder disjunction = new BooleanQuery.Builder();
+        disjunction.add(range, Occur.MUST);
+        disjunction.add(LongPoint.newRangeQuery("f", 5, 10), Occur.SHOULD);
+        assertNull(PointRangeCounter.queryBounds(disjunction.build(), "f"));
+
+        BooleanQuery.Builder exclusion = new BooleanQuery.Builder();
+        exclusion.add(range, Occur.MUST);
+        exclusion.add(LongPoint.newRangeQuery("f", 5, 10), Occur.MUST_NOT);
+        assertNull(PointRangeCounter.queryBounds(exclusion.build(), "f"));
+
+        assertNull(PointRangeCounter.queryBounds(new BooleanQuery.Builder().build(), "f"));
+    }
+
+    public void testCount() throws IOException {
+        final long[] values = new long[randomIntBetween(1, 5000)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = randomLongBetween(-1000, 1000);
+        }
+        final long queryMin = randomLongBetween(-1100, 1100);
+        final long queryMax = randomLongBetween(queryMin, 1100);
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+                for (long value : values) {
+                    Document document = new Document();
+                    document.add(new LongPoint("f", value));
+                    writer.addDocument(document);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                final PointRangeCounter counter = new PointRangeCounter("f", queryMin, queryMax);
+                final long from = randomLongBetween(-1100, 1100);
+                final long to = randomLongBetween(from, 1100);
+                int count = 0;
+                for (LeafReaderContext ctx : reader.leaves()) {
+                    final PointValues points = counter.pointValues(ctx);
+                    assertNotNull(points);
+                    count += counter.count(points, from, to);
+                }
+                int expected = 0;
+                for (long value : values) {
+                    if (value >= Math.max(from, queryMin) && value <= Math.min(to, queryMax)) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, count);
+            }
+        }
+    }
+
+    public void testMultiValuedSegmentsAreCollected() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                document.add(new LongPoint("f", 1));
+                document.add(new LongPoint("f", 2));
+                writer.addDocument(document);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                final PointRangeCounter counter = new PointRangeCounter("f", Long.MIN_VALUE, Long.MAX_VALUE);
+                assertNull(counter.pointValues(reader.leaves().get(0)));
+                assertNull(new PointRangeCounter("g", Long.MIN_VALUE, Long.MAX_VALUE).pointValues(reader.leaves().get(0)));
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.FieldValueQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.mockito.Mockito.when;
+
+public class CompositeAggregatorTests extends AggregatorTestCase {
+    private static final MappedFieldType[] FIELD_TYPES;
+    static {
+        MappedFieldType keyword = new KeywordFieldMapper.KeywordFieldType();
+        keyword.setName("keyword");
+        keyword.setHasDocValues(true);
+        keyword.setIndexOptions(IndexOptions.DOCS);
+        MappedFieldType longField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        longField.setName("long");
+        MappedFieldType doubleField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        doubleField.setName("double");
+        DateFieldMapper.Builder builder = new DateFieldMapper.Builder("date");
+        MappedFieldType dateField = builder.fieldType();
+        dateField.setName("date");
+        FIELD_TYPES = new MappedFieldType[] {keyword, longField, doubleField, dateField};
+    }
+
+    /**
+     * The query returned by the mocked {@link SearchContext}, the composite aggregation can only
+     * terminate the collection early when this query matches all documents.
+     */
+    private Query contextQuery;
+
+    @Override
+    protected SearchContext createSearchContext(IndexSearcher indexSearcher, IndexSettings indexSettings) {
+        SearchContext searchContext = super.createSearchContext(indexSearcher, indexSettings);
+        when(searchContext.query()).thenReturn(contextQuery);
+        return searchContext;
+    }
+
+    public void testWithKeyword() throws Exception {
+        final List<Map<String, List<Object>>> dataset = Arrays.asList(
+            createDocument("keyword", "a"),
+            createDocument("keyword", "c"),
+            createDocument("keyword", "a"),
+            createDocument("keyword", "d"),
+            createDocument("keyword", "c")
+        );
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword"))),
+                (result) -> {
+                    assertEquals(3, result.getBuckets().size());
+                    assertEquals("{keyword=a}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                    assertEquals("{keyword=c}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(1).getDocCount());
+                    assertEquals("{keyword=d}", result.getBuckets().get(2).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(2).getDocCount());
+                    assertEquals(Collections.singletonMap("keyword", "d"), result.afterKey());
+                }
+            );
+
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .aggregateAfter(Collections.singletonMap("keyword", "a")),
+                (result) -> {
+                    assertEquals(2, result.getBuckets().size());
+                    assertEquals("{keyword=c}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                    assertEquals("{keyword=d}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                }
+            );
+
+            // the after key does not need to exist in the index
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .aggregateAfter(Collections.singletonMap("keyword", "b")),
+                (result) -> {
+                    assertEquals(2, result.getBuckets().size());
+                    assertEquals("{keyword=c}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals("{keyword=d}", result.getBuckets().get(1).getKeyAsString());
+                }
+            );
+        }
+    }
+
+    public void testWithKeywordDesc() throws Exception {
+        final List<Map<String, List<Object>>> dataset = Arrays.asList(
+            createDocument("keyword", "a"),
+            createDocument("keyword", "c"),
+            createDocument("keyword", "a"),
+            createDocument("keyword", "d"),
+            createDocument("keyword", "c")
+        );
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword").order(SortOrder.DESC)))
+                    .aggregateAfter(Collections.singletonMap("keyword", "c")),
+                (result) -> {
+                    assertEquals(1, result.getBuckets().size());
+                    assertEquals("{keyword=a}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                }
+            );
+        }
+    }
+
+    public void testMultiValuedWithKeywordAndLong() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        dataset.add(createDocument("keyword", Arrays.asList("a", "b"), "long", Arrays.asList(100L, 0L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("c"), "long", Collections.singletonList(100L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("a"), "long", Collections.singletonList(0L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("d"), "long", Arrays.asList(10L, 100L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("c"), "long", Collections.emptyList()));
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Arrays.asList(
+                        new TermsValuesSourceBuilder("keyword").field("keyword"),
+                        new TermsValuesSourceBuilder("long").field("long")
+                    )).size(4),
+                (result) -> {
+                    assertEquals(4, result.getBuckets().size());
+                    assertEquals("{keyword=a, long=0}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                    assertEquals("{keyword=a, long=100}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                    assertEquals("{keyword=b, long=0}", result.getBuckets().get(2).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(2).getDocCount());
+                    assertEquals("{keyword=b, long=100}", result.getBuckets().get(3).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(3).getDocCount());
+                }
+            );
+
+            Map<String, Object> after = new HashMap<>();
+            after.put("keyword", "b");
+            after.put("long", 100L);
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Arrays.asList(
+                        new TermsValuesSourceBuilder("keyword").field("keyword"),
+                        new TermsValuesSourceBuilder("long").field("long")
+                    )).aggregateAfter(after),
+                (result) -> {
+                    assertEquals(3, result.getBuckets().size());
+                    assertEquals("{keyword=c, long=100}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(0).getDocCount());
+                    assertEquals("{keyword=d, long=10}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                    assertEquals("{keyword=d, long=100}", result.getBuckets().get(2).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(2).getDocCount());
+                }
+            );
+        }
+    }
+
+    public void testWithKeywordAndMaxSubAggregation() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        dataset.add(createDocument("keyword", Collections.singletonList("a"), "long", Collections.singletonList(5L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("c"), "long", Collections.singletonList(100L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("a"), "long", Collections.singletonList(20L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("d"), "long", Collections.singletonList(10L)));
+        dataset.add(createDocument("keyword", Collections.singletonList("b"), "long", Collections.singletonList(7L)));
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .size(2)
+                    .subAggregation(new MaxAggregationBuilder("max").field("long")),
+                (result) -> {
+                    assertEquals(2, result.getBuckets().size());
+                    assertEquals("{keyword=a}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                    InternalMax max = result.getBuckets().get(0).getAggregations().get("max");
+                    assertEquals(20.0, max.getValue(), 0d);
+                    assertEquals("{keyword=b}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                    max = result.getBuckets().get(1).getAggregations().get("max");
+                    assertEquals(7.0, max.getValue(), 0d);
+                }
+            );
+        }
+    }
+
+    public void testWithDateHistogram() throws Exception {
+        final List<Map<String, List<Object>>> dataset = Arrays.asList(
+            createDocument("date", asLong("2017-10-20T03:08:45")),
+            createDocument("date", asLong("2016-09-20T09:00:34")),
+            createDocument("date", asLong("2016-09-20T11:34:00")),
+            createDocument("date", asLong("2017-10-20T06:09:24")),
+            createDocument("date", asLong("2017-10-19T06:09:24")),
+            createDocument("long", 4L)
+        );
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new DateHistogramValuesSourceBuilder("date").field("date")
+                        .dateHistogramInterval(DateHistogramInterval.days(1)))),
+                (result) -> {
+                    assertEquals(3, result.getBuckets().size());
+                    assertEquals(Collections.singletonMap("date", asLong("2016-09-20T00:00:00")),
+                        result.getBuckets().get(0).getKey());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                    assertEquals(Collections.singletonMap("date", asLong("2017-10-19T00:00:00")),
+                        result.getBuckets().get(1).getKey());
+                    assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                    assertEquals(Collections.singletonMap("date", asLong("2017-10-20T00:00:00")),
+                        result.getBuckets().get(2).getKey());
+                    assertEquals(2L, result.getBuckets().get(2).getDocCount());
+                }
+            );
+
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new DateHistogramValuesSourceBuilder("date").field("date")
+                        .dateHistogramInterval(DateHistogramInterval.days(1))
+                        .timeZone(DateTimeZone.UTC)
+                        .format("yyyy-MM-dd")))
+                    .aggregateAfter(Collections.singletonMap("date", "2016-09-20")),
+                (result) -> {
+                    assertEquals(2, result.getBuckets().size());
+                    assertEquals("{date=2017-10-19}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(1L, result.getBuckets().get(0).getDocCount());
+                    assertEquals("{date=2017-10-20}", result.getBuckets().get(1).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(1).getDocCount());
+                }
+            );
+        }
+    }
+
+    public void testWithHistogram() throws Exception {
+        final List<Map<String, List<Object>>> dataset = Arrays.asList(
+            createDocument("double", 0.5d),
+            createDocument("double", 3.2d),
+            createDocument("double", 3.5d),
+            createDocument("double", 9.9d),
+            createDocument("double", Arrays.asList(0.1d, 7.2d))
+        );
+        for (Query query : queries()) {
+            executeTestCase(query, dataset,
+                () -> new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new HistogramValuesSourceBuilder("histo").field("double").interval(5)))
+                    .aggregateAfter(Collections.singletonMap("histo", 0d)),
+                (result) -> {
+                    assertEquals(1, result.getBuckets().size());
+                    assertEquals("{histo=5.0}", result.getBuckets().get(0).getKeyAsString());
+                    assertEquals(2L, result.getBuckets().get(0).getDocCount());
+                }
+            );
+        }
+    }
+
+    public void testPaging() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        int numDocs = randomIntBetween(50, 200);
+        Map<String, Long> expectedCounts = new HashMap<>();
+        for (int i = 0; i < numDocs; i++) {
+            int numValues = randomIntBetween(1, 3);
+            List<Object> values = new ArrayList<>();
+            for (int j = 0; j < numValues; j++) {
+                String value = randomAlphaOfLength(2);
+                if (values.contains(value) == false) {
+                    values.add(value);
+                    expectedCounts.merge(value, 1L, Long::sum);
+                }
+            }
+            dataset.add(createDocument("keyword", values));
+        }
+        final int pageSize = randomIntBetween(1, 20);
+        for (Query query : queries()) {
+            Map<String, Long> actualCounts = new HashMap<>();
+            Map<String, Object> after = null;
+            do {
+                final Map<String, Object> pageAfter = after;
+                final InternalComposite[] page = new InternalComposite[1];
+                executeTestCase(query, dataset,
+                    () -> new CompositeAggregationBuilder("name",
+                        Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                        .size(pageSize)
+                        .aggregateAfter(pageAfter),
+                    (result) -> page[0] = result
+                );
+                assertTrue(page[0].getBuckets().size() <= pageSize);
+                String previous = after == null ? null : (String) after.get("keyword");
+                for (InternalComposite.InternalBucket bucket : page[0].getBuckets()) {
+                    String key = (String) bucket.getKey().get("keyword");
+                    if (previous != null) {
+                        assertTrue(key.compareTo(previous) > 0);
+                    }
+                    previous = key;
+                    assertNull(actualCounts.put(key, bucket.getDocCount()));
+                }
+                after = page[0].afterKey();
+            } while (after != null);
+            assertEquals(expectedCounts, actualCounts);
+        }
+    }
+
+    private void executeTestCase(Query query,
+                                 List<Map<String, List<Object>>> dataset,
+                                 Supplier<CompositeAggregationBuilder> create,
+                                 Consumer<InternalComposite> verify) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (Map<String, List<Object>> fields : dataset) {
+                    addToDocument(document, fields);
+                    indexWriter.addDocument(document);
+                    document.clear();
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                contextQuery = query;
+                CompositeAggregationBuilder aggregationBuilder = create.get();
+                final InternalComposite composite = searchAndReduce(indexSearcher, query, aggregationBuilder, FIELD_TYPES);
+                verify.accept(composite);
+            }
+        }
+    }
+
+    /**
+     * Returns the queries to test: the first one allows the early termination of the collection,
+     * the second one matches the same documents but forces the collection of all documents.
+     */
+    private static List<Query> queries() {
+        return Arrays.asList(new MatchAllDocsQuery(), new FieldValueQuery("keyword"));
+    }
+
+    private void addToDocument(Document doc, Map<String, List<Object>> keys) {
+        for (Map.Entry<String, List<Object>> entry : keys.entrySet()) {
+            final String name = entry.getKey();
+            for (Object value : entry.getValue()) {
+                if (value instanceof Long) {
+                    doc.add(new SortedNumericDocValuesField(name, (long) value));
+                    doc.add(new LongPoint(name, (long) value));
+                } else if (value instanceof Double) {
+                    doc.add(new SortedNumericDocValuesField(name, NumericUtils.doubleToSortableLong((double) value)));
+                    doc.add(new DoublePoint(name, (double) value));
+                } else if (value instanceof String) {
+                    doc.add(new SortedSetDocValuesField(name, new BytesRef((String) value)));
+                    doc.add(new StringField(name, new BytesRef((String) value), Field.Store.NO));
+                } else {
+                    throw new AssertionError("invalid object: " + value.getClass().getSimpleName());
+                }
+            }
+        }
+        // every document has a keyword value so that the field value query matches all documents
+        if (keys.containsKey("keyword") == false) {
+            doc.add(new SortedSetDocValuesField("keyword", new BytesRef("z")));
+            doc.add(new StringField("keyword", new BytesRef("z"), Field.Store.NO));
+        }
+    }
+
+    private static Map<String, List<Object>> createDocument(Object... fields) {
+        assert fields.length % 2 == 0;
+        final Map<String, List<Object>> map = new HashMap<>();
+        for (int i = 0; i < fields.length; i += 2) {
+            String field = (String) fields[i];
+            if (fields[i + 1] instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<Object> values = (List<Object>) fields[i + 1];
+                map.put(field, values);
+            } else {
+                map.put(field, Collections.singletonList(fields[i + 1]));
+            }
+        }
+        return map;
+    }
+
+    private static long asLong(String dateTime) {
+        return DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parser().parseDateTime(dateTime).getMillis();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregationTestCase;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class InternalCompositeTests extends InternalAggregationTestCase<InternalComposite> {
+    private List<String> sourceNames;
+    private List<DocValueFormat> formats;
+    private int[] reverseMuls;
+    private int[] types;
+    private int size;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        int numFields = randomIntBetween(1, 10);
+        size = randomIntBetween(1, 100);
+        sourceNames = new ArrayList<>(numFields);
+        formats = new ArrayList<>(numFields);
+        reverseMuls = new int[numFields];
+        types = new int[numFields];
+        for (int i = 0; i < numFields; i++) {
+            sourceNames.add("field_" + i);
+            formats.add(DocValueFormat.RAW);
+            reverseMuls[i] = randomBoolean() ? 1 : -1;
+            types[i] = randomIntBetween(0, 2);
+        }
+    }
+
+    @Override
+    protected Writeable.Reader<InternalComposite> instanceReader() {
+        return InternalComposite::new;
+    }
+
+    private CompositeKey createCompositeKey() {
+        Comparable<?>[] keys = new Comparable<?>[sourceNames.size()];
+        for (int j = 0; j < keys.length; j++) {
+            switch (types[j]) {
+                case 0:
+                    keys[j] = (long) randomIntBetween(0, 5);
+                    break;
+                case 1:
+                    keys[j] = randomIntBetween(0, 5) * 0.5d;
+                    break;
+                case 2:
+                    keys[j] = new BytesRef(randomAlphaOfLength(1));
+                    break;
+                default:
+                    throw new AssertionError("illegal branch");
+            }
+        }
+        return new CompositeKey(keys);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparator<CompositeKey> getKeyComparator() {
+        return (o1, o2) -> {
+            for (int i = 0; i < o1.size(); i++) {
+                int cmp = ((Comparable) o1.get(i)).compareTo(o2.get(i)) * reverseMuls[i];
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        };
+    }
+
+    @Override
+    protected InternalComposite createTestInstance(String name, List<PipelineAggregator> pipelineAggregators,
+                                                   Map<String, Object> metaData) {
+        int numBuckets = randomIntBetween(0, size);
+        TreeSet<CompositeKey> keys = new TreeSet<>(getKeyComparator());
+        for (int i = 0; i < numBuckets; i++) {
+            keys.add(createCompositeKey());
+        }
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>();
+        for (CompositeKey key : keys) {
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, formats, key, reverseMuls,
+                randomIntBetween(1, 100), InternalAggregations.EMPTY));
+        }
+        CompositeKey lastBucket = keys.isEmpty() ? null : keys.last();
+        return new InternalComposite(name, size, sourceNames, formats, buckets, lastBucket, reverseMuls, pipelineAggregators, metaData);
+    }
+
+    @Override
+    protected void assertReduced(InternalComposite reduced, List<InternalComposite> inputs) {
+        List<CompositeKey> expectedKeys = inputs.stream()
+            .flatMap((s) -> s.getBuckets().stream())
+            .map(InternalComposite.InternalBucket::getRawKey)
+            .sorted(getKeyComparator())
+            .distinct()
+            .limit(reduced.getSize())
+            .collect(Collectors.toList());
+
+        assertThat(reduced.getBuckets().size(), equalTo(expectedKeys.size()));
+        Iterator<CompositeKey> expectedIt = expectedKeys.iterator();
+        for (InternalComposite.InternalBucket bucket : reduced.getBuckets()) {
+            assertTrue(expectedIt.hasNext());
+            CompositeKey expectedKey = expectedIt.next();
+            assertThat(bucket.getRawKey(), equalTo(expectedKey));
+            long expectedDocCount = inputs.stream()
+                .flatMap((s) -> s.getBuckets().stream())
+                .filter((b) -> b.getRawKey().equals(expectedKey))
+                .mapToLong(InternalComposite.InternalBucket::getDocCount)
+                .sum();
+            assertThat(bucket.getDocCount(), equalTo(expectedDocCount));
+        }
+        if (expectedKeys.isEmpty()) {
+            assertNull(reduced.afterKey());
+        } else {
+            assertThat(reduced.getBuckets().get(reduced.getBuckets().size() - 1).getKey(), equalTo(reduced.afterKey()));
+        }
+    }
+
+    public void testFormatObject() {
+        assertEquals("foo", InternalComposite.formatObject(new BytesRef("foo"), DocValueFormat.RAW));
+        assertEquals(10L, InternalComposite.formatObject(10L, DocValueFormat.RAW));
+        assertEquals(2.5d, InternalComposite.formatObject(2.5d, DocValueFormat.RAW));
+        assertEquals("true", InternalComposite.formatObject(1L, DocValueFormat.BOOLEAN));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class AutoDateHistogramAggregatorTests extends AggregatorTestCase {
+
+    private static final String DATE_FIELD = "date";
+
+    private static final List<String> dataset = Arrays.asList(
+            "2010-03-12T01:07:45",
+            "2010-04-27T03:43:34",
+            "2012-05-18T04:11:00",
+            "2013-05-29T05:11:31",
+            "2013-10-31T08:24:05",
+            "2015-02-13T13:09:32",
+            "2015-06-24T13:47:43",
+            "2015-11-13T16:14:34",
+            "2016-03-04T17:09:50",
+            "2017-12-12T22:55:46");
+
+    public void testMatchNoDocs() throws IOException {
+        testBothCases(new MatchNoDocsQuery(), dataset,
+                aggregation -> aggregation.setNumBuckets(10).field(DATE_FIELD),
+                histogram -> assertEquals(0, histogram.getBuckets().size())
+        );
+    }
+
+    public void testAggregateWrongField() throws IOException {
+        testBothCases(new MatchAllDocsQuery(), dataset,
+                aggregation -> aggregation.setNumBuckets(10).field("wrong_field"),
+                histogram -> assertEquals(0, histogram.getBuckets().size())
+        );
+    }
+
+    public void testPicksYears() throws IOException {
+        testSearchAndReduceCase(new MatchAllDocsQuery(), dataset,
+                aggregation -> aggregation.setNumBuckets(10).field(DATE_FIELD),
+                histogram -> {
+                    assertEquals(DateHistogramInterval.YEAR, histogram.getInterval());
+                    List<InternalAutoDateHistogram.Bucket> buckets = histogram.getBuckets();
+                    // empty buckets between years with documents are added by the final reduce
+                    assertEquals(8, buckets.size());
+                    long[] expectedCounts = new long[] {2, 0, 1, 2, 0, 3, 1, 1};
+                    for (int i = 0; i < expectedCounts.length; i++) {
+                        assertEquals((2010 + i) + "-01-01T00:00:00.000Z", buckets.get(i).getKeyAsString());
+                        assertEquals(expectedCounts[i], buckets.get(i).getDocCount());
+                    }
+                }
+        );
+    }
+
+    public void testShardMergesBuckets() throws IOException {
+        testBothCases(new MatchAllDocsQuery(),
+                Arrays.asList("2017-01-01T00:00:00", "2017-01-01T00:20:00", "2017-01-01T01:10:00", "2017-01-01T02:00:00"),
+                aggregation -> aggregation.setNumBuckets(3).field(DATE_FIELD)
+                        .subAggregation(AggregationBuilders.max("max").field(DATE_FIELD)),
+                histogram -> {
+                    assertEquals(DateHistogramInterval.HOUR, histogram.getInterval());
+                    List<InternalAutoDateHistogram.Bucket> buckets = histogram.getBuckets();
+                    assertEquals(3, buckets.size());
+
+                    InternalAutoDateHistogram.Bucket bucket = buckets.get(0);
+                    assertEquals("2017-01-01T00:00:00.000Z", bucket.getKeyAsString());
+                    assertEquals(2, bucket.getDocCount());
+                    assertEquals(asLong("2017-01-01T00:20:00"), ((InternalMax) bucket.getAggregations().get("max")).getValue(), 0d);
+
+                    bucket = buckets.get(1);
+                    assertEquals("2017-01-01T01:00:00.000Z", bucket.getKeyAsString());
+                    assertEquals(1, bucket.getDocCount());
+                    assertEquals(asLong("2017-01-01T01:10:00"), ((InternalMax) bucket.getAggregations().get("max")).getValue(), 0d);
+
+                    bucket = buckets.get(2);
+                    assertEquals("2017-01-01T02:00:00.000Z", bucket.getKeyAsString());
+                    assertEquals(1, bucket.getDocCount());
+                    assertEquals(asLong("2017-01-01T02:00:00"), ((InternalMax) bucket.getAggregations().get("max")).getValue(), 0d);
+                }
+        );
+    }
+
+    public void testStopsAtCoarsestInterval() throws IOException {
+        testSearchCase(new MatchAllDocsQuery(), dataset,
+                aggregation -> aggregation.setNumBuckets(2).field(DATE_FIELD),
+                histogram -> {
+                    assertEquals(DateHistogramInterval.YEAR, histogram.getInterval());
+                    // 6 years have documents, there are no coarser intervals than years
+                    assertEquals(6, histogram.getBuckets().size());
+                }
+        );
+    }
+
+    private void testSearchCase(Query query, List<String> dataset,
+                                Consumer<AutoDateHistogramAggregationBuilder> configure,
+                                Consumer<InternalAutoDateHistogram> verify) throws IOException {
+        executeTestCase(false, query, dataset, configure, verify);
+    }
+
+    private void testSearchAndReduceCase(Query query, List<String> dataset,
+                                         Consumer<AutoDateHistogramAggregationBuilder> configure,
+                                         Consumer<InternalAutoDateHistogram> verify) throws IOException {
+        executeTestCase(true, query, dataset, configure, verify);
+    }
+
+    private void testBothCases(Query query, List<String> dataset,
+                               Consumer<AutoDateHistogramAggregationBuilder> configure,
+                               Consumer<InternalAutoDateHistogram> verify) throws IOException {
+        testSearchCase(query, dataset, configure, verify);
+        testSearchAndReduceCase(query, dataset, configure, verify);
+    }
+
+    private void executeTestCase(boolean reduced, Query query, List<String> dataset,
+                                 Consumer<AutoDateHistogramAggregationBuilder> configure,
+                                 Consumer<InternalAutoDateHistogram> verify) throws IOException {
+
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (String date : dataset) {
+                    if (frequently()) {
+                        indexWriter.commit();
+                    }
+
+                    long instant = asLong(date);
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    indexWriter.addDocument(document);
+                    document.clear();
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+
+                AutoDateHistogramAggregationBuilder aggregationBuilder = new AutoDateHistogramAggregationBuilder("_name");
+                if (configure != null) {
+                    configure.accept(aggregationBuilder);
+                }
+
+                DateFieldMapper.Builder builder = new DateFieldMapper.Builder("_name");
+                DateFieldMapper.DateFieldType fieldType = builder.fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+
+                InternalAutoDateHistogram histogram;
+                if (reduced) {
+                    histogram = searchAndReduce(indexSearcher, query, aggregationBuilder, fieldType);
+                } else {
+                    histogram = search(indexSearcher, query, aggregationBuilder, fieldType);
+                }
+                verify.accept(histogram);
+            }
+        }
+    }
+
+    private static long asLong(String dateTime) {
+        return DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parser().parseDateTime(dateTime).getMillis();
+    }
+}
@@ -24,14 +24,20 @@ import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.internal.SearchContext;
+import org.joda.time.DateTimeZone;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -39,11 +45,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 
+import static org.mockito.Mockito.when;
+
 public class DateHistogramAggregatorTests extends AggregatorTestCase {
 
     private static final String DATE_FIELD = "date";
     private static final String INSTANT_FIELD = "instant";
 
+    /**
+     * The query of the search context of the aggregations, {@code null} unless a test sets it.
+     */
+    private Query contextQuery;
+
     private static final List<String> dataset = Arrays.asList(
             "2010-03-12T01:07:45",
             "2010-04-27T03:43:34",
@@ -335,6 +348,65 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testCountFromPointsMatchesCollecting() throws IOException {
+        // fall back to standard time in Europe/Paris and America/New_York, so that fixed intervals in these zones cross it
+        final long transition = asLong(randomFrom("2016-10-30T01:00:00", "2016-11-06T06:00:00"));
+        final long window = TimeValue.timeValueHours(12).millis();
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig())) {
+                // enough documents in a single segment for every bucket of the window to be counted from the points
+                final int numDocs = randomIntBetween(30000, 40000);
+                for (int i = 0; i < numDocs; i++) {
+                    final long instant = randomLongBetween(transition - window, transition + window);
+                    Document document = new Document();
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    indexWriter.addDocument(document);
+                }
+                indexWriter.forceMerge(1);
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                for (int iteration = 0; iteration < 10; iteration++) {
+                    DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                        .field(DATE_FIELD)
+                        .dateHistogramInterval(new DateHistogramInterval(randomFrom("30m", "90m", "1h", "2h", "3h", "1d")))
+                        .timeZone(DateTimeZone.forID(randomFrom("UTC", "+05:30", "Europe/Paris", "America/New_York")));
+                    if (randomBoolean()) {
+                        aggregationBuilder.offset(TimeValue.timeValueMinutes(randomIntBetween(1, 59)).millis());
+                    }
+                    if (randomBoolean()) {
+                        aggregationBuilder.minDocCount(0L)
+                            .extendedBounds(new ExtendedBounds(transition - 2 * window, transition + 2 * window));
+                    }
+                    Query query = new MatchAllDocsQuery();
+                    if (randomBoolean()) {
+                        query = LongPoint.newRangeQuery(DATE_FIELD, randomLongBetween(transition - window, transition),
+                            randomLongBetween(transition, transition + window));
+                    }
+
+                    DateFieldMapper.Builder builder = new DateFieldMapper.Builder("_name");
+                    DateFieldMapper.DateFieldType fieldType = builder.fieldType();
+                    fieldType.setHasDocValues(true);
+                    fieldType.setName(DATE_FIELD);
+
+                    // the aggregation only counts from the points if it knows that the query is a match_all or a range query
+                    contextQuery = null;
+                    InternalDateHistogram collected = search(indexSearcher, query, aggregationBuilder, fieldType);
+                    contextQuery = query;
+                    InternalDateHistogram counted = search(indexSearcher, query, aggregationBuilder, fieldType);
+
+                    assertEquals(collected.getBuckets().size(), counted.getBuckets().size());
+                    for (int i = 0; i < collected.getBuckets().size(); i++) {
+                        assertEquals(collected.getBuckets().get(i).getKey(), counted.getBuckets().get(i).getKey());
+                        assertEquals(collected.getBuckets().get(i).getDocCount(), counted.getBuckets().get(i).getDocCount());
+                    }
+                }
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<Histogram> verify) throws IOException {
@@ -398,6 +470,13 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    @Override
+    protected SearchContext createSearchContext(IndexSearcher indexSearcher, IndexSettings indexSettings) {
+        SearchContext searchContext = super.createSearchContext(indexSearcher, indexSettings);
+        when(searchContext.query()).thenReturn(contextQuery);
+        return searchContext;
+    }
+
     private static long asLong(String dateTime) {
         return DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parser().parseDateTime(dateTime).getMillis();
     }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregationTestCase;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class InternalAutoDateHistogramTests extends InternalAggregationTestCase<InternalAutoDateHistogram> {
+
+    private Rounding[] roundings;
+    private int targetBuckets;
+
+    @Before
+    public void init() {
+        roundings = AutoDateHistogramAggregationBuilder.buildRoundings(null);
+        targetBuckets = randomIntBetween(1, 20);
+    }
+
+    @Override
+    protected InternalAutoDateHistogram createTestInstance(String name, List<PipelineAggregator> pipelineAggregators,
+                                                           Map<String, Object> metaData) {
+        // shards pick the finer roundings unless they have documents spanning long periods of time
+        int roundingIdx = randomIntBetween(0, 3);
+        Rounding rounding = roundings[roundingIdx];
+        int nbBuckets = randomInt(targetBuckets);
+        List<InternalAutoDateHistogram.Bucket> buckets = new ArrayList<>(nbBuckets);
+        long key = rounding.round(randomLongBetween(1262304000000L, 1514764800000L));
+        for (int i = 0; i < nbBuckets; i++) {
+            buckets.add(new InternalAutoDateHistogram.Bucket(key, randomIntBetween(1, 100), DocValueFormat.RAW,
+                    InternalAggregations.EMPTY));
+            for (int skip = randomIntBetween(1, 3); skip > 0; skip--) {
+                key = rounding.nextRoundingValue(key);
+            }
+        }
+        InternalAutoDateHistogram.BucketInfo bucketInfo = new InternalAutoDateHistogram.BucketInfo(roundings, roundingIdx,
+                InternalAggregations.EMPTY);
+        return new InternalAutoDateHistogram(name, buckets, targetBuckets, bucketInfo, DocValueFormat.RAW, pipelineAggregators,
+                metaData);
+    }
+
+    @Override
+    protected void assertReduced(InternalAutoDateHistogram reduced, List<InternalAutoDateHistogram> inputs) {
+        int roundingIdx = Arrays.asList(AutoDateHistogramAggregationBuilder.INTERVALS).indexOf(reduced.getInterval());
+        Rounding rounding = roundings[roundingIdx];
+        Map<Long, Long> expectedCounts = new TreeMap<>();
+        for (InternalAutoDateHistogram histogram : inputs) {
+            assertThat(roundingIdx, greaterThanOrEqualTo(Arrays.asList(AutoDateHistogramAggregationBuilder.INTERVALS)
+                    .indexOf(histogram.getInterval())));
+            for (InternalAutoDateHistogram.Bucket bucket : histogram.getBuckets()) {
+                expectedCounts.compute(rounding.round(bucket.key),
+                        (key, oldValue) -> (oldValue == null ? 0 : oldValue) + bucket.getDocCount());
+            }
+        }
+        Map<Long, Long> actualCounts = new TreeMap<>();
+        for (InternalAutoDateHistogram.Bucket bucket : reduced.getBuckets()) {
+            if (bucket.getDocCount() > 0) {
+                actualCounts.put(bucket.key, bucket.getDocCount());
+            }
+        }
+        assertEquals(expectedCounts, actualCounts);
+        if (roundingIdx < roundings.length - 1) {
+            assertThat(reduced.getBuckets().size(), lessThanOrEqualTo(targetBuckets));
+        }
+    }
+
+    public void testSpansMoreThan() {
+        Rounding hours = roundings[2];
+        long start = 1483228800000L; // 2017-01-01T00:00:00Z
+        assertFalse(InternalAutoDateHistogram.spansMoreThan(hours, start, start + 3599999L, 1));
+        assertTrue(InternalAutoDateHistogram.spansMoreThan(hours, start, start + 3600000L, 1));
+        assertFalse(InternalAutoDateHistogram.spansMoreThan(hours, start + 1000, start + 3 * 3600000L, 4));
+        assertTrue(InternalAutoDateHistogram.spansMoreThan(hours, start, start + 4 * 3600000L, 4));
+    }
+
+    @Override
+    protected Writeable.Reader<InternalAutoDateHistogram> instanceReader() {
+        return InternalAutoDateHistogram::new;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class MultiTermsAggregationBuilderTests extends BaseAggregationTestCase<MultiTermsAggregationBuilder> {
+
+    @Override
+    protected MultiTermsAggregationBuilder createTestAggregatorBuilder() {
+        String name = randomAlphaOfLengthBetween(3, 20);
+        int numFields = randomIntBetween(1, 4);
+        List<String> fields = new ArrayList<>(numFields);
+        for (int i = 0; i < numFields; i++) {
+            fields.add(randomAlphaOfLengthBetween(3, 20));
+        }
+        MultiTermsAggregationBuilder factory = new MultiTermsAggregationBuilder(name, fields);
+        if (randomBoolean()) {
+            factory.size(randomIntBetween(1, Integer.MAX_VALUE));
+        }
+        if (randomBoolean()) {
+            factory.shardSize(randomIntBetween(1, Integer.MAX_VALUE));
+        }
+        if (randomBoolean()) {
+            factory.minDocCount(randomIntBetween(1, Integer.MAX_VALUE));
+        }
+        if (randomBoolean()) {
+            factory.shardMinDocCount(randomIntBetween(0, Integer.MAX_VALUE));
+        }
+        if (randomBoolean()) {
+            factory.collectMode(randomFrom(SubAggCollectionMode.values()));
+        }
+        if (randomBoolean()) {
+            factory.order(Collections.singletonList(randomFrom(Terms.Order.term(randomBoolean()), Terms.Order.count(randomBoolean()),
+                    Terms.Order.aggregation(randomAlphaOfLengthBetween(3, 20), randomBoolean()))));
+        }
+        if (randomBoolean()) {
+            factory.showTermDocCountError(randomBoolean());
+        }
+        return factory;
+    }
+
+    public void testInvalidFields() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> new MultiTermsAggregationBuilder("foo", Collections.emptyList()));
+        assertEquals("[fields] must not be null or empty: [foo]", e.getMessage());
+    }
+
+    public void testInvalidMinDocCount() {
+        MultiTermsAggregationBuilder factory = new MultiTermsAggregationBuilder("foo", Collections.singletonList("bar"));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> factory.minDocCount(0));
+        assertEquals("[minDocCount] must be greater than 0. Found [0] in [foo]", e.getMessage());
+    }
+}
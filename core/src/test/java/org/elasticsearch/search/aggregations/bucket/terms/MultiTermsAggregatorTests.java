@@ -0,0 +1,215 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class MultiTermsAggregatorTests extends AggregatorTestCase {
+
+    private static final String[][] KEYS = new String[][] {
+        {"x", "1"}, {"x", "1"}, {"x", "2"}, {"y", "1"}, {"y", null}, {null, "1"}
+    };
+
+    public void testCountsCombinations() throws IOException {
+        testBothCases(Arrays.asList("a", "b"), aggregation -> {}, terms -> {
+            List<Terms.Bucket> buckets = terms.getBuckets();
+            // the document with several values per field is counted in every combination of its values
+            assertEquals(6, buckets.size());
+            assertBucket(buckets.get(0), 2, "x", "1");
+            assertBucket(buckets.get(1), 2, "x", "2");
+            assertBucket(buckets.get(2), 1, "x", "3");
+            assertBucket(buckets.get(3), 1, "y", "1");
+            assertBucket(buckets.get(4), 1, "y", "2");
+            assertBucket(buckets.get(5), 1, "y", "3");
+        });
+    }
+
+    public void testSizeAndTermOrder() throws IOException {
+        testBothCases(Arrays.asList("b", "a"), aggregation -> aggregation.size(2).order(Terms.Order.term(false)), terms -> {
+            List<Terms.Bucket> buckets = terms.getBuckets();
+            assertEquals(2, buckets.size());
+            assertBucket(buckets.get(0), 1, "3", "y");
+            assertBucket(buckets.get(1), 1, "3", "x");
+            assertEquals(6, terms.getSumOfOtherDocCounts());
+        });
+    }
+
+    public void testSubAggregation() throws IOException {
+        testBothCases(Arrays.asList("a", "b"),
+                aggregation -> aggregation.order(Terms.Order.compound(Terms.Order.aggregation("max", false), Terms.Order.term(true)))
+                        .subAggregation(AggregationBuilders.max("max").field("number")),
+                terms -> {
+                    List<Terms.Bucket> buckets = terms.getBuckets();
+                    assertEquals(6, buckets.size());
+                    assertBucket(buckets.get(0), 2, "x", "2");
+                    assertEquals(6, ((InternalMax) buckets.get(0).getAggregations().get("max")).getValue(), 0d);
+                    assertBucket(buckets.get(3), 1, "y", "3");
+                    assertEquals(6, ((InternalMax) buckets.get(3).getAggregations().get("max")).getValue(), 0d);
+                    assertBucket(buckets.get(4), 2, "x", "1");
+                    assertEquals(1, ((InternalMax) buckets.get(4).getAggregations().get("max")).getValue(), 0d);
+                    assertBucket(buckets.get(5), 1, "y", "1");
+                    assertEquals(1, ((InternalMax) buckets.get(5).getAggregations().get("max")).getValue(), 0d);
+                });
+    }
+
+    public void testUnmappedField() throws IOException {
+        testBothCases(Arrays.asList("a", "unmapped"), aggregation -> {}, terms -> assertEquals(0, terms.getBuckets().size()));
+    }
+
+    public void testKeyOrds() {
+        BigArrays bigArrays = new BigArrays(Settings.EMPTY, null);
+        int numFields = randomIntBetween(1, 3);
+        int[] bits = new int[numFields];
+        for (int i = 0; i < numFields; i++) {
+            bits[i] = randomIntBetween(1, 20);
+        }
+        try (MultiTermsAggregator.KeyOrds packed = new MultiTermsAggregator.PackedKeyOrds(bits, bigArrays);
+             MultiTermsAggregator.KeyOrds fixedWidth = new MultiTermsAggregator.FixedWidthKeyOrds(numFields, bigArrays)) {
+            int numKeys = randomIntBetween(1, 200);
+            long[][] keys = new long[numKeys][numFields];
+            for (long[] key : keys) {
+                for (int i = 0; i < numFields; i++) {
+                    key[i] = randomLongBetween(0, (1L << bits[i]) - 1);
+                }
+                long packedOrd = packed.add(key);
+                assertEquals(packedOrd, fixedWidth.add(key));
+                if (packedOrd >= 0) {
+                    long[] read = new long[numFields];
+                    packed.get(packedOrd, read);
+                    assertArrayEquals(key, read);
+                    fixedWidth.get(packedOrd, read);
+                    assertArrayEquals(key, read);
+                }
+            }
+            assertEquals(packed.size(), fixedWidth.size());
+            for (long ord1 = 0; ord1 < packed.size(); ord1++) {
+                long[] key1 = new long[numFields];
+                packed.get(ord1, key1);
+                for (long ord2 = 0; ord2 < packed.size(); ord2++) {
+                    long[] key2 = new long[numFields];
+                    packed.get(ord2, key2);
+                    int expected = Integer.signum(compare(key1, key2));
+                    assertEquals(expected, Integer.signum(packed.compare(ord1, ord2)));
+                    assertEquals(expected, Integer.signum(fixedWidth.compare(ord1, ord2)));
+                }
+            }
+        }
+    }
+
+    private static int compare(long[] key1, long[] key2) {
+        for (int i = 0; i < key1.length; i++) {
+            int cmp = Long.compare(key1[i], key2[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static void assertBucket(Terms.Bucket bucket, long docCount, String... key) {
+        assertEquals(Arrays.asList(key), bucket.getKey());
+        assertEquals(String.join("|", key), bucket.getKeyAsString());
+        assertEquals(docCount, bucket.getDocCount());
+    }
+
+    private void testBothCases(List<String> fields, Consumer<MultiTermsAggregationBuilder> configure,
+                               Consumer<MultiTerms> verify) throws IOException {
+        executeTestCase(false, fields, configure, verify);
+        executeTestCase(true, fields, configure, verify);
+    }
+
+    private void executeTestCase(boolean reduced, List<String> fields, Consumer<MultiTermsAggregationBuilder> configure,
+                                 Consumer<MultiTerms> verify) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (String[] key : KEYS) {
+                    if (frequently()) {
+                        indexWriter.commit();
+                    }
+                    if (key[0] != null) {
+                        document.add(new SortedSetDocValuesField("a", new BytesRef(key[0])));
+                    }
+                    if (key[1] != null) {
+                        document.add(new SortedSetDocValuesField("b", new BytesRef(key[1])));
+                    }
+                    document.add(new SortedNumericDocValuesField("number", Long.parseLong(key[1] == null ? "0" : key[1])));
+                    indexWriter.addDocument(document);
+                    document.clear();
+                }
+                document.add(new SortedSetDocValuesField("a", new BytesRef("x")));
+                document.add(new SortedSetDocValuesField("a", new BytesRef("y")));
+                document.add(new SortedSetDocValuesField("b", new BytesRef("2")));
+                document.add(new SortedSetDocValuesField("b", new BytesRef("3")));
+                document.add(new SortedNumericDocValuesField("number", 6));
+                indexWriter.addDocument(document);
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                // We do not use LuceneTestCase.newSearcher because we need a DirectoryReader
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+
+                MultiTermsAggregationBuilder aggregationBuilder = new MultiTermsAggregationBuilder("_name", fields);
+                configure.accept(aggregationBuilder);
+
+                MappedFieldType fieldTypeA = new KeywordFieldMapper.KeywordFieldType();
+                fieldTypeA.setName("a");
+                fieldTypeA.setHasDocValues(true);
+                MappedFieldType fieldTypeB = new KeywordFieldMapper.KeywordFieldType();
+                fieldTypeB.setName("b");
+                fieldTypeB.setHasDocValues(true);
+                MappedFieldType numberFieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                numberFieldType.setName("number");
+                numberFieldType.setHasDocValues(true);
+
+                MultiTerms terms;
+                if (reduced) {
+                    terms = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldTypeA, fieldTypeB,
+                            numberFieldType);
+                } else {
+                    terms = search(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldTypeA, fieldTypeB,
+                            numberFieldType);
+                }
+                verify.accept(terms);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.Writeable.Reader;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MultiTermsTests extends InternalTermsTestCase {
+
+    @Override
+    protected InternalTerms<?, ?> createTestInstance(
+            String name,
+            List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) {
+        Terms.Order order = Terms.Order.count(false);
+        long minDocCount = 1;
+        int requiredSize = 3;
+        int shardSize = requiredSize + 2;
+        List<DocValueFormat> formats = Collections.nCopies(randomIntBetween(1, 3), DocValueFormat.RAW);
+        boolean showTermDocCountError = false;
+        long docCountError = -1;
+        long otherDocCount = 0;
+        List<MultiTerms.Bucket> buckets = new ArrayList<>();
+        final int numBuckets = randomInt(shardSize);
+        Set<List<BytesRef>> keys = new HashSet<>();
+        for (int i = 0; i < numBuckets; ++i) {
+            BytesRef[] terms = randomValueOtherThanMany(t -> keys.add(Arrays.asList(t)) == false, () -> {
+                BytesRef[] key = new BytesRef[formats.size()];
+                for (int j = 0; j < key.length; j++) {
+                    key[j] = new BytesRef(randomAlphaOfLength(2));
+                }
+                return key;
+            });
+            int docCount = randomIntBetween(1, 100);
+            buckets.add(new MultiTerms.Bucket(terms, docCount, InternalAggregations.EMPTY, showTermDocCountError, docCountError,
+                    formats));
+        }
+        return new MultiTerms(name, order, requiredSize, minDocCount, pipelineAggregators, metaData, formats, shardSize,
+                showTermDocCountError, otherDocCount, buckets, docCountError);
+    }
+
+    @Override
+    protected Reader<InternalTerms<?, ?>> instanceReader() {
+        return MultiTerms::new;
+    }
+
+    public void testReduceOrderedByTerms() {
+        Terms.Order order = Terms.Order.term(true);
+        List<InternalAggregation> shards = Arrays.asList(
+                newTerms(order, newBucket(3, "b", "a"), newBucket(1, "a", "b"), newBucket(2, "ab", "a")),
+                newTerms(order, newBucket(5, "a", "b"), newBucket(1, "a", "ab")));
+        BigArrays bigArrays = new BigArrays(Settings.EMPTY, null);
+        MultiTerms reduced = (MultiTerms) shards.get(0).doReduce(shards, new InternalAggregation.ReduceContext(bigArrays, null, true));
+
+        List<Terms.Bucket> buckets = reduced.getBuckets();
+        assertEquals(3, buckets.size());
+        assertEquals(Arrays.asList("a", "ab"), buckets.get(0).getKey());
+        assertEquals(1, buckets.get(0).getDocCount());
+        assertEquals(Arrays.asList("a", "b"), buckets.get(1).getKey());
+        assertEquals("a|b", buckets.get(1).getKeyAsString());
+        assertEquals(6, buckets.get(1).getDocCount());
+        assertSame(buckets.get(1), reduced.getBucketByKey("a|b"));
+        assertEquals(Arrays.asList("ab", "a"), buckets.get(2).getKey());
+        assertEquals(2, buckets.get(2).getDocCount());
+        assertEquals(3, reduced.getSumOfOtherDocCounts());
+    }
+
+    private static MultiTerms.Bucket newBucket(long docCount, String... terms) {
+        BytesRef[] key = new BytesRef[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            key[i] = new BytesRef(terms[i]);
+        }
+        return new MultiTerms.Bucket(key, docCount, InternalAggregations.EMPTY, false, 0,
+                Collections.nCopies(terms.length, DocValueFormat.RAW));
+    }
+
+    private static MultiTerms newTerms(Terms.Order order, MultiTerms.Bucket... buckets) {
+        return new MultiTerms("terms", order, 3, 1, Collections.emptyList(), null, Collections.nCopies(2, DocValueFormat.RAW), 3,
+                false, 0, Arrays.asList(buckets), 0);
+    }
+}
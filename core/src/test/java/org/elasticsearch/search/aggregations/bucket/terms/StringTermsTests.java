@@ -20,12 +20,23 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.io.stream.Writeable.Reader;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -64,4 +75,54 @@ public class StringTermsTests extends InternalTermsTestCase {
         return StringTerms::new;
     }
 
+    public void testReduceOrderedBySubAggregation() {
+        Terms.Order order = Terms.Order.aggregation("max", false);
+        List<InternalAggregation> shards = Arrays.asList(
+                newTerms(order, newBucket("a", 1, 5), newBucket("b", 10, 1), newBucket("c", 1, 3)),
+                newTerms(order, newBucket("a", 1, 2), newBucket("b", 5, 4), newBucket("d", 1, 6)));
+        BigArrays bigArrays = new BigArrays(Settings.EMPTY, null);
+        StringTerms reduced = (StringTerms) shards.get(0).doReduce(shards, new InternalAggregation.ReduceContext(bigArrays, null, true));
+
+        List<Terms.Bucket> buckets = reduced.getBuckets();
+        assertEquals(2, buckets.size());
+        assertEquals("d", buckets.get(0).getKeyAsString());
+        assertEquals(1, buckets.get(0).getDocCount());
+        assertEquals(6, ((InternalMax) buckets.get(0).getAggregations().get("max")).getValue(), 0d);
+        assertEquals("a", buckets.get(1).getKeyAsString());
+        assertEquals(2, buckets.get(1).getDocCount());
+        assertEquals(5, ((InternalMax) buckets.get(1).getAggregations().get("max")).getValue(), 0d);
+        assertEquals(16, reduced.getSumOfOtherDocCounts());
+    }
+
+    public void testReduceIsAccountedInRequestBreaker() {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+                Settings.builder()
+                        .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), 16, ByteSizeUnit.KB)
+                        .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        BigArrays bigArrays = new BigArrays(null, breakerService, false);
+        Terms.Order order = Terms.Order.count(false);
+        List<InternalAggregation> shards = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            StringTerms.Bucket[] buckets = new StringTerms.Bucket[2500];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = newBucket(shard + "_" + i, 1, 0);
+            }
+            shards.add(newTerms(order, buckets));
+        }
+        expectThrows(CircuitBreakingException.class,
+                () -> shards.get(0).doReduce(shards, new InternalAggregation.ReduceContext(bigArrays, null, true)));
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    private static StringTerms newTerms(Terms.Order order, StringTerms.Bucket... buckets) {
+        return new StringTerms("terms", order, 2, 1, Collections.emptyList(), null, DocValueFormat.RAW, 10000, false, 0,
+                Arrays.asList(buckets), 0);
+    }
+
+    private static StringTerms.Bucket newBucket(String term, long docCount, double max) {
+        InternalAggregations aggregations = new InternalAggregations(Collections.singletonList(
+                new InternalMax("max", max, DocValueFormat.RAW, Collections.emptyList(), null)));
+        return new StringTerms.Bucket(new BytesRef(term), docCount, aggregations, false, 0, DocValueFormat.RAW);
+    }
 }
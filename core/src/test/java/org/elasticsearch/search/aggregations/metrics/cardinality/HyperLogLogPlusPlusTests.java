@@ -21,12 +21,20 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
 
 public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testEncodeDecode() {
@@ -126,4 +134,72 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(18, HyperLogLogPlusPlus.precisionFromThreshold(100000));
         assertEquals(18, HyperLogLogPlusPlus.precisionFromThreshold(1000000));
     }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = randomBoolean() ? randomIntBetween(1, HyperLogLogPlusPlus.linearCountingThreshold(p))
+                : randomIntBetween(1, 100000);
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        final Version version = randomFrom(Version.CURRENT, Version.V_5_4_0_UNRELEASED);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            counts.writeTo(0, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                final HyperLogLogPlusPlus copy = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+                assertEquals(counts.cardinality(0), copy.cardinality(0));
+                assertEquals(counts.linearCountingHashes(0), copy.linearCountingHashes(0));
+            }
+        }
+    }
+
+    public void testCompactSerialization() throws IOException {
+        final boolean linearCounting = randomBoolean();
+        // deltas between sorted hashes only take less than 4 bytes when there are thousands of them
+        final int p = linearCounting ? randomIntBetween(HyperLogLogPlusPlus.DEFAULT_PRECISION, MAX_PRECISION)
+                : randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = linearCounting ? HyperLogLogPlusPlus.linearCountingThreshold(p) : (1 << p) / 8;
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(i));
+        }
+        if (linearCounting == false) {
+            counts.upgradeToHll(0);
+        }
+        try (BytesStreamOutput compact = new BytesStreamOutput(); BytesStreamOutput legacy = new BytesStreamOutput()) {
+            legacy.setVersion(Version.V_5_4_0_UNRELEASED);
+            counts.writeTo(0, compact);
+            counts.writeTo(0, legacy);
+            assertThat(compact.bytes().length(), lessThan(legacy.bytes().length()));
+        }
+    }
+
+    public void testLinearCountingHashesUnion() {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final List<LinearCountingHashes> hashesList = new ArrayList<>();
+        final int maxValue = randomIntBetween(1, HyperLogLogPlusPlus.linearCountingThreshold(p) * 2);
+        for (int i = randomIntBetween(1, 10); i > 0; --i) {
+            final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            for (int j = randomIntBetween(1, HyperLogLogPlusPlus.linearCountingThreshold(p)); j > 0; --j) {
+                counts.collect(0, BitMixer.mix64(randomInt(maxValue)));
+            }
+            final LinearCountingHashes hashes = counts.linearCountingHashes(0);
+            assertNotNull(hashes);
+            assertEquals(counts.cardinality(0), hashes.cardinality());
+            hashesList.add(hashes);
+            merged.merge(0, counts, 0);
+        }
+        final LinearCountingHashes union = LinearCountingHashes.union(hashesList);
+        if (union.size() <= HyperLogLogPlusPlus.linearCountingThreshold(p)) {
+            assertEquals(merged.linearCountingHashes(0), union);
+            assertEquals(merged.cardinality(0), union.cardinality());
+        } else {
+            assertNull(merged.linearCountingHashes(0));
+            assertEquals(merged.cardinality(0), union.toCounts(BigArrays.NON_RECYCLING_INSTANCE).cardinality(0));
+        }
+    }
 }
@@ -52,6 +52,12 @@ public class InternalCardinalityTests extends InternalAggregationTestCase<Intern
         for (int i = 0; i < 100; i++) {
             hllpp.collect(0, randomIntBetween(1, 100));
         }
+        if (randomBoolean()) {
+            LinearCountingHashes hashes = hllpp.linearCountingHashes(0);
+            if (hashes != null) {
+                return new InternalCardinality(name, null, hashes, pipelineAggregators, metaData);
+            }
+        }
         return new InternalCardinality(name, hllpp, pipelineAggregators, metaData);
     }
 
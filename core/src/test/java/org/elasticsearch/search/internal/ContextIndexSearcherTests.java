@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    public void testComputeSlices() throws Exception {
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc)) {
+                final int numSegments = randomIntBetween(1, 20);
+                for (int i = 0; i < numSegments; i++) {
+                    final int numDocs = randomIntBetween(1, 50);
+                    for (int j = 0; j < numDocs; j++) {
+                        Document doc = new Document();
+                        doc.add(new StringField("foo", "bar", Store.NO));
+                        w.addDocument(doc);
+                    }
+                    w.commit();
+                }
+                try (DirectoryReader reader = w.getReader()) {
+                    final List<LeafReaderContext> leaves = reader.leaves();
+                    final int maxSlices = randomIntBetween(1, 25);
+                    final List<List<LeafReaderContext>> slices = ContextIndexSearcher.computeSlices(leaves, maxSlices);
+                    assertEquals(Math.min(maxSlices, leaves.size()), slices.size());
+                    // slices are non-empty and hold the leaves in order
+                    final List<LeafReaderContext> flattened = new ArrayList<>();
+                    for (List<LeafReaderContext> slice : slices) {
+                        assertFalse(slice.isEmpty());
+                        flattened.addAll(slice);
+                    }
+                    assertEquals(leaves, flattened);
+                }
+            }
+        }
+    }
+
+    public void testSearchConcurrently() throws Exception {
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc)) {
+                final int numSegments = randomIntBetween(2, 10);
+                int totalDocs = 0;
+                for (int i = 0; i < numSegments; i++) {
+                    final int numDocs = randomIntBetween(1, 20);
+                    for (int j = 0; j < numDocs; j++) {
+                        w.addDocument(new Document());
+                    }
+                    totalDocs += numDocs;
+                    w.commit();
+                }
+                final ThreadPool threadPool = new TestThreadPool(getTestName());
+                try (DirectoryReader reader = w.getReader()) {
+                    final Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader));
+                    final ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null,
+                        IndexSearcher.getDefaultQueryCachingPolicy(), threadPool.executor(ThreadPool.Names.SEARCH_WORKER),
+                        randomIntBetween(2, numSegments));
+                    assertTrue(searcher.canSearchConcurrently());
+                    final int numSlices = searcher.getSlices().size();
+
+                    final List<TotalHitCountCollector> collectors = new ArrayList<>();
+                    for (int i = 0; i < numSlices; i++) {
+                        collectors.add(new TotalHitCountCollector());
+                    }
+                    searcher.searchConcurrently(new MatchAllDocsQuery(), collectors);
+                    int count = 0;
+                    for (int i = 0; i < numSlices; i++) {
+                        int sliceDocs = 0;
+                        for (LeafReaderContext leaf : searcher.getSlices().get(i)) {
+                            sliceDocs += leaf.reader().numDocs();
+                        }
+                        assertEquals(sliceDocs, collectors.get(i).getTotalHits());
+                        count += collectors.get(i).getTotalHits();
+                    }
+                    assertEquals(totalDocs, count);
+
+                    // a failing slice fails the search once all slices are done
+                    final int failingSlice = randomIntBetween(0, numSlices - 1);
+                    final List<Collector> failingCollectors = new ArrayList<>();
+                    for (int i = 0; i < numSlices; i++) {
+                        if (i == failingSlice) {
+                            failingCollectors.add(new SimpleCollector() {
+                                @Override
+                                public void collect(int doc) throws IOException {
+                                    throw new IOException("boom");
+                                }
+
+                                @Override
+                                public boolean needsScores() {
+                                    return false;
+                                }
+                            });
+                        } else {
+                            failingCollectors.add(new TotalHitCountCollector());
+                        }
+                    }
+                    IOException e = expectThrows(IOException.class,
+                        () -> searcher.searchConcurrently(new MatchAllDocsQuery(), failingCollectors));
+                    assertEquals("boom", e.getMessage());
+
+                    expectThrows(IllegalArgumentException.class,
+                        () -> searcher.searchConcurrently(new MatchAllDocsQuery(), collectors.subList(0, 1)));
+                } finally {
+                    terminate(threadPool);
+                }
+            }
+        }
+    }
+
+    public void testSequentialSearcherHasSingleSlice() throws Exception {
+        try (Directory dir = newDirectory()) {
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+                w.addDocument(new Document());
+                try (DirectoryReader reader = w.getReader()) {
+                    final Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader));
+                    final ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, null,
+                        IndexSearcher.getDefaultQueryCachingPolicy());
+                    assertFalse(searcher.canSearchConcurrently());
+                    assertEquals(1, searcher.getSlices().size());
+                    assertEquals(reader.leaves(), searcher.getSlices().get(0));
+                }
+            }
+        }
+    }
+}
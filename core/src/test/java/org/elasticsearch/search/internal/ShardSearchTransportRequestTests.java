@@ -81,6 +81,7 @@ public class ShardSearchTransportRequestTests extends AbstractSearchTestCase {
                 assertNotSame(deserializedRequest, shardSearchTransportRequest);
                 assertEquals(deserializedRequest.filteringAliases(), shardSearchTransportRequest.filteringAliases());
                 assertEquals(deserializedRequest.indexBoost(), shardSearchTransportRequest.indexBoost(), 0.0f);
+                assertEquals(deserializedRequest.concurrentSegmentSearch(), shardSearchTransportRequest.concurrentSegmentSearch());
             }
         }
     }
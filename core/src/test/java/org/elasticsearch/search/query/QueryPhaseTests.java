@@ -20,8 +20,10 @@
 package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
@@ -33,17 +35,32 @@ import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchLocalRequest;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.List;
@@ -169,4 +186,145 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testConcurrentSegmentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField("foo", randomFrom("bar", "baz", "qux"), Store.NO));
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "bar", Store.NO));
+            }
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 10)));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        w.deleteDocuments(new Term("foo", "qux"));
+        final DirectoryReader reader = w.getReader();
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            final Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader));
+            final ContextIndexSearcher sequentialSearcher = new ContextIndexSearcher(engineSearcher,
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            final ContextIndexSearcher concurrentSearcher = new ContextIndexSearcher(engineSearcher,
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(),
+                threadPool.executor(ThreadPool.Names.SEARCH_WORKER), randomIntBetween(2, 8));
+            assertEquals(reader.leaves().size() > 1, concurrentSearcher.canSearchConcurrently());
+
+            final Query[] queries = new Query[] {
+                new MatchAllDocsQuery(),
+                new TermQuery(new Term("foo", "bar")),
+                new BooleanQuery.Builder()
+                    .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+                    .add(new TermQuery(new Term("foo", "baz")), Occur.SHOULD)
+                    .build()
+            };
+            for (Query query : queries) {
+                final int size = randomIntBetween(0, 50);
+                final SortAndFormats sort = randomBoolean() ? null
+                    : new SortAndFormats(new Sort(new SortField("rank", SortField.Type.LONG, randomBoolean())),
+                        new DocValueFormat[] {DocValueFormat.RAW});
+                final Query postFilter = randomBoolean() ? null : new TermQuery(new Term("foo", "baz"));
+
+                final TopDocs expected = searchTopDocs(sequentialSearcher, query, size, sort, postFilter);
+                final TopDocs actual = searchTopDocs(concurrentSearcher, query, size, sort, postFilter);
+                assertEquals(expected.totalHits, actual.totalHits);
+                assertEquals(expected.getMaxScore(), actual.getMaxScore(), 0f);
+                assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+                for (int i = 0; i < expected.scoreDocs.length; i++) {
+                    assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                    assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+                    assertEquals(-1, actual.scoreDocs[i].shardIndex);
+                    if (sort != null) {
+                        assertArrayEquals(((FieldDoc) expected.scoreDocs[i]).fields, ((FieldDoc) actual.scoreDocs[i]).fields);
+                    }
+                }
+            }
+        } finally {
+            terminate(threadPool);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
+
+    public void testConcurrentSegmentSearchFallsBackToSequential() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        for (int i = 0; i < 3; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField("foo", "bar", Store.NO));
+            w.addDocument(doc);
+            w.commit();
+        }
+        final DirectoryReader reader = w.getReader();
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            final Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader));
+            final ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher,
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(),
+                threadPool.executor(ThreadPool.Names.SEARCH_WORKER), 3);
+            assertTrue(searcher.canSearchConcurrently());
+
+            TestSearchContext context = new TestSearchContext(null);
+            context.parsedQuery(new ParsedQuery(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("foo", "bar")), Occur.MUST)
+                .add(new MatchAllDocsQuery(), Occur.SHOULD)
+                .build()));
+            context.setSize(10);
+            context.setTask(new SearchTask(123L, "", "", "", null));
+            assertTrue(QueryPhase.canSearchConcurrently(context, searcher));
+            assertFalse(QueryPhase.canSearchConcurrently(context, sequentialSearcher(engineSearcher)));
+
+            context.terminateAfter(1);
+            assertFalse(QueryPhase.canSearchConcurrently(context, searcher));
+            context.terminateAfter(SearchContext.DEFAULT_TERMINATE_AFTER);
+
+            context.queryCollectors().put(QueryPhaseTests.class, new TotalHitCountCollector());
+            assertFalse(QueryPhase.canSearchConcurrently(context, searcher));
+            context.queryCollectors().clear();
+
+            // counts that don't need to collect documents are not searched concurrently
+            context.setSize(0);
+            context.parsedQuery(new ParsedQuery(new ConstantScoreQuery(new MatchAllDocsQuery())));
+            assertFalse(QueryPhase.canSearchConcurrently(context, searcher));
+            context.minimumScore(0);
+            assertTrue(QueryPhase.canSearchConcurrently(context, searcher));
+        } finally {
+            terminate(threadPool);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
+
+    private static ContextIndexSearcher sequentialSearcher(Engine.Searcher engineSearcher) {
+        return new ContextIndexSearcher(engineSearcher, IndexSearcher.getDefaultQueryCache(),
+            IndexSearcher.getDefaultQueryCachingPolicy());
+    }
+
+    private static TopDocs searchTopDocs(ContextIndexSearcher searcher, Query query, int size, SortAndFormats sort,
+                                         Query postFilter) throws Exception {
+        final ShardSearchRequest request = new ShardSearchLocalRequest(new ShardId("index", "_na_", 0), new String[0], 0L, null);
+        TestSearchContext context = new TestSearchContext(null) {
+            @Override
+            public ShardSearchRequest request() {
+                return request;
+            }
+        };
+        context.parsedQuery(new ParsedQuery(query));
+        context.setSize(size);
+        context.sort(sort);
+        if (postFilter != null) {
+            context.parsedPostFilter(new ParsedQuery(postFilter));
+        }
+        context.setTask(new SearchTask(123L, "", "", "", null));
+        assertFalse(QueryPhase.execute(context, searcher));
+        return context.queryResult().topDocs();
+    }
 }
@@ -27,6 +27,7 @@ import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.blobstore.fs.FsBlobStore;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -114,11 +115,14 @@ public class BlobStoreFormatIT extends AbstractSnapshotIntegTestCase {
             xContentRegistry(), false, XContentType.SMILE);
         ChecksumBlobStoreFormat<BlobObj> checksumSMILECompressed = new ChecksumBlobStoreFormat<>(BLOB_CODEC, "%s", BlobObj::fromXContent,
             xContentRegistry(), true, XContentType.SMILE);
+        ChecksumBlobStoreFormat<BlobObj> checksumSMILELZ4 = new ChecksumBlobStoreFormat<>(BLOB_CODEC, "%s", BlobObj::fromXContent,
+            xContentRegistry(), true, CompressorFactory.LZ4, XContentType.SMILE);
 
         // Write blobs in different formats
         checksumJSON.write(new BlobObj("checksum json"), blobContainer, "check-json");
         checksumSMILE.write(new BlobObj("checksum smile"), blobContainer, "check-smile");
         checksumSMILECompressed.write(new BlobObj("checksum smile compressed"), blobContainer, "check-smile-comp");
+        checksumSMILELZ4.write(new BlobObj("checksum smile lz4"), blobContainer, "check-smile-lz4");
 
         // Assert that all checksum blobs can be read by all formats
         assertEquals(checksumJSON.read(blobContainer, "check-json").getText(), "checksum json");
@@ -127,6 +131,8 @@ public class BlobStoreFormatIT extends AbstractSnapshotIntegTestCase {
         assertEquals(checksumSMILE.read(blobContainer, "check-smile").getText(), "checksum smile");
         assertEquals(checksumJSON.read(blobContainer, "check-smile-comp").getText(), "checksum smile compressed");
         assertEquals(checksumSMILE.read(blobContainer, "check-smile-comp").getText(), "checksum smile compressed");
+        assertEquals(checksumJSON.read(blobContainer, "check-smile-lz4").getText(), "checksum smile lz4");
+        assertEquals(checksumSMILECompressed.read(blobContainer, "check-smile-lz4").getText(), "checksum smile lz4");
     }
 
     public void testCompressionIsApplied() throws IOException {
@@ -139,7 +145,8 @@ public class BlobStoreFormatIT extends AbstractSnapshotIntegTestCase {
         ChecksumBlobStoreFormat<BlobObj> checksumFormat = new ChecksumBlobStoreFormat<>(BLOB_CODEC, "%s", BlobObj::fromXContent,
             xContentRegistry(), false, randomBoolean() ? XContentType.SMILE : XContentType.JSON);
         ChecksumBlobStoreFormat<BlobObj> checksumFormatComp = new ChecksumBlobStoreFormat<>(BLOB_CODEC, "%s", BlobObj::fromXContent,
-            xContentRegistry(), true, randomBoolean() ? XContentType.SMILE : XContentType.JSON);
+            xContentRegistry(), true, randomFrom(CompressorFactory.DEFLATE, CompressorFactory.LZ4),
+            randomBoolean() ? XContentType.SMILE : XContentType.JSON);
         BlobObj blobObj = new BlobObj(veryRedundantText.toString());
         checksumFormatComp.write(blobObj, blobContainer, "blob-comp");
         checksumFormat.write(blobObj, blobContainer, "blob-not-comp");
@@ -23,6 +23,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -36,7 +37,10 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -152,13 +156,17 @@ public class TCPTransportTests extends ESTestCase {
 
     public void testCompressRequest() throws IOException {
         final boolean compressed = randomBoolean();
+        final String compressionScheme = randomFrom("deflate", "lz4");
         final AtomicBoolean called = new AtomicBoolean(false);
         Req request = new Req(randomRealisticUnicodeOfLengthBetween(10, 100));
         ThreadPool threadPool = new TestThreadPool(TCPTransportTests.class.getName());
         AtomicReference<IOException> exceptionReference = new AtomicReference<>();
         try {
-            TcpTransport transport = new TcpTransport("test", Settings.builder().put("transport.tcp.compress", compressed).build(),
-                threadPool, new BigArrays(Settings.EMPTY, null), null, null, null) {
+            Settings settings = Settings.builder()
+                .put("transport.tcp.compress", compressed)
+                .put("transport.tcp.compression_scheme", compressionScheme)
+                .build();
+            TcpTransport transport = new TcpTransport("test", settings, threadPool, new BigArrays(Settings.EMPTY, null), null, null, null) {
                 @Override
                 protected InetSocketAddress getLocalAddress(Object o) {
                     return null;
@@ -189,8 +197,10 @@ public class TCPTransportTests extends ESTestCase {
                         called.compareAndSet(false, true);
                         if (compressed) {
                             final int bytesConsumed = TcpHeader.HEADER_SIZE;
-                            streamIn = CompressorFactory.compressor(reference.slice(bytesConsumed, reference.length() - bytesConsumed))
-                                .streamInput(streamIn);
+                            Compressor compressor =
+                                CompressorFactory.compressor(reference.slice(bytesConsumed, reference.length() - bytesConsumed));
+                            assertSame(CompressorFactory.compressor(compressionScheme), compressor);
+                            streamIn = compressor.streamInput(streamIn);
                         }
                         threadPool.getThreadContext().readHeaders(streamIn);
                         assertEquals("foobar", streamIn.readString());
@@ -251,6 +261,94 @@ public class TCPTransportTests extends ESTestCase {
         }
     }
 
+    public void testCoalesceMessages() throws IOException {
+        final List<BytesReference> writes = new CopyOnWriteArrayList<>();
+        ThreadPool threadPool = new TestThreadPool(TCPTransportTests.class.getName());
+        try {
+            Settings settings = Settings.builder()
+                // long enough that only the size limit triggers the writes
+                .put(TcpTransport.TCP_COALESCING_MAX_DELAY.getKey(), "1h")
+                // more than one and less than two messages
+                .put(TcpTransport.TCP_COALESCING_MAX_SIZE.getKey(), "1500b")
+                .build();
+            final Object channel = new Object();
+            TcpTransport transport = new TcpTransport("test", settings, threadPool, new BigArrays(Settings.EMPTY, null), null, null, null) {
+                @Override
+                protected InetSocketAddress getLocalAddress(Object o) {
+                    return null;
+                }
+
+                @Override
+                protected Object bind(String name, InetSocketAddress address) throws IOException {
+                    return null;
+                }
+
+                @Override
+                protected void closeChannels(List channel) throws IOException {
+
+                }
+
+                @Override
+                protected void sendMessage(Object o, BytesReference reference, ActionListener listener) {
+                    assertSame(channel, o);
+                    writes.add(reference);
+                }
+
+                @Override
+                protected NodeChannels connectToChannels(DiscoveryNode node, ConnectionProfile profile) throws IOException {
+                    return new NodeChannels(node, new Object[profile.getNumConnections()], profile);
+                }
+
+                @Override
+                protected boolean isOpen(Object o) {
+                    return true;
+                }
+
+                @Override
+                public long serverOpen() {
+                    return 0;
+                }
+
+                @Override
+                public NodeChannels getConnection(DiscoveryNode node) {
+                    final Object[] channels = new Object[MockTcpTransport.LIGHT_PROFILE.getNumConnections()];
+                    Arrays.fill(channels, channel);
+                    return new NodeChannels(node, channels, MockTcpTransport.LIGHT_PROFILE);
+                }
+            };
+            DiscoveryNode node = new DiscoveryNode("foo", buildNewFakeTransportAddress(), Version.CURRENT);
+            Transport.Connection connection = transport.getConnection(node);
+            final int numBatches = randomIntBetween(1, 10);
+            final Req request = new Req(randomAlphaOfLength(1000));
+            for (int requestId = 0; requestId < numBatches * 2; requestId++) {
+                connection.sendRequest(requestId, "foobar", request, TransportRequestOptions.EMPTY);
+                assertThat(writes.size(), equalTo((requestId + 1) / 2));
+            }
+            for (int i = 0; i < numBatches; i++) {
+                assertThat(readRequestIds(writes.get(i)), equalTo(Arrays.asList(2L * i, 2L * i + 1)));
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Reads the request ids of all messages that were written together
+     */
+    private static List<Long> readRequestIds(BytesReference batch) throws IOException {
+        final List<Long> requestIds = new ArrayList<>();
+        int offset = 0;
+        while (offset < batch.length()) {
+            StreamInput streamIn = batch.slice(offset, batch.length() - offset).streamInput();
+            streamIn.skip(TcpHeader.MARKER_BYTES_SIZE);
+            int len = streamIn.readInt();
+            requestIds.add(streamIn.readLong());
+            offset += TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE + len;
+        }
+        assertEquals(batch.length(), offset);
+        return requestIds;
+    }
+
     public void testConnectionProfileResolve() {
         final ConnectionProfile defaultProfile = TcpTransport.buildDefaultConnectionProfile(Settings.EMPTY);
         assertEquals(defaultProfile, TcpTransport.resolveConnectionProfile(null, defaultProfile));
@@ -24,8 +24,10 @@ import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -443,6 +445,54 @@ public class PercolatorQuerySearchIT extends ESSingleNodeTestCase {
                 equalTo("The quick brown <em>fox</em> jumps over the lazy dog"));
     }
 
+    public void testPercolatorQueryWithHighlightingOnSeveralShards() throws Exception {
+        // the percolated document is used again by the fetch phase of every shard, after the query phase was responded to
+        createIndex("test", client().admin().indices().prepareCreate("test")
+                .setSettings(Settings.builder()
+                        .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, randomIntBetween(2, 5))
+                        .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0))
+                .addMapping("type", "field1", "type=text")
+                .addMapping("queries", "query", "type=percolator")
+        );
+        client().prepareIndex("test", "queries", "1")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field1", "brown fox")).endObject())
+                .get();
+        client().prepareIndex("test", "queries", "2")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field1", "lazy dog")).endObject())
+                .get();
+        client().prepareIndex("test", "queries", "3")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field1", "jumps")).endObject())
+                .get();
+        client().prepareIndex("test", "queries", "4")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field1", "dog")).endObject())
+                .get();
+        client().prepareIndex("test", "queries", "5")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field1", "fox")).endObject())
+                .get();
+        client().admin().indices().prepareRefresh().get();
+
+        BytesReference document = jsonBuilder().startObject()
+                .field("field1", "The quick brown fox jumps over the lazy dog")
+                .endObject().bytes();
+        SearchResponse searchResponse = client().prepareSearch()
+                .setQuery(new PercolateQueryBuilder("query", "type", document, XContentType.JSON))
+                .highlighter(new HighlightBuilder().field("field1"))
+                .addSort("_uid", SortOrder.ASC)
+                .get();
+        assertHitCount(searchResponse, 5);
+
+        assertThat(searchResponse.getHits().getAt(0).getHighlightFields().get("field1").fragments()[0].string(),
+                equalTo("The quick <em>brown</em> <em>fox</em> jumps over the lazy dog"));
+        assertThat(searchResponse.getHits().getAt(1).getHighlightFields().get("field1").fragments()[0].string(),
+                equalTo("The quick brown fox jumps over the <em>lazy</em> <em>dog</em>"));
+        assertThat(searchResponse.getHits().getAt(2).getHighlightFields().get("field1").fragments()[0].string(),
+                equalTo("The quick brown fox <em>jumps</em> over the lazy dog"));
+        assertThat(searchResponse.getHits().getAt(3).getHighlightFields().get("field1").fragments()[0].string(),
+                equalTo("The quick brown fox jumps over the lazy <em>dog</em>"));
+        assertThat(searchResponse.getHits().getAt(4).getHighlightFields().get("field1").fragments()[0].string(),
+                equalTo("The quick brown <em>fox</em> jumps over the lazy dog"));
+    }
+
     public void testTakePositionOffsetGapIntoAccount() throws Exception {
         createIndex("test", client().admin().indices().prepareCreate("test")
                 .addMapping("type", "field", "type=text,position_increment_gap=5")
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+/**
+ * Sends HTTP/1.1 responses with content larger than a threshold using chunked transfer encoding. The content is copied chunk by chunk
+ * into buffers of the channel's allocator while the channel is writable, so a large response rendered to heap pages is never copied
+ * into a single direct buffer of its full size. Must be placed in front of a {@link ChunkedWriteHandler} in the outbound direction.
+ */
+final class Netty4ChunkedHttpResponseHandler extends ChannelOutboundHandlerAdapter {
+
+    private final int threshold;
+    private final int chunkSize;
+
+    Netty4ChunkedHttpResponseHandler(int threshold, int chunkSize) {
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof FullHttpResponse) {
+            final FullHttpResponse response = (FullHttpResponse) msg;
+            if (response.content().readableBytes() > threshold && HttpVersion.HTTP_1_1.equals(response.protocolVersion())) {
+                final HttpResponse head = new DefaultHttpResponse(response.protocolVersion(), response.status(), response.headers());
+                // also removes the content length
+                HttpUtil.setTransferEncodingChunked(head, true);
+                ctx.write(head);
+                // the stream releases the content once all chunks are written or the write failed
+                ctx.write(new HttpChunkedInput(new ChunkedStream(new ByteBufInputStream(response.content(), true), chunkSize)), promise);
+                return;
+            }
+        }
+        ctx.write(msg, promise);
+    }
+}
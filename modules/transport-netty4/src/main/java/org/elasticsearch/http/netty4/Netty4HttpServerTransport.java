@@ -40,6 +40,7 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
@@ -147,6 +148,12 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         byteSizeSetting("http.netty.receive_predictor_min", SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE, Property.NodeScope);
     public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_MAX =
         byteSizeSetting("http.netty.receive_predictor_max", SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE, Property.NodeScope);
+    // responses larger than this are sent with chunked transfer encoding, -1 disables chunking
+    public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_CHUNKED_RESPONSE_THRESHOLD =
+        Setting.byteSizeSetting("http.netty.chunked_response_threshold", new ByteSizeValue(1, ByteSizeUnit.MB), Property.NodeScope);
+    public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RESPONSE_CHUNK_SIZE =
+        Setting.byteSizeSetting("http.netty.response_chunk_size", new ByteSizeValue(64, ByteSizeUnit.KB),
+            new ByteSizeValue(1, ByteSizeUnit.BYTES), new ByteSizeValue(Integer.MAX_VALUE, ByteSizeUnit.BYTES), Property.NodeScope);
 
 
     protected final NetworkService networkService;
@@ -192,6 +199,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
 
     protected final ByteSizeValue maxCumulationBufferCapacity;
     protected final int maxCompositeBufferComponents;
+    protected final ByteSizeValue chunkedResponseThreshold;
+    protected final ByteSizeValue responseChunkSize;
     private final Dispatcher dispatcher;
 
     protected volatile ServerBootstrap serverBootstrap;
@@ -222,6 +231,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         this.resetCookies = SETTING_HTTP_RESET_COOKIES.get(settings);
         this.maxCumulationBufferCapacity = SETTING_HTTP_NETTY_MAX_CUMULATION_BUFFER_CAPACITY.get(settings);
         this.maxCompositeBufferComponents = SETTING_HTTP_NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS.get(settings);
+        this.chunkedResponseThreshold = SETTING_HTTP_NETTY_CHUNKED_RESPONSE_THRESHOLD.get(settings);
+        this.responseChunkSize = SETTING_HTTP_NETTY_RESPONSE_CHUNK_SIZE.get(settings);
         this.workerCount = SETTING_HTTP_WORKER_COUNT.get(settings);
         this.port = SETTING_HTTP_PORT.get(settings);
         this.bindHosts = SETTING_HTTP_BIND_HOST.get(settings).toArray(Strings.EMPTY_ARRAY);
@@ -562,6 +573,12 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
             if (transport.compression) {
                 ch.pipeline().addLast("encoder_compress", new HttpContentCompressor(transport.compressionLevel));
             }
+            if (transport.chunkedResponseThreshold.getBytes() != -1) {
+                ch.pipeline().addLast("chunked_writer", new ChunkedWriteHandler());
+                ch.pipeline().addLast("chunked_response", new Netty4ChunkedHttpResponseHandler(
+                    Math.toIntExact(Math.min(transport.chunkedResponseThreshold.getBytes(), Integer.MAX_VALUE)),
+                    Math.toIntExact(transport.responseChunkSize.getBytes())));
+            }
             if (SETTING_CORS_ENABLED.get(transport.settings())) {
                 ch.pipeline().addLast("cors", new Netty4CorsHandler(transport.getCorsConfig()));
             }
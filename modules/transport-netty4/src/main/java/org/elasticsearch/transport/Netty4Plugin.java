@@ -64,6 +64,8 @@ public class Netty4Plugin extends Plugin implements NetworkPlugin {
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE,
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_MIN,
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_MAX,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_CHUNKED_RESPONSE_THRESHOLD,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_RESPONSE_CHUNK_SIZE,
             Netty4Transport.WORKER_COUNT,
             Netty4Transport.NETTY_MAX_CUMULATION_BUFFER_CAPACITY,
             Netty4Transport.NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS,
@@ -64,18 +64,12 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
             return;
         }
         final ByteBuf buffer = (ByteBuf) msg;
-        final int remainingMessageSize = buffer.getInt(buffer.readerIndex() - TcpHeader.MESSAGE_LENGTH_SIZE);
-        final int expectedReaderIndex = buffer.readerIndex() + remainingMessageSize;
-        try {
-            InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
-            // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
-            // buffer, or in the cumulative buffer, which is cleaned each time so it could be bigger than the actual size
-            BytesReference reference = Netty4Utils.toBytesReference(buffer, remainingMessageSize);
-            transport.messageReceived(reference, ctx.channel(), profileName, remoteAddress, remainingMessageSize);
-        } finally {
-            // Set the expected position of the buffer, no matter what happened
-            buffer.readerIndex(expectedReaderIndex);
-        }
+        final int messageSize = buffer.readableBytes();
+        InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        // the buffer is a retained slice of the message that the transport releases once the message is handled. For requests this
+        // is after the response is sent, so they can reference the bytes of the message instead of copying them
+        BytesReference reference = Netty4Utils.toBytesReference(buffer, messageSize);
+        transport.messageReceived(reference, ctx.channel(), profileName, remoteAddress, messageSize, buffer::release);
     }
 
     @Override
@@ -34,9 +34,12 @@ final class Netty4SizeHeaderFrameDecoder extends ByteToMessageDecoder {
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         try {
             boolean continueProcessing = TcpTransport.validateMessageHeader(Netty4Utils.toBytesReference(in));
-            final ByteBuf message = in.skipBytes(TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE);
+            final int messageLength = in.getInt(in.readerIndex() + TcpHeader.MARKER_BYTES_SIZE);
+            in.skipBytes(TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE);
             if (!continueProcessing) return;
-            out.add(message);
+            // every message holds its own reference to the cumulated bytes so that requests can keep referencing them after they
+            // were decoded, the message handler releases it
+            out.add(in.readRetainedSlice(messageLength));
         } catch (IllegalArgumentException ex) {
             throw new TooLongFrameException(ex);
         } catch (IllegalStateException ex) {
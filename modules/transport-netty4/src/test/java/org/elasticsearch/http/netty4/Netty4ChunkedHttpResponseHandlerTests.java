@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class Netty4ChunkedHttpResponseHandlerTests extends ESTestCase {
+
+    public void testLargeResponseIsChunked() {
+        final int chunkSize = randomIntBetween(1, 128);
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new Netty4ChunkedHttpResponseHandler(64, chunkSize));
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(65, 1024));
+        final ByteBuf content = Unpooled.wrappedBuffer(bytes);
+        final FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+        response.headers().add(HttpHeaderNames.CONTENT_LENGTH, bytes.length);
+        response.headers().add("X-Opaque-Id", "foo");
+        assertTrue(channel.writeOutbound(response));
+
+        final HttpResponse head = channel.readOutbound();
+        assertThat(head, not(instanceOf(FullHttpResponse.class)));
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        assertFalse(head.headers().contains(HttpHeaderNames.CONTENT_LENGTH));
+        assertThat(head.headers().get("X-Opaque-Id"), equalTo("foo"));
+        final ByteBuf received = Unpooled.buffer();
+        HttpContent chunk;
+        do {
+            chunk = channel.readOutbound();
+            assertThat(chunk.content().readableBytes(), lessThanOrEqualTo(chunkSize));
+            received.writeBytes(chunk.content());
+            chunk.release();
+        } while (chunk instanceof LastHttpContent == false);
+        assertThat(received, equalTo(Unpooled.wrappedBuffer(bytes)));
+        assertThat(content.refCnt(), equalTo(0));
+        assertFalse(channel.finish());
+    }
+
+    public void testSmallResponseIsNotChunked() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChunkedWriteHandler(), new Netty4ChunkedHttpResponseHandler(64, 16));
+        final HttpVersion version = randomFrom(HttpVersion.HTTP_1_0, HttpVersion.HTTP_1_1);
+        // HTTP/1.0 does not support chunked transfer encoding
+        final int length = version == HttpVersion.HTTP_1_0 ? randomIntBetween(0, 1024) : randomIntBetween(0, 64);
+        final FullHttpResponse response =
+            new DefaultFullHttpResponse(version, HttpResponseStatus.OK, Unpooled.wrappedBuffer(randomByteArrayOfLength(length)));
+        assertTrue(channel.writeOutbound(response));
+        assertThat(channel.readOutbound(), sameInstance(response));
+        response.release();
+        assertFalse(channel.finish());
+    }
+}
@@ -19,6 +19,10 @@
 
 package org.elasticsearch.transport.netty4;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
@@ -40,6 +44,7 @@ import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -105,4 +110,25 @@ public class Netty4SizeHeaderFrameDecoderTests extends ESTestCase {
         }
     }
 
+    public void testDecodedMessagesReferenceTheReceivedBytes() {
+        final byte[] first = randomByteArrayOfLength(randomIntBetween(1, 100));
+        final byte[] second = randomByteArrayOfLength(randomIntBetween(1, 100));
+        final ByteBuf received = Unpooled.buffer();
+        for (byte[] message : new byte[][] {first, second}) {
+            received.writeByte('E').writeByte('S').writeInt(message.length).writeBytes(message);
+        }
+        final EmbeddedChannel channel = new EmbeddedChannel(new Netty4SizeHeaderFrameDecoder());
+        assertTrue(channel.writeInbound(received));
+        final ByteBuf firstMessage = channel.readInbound();
+        final ByteBuf secondMessage = channel.readInbound();
+        assertNull(channel.readInbound());
+        // the decoder is done with the received bytes but the messages still hold on to them
+        assertThat(received.refCnt(), equalTo(2));
+        assertThat(BytesReference.toBytes(Netty4Utils.toBytesReference(firstMessage)), equalTo(first));
+        assertFalse(firstMessage.release());
+        assertThat(BytesReference.toBytes(Netty4Utils.toBytesReference(secondMessage)), equalTo(second));
+        assertTrue(secondMessage.release());
+        assertThat(received.refCnt(), equalTo(0));
+        assertFalse(channel.finish());
+    }
 }
@@ -281,7 +281,7 @@ public abstract class IndexShardTestCase extends ESTestCase {
                 new NoneCircuitBreakerService(), mapperService);
             indexShard = new IndexShard(routing, indexSettings, shardPath, store, indexCache, mapperService, similarityService,
                 indexFieldDataService, engineFactory, indexEventListener, indexSearcherWrapper, threadPool,
-                BigArrays.NON_RECYCLING_INSTANCE, warmer, globalCheckpointSyncer, Collections.emptyList(), Arrays.asList(listeners));
+                BigArrays.NON_RECYCLING_INSTANCE, warmer, globalCheckpointSyncer, null, Collections.emptyList(), Arrays.asList(listeners));
             success = true;
         } finally {
             if (success == false) {
@@ -94,6 +94,9 @@ public class RandomSearchRequestGenerator {
         if (randomBoolean()) {
             searchRequest.requestCache(randomBoolean());
         }
+        if (randomBoolean()) {
+            searchRequest.concurrentSegmentSearch(randomBoolean());
+        }
         if (randomBoolean()) {
             searchRequest.routing(randomAlphaOfLengthBetween(3, 10));
         }
@@ -131,6 +134,9 @@ public class RandomSearchRequestGenerator {
         if (randomBoolean()) {
             builder.trackScores(randomBoolean());
         }
+        if (randomBoolean()) {
+            builder.trackTotalHits(randomBoolean());
+        }
         if (randomBoolean()) {
             builder.minScore(randomFloat() * 1000);
         }
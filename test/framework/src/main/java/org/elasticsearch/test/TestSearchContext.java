@@ -60,6 +60,7 @@ import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +87,8 @@ public class TestSearchContext extends SearchContext {
     int size;
     private int terminateAfter = DEFAULT_TERMINATE_AFTER;
     private SearchContextAggregations aggregations;
+    private boolean trackTotalHits = true;
+    private SortAndFormats sort;
 
     private final long originNanoTime = System.nanoTime();
     private final Map<String, SearchExtBuilder> searchExtBuilders = new HashMap<>();
@@ -210,7 +213,7 @@ public class TestSearchContext extends SearchContext {
 
     @Override
     public List<RescoreSearchContext> rescore() {
-        return null;
+        return Collections.emptyList();
     }
 
     @Override
@@ -336,12 +339,13 @@ public class TestSearchContext extends SearchContext {
 
     @Override
     public SearchContext sort(SortAndFormats sort) {
-        return null;
+        this.sort = sort;
+        return this;
     }
 
     @Override
     public SortAndFormats sort() {
-        return null;
+        return sort;
     }
 
     @Override
@@ -354,6 +358,17 @@ public class TestSearchContext extends SearchContext {
         return false;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         return null;
@@ -30,9 +30,12 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
@@ -143,6 +146,7 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
                                               Settings settings, boolean acceptRequests, boolean doHandshake) {
         MockTransportService service = build(
             Settings.builder()
+                .put(Transport.TRANSPORT_TCP_COMPRESSION_SCHEME.getKey(), randomFrom("deflate", "lz4"))
                 .put(settings)
                 .put(Node.NODE_NAME_SETTING.getKey(), name)
                 .put(TransportService.TRACE_LOG_INCLUDE_SETTING.getKey(), "")
@@ -514,6 +518,31 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
         }
     }
 
+    public void testRequestBytesOutliveResponse() throws Exception {
+        final AtomicReference<BytesMessageRequest> received = new AtomicReference<>();
+        serviceA.registerRequestHandler("sayBytes", BytesMessageRequest::new, ThreadPool.Names.GENERIC,
+            (request, channel) -> {
+                received.set(request);
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            });
+
+        final BytesReference bytes = randomBytesReference(randomIntBetween(1, 1 << 16));
+        serviceB.submitRequest(nodeA, "sayBytes", new BytesMessageRequest(bytes), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+        final BytesMessageRequest request = received.get();
+        // the request was responded to, receiving more messages must not change what it read
+        for (int i = 0; i < 10; i++) {
+            serviceB.submitRequest(nodeA, "sayBytes", new BytesMessageRequest(randomBytesReference(bytes.length())),
+                EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+        }
+        assertEquals(bytes, request.bytes);
+    }
+
+    private static BytesReference randomBytesReference(int length) {
+        final byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return new BytesArray(bytes);
+    }
+
     public void testHelloWorldCompressed() {
         serviceA.registerRequestHandler("sayHello", StringMessageRequest::new, ThreadPool.Names.GENERIC,
             new TransportRequestHandler<StringMessageRequest>() {
@@ -1135,6 +1164,30 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
         }
     }
 
+    public static class BytesMessageRequest extends TransportRequest {
+
+        private BytesReference bytes;
+
+        public BytesMessageRequest() {
+        }
+
+        BytesMessageRequest(BytesReference bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            bytes = in.readBytesReference();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBytesReference(bytes);
+        }
+    }
+
     static class StringMessageResponse extends TransportResponse {
 
         private String message;
@@ -1964,10 +2017,10 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
             new NoneCircuitBreakerService(), namedWriteableRegistry, new NetworkService(Settings.EMPTY, Collections.emptyList())) {
             @Override
             protected String handleRequest(MockChannel mockChannel, String profileName, StreamInput stream, long requestId,
-                                           int messageLengthBytes, Version version, InetSocketAddress remoteAddress, byte status)
-                throws IOException {
+                                           int messageLengthBytes, Version version, InetSocketAddress remoteAddress, byte status,
+                                           Releasable releasable) throws IOException {
                 return super.handleRequest(mockChannel, profileName, stream, requestId, messageLengthBytes, version, remoteAddress,
-                    (byte)(status & ~(1<<3))); // we flip the isHandshake bit back and act like the handler is not found
+                    (byte)(status & ~(1<<3)), releasable); // we flip the isHandshake bit back and act like the handler is not found
             }
         }) {
             transport.transportServiceAdapter(serviceA.new Adapter());